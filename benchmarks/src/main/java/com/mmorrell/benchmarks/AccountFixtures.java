@@ -0,0 +1,550 @@
+package com.mmorrell.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Account data the decoder benchmarks run against.
+ * <p>
+ * Each fixture is read from the classpath resource {@code /fixtures/<name>.bin} if one exists, i.e. account bytes
+ * captured from mainnet with {@link FixtureCapture}. Otherwise an equivalent account is generated: same account
+ * size and layout as on mainnet, with a realistically filled book, queue or price account. Generation is seeded, so
+ * every run decodes the same bytes.
+ */
+public final class AccountFixtures {
+
+    public static final String SERUM_BIDS = "serum-bids";
+    public static final String SERUM_ASKS = "serum-asks";
+    public static final String SERUM_EVENT_QUEUE = "serum-event-queue";
+    public static final String OPENBOOK_BIDS = "openbook-bids";
+    public static final String OPENBOOK_ASKS = "openbook-asks";
+    public static final String OPENBOOK_EVENT_HEAP = "openbook-event-heap";
+    public static final String PHOENIX_MARKET = "phoenix-market";
+    public static final String PYTH_PRICE = "pyth-price";
+    public static final String MANGO_GROUP = "mango-group";
+    public static final String JUPITER_DCA = "jupiter-dca";
+    public static final String JUPITER_CUSTODY = "jupiter-custody";
+
+    public static final String[] NAMES = {
+            SERUM_BIDS, SERUM_ASKS, SERUM_EVENT_QUEUE, OPENBOOK_BIDS, OPENBOOK_ASKS, OPENBOOK_EVENT_HEAP,
+            PHOENIX_MARKET, PYTH_PRICE, MANGO_GROUP, JUPITER_DCA, JUPITER_CUSTODY
+    };
+
+    private static final long SEED = 42L;
+
+    // Serum: 65548 byte bids/asks accounts (909 slab nodes), 262156 byte event queue (2978 events)
+    private static final int SERUM_SLAB_SIZE = 65548;
+    private static final int SERUM_SLAB_HEADER_SIZE = 45;
+    private static final int SERUM_SLAB_NODE_SIZE = 72;
+    private static final int SERUM_SLAB_LEAVES = 455;
+    private static final int SERUM_EVENT_QUEUE_SIZE = 262156;
+    private static final int SERUM_EVENT_QUEUE_HEADER_SIZE = 37;
+    private static final int SERUM_EVENT_SIZE = 88;
+
+    // OpenBook v2: 1024 node book sides, 600 node event heap
+    private static final int OPENBOOK_BOOK_SIDE_SIZE = 90952;
+    private static final int OPENBOOK_NODES_OFFSET = 840;
+    private static final int OPENBOOK_NODE_SIZE = 88;
+    private static final int OPENBOOK_BOOK_SIDE_LEAVES = 512;
+    private static final int OPENBOOK_EVENT_HEAP_SIZE = 91288;
+    private static final int OPENBOOK_EVENT_NODES_OFFSET = 24;
+    private static final int OPENBOOK_EVENT_NODE_SIZE = 152;
+    private static final int OPENBOOK_EVENT_NODES = 600;
+    private static final int OPENBOOK_EVENTS = 300;
+    private static final int OPENBOOK_NO_NODE = 0xFFFF;
+
+    // Phoenix: 2048 orders per side, 4097 seats
+    private static final int PHOENIX_TREES_OFFSET = 880;
+    private static final int PHOENIX_BOOK_CAPACITY = 2048;
+    private static final int PHOENIX_SEATS_CAPACITY = 4097;
+    private static final int PHOENIX_ORDERS_PER_SIDE = 600;
+    private static final int PHOENIX_TRADERS = 250;
+    private static final int PHOENIX_ORDER_NODE_SIZE = 16 + 16 + 32;
+    private static final int PHOENIX_TRADER_NODE_SIZE = 16 + 32 + 96;
+
+    // Pyth: 3312 byte price account with 32 publishers
+    private static final int PYTH_PRICE_SIZE = 3312;
+    private static final int PYTH_COMPONENTS = 32;
+    private static final int PYTH_COMPONENT_SIZE = 96;
+
+    // Mango v2 group and Jupiter accounts are fixed layouts, sized to cover every field the decoders read
+    private static final int MANGO_GROUP_SIZE = 1168;
+    private static final int JUPITER_DCA_SIZE = 289;
+    private static final int JUPITER_CUSTODY_SIZE = 296;
+
+    private AccountFixtures() {
+    }
+
+    /**
+     * Returns the named fixture: captured bytes from {@code /fixtures/<name>.bin} if present, generated otherwise.
+     *
+     * @param name one of {@link #NAMES}
+     * @return account data
+     */
+    public static byte[] get(String name) {
+        return load(name, () -> generate(name));
+    }
+
+    /**
+     * @param name one of {@link #NAMES}
+     * @return true if the fixture is read from a captured resource rather than generated
+     */
+    public static boolean isCaptured(String name) {
+        return AccountFixtures.class.getResource(resourcePath(name)) != null;
+    }
+
+    static String resourcePath(String name) {
+        return "/fixtures/" + name + ".bin";
+    }
+
+    private static byte[] load(String name, Supplier<byte[]> generator) {
+        try (InputStream inputStream = AccountFixtures.class.getResourceAsStream(resourcePath(name))) {
+            if (inputStream == null) {
+                return generator.get();
+            }
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read fixture " + name, e);
+        }
+    }
+
+    private static byte[] generate(String name) {
+        switch (name) {
+            case SERUM_BIDS:
+                return generateSerumSlab(true);
+            case SERUM_ASKS:
+                return generateSerumSlab(false);
+            case SERUM_EVENT_QUEUE:
+                return generateSerumEventQueue();
+            case OPENBOOK_BIDS:
+                return generateOpenBookBookSide(true);
+            case OPENBOOK_ASKS:
+                return generateOpenBookBookSide(false);
+            case OPENBOOK_EVENT_HEAP:
+                return generateOpenBookEventHeap();
+            case PHOENIX_MARKET:
+                return generatePhoenixMarket();
+            case PYTH_PRICE:
+                return generatePythPrice();
+            case MANGO_GROUP:
+                return generateRandomAccount(MANGO_GROUP_SIZE, 0);
+            case JUPITER_DCA:
+                return generateRandomAccount(JUPITER_DCA_SIZE, 8);
+            case JUPITER_CUSTODY:
+                return generateRandomAccount(JUPITER_CUSTODY_SIZE, 8);
+            default:
+                throw new IllegalArgumentException("Unknown fixture " + name);
+        }
+    }
+
+    /**
+     * Serum bids or asks account: a full critbit tree of {@link #SERUM_SLAB_LEAVES} orders, which fills all 909
+     * slab nodes.
+     */
+    private static byte[] generateSerumSlab(boolean bids) {
+        final Random random = new Random(SEED + (bids ? 1 : 2));
+        final ByteBuffer buffer = newBuffer(SERUM_SLAB_SIZE);
+        buffer.put(0, "serum".getBytes());
+        buffer.put(5, (byte) (bids ? 33 : 65)); // initialized, bids/asks
+        buffer.put(SERUM_SLAB_SIZE - 7, "padding".getBytes());
+
+        final long[] prices = ladder(random, SERUM_SLAB_LEAVES, bids ? 19_999 : 20_001, bids);
+        final int[] nextNode = {0};
+        final int root = writeSerumTree(buffer, random, prices, 0, prices.length - 1, nextNode, bids);
+
+        buffer.putInt(13, nextNode[0]); // bumpIndex
+        buffer.putInt(21, 0); // freeListLen
+        buffer.putInt(29, 0); // freeListHead
+        buffer.putInt(33, root);
+        buffer.putInt(37, SERUM_SLAB_LEAVES);
+        return buffer.array();
+    }
+
+    private static int writeSerumTree(ByteBuffer buffer, Random random, long[] prices, int low, int high,
+                                      int[] nextNode, boolean bids) {
+        final int index = nextNode[0]++;
+        final int offset = SERUM_SLAB_HEADER_SIZE + (index * SERUM_SLAB_NODE_SIZE);
+
+        if (low == high) {
+            final long seqNum = 1_000_000L + random.nextInt(1_000_000);
+            buffer.putInt(offset, 2); // leaf
+            buffer.put(offset + 4, (byte) random.nextInt(128)); // owner slot
+            buffer.put(offset + 5, (byte) random.nextInt(7)); // fee tier
+            buffer.putLong(offset + 8, bids ? ~seqNum : seqNum);
+            buffer.putLong(offset + 16, prices[low]);
+            buffer.put(offset + 24, randomBytes(random, 32));
+            buffer.putLong(offset + 56, 1 + random.nextInt(10_000)); // quantity
+            buffer.putLong(offset + 64, random.nextLong()); // client order id
+            return index;
+        }
+
+        final int middle = (low + high) >>> 1;
+        buffer.putInt(offset, 1); // inner
+        buffer.putInt(offset + 4, 64 + random.nextInt(64)); // prefix length
+        buffer.putLong(offset + 16, prices[middle]);
+        final int left = writeSerumTree(buffer, random, prices, low, middle, nextNode, bids);
+        final int right = writeSerumTree(buffer, random, prices, middle + 1, high, nextNode, bids);
+        // child 0 holds the lower keys
+        buffer.putInt(offset + 24, bids ? right : left);
+        buffer.putInt(offset + 28, bids ? left : right);
+        return index;
+    }
+
+    /**
+     * Serum event queue with every slot written, as on a busy market, and the most recent 200 events unconsumed.
+     */
+    private static byte[] generateSerumEventQueue() {
+        final Random random = new Random(SEED + 3);
+        final ByteBuffer buffer = newBuffer(SERUM_EVENT_QUEUE_SIZE);
+        final int allocLen = (SERUM_EVENT_QUEUE_SIZE - SERUM_EVENT_QUEUE_HEADER_SIZE - 7) / SERUM_EVENT_SIZE;
+        final long head = 1_234;
+        final long count = 200;
+        final long seqNum = 98_765_432L;
+
+        buffer.put(0, "serum".getBytes());
+        buffer.put(5, (byte) 17); // initialized, eventQueue
+        buffer.putLong(13, head);
+        buffer.putLong(21, count);
+        buffer.putLong(29, seqNum);
+        buffer.put(SERUM_EVENT_QUEUE_SIZE - 7, "padding".getBytes());
+
+        for (int i = 0; i < allocLen; i++) {
+            final int offset = SERUM_EVENT_QUEUE_HEADER_SIZE + (i * SERUM_EVENT_SIZE);
+            final boolean fill = random.nextInt(10) < 8;
+            final boolean bid = random.nextBoolean();
+            final boolean maker = random.nextBoolean();
+            buffer.put(offset, (byte) ((fill ? 1 : 2) | (bid ? 4 : 0) | (maker ? 8 : 0)));
+            buffer.put(offset + 1, (byte) random.nextInt(128)); // open orders slot
+            buffer.put(offset + 2, (byte) random.nextInt(7)); // fee tier
+
+            final long baseQuantity = 1 + random.nextInt(1_000_000);
+            final long quoteQuantity = baseQuantity * (19_000 + random.nextInt(2_000)) / 1_000;
+            buffer.putLong(offset + 8, bid ? baseQuantity : quoteQuantity); // released
+            buffer.putLong(offset + 16, fill ? (bid ? quoteQuantity : baseQuantity) : 0); // paid
+            buffer.putLong(offset + 24, quoteQuantity / 2_000); // fee or rebate
+            buffer.put(offset + 32, randomBytes(random, 16)); // order id
+            buffer.put(offset + 48, randomBytes(random, 32)); // open orders
+            buffer.putLong(offset + 80, random.nextLong()); // client order id
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * OpenBook v2 bids or asks account: a full critbit tree of {@link #OPENBOOK_BOOK_SIDE_LEAVES} orders in the
+     * fixed-price tree, 1023 of the 1024 nodes in use.
+     */
+    private static byte[] generateOpenBookBookSide(boolean bids) {
+        final Random random = new Random(SEED + (bids ? 4 : 5));
+        final ByteBuffer buffer = newBuffer(OPENBOOK_BOOK_SIDE_SIZE);
+        buffer.put(0, randomBytes(random, 8)); // discriminator
+
+        final long[] prices = ladder(random, OPENBOOK_BOOK_SIDE_LEAVES, bids ? 149_999 : 150_001, bids);
+        final int[] nextNode = {0};
+        final int root = writeOpenBookTree(buffer, random, prices, 0, prices.length - 1, nextNode, bids);
+
+        // roots[0]: fixed price tree, roots[1]: oracle pegged tree (empty)
+        buffer.putInt(8, root);
+        buffer.putInt(12, OPENBOOK_BOOK_SIDE_LEAVES);
+
+        buffer.put(312, (byte) (bids ? 0 : 1)); // order tree type
+        buffer.putInt(316, nextNode[0]); // bumpIndex
+        buffer.putInt(320, 0); // freeListLen
+        buffer.putInt(324, 0); // freeListHead
+        return buffer.array();
+    }
+
+    private static int writeOpenBookTree(ByteBuffer buffer, Random random, long[] prices, int low, int high,
+                                         int[] nextNode, boolean bids) {
+        final int index = nextNode[0]++;
+        final int offset = OPENBOOK_NODES_OFFSET + (index * OPENBOOK_NODE_SIZE);
+
+        if (low == high) {
+            final long seqNum = 5_000_000L + random.nextInt(1_000_000);
+            buffer.put(offset, (byte) 2); // leaf
+            buffer.put(offset + 1, (byte) random.nextInt(24)); // owner slot
+            buffer.putLong(offset + 8, bids ? ~seqNum : seqNum);
+            buffer.putLong(offset + 16, prices[low]);
+            buffer.put(offset + 24, randomBytes(random, 32)); // owner
+            buffer.putLong(offset + 56, 1 + random.nextInt(10_000)); // quantity
+            buffer.putLong(offset + 64, 1_700_000_000L + random.nextInt(10_000_000)); // timestamp
+            buffer.putLong(offset + 72, -1); // peg limit
+            buffer.putLong(offset + 80, random.nextLong()); // client order id
+            return index;
+        }
+
+        final int middle = (low + high) >>> 1;
+        buffer.put(offset, (byte) 1); // inner
+        buffer.putInt(offset + 4, 64 + random.nextInt(64)); // prefix length
+        buffer.putLong(offset + 16, prices[middle]);
+        final int left = writeOpenBookTree(buffer, random, prices, low, middle, nextNode, bids);
+        final int right = writeOpenBookTree(buffer, random, prices, middle + 1, high, nextNode, bids);
+        buffer.putInt(offset + 24, bids ? right : left);
+        buffer.putInt(offset + 28, bids ? left : right);
+        buffer.putLong(offset + 32, Long.MAX_VALUE); // child earliest expiry
+        buffer.putLong(offset + 40, Long.MAX_VALUE);
+        return index;
+    }
+
+    /**
+     * OpenBook v2 event heap with {@link #OPENBOOK_EVENTS} unconsumed events (mostly fills) on the circular used
+     * list, and the remaining nodes on the free list.
+     */
+    private static byte[] generateOpenBookEventHeap() {
+        final Random random = new Random(SEED + 6);
+        final ByteBuffer buffer = newBuffer(OPENBOOK_EVENT_HEAP_SIZE);
+        buffer.put(0, randomBytes(random, 8)); // discriminator
+        buffer.putShort(8, (short) OPENBOOK_EVENTS); // free head
+        buffer.putShort(10, (short) 0); // used head
+        buffer.putShort(12, (short) OPENBOOK_EVENTS); // count
+        buffer.putLong(16, 7_654_321L); // seqNum
+
+        for (int i = 0; i < OPENBOOK_EVENT_NODES; i++) {
+            final int offset = OPENBOOK_EVENT_NODES_OFFSET + (i * OPENBOOK_EVENT_NODE_SIZE);
+            if (i >= OPENBOOK_EVENTS) {
+                buffer.putShort(offset, (short) (i + 1));
+                buffer.putShort(offset + 2, (short) OPENBOOK_NO_NODE);
+                continue;
+            }
+
+            buffer.putShort(offset, (short) ((i + 1) % OPENBOOK_EVENTS));
+            buffer.putShort(offset + 2, (short) ((i + OPENBOOK_EVENTS - 1) % OPENBOOK_EVENTS));
+
+            final int event = offset + 8;
+            final long timestamp = 1_700_000_000L + random.nextInt(10_000_000);
+            if (random.nextInt(10) < 8) {
+                buffer.put(event, (byte) 0); // fill
+                buffer.put(event + 1, (byte) random.nextInt(2)); // taker side
+                buffer.put(event + 2, (byte) random.nextInt(2)); // maker out
+                buffer.put(event + 3, (byte) random.nextInt(24)); // maker slot
+                buffer.putLong(event + 8, timestamp);
+                buffer.putLong(event + 16, 7_654_321L - OPENBOOK_EVENTS + i); // market seqNum
+                buffer.put(event + 24, randomBytes(random, 32)); // maker
+                buffer.putLong(event + 56, timestamp - random.nextInt(3_600)); // maker timestamp
+                buffer.put(event + 64, randomBytes(random, 32)); // taker
+                buffer.putLong(event + 96, random.nextLong()); // taker client order id
+                buffer.putLong(event + 104, 140_000 + random.nextInt(20_000)); // price
+                buffer.putLong(event + 112, -1); // peg limit
+                buffer.putLong(event + 120, 1 + random.nextInt(10_000)); // quantity
+                buffer.putLong(event + 128, random.nextLong()); // maker client order id
+            } else {
+                buffer.put(event, (byte) 1); // out
+                buffer.put(event + 1, (byte) random.nextInt(2)); // side
+                buffer.put(event + 2, (byte) random.nextInt(24)); // owner slot
+                buffer.putLong(event + 8, timestamp);
+                buffer.putLong(event + 16, 7_654_321L - OPENBOOK_EVENTS + i); // seqNum
+                buffer.put(event + 24, randomBytes(random, 32)); // owner
+                buffer.putLong(event + 56, 1 + random.nextInt(10_000)); // quantity
+            }
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Phoenix market with {@link #PHOENIX_ORDERS_PER_SIDE} orders per side from {@link #PHOENIX_TRADERS} traders,
+     * each side and the trader seats stored as balanced red-black trees.
+     */
+    private static byte[] generatePhoenixMarket() {
+        final Random random = new Random(SEED + 7);
+        final int bookSize = 32 + (PHOENIX_ORDER_NODE_SIZE * PHOENIX_BOOK_CAPACITY);
+        final int seatsSize = 32 + (PHOENIX_TRADER_NODE_SIZE * PHOENIX_SEATS_CAPACITY);
+        final ByteBuffer buffer = newBuffer(PHOENIX_TREES_OFFSET + (2 * bookSize) + seatsSize);
+
+        // Market header
+        buffer.putLong(0, 8167313896524341111L); // discriminant
+        buffer.putLong(8, 1); // status: active
+        buffer.putLong(16, PHOENIX_BOOK_CAPACITY);
+        buffer.putLong(24, PHOENIX_BOOK_CAPACITY);
+        buffer.putLong(32, PHOENIX_SEATS_CAPACITY);
+        buffer.putInt(40, 9); // base decimals
+        buffer.put(48, randomBytes(random, 64)); // base mint, vault
+        buffer.putLong(112, 1_000_000L); // base lot size
+        buffer.putInt(120, 6); // quote decimals
+        buffer.put(128, randomBytes(random, 64)); // quote mint, vault
+        buffer.putLong(192, 1L); // quote lot size
+        buffer.putLong(200, 1_000L); // tick size
+        buffer.put(208, randomBytes(random, 64)); // authority, fee destination
+        buffer.putLong(272, 123_456_789L); // market sequence number
+        buffer.putInt(312, 1); // raw base units per base unit
+
+        // Market parameters
+        buffer.putLong(832, 1_000L); // base lots per base unit
+        buffer.putLong(840, 1_000L); // tick size in quote lots per base unit
+        buffer.putLong(848, 123_456_789L); // order sequence number
+        buffer.putLong(856, 2L); // taker fee bps
+        buffer.putLong(864, 98_765L); // collected quote lot fees
+        buffer.putLong(872, 4_321L); // unclaimed quote lot fees
+
+        final int bidsOffset = PHOENIX_TREES_OFFSET;
+        final int asksOffset = bidsOffset + bookSize;
+        final int seatsOffset = asksOffset + bookSize;
+
+        for (int side = 0; side < 2; side++) {
+            final boolean bids = side == 0;
+            // in key (ascending price) order, bids below the asks
+            final long[] prices = ladder(random, PHOENIX_ORDERS_PER_SIDE, bids ? 148_000 : 150_000, false);
+            final byte[][] values = new byte[PHOENIX_ORDERS_PER_SIDE][];
+            for (int i = 0; i < values.length; i++) {
+                final long seqNum = 100_000_000L + random.nextInt(20_000_000);
+                final ByteBuffer value = newBuffer(PHOENIX_ORDER_NODE_SIZE - 16);
+                value.putLong(0, prices[i]);
+                value.putLong(8, bids ? ~seqNum : seqNum);
+                value.putLong(16, 1 + random.nextInt(PHOENIX_TRADERS)); // trader index
+                value.putLong(24, 1 + random.nextInt(100_000)); // base lots
+                value.putLong(32, 0); // last valid slot
+                value.putLong(40, 0); // last valid unix timestamp
+                values[i] = value.array();
+            }
+            writePhoenixTree(buffer, bids ? bidsOffset : asksOffset, PHOENIX_BOOK_CAPACITY, PHOENIX_ORDER_NODE_SIZE,
+                    values);
+        }
+
+        final byte[][] traders = new byte[PHOENIX_TRADERS][];
+        for (int i = 0; i < traders.length; i++) {
+            final ByteBuffer value = newBuffer(PHOENIX_TRADER_NODE_SIZE - 16);
+            value.put(0, randomBytes(random, 32)); // trader
+            value.putLong(32, random.nextInt(10_000_000)); // quote lots locked
+            value.putLong(40, random.nextInt(10_000_000)); // quote lots free
+            value.putLong(48, random.nextInt(10_000_000)); // base lots locked
+            value.putLong(56, random.nextInt(10_000_000)); // base lots free
+            traders[i] = value.array();
+        }
+        Arrays.sort(traders, (a, b) -> Arrays.compareUnsigned(a, 0, 32, b, 0, 32));
+        writePhoenixTree(buffer, seatsOffset, PHOENIX_SEATS_CAPACITY, PHOENIX_TRADER_NODE_SIZE, traders);
+
+        return buffer.array();
+    }
+
+    /**
+     * Writes a sokoban red-black tree holding the given (key, value) entries, already in key order: the tree
+     * header, the node allocator header, then nodes of 4 registers (left, right, parent, color) followed by the
+     * entry. Node addresses are 1-based, 0 being the sentinel.
+     */
+    private static void writePhoenixTree(ByteBuffer buffer, int treeOffset, int capacity, int nodeSize,
+                                         byte[][] entries) {
+        final int root = writePhoenixSubtree(buffer, treeOffset, nodeSize, entries, 0, entries.length - 1, 0, 0,
+                32 - Integer.numberOfLeadingZeros(entries.length));
+        buffer.putInt(treeOffset, root);
+        buffer.putLong(treeOffset + 16, capacity); // allocator size
+        buffer.putInt(treeOffset + 24, entries.length + 1); // bumpIndex
+        buffer.putInt(treeOffset + 28, 0); // freeListHead
+    }
+
+    private static int writePhoenixSubtree(ByteBuffer buffer, int treeOffset, int nodeSize, byte[][] entries,
+                                           int low, int high, int parent, int depth, int height) {
+        if (low > high) {
+            return 0;
+        }
+
+        final int middle = (low + high) >>> 1;
+        final int address = middle + 1;
+        final int offset = treeOffset + 32 + (middle * nodeSize);
+        final int left = writePhoenixSubtree(buffer, treeOffset, nodeSize, entries, low, middle - 1, address,
+                depth + 1, height);
+        final int right = writePhoenixSubtree(buffer, treeOffset, nodeSize, entries, middle + 1, high, address,
+                depth + 1, height);
+
+        buffer.putInt(offset, left);
+        buffer.putInt(offset + 4, right);
+        buffer.putInt(offset + 8, parent);
+        // only the (partially filled) bottom level is red, which keeps every black height equal
+        buffer.putInt(offset + 12, depth == height - 1 && height > 1 ? 1 : 0);
+        buffer.put(offset + 16, entries[middle]);
+        return address;
+    }
+
+    /**
+     * Pyth v2 price account with {@link #PYTH_COMPONENTS} publishers.
+     */
+    private static byte[] generatePythPrice() {
+        final Random random = new Random(SEED + 8);
+        final ByteBuffer buffer = newBuffer(PYTH_PRICE_SIZE);
+        final int componentsOffset = PYTH_PRICE_SIZE - (PYTH_COMPONENTS * PYTH_COMPONENT_SIZE);
+        final long price = 15_000_000_000L;
+        final long slot = 250_000_000L;
+
+        buffer.putInt(0, 0xa1b2c3d4); // magic
+        buffer.putInt(4, 2); // version
+        buffer.putInt(8, 3); // price account
+        buffer.putInt(12, PYTH_PRICE_SIZE);
+        buffer.putInt(16, 1); // price type
+        buffer.putInt(20, -8); // exponent
+        buffer.putInt(24, PYTH_COMPONENTS);
+        buffer.putLong(32, slot); // last slot
+        buffer.putLong(40, slot - 1); // valid slot
+        writePythEma(buffer, 48, price);
+        writePythEma(buffer, 72, price / 1_000);
+        buffer.putLong(96, price); // drv1
+        buffer.put(104, (byte) 3); // min publishers
+        buffer.put(112, randomBytes(random, 32)); // product account
+        buffer.putLong(176, slot - 2); // previous slot
+        buffer.putLong(184, price - 1_000); // previous price
+        buffer.putLong(192, price / 1_000); // previous confidence
+        buffer.putLong(200, 0); // drv3
+        writePythPriceInfo(buffer, 208, price, slot);
+
+        for (int i = 0; i < PYTH_COMPONENTS; i++) {
+            final int offset = componentsOffset + (i * PYTH_COMPONENT_SIZE);
+            buffer.put(offset, randomBytes(random, 32)); // publisher
+            writePythPriceInfo(buffer, offset + 32, price + random.nextInt(2_000_000) - 1_000_000, slot - 1);
+            writePythPriceInfo(buffer, offset + 64, price + random.nextInt(2_000_000) - 1_000_000, slot);
+        }
+
+        return buffer.array();
+    }
+
+    private static void writePythEma(ByteBuffer buffer, int offset, long value) {
+        buffer.putLong(offset, value);
+        buffer.putLong(offset + 8, value * 1_000);
+        buffer.putLong(offset + 16, 1_000);
+    }
+
+    private static void writePythPriceInfo(ByteBuffer buffer, int offset, long price, long slot) {
+        buffer.putLong(offset, price);
+        buffer.putLong(offset + 8, price / 1_000); // confidence
+        buffer.putInt(offset + 16, 1); // trading
+        buffer.putInt(offset + 20, 0); // corporate action
+        buffer.putLong(offset + 24, slot);
+    }
+
+    /**
+     * Fixed layout account of random field values, after an optional 8 byte Anchor discriminator.
+     */
+    private static byte[] generateRandomAccount(int size, int discriminatorSize) {
+        final byte[] data = randomBytes(new Random(SEED + size), size);
+        Arrays.fill(data, 0, discriminatorSize, (byte) 1);
+        return data;
+    }
+
+    /**
+     * Distinct prices moving away from the given best price, 1 to 3 ticks apart: descending for bids, ascending
+     * otherwise.
+     */
+    private static long[] ladder(Random random, int length, long best, boolean descending) {
+        final long[] prices = new long[length];
+        long price = best;
+        for (int i = 0; i < length; i++) {
+            prices[i] = price;
+            final long step = 1 + random.nextInt(3);
+            price += descending ? -step : step;
+        }
+        return prices;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer newBuffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
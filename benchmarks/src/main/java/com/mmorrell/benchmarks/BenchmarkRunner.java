@@ -0,0 +1,31 @@
+package com.mmorrell.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Takes the usual JMH command line options, and always adds the GC profiler
+ * so that allocation rate per decoded account ({@code gc.alloc.rate.norm}) is reported next to throughput.
+ * <p>
+ * Run all decoders with {@code java -jar benchmarks/target/benchmarks.jar}, or a subset with a regex, e.g.
+ * {@code java -jar benchmarks/target/benchmarks.jar Serum}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        for (String name : AccountFixtures.NAMES) {
+            System.out.println("Fixture " + name + ": " + (AccountFixtures.isCaptured(name) ? "captured" : "generated"));
+        }
+
+        new Runner(
+                new OptionsBuilder()
+                        .parent(new CommandLineOptions(args))
+                        .addProfiler(GCProfiler.class)
+                        .build()
+        ).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.mmorrell.benchmarks;
+
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.RpcException;
+import org.p2p.solanaj.rpc.types.AccountInfo;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+import org.p2p.solanaj.rpc.types.config.RpcSendTransactionConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Captures live account data as benchmark fixtures, replacing the generated ones in {@link AccountFixtures}.
+ * <p>
+ * Usage: {@code FixtureCapture <rpc url> <output dir> <fixture name>=<account> ...}, e.g.
+ * {@code FixtureCapture https://api.mainnet-beta.solana.com benchmarks/src/main/resources/fixtures
+ * serum-bids=14ivtgssEBoBjuZJtSAPKYgpUK7DmnSwuPMqJoVTSgKJ}
+ */
+public class FixtureCapture {
+
+    public static void main(String[] args) throws IOException, RpcException {
+        if (args.length < 3) {
+            System.err.println("Usage: FixtureCapture <rpc url> <output dir> <fixture name>=<account> ...");
+            System.exit(1);
+        }
+
+        final RpcClient client = new RpcClient(args[0]);
+        final Path outputDirectory = Path.of(args[1]);
+        Files.createDirectories(outputDirectory);
+
+        for (int i = 2; i < args.length; i++) {
+            final String[] fixture = args[i].split("=", 2);
+            final AccountInfo accountInfo = client.getApi().getAccountInfo(
+                    new PublicKey(fixture[1]),
+                    Map.of(
+                            "commitment",
+                            Commitment.CONFIRMED,
+                            "encoding",
+                            RpcSendTransactionConfig.Encoding.base64.getEncoding()
+                    )
+            );
+
+            if (accountInfo.getValue() == null) {
+                throw new IllegalArgumentException("Account not found: " + fixture[1]);
+            }
+
+            final byte[] data = Base64.getDecoder().decode(accountInfo.getValue().getData().get(0));
+            final Path output = outputDirectory.resolve(fixture[0] + ".bin");
+            Files.write(output, data);
+            System.out.println("Wrote " + data.length + " bytes to " + output);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mmorrell.benchmarks;
+
+import com.mmorrell.jupiter.model.JupiterCustody;
+import com.mmorrell.jupiter.model.JupiterDca;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jupiter DCA and perpetuals custody account decoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JupiterBenchmark {
+
+    private byte[] dca;
+    private byte[] custody;
+
+    @Setup
+    public void setup() {
+        dca = AccountFixtures.get(AccountFixtures.JUPITER_DCA);
+        custody = AccountFixtures.get(AccountFixtures.JUPITER_CUSTODY);
+    }
+
+    @Benchmark
+    public JupiterDca readJupiterDca() {
+        return JupiterDca.fromByteArray(dca);
+    }
+
+    @Benchmark
+    public JupiterCustody readJupiterCustody() {
+        return JupiterCustody.fromByteArray(custody);
+    }
+}
@@ -0,0 +1,136 @@
+package com.mmorrell.benchmarks;
+
+import com.mmorrell.mango.model.I80F48;
+import com.mmorrell.mango.model.MangoGroup;
+import com.mmorrell.mango.model.U64F64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.p2p.solanaj.utils.ByteUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mango v2 group decoding, and fixed-point decoding and arithmetic against the BigDecimal path they replaced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MangoBenchmark {
+
+    private static final BigDecimal TWO_POW_48 = BigDecimal.valueOf(2).pow(48);
+
+    private byte[] mangoGroup;
+    // Raw U64F64 total deposits of the fixture group
+    private byte[][] totalDeposits;
+    // I80F48 operands with fractional parts: 1234.5678 and 0.9995
+    private byte[] priceData;
+    private byte[] weightData;
+
+    @Setup
+    public void setup() {
+        mangoGroup = AccountFixtures.get(AccountFixtures.MANGO_GROUP);
+
+        final List<U64F64> deposits = MangoGroup.readMangoGroup(mangoGroup).getTotalDeposits();
+        totalDeposits = new byte[deposits.size()][];
+        for (int i = 0; i < deposits.size(); i++) {
+            totalDeposits[i] = deposits.get(i).getData();
+        }
+
+        priceData = i80f48Data(1234.5678);
+        weightData = i80f48Data(0.9995);
+    }
+
+    @Benchmark
+    public MangoGroup readMangoGroup() {
+        return MangoGroup.readMangoGroup(mangoGroup);
+    }
+
+    @Benchmark
+    public double sumTotalDepositsBigDecimalPath() {
+        double sum = 0;
+        for (byte[] deposit : totalDeposits) {
+            sum += new BigDecimal(bigDecimalPathDecode(deposit, 16))
+                    .divide(new BigDecimal(Math.pow(2, 64)), RoundingMode.HALF_EVEN)
+                    .doubleValue();
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public double sumTotalDeposits() {
+        double sum = 0;
+        for (byte[] deposit : totalDeposits) {
+            sum += U64F64.readU64F64(deposit, 0).toDouble();
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public float decodeI80F48BigDecimalPath() {
+        return new BigDecimal(bigDecimalPathDecode(priceData, 16), 48)
+                .divide(BigDecimal.valueOf((long) Math.pow(2, 48), 48), RoundingMode.HALF_UP)
+                .floatValue();
+    }
+
+    @Benchmark
+    public float decodeI80F48() {
+        return I80F48.readI80F48(priceData, 0).decodeFloat();
+    }
+
+    @Benchmark
+    public double multiplyAddI80F48BigDecimal() {
+        final BigDecimal price = new BigDecimal(new BigInteger(1, reverse(priceData))).divide(TWO_POW_48);
+        final BigDecimal weight = new BigDecimal(new BigInteger(1, reverse(weightData))).divide(TWO_POW_48);
+        return price.multiply(weight, MathContext.DECIMAL128).add(price).doubleValue();
+    }
+
+    @Benchmark
+    public double multiplyAddI80F48() {
+        final I80F48 price = I80F48.readI80F48(priceData, 0);
+        return price.copy().multiply(I80F48.readI80F48(weightData, 0)).add(price).toDouble();
+    }
+
+    // The decoding I80F48 and U64F64 did before they kept their raw value in two longs
+    private static BigInteger bigDecimalPathDecode(byte[] data, int length) {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < length; i++) {
+            buffer.put(data[length - i - 1]);
+        }
+
+        return new BigInteger(ByteUtils.bytesToHex(buffer.array()), 16);
+    }
+
+    private static byte[] reverse(byte[] data) {
+        final byte[] reversed = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            reversed[i] = data[data.length - 1 - i];
+        }
+
+        return reversed;
+    }
+
+    private static byte[] i80f48Data(double value) {
+        return new I80F48(0, (long) (value * Math.pow(2, 48))).getData();
+    }
+}
@@ -0,0 +1,90 @@
+package com.mmorrell.benchmarks;
+
+import com.mmorrell.openbook.model.BookSide;
+import com.mmorrell.openbook.model.BookSideView;
+import com.mmorrell.openbook.model.OpenBookEventHeap;
+import com.mmorrell.openbook.model.OpenBookEventHeapView;
+import com.mmorrell.serum.model.L2Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenBook v2 book side and event heap decoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpenBookBenchmark {
+
+    private byte[] bids;
+    private byte[] asks;
+    private byte[] eventHeap;
+
+    @Setup
+    public void setup() {
+        bids = AccountFixtures.get(AccountFixtures.OPENBOOK_BIDS);
+        asks = AccountFixtures.get(AccountFixtures.OPENBOOK_ASKS);
+        eventHeap = AccountFixtures.get(AccountFixtures.OPENBOOK_EVENT_HEAP);
+    }
+
+    @Benchmark
+    public BookSide readBookSideBids() {
+        return BookSide.readBookSide(bids);
+    }
+
+    @Benchmark
+    public BookSide readBookSideAsks() {
+        return BookSide.readBookSide(asks);
+    }
+
+    @Benchmark
+    public L2Book readBookSideL2Book() {
+        return BookSide.readBookSide(bids).getL2Book();
+    }
+
+    @Benchmark
+    public long viewBestBid() {
+        final BookSideView view = BookSideView.wrap(bids);
+        return view.getPrice(view.bestLeaf());
+    }
+
+    @Benchmark
+    public L2Book viewTop10Levels() {
+        return BookSideView.wrap(bids).getL2Book(10);
+    }
+
+    @Benchmark
+    public L2Book viewL2Book() {
+        return BookSideView.wrap(bids).getL2Book();
+    }
+
+    @Benchmark
+    public OpenBookEventHeap readOpenBookEventHeap() {
+        return OpenBookEventHeap.readOpenBookEventHeap(eventHeap);
+    }
+
+    @Benchmark
+    public int readOpenBookFillEvents() {
+        return OpenBookEventHeap.readOpenBookEventHeap(eventHeap).getFillEvents().size();
+    }
+
+    @Benchmark
+    public long viewOpenBookFillEvents() {
+        final long[] quantity = new long[1];
+        OpenBookEventHeapView.wrap(eventHeap).forEachFill(fill -> quantity[0] += fill.getQuantity());
+        return quantity[0];
+    }
+}
@@ -0,0 +1,108 @@
+package com.mmorrell.benchmarks;
+
+import com.mmorrell.phoenix.model.PhoenixLadder;
+import com.mmorrell.phoenix.model.PhoenixMarket;
+import com.mmorrell.phoenix.model.PhoenixTraderIndex;
+import com.mmorrell.phoenix.program.PhoenixProgram;
+import com.mmorrell.phoenix.util.Keccak;
+import com.mmorrell.phoenix.util.Keccak256;
+import com.mmorrell.phoenix.util.PhoenixDiscriminators;
+import org.bitcoinj.core.Base58;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phoenix market decoding (header, both order trees and trader seats) and discriminator hashing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhoenixBenchmark {
+
+    private byte[] market;
+    private PhoenixMarket decodedMarket;
+    private long bidsSize;
+    private PublicKey trader;
+    private final byte[] marketHeaderName = PhoenixDiscriminators.MARKET_HEADER.getBytes(StandardCharsets.UTF_8);
+    private final byte[] discriminator = new byte[PhoenixDiscriminators.DISCRIMINATOR_SIZE];
+
+    @Setup
+    public void setup() {
+        market = AccountFixtures.get(AccountFixtures.PHOENIX_MARKET);
+        decodedMarket = PhoenixMarket.readPhoenixMarket(market);
+        bidsSize = decodedMarket.getPhoenixMarketHeader().getBidsSize();
+        trader = decodedMarket.getTraderIndex().getTrader(decodedMarket.getBidLadder().getTraderIndex(0));
+    }
+
+    @Benchmark
+    public PhoenixMarket readPhoenixMarket() {
+        return PhoenixMarket.readPhoenixMarket(market);
+    }
+
+    /**
+     * Discriminator as computed before the registry: a new {@link Keccak} and digest buffer per call.
+     */
+    @Benchmark
+    public String legacyKeccakDiscriminator() {
+        final Keccak keccak = new Keccak(256);
+        keccak.update(PhoenixProgram.PHOENIX_PROGRAM_ID.toByteArray());
+        keccak.update(PhoenixDiscriminators.MARKET_HEADER.getBytes());
+
+        final ByteBuffer keccakBuffer = keccak.digest();
+        keccakBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        return Base58.encode(Arrays.copyOfRange(keccakBuffer.array(), 0, 8));
+    }
+
+    @Benchmark
+    public byte[] keccak256Discriminator() {
+        Keccak256.threadLocal()
+                .update(PhoenixProgram.PHOENIX_PROGRAM_ID.toByteArray())
+                .update(marketHeaderName)
+                .digestInto(discriminator, 0, PhoenixDiscriminators.DISCRIMINATOR_SIZE);
+        return discriminator;
+    }
+
+    @Benchmark
+    public String registryDiscriminator() {
+        return PhoenixDiscriminators.getBase58(PhoenixDiscriminators.MARKET_HEADER);
+    }
+
+    @Benchmark
+    public PhoenixMarket reloadPhoenixMarket() {
+        return PhoenixMarket.readPhoenixMarket(market, decodedMarket);
+    }
+
+    @Benchmark
+    public long phoenixTraderLookup() {
+        final PhoenixTraderIndex traderIndex = decodedMarket.getTraderIndex();
+        return traderIndex.getQuoteLotsLocked(traderIndex.getTraderIndex(trader));
+    }
+
+    @Benchmark
+    public PhoenixLadder readPhoenixBidLadder() {
+        return PhoenixLadder.readPhoenixLadder(market, 880, bidsSize, true);
+    }
+
+    @Benchmark
+    public long phoenixBestBidAsk() {
+        return decodedMarket.getBidLadder().getBestPriceInTicks() + decodedMarket.getAskLadder().getBestPriceInTicks();
+    }
+}
@@ -0,0 +1,56 @@
+package com.mmorrell.benchmarks;
+
+import com.mmorrell.pyth.model.PriceDataAccount;
+import com.mmorrell.pyth.model.PythDecodeMask;
+import com.mmorrell.pyth.model.PythPriceTick;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pyth price account decoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PythBenchmark {
+
+    private byte[] priceAccount;
+
+    @Setup
+    public void setup() {
+        priceAccount = AccountFixtures.get(AccountFixtures.PYTH_PRICE);
+    }
+
+    @Benchmark
+    public PriceDataAccount readPriceDataAccount() {
+        return PriceDataAccount.readPriceDataAccount(priceAccount);
+    }
+
+    @Benchmark
+    public PriceDataAccount readPriceDataAccountAggregateOnly() {
+        return PriceDataAccount.readPriceDataAccount(priceAccount, PythDecodeMask.AGGREGATE_ONLY);
+    }
+
+    @Benchmark
+    public PriceDataAccount readPriceDataAccountWithEma() {
+        return PriceDataAccount.readPriceDataAccount(priceAccount, PythDecodeMask.WITH_EMA);
+    }
+
+    @Benchmark
+    public PythPriceTick readPythPriceTick() {
+        return PythPriceTick.readPythPriceTick(priceAccount, PythDecodeMask.AGGREGATE_ONLY);
+    }
+}
@@ -0,0 +1,54 @@
+package com.mmorrell.benchmarks;
+
+import com.mmorrell.serum.model.EventQueue;
+import com.mmorrell.serum.model.OrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serum order book and event queue decoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerumBenchmark {
+
+    private byte[] bids;
+    private byte[] asks;
+    private byte[] eventQueue;
+
+    @Setup
+    public void setup() {
+        bids = AccountFixtures.get(AccountFixtures.SERUM_BIDS);
+        asks = AccountFixtures.get(AccountFixtures.SERUM_ASKS);
+        eventQueue = AccountFixtures.get(AccountFixtures.SERUM_EVENT_QUEUE);
+    }
+
+    @Benchmark
+    public OrderBook readOrderBookBids() {
+        return OrderBook.readOrderBook(bids);
+    }
+
+    @Benchmark
+    public OrderBook readOrderBookAsks() {
+        return OrderBook.readOrderBook(asks);
+    }
+
+    @Benchmark
+    public EventQueue readEventQueue() {
+        return EventQueue.readEventQueue(eventQueue, (byte) 9, (byte) 6, 100_000_000L, 100L);
+    }
+}
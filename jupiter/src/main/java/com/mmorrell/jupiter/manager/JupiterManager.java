@@ -2,6 +2,7 @@ package com.mmorrell.jupiter.manager;
 
 import com.mmorrell.jupiter.model.*;
 import com.mmorrell.jupiter.util.JupiterUtil;
+import com.mmorrell.serum.util.RpcExecutor;
 import java.util.Collections;
 
 import lombok.extern.slf4j.Slf4j;
@@ -16,23 +17,30 @@ import org.p2p.solanaj.rpc.types.ProgramAccount;
 
 import java.util.*;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class JupiterManager {
 
     private final RpcClient client;
+    private final RpcExecutor rpcExecutor;
     private static final PublicKey JUPITER_PROGRAM_ID = new PublicKey("PERPHjGBqRHArX4DySjwM6UJHiR3sWAatqfdBS2qQJu");
     private static final PublicKey DCA_PROGRAM_ID = new PublicKey("DCA265Vj8a9CEuX1eb1LWRnDT7uK6q1xMipnNyatn23M");
     private static final int DCA_ACCOUNT_SIZE = 289; // Updated based on JupiterDca structure
 
     public JupiterManager() {
-        this.client = new RpcClient(Cluster.MAINNET);
+        this(new RpcClient(Cluster.MAINNET));
     }
 
 
     public JupiterManager(RpcClient client) {
+        this(client, RpcExecutor.getDefault());
+    }
+
+    public JupiterManager(RpcClient client, RpcExecutor rpcExecutor) {
         this.client = client;
+        this.rpcExecutor = rpcExecutor;
     }
 
     public Optional<JupiterPerpPosition> getPosition(PublicKey positionPublicKey) {
@@ -49,6 +57,24 @@ public class JupiterManager {
         }
     }
 
+    /**
+     * Retrieves several positions concurrently on this manager's {@link RpcExecutor}.
+     *
+     * @param positionPublicKeys the position accounts.
+     * @return a future of the positions that could be read, in the given order.
+     */
+    public CompletableFuture<List<JupiterPerpPosition>> getPositionsAsync(List<PublicKey> positionPublicKeys) {
+        List<CompletableFuture<Optional<JupiterPerpPosition>>> futures = positionPublicKeys.stream()
+                .map(positionPublicKey -> rpcExecutor.supplyAsync(() -> getPosition(positionPublicKey)))
+                .toList();
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .flatMap(Optional::stream)
+                        .collect(Collectors.toList()));
+    }
+
     public Optional<JupiterPool> getPool(PublicKey poolPublicKey) {
         try {
             AccountInfo accountInfo = client.getApi().getAccountInfo(poolPublicKey);
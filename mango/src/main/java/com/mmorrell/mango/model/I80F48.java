@@ -1,46 +1,162 @@
 package com.mmorrell.mango.model;
 
 import lombok.*;
-import org.p2p.solanaj.utils.ByteUtils;
+import org.bitcoinj.core.Utils;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
 
+/**
+ * Signed 128-bit fixed-point number with 48 fractional bits, as used by Mango accounts.
+ * <p>
+ * The raw two's complement value is kept in two longs, so decoding, {@link #add}, {@link #subtract},
+ * {@link #multiply}, {@link #compareTo} and {@link #toDouble} work on primitives without allocating. Arithmetic
+ * updates this instance in place and wraps on overflow; use {@link #copy()} to keep the original.
+ * {@link #decodeBigDecimal()} gives the exact value, only when asked.
+ */
 @Getter
 @Setter
 @Builder
 @AllArgsConstructor
-@ToString
-public class I80F48 {
+@EqualsAndHashCode
+public class I80F48 implements Comparable<I80F48> {
 
     public static final int I80F48_LENGTH = 16;
     private static final int FRACTIONS = 48;
-    private byte[] data;
+    // 2^-48 == 5^48 * 10^-48, so raw * 5^48 is the exact decimal value with scale 48
+    private static final BigInteger FIVE_POW_FRACTIONS = BigInteger.valueOf(5).pow(FRACTIONS);
+
+    // Upper and lower 64 bits of the raw value, which is the number * 2^48
+    private long hi;
+    private long lo;
+
+    public I80F48(byte[] data) {
+        setData(data);
+    }
 
     public static I80F48 readI80F48(byte[] data, int offset) {
-        return new I80F48(Arrays.copyOfRange(data, offset, offset + I80F48_LENGTH));
+        return new I80F48(Utils.readInt64(data, offset + 8), Utils.readInt64(data, offset));
     }
 
-    public float decodeFloat() {
-        return decodeBigDecimal().floatValue();
+    /**
+     * @return the 16 little-endian bytes of the raw value
+     */
+    public byte[] getData() {
+        final byte[] data = new byte[I80F48_LENGTH];
+        Utils.int64ToByteArrayLE(lo, data, 0);
+        Utils.int64ToByteArrayLE(hi, data, 8);
+        return data;
     }
 
-    public BigDecimal decodeBigDecimal() {
-        ByteBuffer buffer = ByteBuffer.allocate(I80F48_LENGTH);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    public void setData(byte[] data) {
+        this.hi = Utils.readInt64(data, 8);
+        this.lo = Utils.readInt64(data, 0);
+    }
+
+    public I80F48 copy() {
+        return new I80F48(hi, lo);
+    }
+
+    /**
+     * Adds other to this number in place.
+     *
+     * @return this
+     */
+    public I80F48 add(I80F48 other) {
+        final long sum = lo + other.lo;
+        hi = hi + other.hi + MangoUtils.carry(sum, lo);
+        lo = sum;
+        return this;
+    }
+
+    /**
+     * Subtracts other from this number in place.
+     *
+     * @return this
+     */
+    public I80F48 subtract(I80F48 other) {
+        final long difference = lo - other.lo;
+        hi = hi - other.hi - (Long.compareUnsigned(lo, other.lo) < 0 ? 1 : 0);
+        lo = difference;
+        return this;
+    }
+
+    /**
+     * Multiplies this number by other in place, rounding down to the nearest 2^-48.
+     *
+     * @return this
+     */
+    public I80F48 multiply(I80F48 other) {
+        final long a0 = lo;
+        final long a1 = hi;
+        final long b0 = other.lo;
+        final long b1 = other.hi;
+
+        // Lowest 192 bits of the unsigned 256-bit product, in 64-bit limbs r0..r2
+        final long r0 = a0 * b0;
+        final long high00 = MangoUtils.unsignedMultiplyHigh(a0, b0);
+        final long partial = high00 + (a0 * b1);
+        final long r1 = partial + (a1 * b0);
+        long r2 = MangoUtils.unsignedMultiplyHigh(a0, b1) + MangoUtils.unsignedMultiplyHigh(a1, b0) + (a1 * b1)
+                + MangoUtils.carry(partial, high00) + MangoUtils.carry(r1, partial);
+
+        // Two's complement: a negative factor counts as itself plus 2^128, remove the other factor * 2^128
+        if (a1 < 0) {
+            r2 -= b0;
+        }
+        if (b1 < 0) {
+            r2 -= a0;
+        }
+
+        lo = (r0 >>> FRACTIONS) | (r1 << (64 - FRACTIONS));
+        hi = (r1 >>> FRACTIONS) | (r2 << (64 - FRACTIONS));
+        return this;
+    }
+
+    @Override
+    public int compareTo(I80F48 other) {
+        final int compareHi = Long.compare(hi, other.hi);
+        return compareHi != 0 ? compareHi : Long.compareUnsigned(lo, other.lo);
+    }
+
+    public boolean isNegative() {
+        return hi < 0;
+    }
 
-        for (int i = 0; i < I80F48_LENGTH; i++) {
-            buffer.put(data[I80F48_LENGTH - i - 1]);
+    /**
+     * @return this number rounded to a double
+     */
+    public double toDouble() {
+        if (hi >= 0) {
+            return toDouble(hi, lo);
         }
 
-        String newString = ByteUtils.bytesToHex(buffer.array());
-        BigInteger result = new BigInteger(newString, I80F48_LENGTH);
+        // Negate first so small negative numbers keep their precision
+        final long negatedLo = -lo;
+        final long negatedHi = ~hi + (lo == 0 ? 1 : 0);
+        return -toDouble(negatedHi, negatedLo);
+    }
+
+    public float decodeFloat() {
+        return (float) toDouble();
+    }
+
+    /**
+     * @return the exact value, with a scale of 48
+     */
+    public BigDecimal decodeBigDecimal() {
+        final byte[] bigEndian = ByteBuffer.allocate(I80F48_LENGTH).putLong(hi).putLong(lo).array();
+        return new BigDecimal(new BigInteger(bigEndian).multiply(FIVE_POW_FRACTIONS), FRACTIONS);
+    }
+
+    @Override
+    public String toString() {
+        return "I80F48(" + toDouble() + ")";
+    }
 
-        return new BigDecimal(result, FRACTIONS)
-                .divide(BigDecimal.valueOf((long) Math.pow(2, FRACTIONS), FRACTIONS), RoundingMode.HALF_UP);
+    // Unsigned 128-bit raw value to a double
+    private static double toDouble(long hi, long lo) {
+        return (MangoUtils.unsignedToDouble(hi) * 0x1p16) + (MangoUtils.unsignedToDouble(lo) * 0x1p-48);
     }
 }
@@ -8,7 +8,6 @@ import org.bitcoinj.core.Utils;
 import org.p2p.solanaj.core.PublicKey;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import static com.mmorrell.mango.model.MangoUtils.*;
@@ -109,22 +108,13 @@ public class MangoGroup {
             int counter = (i * (U64_SIZE_BYTES + (2 * U64F64.U64F64_LENGTH))); // (i * 40)
             long lastUpdate = Utils.readInt64(data, INDEXES_OFFSET);
 
-            byte[] borrow = Arrays.copyOfRange(
-                    data,
-                    INDEXES_OFFSET + U64_SIZE_BYTES + counter,
-                    INDEXES_OFFSET + U64_SIZE_BYTES + U64F64.U64F64_LENGTH + counter
-            );
-
-            byte[] deposit = Arrays.copyOfRange(
-                    data,
-                    INDEXES_OFFSET + U64_SIZE_BYTES + U64F64.U64F64_LENGTH + counter,
-                    INDEXES_OFFSET + U64_SIZE_BYTES + U64F64.U64F64_LENGTH + U64F64.U64F64_LENGTH + counter
-            );
+            final int borrowOffset = INDEXES_OFFSET + U64_SIZE_BYTES + counter;
+            final int depositOffset = borrowOffset + U64F64.U64F64_LENGTH;
 
             final MangoIndex mangoIndex = MangoIndex.builder()
                     .lastUpdate(lastUpdate)
-                    .borrow(new U64F64(borrow))
-                    .deposit(new U64F64(deposit))
+                    .borrow(U64F64.readU64F64(data, borrowOffset))
+                    .deposit(U64F64.readU64F64(data, depositOffset))
                     .build();
 
             mangoGroup.getIndexes().add(mangoIndex);
@@ -157,45 +147,18 @@ public class MangoGroup {
         // Total Deposits and Borrows
         mangoGroup.setTotalDeposits(new ArrayList<>());
         for (int i = 0; i < NUM_TOKENS; i++) {
-            final U64F64 totalDeposit = new U64F64(
-                    Arrays.copyOfRange(
-                            data,
-                            TOTAL_DEPOSITS_OFFSET + (i * U64F64.U64F64_LENGTH),
-                            TOTAL_DEPOSITS_OFFSET + (i * U64F64.U64F64_LENGTH) + U64F64.U64F64_LENGTH)
-            );
+            final U64F64 totalDeposit = U64F64.readU64F64(data, TOTAL_DEPOSITS_OFFSET + (i * U64F64.U64F64_LENGTH));
             mangoGroup.getTotalDeposits().add(totalDeposit);
         }
 
         mangoGroup.setTotalBorrows(new ArrayList<>());
         for (int i = 0; i < NUM_TOKENS; i++) {
-            final U64F64 totalBorrow = new U64F64(
-                    Arrays.copyOfRange(
-                            data,
-                            TOTAL_BORROWS_OFFSET + (i * U64F64.U64F64_LENGTH),
-                            TOTAL_BORROWS_OFFSET + (i * U64F64.U64F64_LENGTH) + U64F64.U64F64_LENGTH)
-            );
+            final U64F64 totalBorrow = U64F64.readU64F64(data, TOTAL_BORROWS_OFFSET + (i * U64F64.U64F64_LENGTH));
             mangoGroup.getTotalBorrows().add(totalBorrow);
         }
 
-        mangoGroup.setMaintCollRatio(
-                new U64F64(
-                        Arrays.copyOfRange(
-                                data,
-                                MAINT_COLL_RATIO_OFFSET,
-                                INIT_COLL_RATIO_OFFSET
-                        )
-                )
-        );
-
-        mangoGroup.setInitCollRatio(
-                new U64F64(
-                        Arrays.copyOfRange(
-                                data,
-                                INIT_COLL_RATIO_OFFSET,
-                                SRM_VAULT_OFFSET
-                        )
-                )
-        );
+        mangoGroup.setMaintCollRatio(U64F64.readU64F64(data, MAINT_COLL_RATIO_OFFSET));
+        mangoGroup.setInitCollRatio(U64F64.readU64F64(data, INIT_COLL_RATIO_OFFSET));
 
         mangoGroup.setSrmVault(PublicKey.readPubkey(data, SRM_VAULT_OFFSET));
         mangoGroup.setAdmin(PublicKey.readPubkey(data, ADMIN_OFFSET));
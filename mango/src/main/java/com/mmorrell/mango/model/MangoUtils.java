@@ -5,4 +5,30 @@ public class MangoUtils {
     public static final int ACCOUNT_FLAGS_SIZE_BYTES = 8;
     public static final int U64_SIZE_BYTES = 8;
 
+    /**
+     * @return high 64 bits of the unsigned 128-bit product of x and y
+     */
+    public static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    /**
+     * @return x read as an unsigned 64-bit integer, rounded to the nearest double
+     */
+    public static double unsignedToDouble(long x) {
+        if (x >= 0) {
+            return x;
+        }
+
+        // Halve, keeping the lowest bit so the halved value rounds the same way
+        return ((double) ((x >>> 1) | (x & 1))) * 2.0;
+    }
+
+    /**
+     * @param sum x plus some other value, wrapped to 64 bits
+     * @return 1 if the unsigned addition that gave sum carried out of 64 bits, 0 otherwise
+     */
+    public static long carry(long sum, long x) {
+        return Long.compareUnsigned(sum, x) < 0 ? 1 : 0;
+    }
 }
@@ -2,49 +2,137 @@ package com.mmorrell.mango.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
-import org.p2p.solanaj.utils.ByteUtils;
+import org.bitcoinj.core.Utils;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
 
+/**
+ * Unsigned 128-bit fixed-point number with 64 fractional bits, as used by Mango v2 groups.
+ * <p>
+ * Works like {@link I80F48}: the raw value is kept in two longs, arithmetic updates this instance in place without
+ * allocating and wraps on overflow, and {@link #decodeBigDecimal()} gives the exact value only when asked.
+ */
 @Getter
 @Setter
 @Builder
 @AllArgsConstructor
-public class U64F64 {
+@EqualsAndHashCode
+public class U64F64 implements Comparable<U64F64> {
     public static final int U64F64_LENGTH = 16;
+    private static final int FRACTIONS = 64;
+    // 2^-64 == 5^64 * 10^-64, so raw * 5^64 is the exact decimal value with scale 64
+    private static final BigInteger FIVE_POW_FRACTIONS = BigInteger.valueOf(5).pow(FRACTIONS);
 
-    private byte[] data;
+    // Integer and fractional part, both unsigned
+    private long hi;
+    private long lo;
+
+    public U64F64(byte[] data) {
+        setData(data);
+    }
 
     public static U64F64 readU64F64(byte[] data, int offset) {
-        return new U64F64(Arrays.copyOfRange(data, offset, offset + U64F64_LENGTH));
+        return new U64F64(Utils.readInt64(data, offset + 8), Utils.readInt64(data, offset));
     }
 
-    public float decodeFloat() {
-        return decodeBigDecimal().floatValue();
+    /**
+     * @return the 16 little-endian bytes of the raw value
+     */
+    public byte[] getData() {
+        final byte[] data = new byte[U64F64_LENGTH];
+        Utils.int64ToByteArrayLE(lo, data, 0);
+        Utils.int64ToByteArrayLE(hi, data, 8);
+        return data;
     }
 
-    public BigDecimal decodeBigDecimal() {
-        ByteBuffer buffer = ByteBuffer.allocate(16);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    public void setData(byte[] data) {
+        this.hi = Utils.readInt64(data, 8);
+        this.lo = Utils.readInt64(data, 0);
+    }
+
+    public U64F64 copy() {
+        return new U64F64(hi, lo);
+    }
+
+    /**
+     * Adds other to this number in place.
+     *
+     * @return this
+     */
+    public U64F64 add(U64F64 other) {
+        final long sum = lo + other.lo;
+        hi = hi + other.hi + MangoUtils.carry(sum, lo);
+        lo = sum;
+        return this;
+    }
+
+    /**
+     * Subtracts other from this number in place.
+     *
+     * @return this
+     */
+    public U64F64 subtract(U64F64 other) {
+        final long difference = lo - other.lo;
+        hi = hi - other.hi - (Long.compareUnsigned(lo, other.lo) < 0 ? 1 : 0);
+        lo = difference;
+        return this;
+    }
+
+    /**
+     * Multiplies this number by other in place, rounding down to the nearest 2^-64.
+     *
+     * @return this
+     */
+    public U64F64 multiply(U64F64 other) {
+        final long a0 = lo;
+        final long a1 = hi;
+        final long b0 = other.lo;
+        final long b1 = other.hi;
 
-        for (int i = 0; i < 16; i++) {
-            buffer.put(data[16 - i - 1]);
-        }
+        // Limbs r1 and r2 of the 256-bit product, its bits 64 to 191
+        final long high00 = MangoUtils.unsignedMultiplyHigh(a0, b0);
+        final long partial = high00 + (a0 * b1);
+        final long r1 = partial + (a1 * b0);
+        final long r2 = MangoUtils.unsignedMultiplyHigh(a0, b1) + MangoUtils.unsignedMultiplyHigh(a1, b0)
+                + (a1 * b1) + MangoUtils.carry(partial, high00) + MangoUtils.carry(r1, partial);
 
-        // divisor
-        double divisor = Math.pow(2, 64);
-        String newString = ByteUtils.bytesToHex(buffer.array());
-        BigInteger result = new BigInteger(newString, 16);
-        BigDecimal divided = new BigDecimal(result)
-                .divide(new BigDecimal(divisor), RoundingMode.HALF_EVEN);
+        lo = r1;
+        hi = r2;
+        return this;
+    }
+
+    @Override
+    public int compareTo(U64F64 other) {
+        final int compareHi = Long.compareUnsigned(hi, other.hi);
+        return compareHi != 0 ? compareHi : Long.compareUnsigned(lo, other.lo);
+    }
+
+    /**
+     * @return this number rounded to a double
+     */
+    public double toDouble() {
+        return MangoUtils.unsignedToDouble(hi) + (MangoUtils.unsignedToDouble(lo) * 0x1p-64);
+    }
+
+    public float decodeFloat() {
+        return (float) toDouble();
+    }
+
+    /**
+     * @return the exact value, with a scale of 64
+     */
+    public BigDecimal decodeBigDecimal() {
+        final byte[] bigEndian = ByteBuffer.allocate(U64F64_LENGTH).putLong(hi).putLong(lo).array();
+        return new BigDecimal(new BigInteger(1, bigEndian).multiply(FIVE_POW_FRACTIONS), FRACTIONS);
+    }
 
-        return divided;
+    @Override
+    public String toString() {
+        return "U64F64(" + toDouble() + ")";
     }
 }
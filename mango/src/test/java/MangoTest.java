@@ -7,7 +7,10 @@ import org.p2p.solanaj.rpc.RpcClient;
 import org.p2p.solanaj.rpc.RpcException;
 import org.p2p.solanaj.rpc.types.AccountInfo;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Base64;
+import java.util.Random;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -308,4 +311,64 @@ public class MangoTest {
         PublicKey pubkey2 = PublicKey.readPubkey(rawData2, 0);
         LOGGER.info("Pubkey2 = " + pubkey2.toBase58());
     }
+
+    @Test
+    public void fixedPointTest() {
+        final BigInteger mask128 = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+        final Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            // Mix small and full-width values, including negative I80F48s
+            final long hiA = i % 3 == 0 ? random.nextLong() : random.nextInt(1 << 20) - (1 << 19);
+            final long hiB = i % 5 == 0 ? random.nextLong() : random.nextInt(1 << 20) - (1 << 19);
+            final I80F48 a = new I80F48(hiA, random.nextLong());
+            final I80F48 b = new I80F48(hiB, random.nextLong());
+            final BigInteger rawA = a.decodeBigDecimal().multiply(BigDecimal.valueOf(2).pow(48)).toBigIntegerExact();
+            final BigInteger rawB = b.decodeBigDecimal().multiply(BigDecimal.valueOf(2).pow(48)).toBigIntegerExact();
+
+            assertEquals(rawA.compareTo(rawB), Integer.signum(a.compareTo(b)));
+            assertEquals(a.decodeBigDecimal().doubleValue(), a.toDouble(), Math.ulp(a.toDouble()) * 2);
+            assertArrayEquals(a.getData(), new I80F48(a.getData()).getData());
+            assertEquals(toI80F48(rawA.add(rawB), mask128), a.copy().add(b));
+            assertEquals(toI80F48(rawA.subtract(rawB), mask128), a.copy().subtract(b));
+            assertEquals(toI80F48(rawA.multiply(rawB).shiftRight(48), mask128), a.copy().multiply(b));
+
+            final U64F64 c = new U64F64(random.nextLong(), random.nextLong());
+            final U64F64 d = new U64F64(i % 2 == 0 ? random.nextInt(100) : random.nextLong(), random.nextLong());
+            final BigInteger rawC = new BigInteger(1, reverse(c.getData()));
+            final BigInteger rawD = new BigInteger(1, reverse(d.getData()));
+
+            assertEquals(rawC.compareTo(rawD), Integer.signum(c.compareTo(d)));
+            assertEquals(c.decodeBigDecimal().doubleValue(), c.toDouble(), Math.ulp(c.toDouble()) * 2);
+            assertEquals(toU64F64(rawC.add(rawD), mask128), c.copy().add(d));
+            assertEquals(toU64F64(rawC.multiply(rawD).shiftRight(64), mask128), c.copy().multiply(d));
+        }
+
+        // Read from account data at an offset
+        final byte[] data = new byte[20];
+        data[4 + 6] = 1; // 2^48 == 1.0
+        data[4 + 5] = (byte) 0x80; // 0.5
+        assertEquals(new BigDecimal("1.5").setScale(48), I80F48.readI80F48(data, 4).decodeBigDecimal());
+        assertEquals(1.5f, I80F48.readI80F48(data, 4).decodeFloat());
+        assertEquals(-1.5, new I80F48(0, 0).subtract(I80F48.readI80F48(data, 4)).toDouble());
+        assertEquals(new BigDecimal("0.00002288818359375").setScale(64), U64F64.readU64F64(data, 4).decodeBigDecimal());
+    }
+
+    private static I80F48 toI80F48(BigInteger raw, BigInteger mask128) {
+        final BigInteger wrapped = raw.and(mask128);
+        return new I80F48(wrapped.shiftRight(64).longValue(), wrapped.longValue());
+    }
+
+    private static U64F64 toU64F64(BigInteger raw, BigInteger mask128) {
+        final BigInteger wrapped = raw.and(mask128);
+        return new U64F64(wrapped.shiftRight(64).longValue(), wrapped.longValue());
+    }
+
+    private static byte[] reverse(byte[] littleEndian) {
+        final byte[] bigEndian = new byte[littleEndian.length];
+        for (int i = 0; i < littleEndian.length; i++) {
+            bigEndian[i] = littleEndian[littleEndian.length - 1 - i];
+        }
+
+        return bigEndian;
+    }
 }
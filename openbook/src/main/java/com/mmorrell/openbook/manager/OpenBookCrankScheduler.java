@@ -0,0 +1,408 @@
+package com.mmorrell.openbook.manager;
+
+import com.mmorrell.openbook.model.OpenBookEventHeap;
+import com.mmorrell.openbook.model.OpenBookMarket;
+import com.mmorrell.openbook.program.OpenbookProgram;
+import com.mmorrell.serum.util.MultipleAccountsFetcher;
+import com.mmorrell.serum.util.RpcExecutor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.p2p.solanaj.core.Account;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.core.Transaction;
+import org.p2p.solanaj.programs.ComputeBudgetProgram;
+import org.p2p.solanaj.programs.MemoProgram;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.RpcException;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cranks (consumes events for) many OpenBook v2 markets, as an alternative to one
+ * {@link OpenBookManager#consumeEvents(Account, PublicKey, long, String)} call per market.
+ * <p>
+ * Each round ({@link #runOnce()}, or periodically after {@link #start(Duration)}):
+ * <ol>
+ * <li>fetches the event heaps of all watched markets with getMultipleAccounts, in chunks of
+ * {@link MultipleAccountsFetcher#MAX_ACCOUNTS_PER_REQUEST}</li>
+ * <li>records each market's backlog (pending event count and slot), see {@link #getBacklogs()}</li>
+ * <li>orders the markets with at least minEvents pending by event count, largest first</li>
+ * <li>builds one consume_events transaction per market for its oldest events, sized so that the events fit the
+ * compute unit limit and their distinct owners fit maxOwnersPerTransaction</li>
+ * <li>sends the transactions asynchronously on the {@link RpcExecutor}, at most maxInFlight at a time, all signed
+ * with one recent blockhash per round. A market with a transaction still in flight is skipped.</li>
+ * </ol>
+ */
+@Slf4j
+public class OpenBookCrankScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_COMPUTE_UNIT_LIMIT = 200_000;
+    public static final int DEFAULT_COMPUTE_UNITS_PER_EVENT = 10_000;
+    public static final int DEFAULT_PRIORITY_FEE = 11;
+    // Accounts are 32 bytes each in a transaction of at most 1232 bytes, shared with the other instructions
+    public static final int DEFAULT_MAX_OWNERS_PER_TRANSACTION = 20;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    private final RpcClient client;
+    private final Account caller;
+    private final MultipleAccountsFetcher accountsFetcher;
+    private final Map<PublicKey, OpenBookMarket> markets = new ConcurrentHashMap<>();
+    private final Map<PublicKey, MarketBacklog> backlogs = new ConcurrentHashMap<>();
+    private final Set<PublicKey> inFlightMarkets = ConcurrentHashMap.newKeySet();
+
+    private RpcExecutor rpcExecutor = RpcExecutor.getDefault();
+    private int computeUnitLimit = DEFAULT_COMPUTE_UNIT_LIMIT;
+    private int computeUnitsPerEvent = DEFAULT_COMPUTE_UNITS_PER_EVENT;
+    private int priorityFee = DEFAULT_PRIORITY_FEE;
+    private int maxOwnersPerTransaction = DEFAULT_MAX_OWNERS_PER_TRANSACTION;
+    private int minEvents = 1;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private String memo;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    /**
+     * Pending events of a market as of its last fetched event heap, and what was sent to consume them.
+     */
+    @Getter
+    @Builder(toBuilder = true)
+    @ToString
+    public static class MarketBacklog {
+        private final PublicKey marketId;
+        private final String name;
+        private final int eventCount;
+        private final long slot;
+        private final long cranksSent;
+        private final long cranksFailed;
+        private final long eventsSubmitted;
+        private final String lastSignature;
+    }
+
+    public OpenBookCrankScheduler(RpcClient client, Account caller) {
+        this.client = client;
+        this.caller = caller;
+        this.accountsFetcher = new MultipleAccountsFetcher(client)
+                .setCommitment(Commitment.PROCESSED)
+                .setExecutor(rpcExecutor);
+    }
+
+    /**
+     * @param rpcExecutor executor the event heaps are fetched and the transactions sent on
+     * @return this scheduler
+     */
+    public OpenBookCrankScheduler setRpcExecutor(RpcExecutor rpcExecutor) {
+        this.rpcExecutor = rpcExecutor;
+        this.accountsFetcher.setExecutor(rpcExecutor);
+        return this;
+    }
+
+    public OpenBookCrankScheduler setComputeUnitLimit(int computeUnitLimit) {
+        this.computeUnitLimit = computeUnitLimit;
+        return this;
+    }
+
+    /**
+     * @param computeUnitsPerEvent compute units budgeted per consumed event, which with the compute unit limit bounds
+     *                             the number of events per transaction
+     * @return this scheduler
+     */
+    public OpenBookCrankScheduler setComputeUnitsPerEvent(int computeUnitsPerEvent) {
+        if (computeUnitsPerEvent < 1) {
+            throw new IllegalArgumentException("computeUnitsPerEvent must be at least 1");
+        }
+        this.computeUnitsPerEvent = computeUnitsPerEvent;
+        return this;
+    }
+
+    public OpenBookCrankScheduler setPriorityFee(int priorityFee) {
+        this.priorityFee = priorityFee;
+        return this;
+    }
+
+    public OpenBookCrankScheduler setMaxOwnersPerTransaction(int maxOwnersPerTransaction) {
+        if (maxOwnersPerTransaction < 1) {
+            throw new IllegalArgumentException("maxOwnersPerTransaction must be at least 1");
+        }
+        this.maxOwnersPerTransaction = maxOwnersPerTransaction;
+        return this;
+    }
+
+    /**
+     * @param minEvents pending events a market needs before it is cranked
+     * @return this scheduler
+     */
+    public OpenBookCrankScheduler setMinEvents(int minEvents) {
+        this.minEvents = Math.max(1, minEvents);
+        return this;
+    }
+
+    /**
+     * @param maxInFlight maximum number of crank transactions being sent at the same time
+     * @return this scheduler
+     */
+    public OpenBookCrankScheduler setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    public OpenBookCrankScheduler setMemo(String memo) {
+        this.memo = memo;
+        return this;
+    }
+
+    /**
+     * Starts cranking the given market from the next round on.
+     *
+     * @param market market to crank, e.g. from {@link OpenBookManager#getMarket(PublicKey, boolean, boolean)}
+     * @return this scheduler
+     */
+    public OpenBookCrankScheduler addMarket(OpenBookMarket market) {
+        markets.put(market.getMarketId(), market);
+        return this;
+    }
+
+    public OpenBookCrankScheduler removeMarket(PublicKey marketId) {
+        markets.remove(marketId);
+        backlogs.remove(marketId);
+        return this;
+    }
+
+    /**
+     * @return backlog of every watched market, as of the last round that fetched its event heap
+     */
+    public Map<PublicKey, MarketBacklog> getBacklogs() {
+        return Map.copyOf(backlogs);
+    }
+
+    /**
+     * @return total pending events over all watched markets, as of the last round
+     */
+    public long getTotalBacklog() {
+        return backlogs.values().stream().mapToLong(MarketBacklog::getEventCount).sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlightMarkets.size();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Runs one round: fetches all event heaps, updates the backlogs and submits crank transactions for the markets
+     * with the largest backlogs. Returns once the transactions are queued, without waiting for them to be sent.
+     *
+     * @return number of crank transactions submitted
+     */
+    public int runOnce() {
+        final List<OpenBookMarket> watchedMarkets = new ArrayList<>(markets.values());
+        final List<PublicKey> eventHeaps = new ArrayList<>(watchedMarkets.size());
+        for (OpenBookMarket market : watchedMarkets) {
+            eventHeaps.add(market.getEventHeap());
+        }
+
+        final Map<PublicKey, MultipleAccountsFetcher.SlotAccount> eventHeapData;
+        try {
+            eventHeapData = accountsFetcher.getMultipleAccountsWithSlot(eventHeaps);
+        } catch (RuntimeException e) {
+            log.error("Error fetching OpenBook v2 event heaps: {}", e.getMessage(), e);
+            return 0;
+        }
+
+        final List<PendingCrank> pendingCranks = new ArrayList<>();
+        for (OpenBookMarket market : watchedMarkets) {
+            final MultipleAccountsFetcher.SlotAccount eventHeap = eventHeapData.get(market.getEventHeap());
+            if (eventHeap == null) {
+                log.warn("Event heap not found for OpenBook v2 market {}", market.getMarketId());
+                continue;
+            }
+
+            final int eventCount = OpenBookEventHeap.readCount(eventHeap.data());
+            backlogs.compute(market.getMarketId(), (marketId, backlog) -> (backlog == null
+                    ? MarketBacklog.builder().marketId(marketId).name(market.getName())
+                    : backlog.toBuilder())
+                    .eventCount(eventCount)
+                    .slot(eventHeap.slot())
+                    .build());
+
+            if (eventCount >= minEvents && !inFlightMarkets.contains(market.getMarketId())) {
+                pendingCranks.add(new PendingCrank(market, eventHeap.data(), eventCount));
+            }
+        }
+
+        if (pendingCranks.isEmpty()) {
+            return 0;
+        }
+
+        final String recentBlockhash;
+        try {
+            recentBlockhash = client.getApi().getLatestBlockhash(Commitment.CONFIRMED).getValue().getBlockhash();
+        } catch (RpcException e) {
+            log.error("Error getting blockhash for OpenBook v2 cranks: {}", e.getMessage(), e);
+            return 0;
+        }
+
+        pendingCranks.sort(Comparator.comparingInt(PendingCrank::eventCount).reversed());
+
+        int submitted = 0;
+        for (PendingCrank pendingCrank : pendingCranks) {
+            if (inFlightMarkets.size() >= maxInFlight) {
+                // Window full, the rest waits for the next round
+                break;
+            }
+
+            final OpenBookMarket market = pendingCrank.market();
+            inFlightMarkets.add(market.getMarketId());
+            try {
+                final CrankBatch batch = selectBatch(pendingCrank.eventHeapData());
+                final Transaction transaction = buildTransaction(market, batch);
+                rpcExecutor.execute(() -> send(market, transaction, batch, recentBlockhash));
+                submitted++;
+            } catch (RuntimeException e) {
+                inFlightMarkets.remove(market.getMarketId());
+                throw e;
+            }
+        }
+
+        return submitted;
+    }
+
+    /**
+     * Runs {@link #runOnce()} periodically on a daemon thread, replacing any schedule started earlier.
+     *
+     * @param period time between the end of one round and the start of the next
+     */
+    public synchronized void start(Duration period) {
+        stop();
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "openbook-crank-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        task = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            } catch (RuntimeException e) {
+                log.error("Error cranking OpenBook v2 markets: {}", e.getMessage(), e);
+            }
+        }, 0, period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        stop();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private record PendingCrank(OpenBookMarket market, byte[] eventHeapData, int eventCount) {
+    }
+
+    private record CrankBatch(List<PublicKey> owners, int eventCount) {
+    }
+
+    /**
+     * Takes the oldest events that fit the compute budget, then stops early if their distinct owners would not fit
+     * in the transaction. consume_events processes events in order and stops at the first one whose owner is not
+     * passed in, so the batch is always a prefix of the heap.
+     */
+    private CrankBatch selectBatch(byte[] eventHeapData) {
+        final int maxEvents = Math.max(1, computeUnitLimit / computeUnitsPerEvent);
+        final List<PublicKey> eventOwners = OpenBookEventHeap.readEventOwners(eventHeapData, maxEvents);
+
+        final Set<PublicKey> owners = new LinkedHashSet<>();
+        int eventCount = 0;
+        for (PublicKey owner : eventOwners) {
+            if (!owners.contains(owner)) {
+                if (owners.size() == maxOwnersPerTransaction) {
+                    break;
+                }
+                owners.add(owner);
+            }
+            eventCount++;
+        }
+
+        return new CrankBatch(new ArrayList<>(owners), eventCount);
+    }
+
+    private Transaction buildTransaction(OpenBookMarket market, CrankBatch batch) {
+        final Transaction transaction = new Transaction();
+        transaction.addInstruction(ComputeBudgetProgram.setComputeUnitLimit(computeUnitLimit));
+        transaction.addInstruction(ComputeBudgetProgram.setComputeUnitPrice(priorityFee));
+        transaction.addInstruction(
+                OpenbookProgram.consumeEvents(
+                        caller,
+                        market.getMarketId(),
+                        market.getEventHeap(),
+                        batch.owners(),
+                        batch.eventCount()
+                )
+        );
+
+        if (memo != null) {
+            transaction.addInstruction(MemoProgram.writeUtf8(caller.getPublicKey(), memo));
+        }
+
+        return transaction;
+    }
+
+    private void send(OpenBookMarket market, Transaction transaction, CrankBatch batch, String recentBlockhash) {
+        try {
+            final String signature = client.getApi().sendTransaction(transaction, List.of(caller), recentBlockhash);
+            sentCount.incrementAndGet();
+            backlogs.computeIfPresent(market.getMarketId(), (marketId, backlog) -> backlog.toBuilder()
+                    .cranksSent(backlog.getCranksSent() + 1)
+                    .eventsSubmitted(backlog.getEventsSubmitted() + batch.eventCount())
+                    .lastSignature(signature)
+                    .build());
+            log.info("Cranked {} events in {}: {}", batch.eventCount(), market.getName(), signature);
+        } catch (RpcException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            backlogs.computeIfPresent(market.getMarketId(), (marketId, backlog) -> backlog.toBuilder()
+                    .cranksFailed(backlog.getCranksFailed() + 1)
+                    .build());
+            log.error("Error cranking {}: {}", market.getName(), e.getMessage(), e);
+        } finally {
+            inFlightMarkets.remove(market.getMarketId());
+        }
+    }
+}
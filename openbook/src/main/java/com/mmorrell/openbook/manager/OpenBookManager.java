@@ -1,12 +1,16 @@
 package com.mmorrell.openbook.manager;
 
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import com.mmorrell.openbook.OpenBookUtil;
-import com.mmorrell.openbook.model.BookSide;
+import com.mmorrell.openbook.model.BookSideView;
+import com.mmorrell.openbook.model.OpenBookBookSnapshot;
 import com.mmorrell.openbook.model.OpenBookEventHeap;
 import com.mmorrell.openbook.model.OpenBookMarket;
 import com.mmorrell.openbook.model.OpenBookOpenOrdersAccount;
 import com.mmorrell.openbook.program.OpenbookProgram;
+import com.mmorrell.serum.util.MultipleAccountsFetcher;
+import com.mmorrell.serum.util.RpcExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.core.Base58;
 import org.p2p.solanaj.core.Account;
@@ -16,62 +20,219 @@ import org.p2p.solanaj.programs.ComputeBudgetProgram;
 import org.p2p.solanaj.programs.MemoProgram;
 import org.p2p.solanaj.rpc.RpcClient;
 import org.p2p.solanaj.rpc.RpcException;
-import org.p2p.solanaj.rpc.types.AccountInfo;
-import org.p2p.solanaj.rpc.types.ProgramAccount;
 import org.p2p.solanaj.rpc.types.config.Commitment;
 
 import javax.annotation.Nullable;
 import java.io.File;
-import java.util.Base64;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * The OpenBookManager class is responsible for managing OpenBook markets and their related data.
+ * <p>
+ * Closing the manager stops the background market refresh and its thread; the {@link RpcExecutor} is left running,
+ * since it may be shared.
  */
 @Slf4j
-public class OpenBookManager {
+public class OpenBookManager implements AutoCloseable {
 
     private final RpcClient client;
-    private final Map<PublicKey, OpenBookMarket> marketCache = new HashMap<>();
+    private final RpcExecutor rpcExecutor;
+    private final MultipleAccountsFetcher accountsFetcher;
+    private final Map<PublicKey, OpenBookMarket> marketCache = new ConcurrentHashMap<>();
+    private final Map<PublicKey, Long> marketDataHashes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refreshScheduler;
+    private ScheduledFuture<?> refreshTask;
 
     private final static int CONSUME_EVENTS_DEFAULT_FEE = 11;
     private final static int DEFAULT_PRIORITY_LIMIT = 50_000;
 
     public OpenBookManager(RpcClient client) {
+        this(client, RpcExecutor.getDefault());
+    }
+
+    /**
+     * Creates an OpenBookManager whose asynchronous lookups run on the given executor.
+     *
+     * @param client      the RPC client
+     * @param rpcExecutor the executor for blocking RPC calls
+     */
+    public OpenBookManager(RpcClient client, RpcExecutor rpcExecutor) {
         this.client = client;
+        this.rpcExecutor = rpcExecutor;
+        this.accountsFetcher = new MultipleAccountsFetcher(client)
+                .setCommitment(Commitment.CONFIRMED)
+                .setExecutor(rpcExecutor);
         cacheMarkets();
     }
 
     /**
      * Caches the markets from OpenBook v2 program.
-     * It retrieves the markets from the client API and stores them in the market cache.
+     * It lists the market accounts of the program and stores them in the market cache, see
+     * {@link #refreshMarkets(boolean)}.
      */
     public void cacheMarkets() {
-        final List<ProgramAccount> markets;
+        refreshMarkets(true);
+    }
+
+    /**
+     * Re-fetches the cached markets, and optionally discovers new ones, updating only the markets whose account data
+     * changed.
+     * <p>
+     * Discovery is a getProgramAccounts call returning only the market keys (a zero length data slice). Market data
+     * is then fetched with getMultipleAccounts in chunks of {@link MultipleAccountsFetcher#MAX_ACCOUNTS_PER_REQUEST},
+     * concurrently on this manager's {@link RpcExecutor}, and decoded in parallel. Markets whose data hashes the same
+     * as on the last refresh keep their cached {@link OpenBookMarket} instance, and markets whose account no longer
+     * exists are evicted.
+     *
+     * @param discoverNewMarkets whether to list the program's markets to find new ones, rather than only refreshing
+     *                           the cached markets
+     * @return keys of the markets that were added, changed or evicted
+     */
+    public Set<PublicKey> refreshMarkets(boolean discoverNewMarkets) {
+        final Set<PublicKey> marketIds = new HashSet<>(marketCache.keySet());
+        if (discoverNewMarkets) {
+            try {
+                marketIds.addAll(getMarketIds());
+            } catch (RpcException e) {
+                log.error("Error listing OpenBook v2 markets: {}", e.getMessage(), e);
+                return Set.of();
+            }
+        }
+
+        final Map<PublicKey, byte[]> marketData;
         try {
-            markets = client.getApi().getProgramAccountsBase64(
-                    OpenbookProgram.OPENBOOK_V2_PROGRAM_ID,
-                    0,
-                    Base58.encode(OpenBookUtil.MARKET_DISCRIMINATOR)
-            );
-        } catch (RpcException e) {
-            log.error("Error caching OpenBook v2 markets: {}", e.getMessage(), e);
-            return;
+            marketData = accountsFetcher.getMultipleAccounts(new ArrayList<>(marketIds));
+        } catch (RuntimeException e) {
+            log.error("Error refreshing OpenBook v2 markets: {}", e.getMessage(), e);
+            return Set.of();
         }
 
-        markets.forEach(programAccount -> {
-            OpenBookMarket openBookMarket = OpenBookMarket.readOpenBookMarket(
-                    programAccount.getAccount().getDecodedData(),
-                    new PublicKey(programAccount.getPubkey())
-            );
-            marketCache.put(openBookMarket.getMarketId(), openBookMarket);
+        final Set<PublicKey> changedMarketIds = ConcurrentHashMap.newKeySet();
+        marketData.entrySet().parallelStream().forEach(entry -> {
+            if (updateMarket(entry.getKey(), entry.getValue())) {
+                changedMarketIds.add(entry.getKey());
+            }
         });
+
+        for (PublicKey marketId : marketIds) {
+            if (!marketData.containsKey(marketId) && marketCache.remove(marketId) != null) {
+                marketDataHashes.remove(marketId);
+                changedMarketIds.add(marketId);
+            }
+        }
+
+        log.debug("Refreshed {} OpenBook v2 markets, {} changed", marketData.size(), changedMarketIds.size());
+        return changedMarketIds;
+    }
+
+    /**
+     * Keys of all market accounts of the OpenBook v2 program, without their data.
+     */
+    @SuppressWarnings("unchecked")
+    private List<PublicKey> getMarketIds() throws RpcException {
+        final Map<String, Object> config = Map.of(
+                "encoding", "base64",
+                "dataSlice", Map.of("offset", 0, "length", 0),
+                "filters", List.of(Map.of("memcmp", Map.of(
+                        "offset", 0,
+                        "bytes", Base58.encode(OpenBookUtil.MARKET_DISCRIMINATOR)
+                )))
+        );
+
+        final List<Object> accounts = client.call(
+                "getProgramAccounts",
+                List.of(OpenbookProgram.OPENBOOK_V2_PROGRAM_ID.toBase58(), config),
+                List.class
+        );
+
+        final List<PublicKey> marketIds = new ArrayList<>(accounts.size());
+        for (Object account : accounts) {
+            marketIds.add(new PublicKey((String) ((Map<String, Object>) account).get("pubkey")));
+        }
+        return marketIds;
+    }
+
+    /**
+     * Decodes and caches a market if its data differs from the last cached version.
+     *
+     * @return true if the market was added or replaced
+     */
+    private boolean updateMarket(PublicKey marketId, byte[] data) {
+        final long dataHash = Hashing.farmHashFingerprint64().hashBytes(data).asLong();
+        final Long previousHash = marketDataHashes.put(marketId, dataHash);
+        if (previousHash != null && previousHash == dataHash && marketCache.containsKey(marketId)) {
+            return false;
+        }
+
+        marketCache.put(marketId, OpenBookMarket.readOpenBookMarket(data, marketId));
+        return true;
+    }
+
+    /**
+     * Starts refreshing the market cache in the background, see {@link #refreshMarkets(boolean)}. Replaces any
+     * refresh started earlier.
+     *
+     * @param period             time between the end of one refresh and the start of the next
+     * @param discoverNewMarkets whether each refresh also lists the program's markets to find new ones
+     */
+    public synchronized void startMarketRefresh(Duration period, boolean discoverNewMarkets) {
+        stopMarketRefresh();
+        refreshTask = getRefreshScheduler().scheduleWithFixedDelay(
+                () -> refreshMarkets(discoverNewMarkets),
+                period.toMillis(),
+                period.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Stops the background refresh started by {@link #startMarketRefresh(Duration, boolean)}, if any.
+     */
+    public synchronized void stopMarketRefresh() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Stops the background refresh, if any, and shuts down its scheduler thread.
+     */
+    @Override
+    public synchronized void close() {
+        stopMarketRefresh();
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+            refreshScheduler = null;
+        }
+    }
+
+    private ScheduledExecutorService getRefreshScheduler() {
+        if (refreshScheduler == null) {
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "openbook-market-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return refreshScheduler;
     }
 
     /**
@@ -93,11 +254,7 @@ public class OpenBookManager {
      */
     public Optional<OpenBookMarket> getMarket(PublicKey marketId, boolean useCache, boolean retrieveOrderBooks) {
         if (useCache) {
-            if (marketCache.containsKey(marketId)) {
-                return Optional.of(marketCache.get(marketId));
-            } else {
-                return Optional.empty();
-            }
+            return Optional.ofNullable(marketCache.get(marketId));
         } else {
             try {
                 // Use cache here anyway. The GPA will pick up all markets
@@ -108,31 +265,13 @@ public class OpenBookManager {
                 }
 
                 if (retrieveOrderBooks) {
-                    Map<PublicKey, Optional<AccountInfo.Value>> books = client.getApi().getMultipleAccountsMap(
-                            List.of(openBookMarket.getBids(), openBookMarket.getAsks())
-                    );
-
-                    Optional<AccountInfo.Value> bidOrderBookValue = books.get(openBookMarket.getBids());
-                    Optional<AccountInfo.Value> askOrderBookValue = books.get(openBookMarket.getAsks());
-
-                    if (bidOrderBookValue.isPresent() && askOrderBookValue.isPresent()) {
-                        byte[] bidData =
-                                Base64.getDecoder().decode(bidOrderBookValue.get().getData().get(0).getBytes());
-                        BookSide bids = BookSide.readBookSide(bidData);
-                        bids.setBaseDecimals(openBookMarket.getBaseDecimals());
-                        bids.setQuoteDecimals(openBookMarket.getQuoteDecimals());
-                        bids.setBaseLotSize(openBookMarket.getBaseLotSize());
-                        bids.setQuoteLotSize(openBookMarket.getQuoteLotSize());
-                        openBookMarket.setBidOrders(bids.getOrders());
-
-                        byte[] askData =
-                                Base64.getDecoder().decode(askOrderBookValue.get().getData().get(0).getBytes());
-                        BookSide asks = BookSide.readBookSide(askData);
-                        asks.setBaseDecimals(openBookMarket.getBaseDecimals());
-                        asks.setQuoteDecimals(openBookMarket.getQuoteDecimals());
-                        asks.setBaseLotSize(openBookMarket.getBaseLotSize());
-                        asks.setQuoteLotSize(openBookMarket.getQuoteLotSize());
-                        openBookMarket.setAskOrders(asks.getOrders());
+                    // Copy rather than update the cached market, which other threads may be reading
+                    final OpenBookBookSnapshot books = fetchBooks(List.of(openBookMarket)).get(marketId);
+                    if (books != null) {
+                        openBookMarket = openBookMarket.toBuilder()
+                                .bidOrders(books.getBids())
+                                .askOrders(books.getAsks())
+                                .build();
                     }
                 }
 
@@ -144,6 +283,93 @@ public class OpenBookManager {
         }
     }
 
+    /**
+     * Retrieves the order books of many markets at once, as immutable snapshots.
+     * <p>
+     * The bids and asks accounts of all markets are packed into as few getMultipleAccounts calls as possible
+     * ({@link MultipleAccountsFetcher#MAX_ACCOUNTS_PER_REQUEST} accounts, i.e. 50 markets, per call), requested
+     * concurrently on this manager's {@link RpcExecutor} and decoded in parallel. Both sides of a market always come
+     * from the same response, so each snapshot is consistent as of its slot. Oracle pegged orders are left out of the
+     * snapshots, since pricing them needs the oracle.
+     *
+     * @param marketIds the Public Key IDs of the markets, which must be in the market cache
+     * @return snapshots by market ID, in the given order. Unknown markets and markets whose book accounts could not be
+     * read are left out; the map is empty if the RPC calls failed.
+     */
+    public Map<PublicKey, OpenBookBookSnapshot> getBooks(Collection<PublicKey> marketIds) {
+        final List<OpenBookMarket> markets = new ArrayList<>(marketIds.size());
+        for (PublicKey marketId : new LinkedHashSet<>(marketIds)) {
+            final OpenBookMarket market = marketCache.get(marketId);
+            if (market == null) {
+                log.warn("Unknown OpenBook v2 market {}", marketId);
+                continue;
+            }
+            markets.add(market);
+        }
+
+        try {
+            return fetchBooks(markets);
+        } catch (RuntimeException e) {
+            log.error("Unable to retrieve OpenBook v2 order books: {}", e.getMessage(), e);
+            return Map.of();
+        }
+    }
+
+    private Map<PublicKey, OpenBookBookSnapshot> fetchBooks(List<OpenBookMarket> markets) {
+        // Bids and asks next to each other, so that a market never straddles two requests (and slots)
+        final List<PublicKey> bookSides = new ArrayList<>(markets.size() * 2);
+        for (OpenBookMarket market : markets) {
+            bookSides.add(market.getBids());
+            bookSides.add(market.getAsks());
+        }
+
+        final Map<PublicKey, MultipleAccountsFetcher.SlotAccount> bookData =
+                accountsFetcher.getMultipleAccountsWithSlot(bookSides);
+
+        final Map<PublicKey, OpenBookBookSnapshot> snapshots = new ConcurrentHashMap<>();
+        markets.parallelStream().forEach(market -> {
+            final MultipleAccountsFetcher.SlotAccount bids = bookData.get(market.getBids());
+            final MultipleAccountsFetcher.SlotAccount asks = bookData.get(market.getAsks());
+            if (bids == null || asks == null) {
+                log.warn("Order book accounts not found for OpenBook v2 market {}", market.getMarketId());
+                return;
+            }
+
+            snapshots.put(market.getMarketId(), OpenBookBookSnapshot.builder()
+                    .marketId(market.getMarketId())
+                    .slot(Math.min(bids.slot(), asks.slot()))
+                    .bids(BookSideView.wrap(bids.data()).getOrders(market))
+                    .asks(BookSideView.wrap(asks.data()).getOrders(market))
+                    .build());
+        });
+
+        final Map<PublicKey, OpenBookBookSnapshot> results = new LinkedHashMap<>();
+        for (OpenBookMarket market : markets) {
+            final OpenBookBookSnapshot snapshot = snapshots.get(market.getMarketId());
+            if (snapshot != null) {
+                results.put(market.getMarketId(), snapshot);
+            }
+        }
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Retrieves a market asynchronously on this manager's {@link RpcExecutor}, see
+     * {@link #getMarket(PublicKey, boolean, boolean)}. The order books are then fetched on the same task, so the call
+     * holds a single in-flight permit.
+     *
+     * @param marketId           the Public Key ID of the market to retrieve
+     * @param retrieveOrderBooks flag indicating whether to retrieve the order books for the market
+     * @return a future of the retrieved OpenBookMarket, or an empty Optional if unsuccessful
+     */
+    public CompletableFuture<Optional<OpenBookMarket>> getMarketAsync(PublicKey marketId, boolean retrieveOrderBooks) {
+        return rpcExecutor.supplyAsync(() -> getMarket(marketId, false, retrieveOrderBooks));
+    }
+
+    public RpcExecutor getRpcExecutor() {
+        return rpcExecutor;
+    }
+
     /**
      * Retrieves the OpenBookEventHeap associated with the given eventHeap Public Key.
      *
@@ -187,6 +413,17 @@ public class OpenBookManager {
         }
     }
 
+    /**
+     * Creates a scheduler cranking many markets at once, sending with this manager's RPC client and executor. Markets
+     * still need to be added to it, see {@link OpenBookCrankScheduler#addMarket(OpenBookMarket)}.
+     *
+     * @param caller the account signing and paying for the crank transactions
+     * @return a new crank scheduler
+     */
+    public OpenBookCrankScheduler newCrankScheduler(Account caller) {
+        return new OpenBookCrankScheduler(client, caller).setRpcExecutor(rpcExecutor);
+    }
+
     /**
      * Consume events in an OpenBook market.
      *
@@ -204,16 +441,23 @@ public class OpenBookManager {
         }
         OpenBookMarket market = marketOptional.get();
 
-        Optional<OpenBookEventHeap> eventHeapOptional = getEventHeap(market.getEventHeap());
-        if (eventHeapOptional.isEmpty()) {
+        final byte[] eventHeapData;
+        try {
+            eventHeapData = client.getApi()
+                    .getAccountInfo(market.getEventHeap(), Map.of("commitment", Commitment.PROCESSED))
+                    .getDecodedData();
+        } catch (Exception e) {
+            log.error("Error getting event heap: {}", e.getMessage(), e);
             return Optional.empty();
         }
-        OpenBookEventHeap eventHeap = eventHeapOptional.get();
-        if (eventHeap.getCount() == 0) {
+        if (OpenBookEventHeap.readCount(eventHeapData) == 0) {
             return Optional.empty();
         }
 
-        Set<PublicKey> peopleToCrank = new HashSet<>(eventHeap.getEventOwnersToConsume());
+        // Owners of the oldest events first, since consume_events works from the head of the heap
+        Set<PublicKey> peopleToCrank = new LinkedHashSet<>(
+                OpenBookEventHeap.readEventOwners(eventHeapData, Integer.MAX_VALUE)
+        );
         List<PublicKey> openOrdersAccounts = peopleToCrank.stream().toList()
                 .subList(0, Math.min((int) limit, peopleToCrank.size()));
 
@@ -1,8 +1,10 @@
 package com.mmorrell.openbook.model;
 
 import com.mmorrell.openbook.OpenBookUtil;
+import com.mmorrell.serum.model.L2Book;
 import lombok.Builder;
 import lombok.Data;
+import org.bitcoinj.core.Utils;
 
 import java.util.Arrays;
 import java.util.List;
@@ -21,8 +23,17 @@ public class BookSide {
     // OrderTreeNodes x 1 (starts at offset 312)
 
     private static final int NUM_ROOTS = 2;
+    private static final int FIXED_TREE = 0;
     private static final int NUM_RESERVED_ROOTS = 4;
 
+    // LeafNode offsets within AnyNode data (i.e. after the 1 byte tag)
+    private static final int LEAF_PRICE_OFFSET = 15;
+    private static final int LEAF_QUANTITY_OFFSET = 55;
+    private static final int INNER_CHILDREN_OFFSET = 23;
+
+    // Keys are u128, so a well-formed critbit tree has at most 128 inner nodes on any path
+    private static final int MAX_TREE_DEPTH = 129;
+
     private List<OrderTreeRoot> roots;
     private List<OrderTreeRoot> reservedRoots;
     private OrderTreeNodes orderTreeNodes;
@@ -97,4 +108,47 @@ public class BookSide {
                         .build())
                 .toList();
     }
+
+    /**
+     * Aggregates the fixed price tree into an {@link L2Book} of price levels (price in quote lots per base lot, size
+     * in base lots), reading price and quantity straight from the node data without building {@link LeafNode}s.
+     * Oracle pegged orders are left out: their keys hold an offset from the oracle price, not a price.
+     *
+     * @return {@link L2Book} for this book side
+     */
+    public L2Book getL2Book() {
+        final boolean bids = orderTreeNodes.getOrderTreeType() == 0;
+        final L2Book l2Book = new L2Book(bids);
+        final OrderTreeRoot root = roots.get(FIXED_TREE);
+        if (root.getLeafCount() == 0) {
+            return l2Book;
+        }
+
+        // In-order walk from the root, best price first, so levels are merged as they arrive
+        final int first = bids ? 1 : 0;
+        final int[] stack = new int[MAX_TREE_DEPTH + 1];
+        int size = 0;
+        stack[size++] = root.getMaybeNode();
+        while (size > 0) {
+            final AnyNode anyNode = orderTreeNodes.getNodes().get(stack[--size]);
+            final byte[] nodeData = anyNode.getData();
+            if (anyNode.getNodeTag() == NodeTag.LeafNode) {
+                l2Book.add(
+                        Utils.readInt64(nodeData, LEAF_PRICE_OFFSET),
+                        Utils.readInt64(nodeData, LEAF_QUANTITY_OFFSET)
+                );
+            } else if (anyNode.getNodeTag() == NodeTag.InnerNode) {
+                if (size + 2 > stack.length) {
+                    throw new IllegalStateException("order tree deeper than " + MAX_TREE_DEPTH + " nodes");
+                }
+
+                stack[size++] = OpenBookUtil.readInt32(nodeData, INNER_CHILDREN_OFFSET + ((1 - first) * 4));
+                stack[size++] = OpenBookUtil.readInt32(nodeData, INNER_CHILDREN_OFFSET + (first * 4));
+            } else {
+                throw new IllegalStateException("unexpected order tree node tag " + anyNode.getTag());
+            }
+        }
+
+        return l2Book;
+    }
 }
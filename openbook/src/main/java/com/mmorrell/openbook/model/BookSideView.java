@@ -0,0 +1,510 @@
+package com.mmorrell.openbook.model;
+
+import com.mmorrell.openbook.OpenBookUtil;
+import com.mmorrell.serum.model.L2Book;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Zero-copy, read-only view over an OpenBook v2 BookSide (bids or asks) account.
+ * <p>
+ * Unlike {@link BookSide#readBookSide(byte[])}, which copies the roots and all 1024 nodes into {@link AnyNode}s,
+ * every accessor reads straight from the wrapped account bytes by node index, and leaves are found by walking the
+ * order tree from its root. Reading the top of the book or the top N orders only touches the nodes on the way to
+ * them.
+ * <p>
+ * account layout: [discriminator 8][roots: (maybeNode u32, leafCount u32) x 2][reserved roots x 4][256 bytes]
+ * [orderTreeType u8][3 bytes][bumpIndex u32][freeListLen u32][freeListHead u32][512 bytes][nodes: 88 bytes x 1024]
+ * <p>
+ * node layout (88 bytes):
+ * inner node: [tag u8][3 bytes][prefixLen u32][key u128][children u32 x 2][childEarliestExpiry u64 x 2][40 bytes]
+ * leaf node:  [tag u8][ownerSlot u8][timeInForce u16][4 bytes][key u128 (seqNum u64, price u64)][owner 32 bytes]
+ * [quantity u64][timestamp u64][pegLimit i64][clientOrderId u64]
+ * <p>
+ * A view is only valid for as long as the underlying bytes are not modified.
+ */
+public class BookSideView {
+
+    public static final int NODE_SIZE = 88;
+
+    // Order trees: orders at a fixed price, and orders pegged to the oracle price
+    public static final int FIXED_TREE = 0;
+    public static final int ORACLE_PEGGED_TREE = 1;
+
+    private static final int ROOTS_OFFSET = 8;
+    private static final int ORDER_TREE_TYPE_OFFSET = 312;
+    private static final int BUMP_INDEX_OFFSET = 316;
+    private static final int FREE_LIST_LEN_OFFSET = 320;
+    private static final int FREE_LIST_HEAD_OFFSET = 324;
+    private static final int NODES_OFFSET = 840;
+    private static final int MAX_NODES = 1024;
+
+    // Node-relative offsets
+    private static final int TAG_OFFSET = 0;
+    private static final int INNER_PREFIX_LEN_OFFSET = 4;
+    private static final int INNER_KEY_OFFSET = 8;
+    private static final int INNER_CHILDREN_OFFSET = 24;
+    private static final int INNER_CHILD_EARLIEST_EXPIRY_OFFSET = 32;
+    private static final int LEAF_OWNER_SLOT_OFFSET = 1;
+    private static final int LEAF_TIME_IN_FORCE_OFFSET = 2;
+    private static final int LEAF_SEQ_NUM_OFFSET = 8;
+    private static final int LEAF_PRICE_OFFSET = 16;
+    private static final int LEAF_OWNER_OFFSET = 24;
+    private static final int LEAF_QUANTITY_OFFSET = 56;
+    private static final int LEAF_TIMESTAMP_OFFSET = 64;
+    private static final int LEAF_PEG_LIMIT_OFFSET = 72;
+    private static final int LEAF_CLIENT_ORDER_ID_OFFSET = 80;
+
+    // Keys are u128, so a well-formed critbit tree has at most 128 inner nodes on any path
+    private static final int MAX_TREE_DEPTH = 129;
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int nodeCount;
+
+    private BookSideView(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+
+        int capacity = Math.min(MAX_NODES, (buffer.limit() - base - NODES_OFFSET) / NODE_SIZE);
+        this.nodeCount = Math.max(0, Math.min(getBumpIndex(), capacity));
+    }
+
+    /**
+     * Wraps raw BookSide account data without copying it.
+     *
+     * @param data account data, starting with the discriminator
+     * @return view over the book side
+     */
+    public static BookSideView wrap(byte[] data) {
+        return new BookSideView(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), 0);
+    }
+
+    /**
+     * Wraps a buffer holding BookSide account data, starting at its current position. The buffer's position and
+     * limit are left untouched; only a little-endian duplicate is retained.
+     *
+     * @param data buffer whose remaining bytes are the account data
+     * @return view over the book side
+     */
+    public static BookSideView wrap(ByteBuffer data) {
+        return new BookSideView(data.duplicate().order(ByteOrder.LITTLE_ENDIAN), data.position());
+    }
+
+    /**
+     * @return 0 for bids, 1 for asks
+     */
+    public byte getOrderTreeType() {
+        return buffer.get(base + ORDER_TREE_TYPE_OFFSET);
+    }
+
+    public boolean isBids() {
+        return getOrderTreeType() == 0;
+    }
+
+    public int getBumpIndex() {
+        return buffer.getInt(base + BUMP_INDEX_OFFSET);
+    }
+
+    public int getFreeListLen() {
+        return buffer.getInt(base + FREE_LIST_LEN_OFFSET);
+    }
+
+    public int getFreeListHead() {
+        return buffer.getInt(base + FREE_LIST_HEAD_OFFSET);
+    }
+
+    /**
+     * Root node of one of the order trees, i.e. {@link OrderTreeRoot#getMaybeNode()}.
+     *
+     * @param tree {@link #FIXED_TREE} or {@link #ORACLE_PEGGED_TREE}
+     * @return index of the root node, only meaningful if the tree has leaves
+     */
+    public int getRoot(int tree) {
+        return buffer.getInt(base + ROOTS_OFFSET + (checkTree(tree) * OrderTreeRoot.SIZE));
+    }
+
+    /**
+     * @param tree {@link #FIXED_TREE} or {@link #ORACLE_PEGGED_TREE}
+     * @return number of orders in the tree
+     */
+    public int getLeafCount(int tree) {
+        return buffer.getInt(base + ROOTS_OFFSET + (checkTree(tree) * OrderTreeRoot.SIZE) + 4);
+    }
+
+    /**
+     * Number of addressable nodes, i.e. bumpIndex bounded by the size of the underlying data.
+     *
+     * @return number of nodes that can be read from this view
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the variant of the node at the given index, see {@link NodeTag}.
+     *
+     * @param index node index
+     * @return node tag
+     */
+    public byte getTag(int index) {
+        return buffer.get(nodeOffset(index) + TAG_OFFSET);
+    }
+
+    public boolean isLeaf(int index) {
+        return getTag(index) == NodeTag.LeafNode.getTag();
+    }
+
+    public boolean isInner(int index) {
+        return getTag(index) == NodeTag.InnerNode.getTag();
+    }
+
+    // Inner node accessors
+
+    public int getPrefixLen(int index) {
+        return buffer.getInt(nodeOffset(index) + INNER_PREFIX_LEN_OFFSET);
+    }
+
+    /**
+     * Returns one of the two children of an inner node.
+     *
+     * @param index inner node index
+     * @param side  0 for the lower half of the key space, 1 for the upper half
+     * @return index of the child node
+     */
+    public int getChild(int index, int side) {
+        return buffer.getInt(nodeOffset(index) + INNER_CHILDREN_OFFSET + (side * 4));
+    }
+
+    /**
+     * Earliest expiry of any order below one of the children of an inner node.
+     *
+     * @param index inner node index
+     * @param side  0 for the lower child, 1 for the upper child
+     * @return unix timestamp, or u64::MAX (-1) if no order below expires
+     */
+    public long getChildEarliestExpiry(int index, int side) {
+        return buffer.getLong(nodeOffset(index) + INNER_CHILD_EARLIEST_EXPIRY_OFFSET + (side * 8));
+    }
+
+    // Leaf node accessors
+
+    public byte getOwnerSlot(int index) {
+        return buffer.get(nodeOffset(index) + LEAF_OWNER_SLOT_OFFSET);
+    }
+
+    public int getTimeInForce(int index) {
+        return Short.toUnsignedInt(buffer.getShort(nodeOffset(index) + LEAF_TIME_IN_FORCE_OFFSET));
+    }
+
+    /**
+     * Low 64 bits of the u128 key. For leaves this is the order sequence number, bit-inverted on the bids side so
+     * that earlier orders sort higher.
+     *
+     * @param index node index
+     * @return low half of the key
+     */
+    public long getKeyLow(int index) {
+        return buffer.getLong(nodeOffset(index) + (isLeaf(index) ? LEAF_SEQ_NUM_OFFSET : INNER_KEY_OFFSET));
+    }
+
+    /**
+     * High 64 bits of the u128 key. For leaves this is the price: in lots for the fixed tree, the encoded price
+     * offset for the oracle pegged tree.
+     *
+     * @param index node index
+     * @return high half of the key
+     */
+    public long getKeyHigh(int index) {
+        return buffer.getLong(nodeOffset(index) + (isLeaf(index) ? LEAF_PRICE_OFFSET : INNER_KEY_OFFSET + 8));
+    }
+
+    /**
+     * @param index leaf node index
+     * @return order sequence number, with the bids side inversion undone
+     */
+    public long getSeqNum(int index) {
+        long seqNum = buffer.getLong(nodeOffset(index) + LEAF_SEQ_NUM_OFFSET);
+        return isBids() ? ~seqNum : seqNum;
+    }
+
+    public long getPrice(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_PRICE_OFFSET);
+    }
+
+    public long getQuantity(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_QUANTITY_OFFSET);
+    }
+
+    public long getTimestamp(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_TIMESTAMP_OFFSET);
+    }
+
+    public long getPegLimit(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_PEG_LIMIT_OFFSET);
+    }
+
+    public long getClientOrderId(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_CLIENT_ORDER_ID_OFFSET);
+    }
+
+    /**
+     * Builds the open orders {@link PublicKey} of a leaf. This allocates, prefer {@link #ownerEquals(int, PublicKey)}
+     * or {@link #copyOwner(int, byte[], int)} on hot paths.
+     *
+     * @param index leaf node index
+     * @return owner of the order
+     */
+    public PublicKey getOwner(int index) {
+        byte[] owner = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+        copyOwner(index, owner, 0);
+        return new PublicKey(owner);
+    }
+
+    /**
+     * Copies the 32 byte open orders key of a leaf into the destination array.
+     *
+     * @param index  leaf node index
+     * @param dst    destination array
+     * @param offset offset into the destination array
+     */
+    public void copyOwner(int index, byte[] dst, int offset) {
+        buffer.get(nodeOffset(index) + LEAF_OWNER_OFFSET, dst, offset, PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    /**
+     * Compares the open orders key of a leaf with the given key, without allocating.
+     *
+     * @param index leaf node index
+     * @param owner key to compare against
+     * @return true if the leaf is owned by the given open orders account
+     */
+    public boolean ownerEquals(int index, PublicKey owner) {
+        byte[] ownerBytes = owner.toByteArray();
+        int ownerOffset = nodeOffset(index) + LEAF_OWNER_OFFSET;
+
+        for (int i = 0; i < PublicKey.PUBLIC_KEY_LENGTH; i++) {
+            if (buffer.get(ownerOffset + i) != ownerBytes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Walks from the root of the fixed price tree to its best order: the highest bid or the lowest ask.
+     *
+     * @return index of the best leaf, or -1 if the tree is empty
+     */
+    public int bestLeaf() {
+        return bestLeaf(FIXED_TREE);
+    }
+
+    /**
+     * Walks from the root of the given tree to its best order: the highest bid or the lowest ask.
+     *
+     * @param tree {@link #FIXED_TREE} or {@link #ORACLE_PEGGED_TREE}
+     * @return index of the best leaf, or -1 if the tree is empty
+     */
+    public int bestLeaf(int tree) {
+        if (getLeafCount(tree) == 0) {
+            return -1;
+        }
+
+        int side = isBids() ? 1 : 0;
+        int node = getRoot(tree);
+        for (int depth = 0; depth < MAX_TREE_DEPTH; depth++) {
+            byte tag = getTag(node);
+            if (tag == NodeTag.LeafNode.getTag()) {
+                return node;
+            } else if (tag != NodeTag.InnerNode.getTag()) {
+                throw new IllegalStateException("unexpected order tree node tag " + tag + " at index " + node);
+            }
+            node = getChild(node, side);
+        }
+
+        throw new IllegalStateException("order tree deeper than " + MAX_TREE_DEPTH + " nodes");
+    }
+
+    /**
+     * Iterates the leaves of the fixed price tree in price-time priority, see {@link #leafIterator(int)}.
+     *
+     * @return iterator over leaf node indices, best order first
+     */
+    public PrimitiveIterator.OfInt leafIterator() {
+        return leafIterator(FIXED_TREE);
+    }
+
+    /**
+     * Iterates leaf indices in price-time priority (highest bid or lowest ask first, earlier orders first within a
+     * price), by an in-order walk of the tree from its root. Only the nodes needed to reach the next leaf are
+     * visited, so stopping early is cheap.
+     *
+     * @param tree {@link #FIXED_TREE} or {@link #ORACLE_PEGGED_TREE}
+     * @return iterator over leaf node indices, best order first
+     */
+    public PrimitiveIterator.OfInt leafIterator(int tree) {
+        return new LeafIterator(tree, isBids());
+    }
+
+    /**
+     * Aggregates the fixed price tree into an {@link L2Book} of price levels (price in quote lots per base lot, size
+     * in base lots).
+     *
+     * @return {@link L2Book} for this book side
+     */
+    public L2Book getL2Book() {
+        return getL2Book(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Aggregates the best price levels of the fixed price tree into an {@link L2Book}, stopping the tree walk as soon
+     * as the given number of levels is complete.
+     *
+     * @param maxLevels maximum number of price levels
+     * @return {@link L2Book} for this book side, empty if maxLevels is not positive
+     */
+    public L2Book getL2Book(int maxLevels) {
+        final L2Book l2Book = new L2Book(isBids());
+        if (maxLevels <= 0) {
+            return l2Book;
+        }
+
+        final PrimitiveIterator.OfInt leaves = leafIterator(FIXED_TREE);
+
+        while (leaves.hasNext()) {
+            int leaf = leaves.nextInt();
+            long price = getPrice(leaf);
+            if (l2Book.getLevels() == maxLevels && l2Book.getPrice(maxLevels - 1) != price) {
+                break;
+            }
+            l2Book.add(price, getQuantity(leaf));
+        }
+
+        return l2Book;
+    }
+
+    /**
+     * Builds {@link OpenBookOrder}s for the best orders of the fixed price tree, in price-time priority.
+     * <p>
+     * Oracle pegged orders are not included: their keys hold an offset from the oracle price, so pricing them needs
+     * the oracle. Read them with {@link #leafIterator(int)} on {@link #ORACLE_PEGGED_TREE}.
+     *
+     * @param market    market the book side belongs to, for decimals and lot sizes
+     * @param maxOrders maximum number of orders to return
+     * @return best orders first
+     */
+    public List<OpenBookOrder> getOrders(OpenBookMarket market, int maxOrders) {
+        final List<OpenBookOrder> orders = new ArrayList<>(Math.max(0, Math.min(maxOrders, getLeafCount(FIXED_TREE))));
+        final PrimitiveIterator.OfInt leaves = leafIterator(FIXED_TREE);
+
+        while (leaves.hasNext() && orders.size() < maxOrders) {
+            int leaf = leaves.nextInt();
+            orders.add(
+                    OpenBookOrder.builder()
+                            .price(OpenBookUtil.priceLotsToNumber(getPrice(leaf), market.getBaseDecimals(),
+                                    market.getQuoteDecimals(), market.getBaseLotSize(), market.getQuoteLotSize()))
+                            .size((getQuantity(leaf) * market.getBaseLotSize())
+                                    / OpenBookUtil.getBaseSplTokenMultiplier(market.getBaseDecimals()))
+                            .trader(getOwner(leaf))
+                            .build()
+            );
+        }
+
+        return orders;
+    }
+
+    /**
+     * Builds {@link OpenBookOrder}s for all orders of the fixed price tree, in price-time priority. Oracle pegged
+     * orders are not included, see {@link #getOrders(OpenBookMarket, int)}.
+     *
+     * @param market market the book side belongs to, for decimals and lot sizes
+     * @return best orders first
+     */
+    public List<OpenBookOrder> getOrders(OpenBookMarket market) {
+        return getOrders(market, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Depth-first, in-order leaf iterator backed by a fixed int stack of pending subtrees.
+     */
+    private class LeafIterator implements PrimitiveIterator.OfInt {
+
+        private final int[] stack = new int[MAX_TREE_DEPTH + 1];
+        private final int first;
+        private final int second;
+        private int size;
+        private int next = -1;
+
+        private LeafIterator(int tree, boolean descending) {
+            this.first = descending ? 1 : 0;
+            this.second = descending ? 0 : 1;
+
+            if (getLeafCount(tree) > 0) {
+                stack[size++] = getRoot(tree);
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = -1;
+            while (size > 0) {
+                int node = stack[--size];
+                byte tag = getTag(node);
+                if (tag == NodeTag.LeafNode.getTag()) {
+                    next = node;
+                    return;
+                } else if (tag != NodeTag.InnerNode.getTag()) {
+                    throw new IllegalStateException("unexpected order tree node tag " + tag + " at index " + node);
+                }
+
+                if (size + 2 > stack.length) {
+                    throw new IllegalStateException("order tree deeper than " + MAX_TREE_DEPTH + " nodes");
+                }
+
+                // Push the subtree visited last first
+                stack[size++] = getChild(node, second);
+                stack[size++] = getChild(node, first);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public int nextInt() {
+            if (next == -1) {
+                throw new NoSuchElementException();
+            }
+
+            int result = next;
+            advance();
+            return result;
+        }
+    }
+
+    private int checkTree(int tree) {
+        if (tree != FIXED_TREE && tree != ORACLE_PEGGED_TREE) {
+            throw new IllegalArgumentException("unknown order tree " + tree);
+        }
+
+        return tree;
+    }
+
+    private int nodeOffset(int index) {
+        if (index < 0 || index >= nodeCount) {
+            throw new IndexOutOfBoundsException("order tree node index " + index + " out of bounds for " + nodeCount);
+        }
+
+        return base + NODES_OFFSET + (index * NODE_SIZE);
+    }
+}
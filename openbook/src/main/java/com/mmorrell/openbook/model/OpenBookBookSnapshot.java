@@ -0,0 +1,42 @@
+package com.mmorrell.openbook.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of both sides of an OpenBook v2 market's order book, as of a single RPC context slot.
+ * <p>
+ * Orders are in price-time priority, best first. Only orders at a fixed price are included, not oracle pegged
+ * orders (see {@link BookSideView#getOrders(OpenBookMarket, int)}). A snapshot shares no state with the cached {@link OpenBookMarket}
+ * or other snapshots, so it can be handed between threads freely.
+ */
+@Getter
+@ToString
+public class OpenBookBookSnapshot {
+
+    private final PublicKey marketId;
+    private final long slot;
+    private final List<OpenBookOrder> bids;
+    private final List<OpenBookOrder> asks;
+
+    @Builder
+    private OpenBookBookSnapshot(PublicKey marketId, long slot, List<OpenBookOrder> bids, List<OpenBookOrder> asks) {
+        this.marketId = marketId;
+        this.slot = slot;
+        this.bids = List.copyOf(bids);
+        this.asks = List.copyOf(asks);
+    }
+
+    public Optional<OpenBookOrder> getBestBid() {
+        return bids.isEmpty() ? Optional.empty() : Optional.of(bids.get(0));
+    }
+
+    public Optional<OpenBookOrder> getBestAsk() {
+        return asks.isEmpty() ? Optional.empty() : Optional.of(asks.get(0));
+    }
+}
@@ -6,6 +6,7 @@ import org.bitcoinj.core.Utils;
 import org.p2p.solanaj.core.PublicKey;
 import org.p2p.solanaj.utils.ByteUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,6 +28,9 @@ public class OpenBookEventHeap {
     private static final int PADDING_OFFSET = 14;
     private static final int SEQ_NUM_OFFSET = 16;
     private static final int EVENT_NODES_OFFSET = 24;
+    // Fill event maker and out event owner, within the event padding (the event without its type byte)
+    private static final int PADDING_EVENT_OWNER_OFFSET = 24 - 1;
+    private static final PublicKey DEFAULT_KEY = new PublicKey(new byte[PublicKey.PUBLIC_KEY_LENGTH]);
 
     // EventHeapHeader x 1
     private short freeHead;
@@ -67,6 +71,38 @@ public class OpenBookEventHeap {
                 .build();
     }
 
+    /**
+     * Reads only the number of pending events from event heap account data.
+     *
+     * @param data the byte array containing the OpenBookEventHeap data
+     * @return the count of events in the heap
+     */
+    public static int readCount(byte[] data) {
+        return Utils.readUint16(data, COUNT_OFFSET);
+    }
+
+    /**
+     * Reads the open orders accounts of the oldest events straight from event heap account data, in the order
+     * consume_events processes them: from usedHead along the node linkage. Only the visited nodes are read.
+     *
+     * @param data      the byte array containing the OpenBookEventHeap data
+     * @param maxEvents the maximum number of events to read
+     * @return the maker (fill events) or owner (out events) of each event, oldest first, including duplicates
+     */
+    public static List<PublicKey> readEventOwners(byte[] data, int maxEvents) {
+        final OpenBookEventHeapView eventHeap = OpenBookEventHeapView.wrap(data);
+        final int events = Math.min(eventHeap.getCount(), maxEvents);
+        final List<PublicKey> owners = new ArrayList<>(events);
+
+        int node = eventHeap.getUsedHead();
+        for (int i = 0; i < events && node < NUM_EVENT_NODES; i++) {
+            owners.add(eventHeap.getEventOwner(node));
+            node = eventHeap.getNext(node);
+        }
+
+        return owners;
+    }
+
     /**
      * Returns a list of OpenBookFillEvent objects.
      *
@@ -82,8 +118,7 @@ public class OpenBookEventHeap {
                     System.arraycopy(openBookEventNode.getEvent().getPadding(), 0, combined, eventType.length, openBookEventNode.getEvent().getPadding().length);
                     return OpenBookFillEvent.readOpenBookFillEvent(combined);
                 })
-                .filter(openBookFillEvent -> !openBookFillEvent.getMaker().equals(new PublicKey(
-                        "11111111111111111111111111111111")))
+                .filter(openBookFillEvent -> !openBookFillEvent.getMaker().equals(DEFAULT_KEY))
                 .toList();
 
     }
@@ -103,8 +138,7 @@ public class OpenBookEventHeap {
                     System.arraycopy(openBookEventNode.getEvent().getPadding(), 0, combined, eventType.length, openBookEventNode.getEvent().getPadding().length);
                     return OpenBookOutEvent.readOpenBookOutEvent(combined);
                 })
-                .filter(openBookOutEvent -> !openBookOutEvent.getOwner().equals(new PublicKey(
-                        "11111111111111111111111111111111")))
+                .filter(openBookOutEvent -> !openBookOutEvent.getOwner().equals(DEFAULT_KEY))
                 .toList();
     }
 
@@ -114,23 +148,13 @@ public class OpenBookEventHeap {
      * @return A list of public keys representing the owners of the events to be consumed.
      */
     public List<PublicKey> getEventOwnersToConsume() {
+        // Fill makers and out owners sit at the same offset, so the owner can be read without decoding the event
         return eventNodes.stream()
-                .map(openBookEventNode -> {
-                    if (openBookEventNode.getEvent().getEventType() == (byte) 0) {
-                        byte[] eventType = {0x00};
-                        byte[] combined = new byte[eventType.length + openBookEventNode.getEvent().getPadding().length];
-                        System.arraycopy(eventType, 0, combined, 0, eventType.length);
-                        System.arraycopy(openBookEventNode.getEvent().getPadding(), 0, combined, eventType.length, openBookEventNode.getEvent().getPadding().length);
-                        return OpenBookFillEvent.readOpenBookFillEvent(combined).getMaker();
-                    } else {
-                        byte[] eventType = {0x01};
-                        byte[] combined = new byte[eventType.length + openBookEventNode.getEvent().getPadding().length];
-                        System.arraycopy(eventType, 0, combined, 0, eventType.length);
-                        System.arraycopy(openBookEventNode.getEvent().getPadding(), 0, combined, eventType.length, openBookEventNode.getEvent().getPadding().length);
-                        return OpenBookOutEvent.readOpenBookOutEvent(combined).getOwner();
-                    }
-                })
-                .filter(publicKey -> !publicKey.equals(new PublicKey("11111111111111111111111111111111")))
+                .map(openBookEventNode -> PublicKey.readPubkey(
+                        openBookEventNode.getEvent().getPadding(),
+                        PADDING_EVENT_OWNER_OFFSET
+                ))
+                .filter(publicKey -> !publicKey.equals(DEFAULT_KEY))
                 .toList();
     }
 }
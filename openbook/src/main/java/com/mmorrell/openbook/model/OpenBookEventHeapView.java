@@ -0,0 +1,236 @@
+package com.mmorrell.openbook.model;
+
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+
+/**
+ * Zero-copy, read-only view over an OpenBook v2 event heap account.
+ * <p>
+ * Unlike {@link OpenBookEventHeap#readOpenBookEventHeap(byte[])}, which copies and decodes all 600 nodes, this view
+ * only visits the live events: count nodes starting at usedHead, following each node's next link, oldest first
+ * (the order consume_events processes them in). Events are handed out through one reused
+ * {@link OpenBookFillEventView} and one reused {@link OpenBookOutEventView}, so walking the heap allocates nothing and
+ * its cost scales with the number of pending events rather than the heap's capacity.
+ * <p>
+ * account layout: [discriminator 8][freeHead u16][usedHead u16][count u16][2 bytes][seqNum u64]
+ * [nodes: (next u16, prev u16, 4 bytes, event 144 bytes) x 600][64 bytes reserved]
+ * <p>
+ * A view, and the event views it hands out, are only valid for as long as the underlying bytes are not modified. A
+ * view is not thread-safe.
+ */
+public class OpenBookEventHeapView {
+
+    public static final byte FILL_EVENT_TYPE = 0;
+    public static final byte OUT_EVENT_TYPE = 1;
+
+    private static final int FREE_HEAD_OFFSET = 8;
+    private static final int USED_HEAD_OFFSET = 10;
+    private static final int COUNT_OFFSET = 12;
+    private static final int SEQ_NUM_OFFSET = 16;
+    private static final int NODES_OFFSET = 24;
+    private static final int MAX_NODES = 600;
+
+    // Node-relative offsets
+    private static final int NEXT_OFFSET = 0;
+    private static final int PREV_OFFSET = 2;
+    private static final int EVENT_OFFSET = 8;
+    // Fill event maker and out event owner share an offset
+    private static final int EVENT_OWNER_OFFSET = 24;
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int capacity;
+    private final OpenBookFillEventView fillEventView = new OpenBookFillEventView();
+    private final OpenBookOutEventView outEventView = new OpenBookOutEventView();
+
+    private OpenBookEventHeapView(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+        this.capacity = Math.max(0, Math.min(MAX_NODES,
+                (buffer.limit() - base - NODES_OFFSET) / OpenBookEventNode.SIZE));
+    }
+
+    /**
+     * Wraps raw event heap account data without copying it.
+     *
+     * @param data account data, starting with the discriminator
+     * @return view over the event heap
+     */
+    public static OpenBookEventHeapView wrap(byte[] data) {
+        return new OpenBookEventHeapView(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), 0);
+    }
+
+    /**
+     * Wraps a buffer holding event heap account data, starting at its current position. The buffer's position and
+     * limit are left untouched; only a little-endian duplicate is retained.
+     *
+     * @param data buffer whose remaining bytes are the account data
+     * @return view over the event heap
+     */
+    public static OpenBookEventHeapView wrap(ByteBuffer data) {
+        return new OpenBookEventHeapView(data.duplicate().order(ByteOrder.LITTLE_ENDIAN), data.position());
+    }
+
+    public int getFreeHead() {
+        return Short.toUnsignedInt(buffer.getShort(base + FREE_HEAD_OFFSET));
+    }
+
+    /**
+     * @return index of the node holding the oldest event
+     */
+    public int getUsedHead() {
+        return Short.toUnsignedInt(buffer.getShort(base + USED_HEAD_OFFSET));
+    }
+
+    /**
+     * @return number of pending events
+     */
+    public int getCount() {
+        return Short.toUnsignedInt(buffer.getShort(base + COUNT_OFFSET));
+    }
+
+    /**
+     * @return number of events ever pushed to the heap
+     */
+    public long getSeqNum() {
+        return buffer.getLong(base + SEQ_NUM_OFFSET);
+    }
+
+    /**
+     * @param node node index
+     * @return index of the node holding the next (newer) event
+     */
+    public int getNext(int node) {
+        return Short.toUnsignedInt(buffer.getShort(nodeOffset(node) + NEXT_OFFSET));
+    }
+
+    /**
+     * @param node node index
+     * @return index of the node holding the previous (older) event
+     */
+    public int getPrev(int node) {
+        return Short.toUnsignedInt(buffer.getShort(nodeOffset(node) + PREV_OFFSET));
+    }
+
+    /**
+     * @param node node index
+     * @return {@link #FILL_EVENT_TYPE} or {@link #OUT_EVENT_TYPE}
+     */
+    public byte getEventType(int node) {
+        return buffer.get(nodeOffset(node) + EVENT_OFFSET);
+    }
+
+    /**
+     * Positions the reused fill event view on the given node, without checking its event type.
+     *
+     * @param node node index
+     * @return the fill event view, valid until it is repositioned
+     */
+    public OpenBookFillEventView fillAt(int node) {
+        fillEventView.wrap(buffer, nodeOffset(node) + EVENT_OFFSET, node);
+        return fillEventView;
+    }
+
+    /**
+     * Positions the reused out event view on the given node, without checking its event type.
+     *
+     * @param node node index
+     * @return the out event view, valid until it is repositioned
+     */
+    public OpenBookOutEventView outAt(int node) {
+        outEventView.wrap(buffer, nodeOffset(node) + EVENT_OFFSET, node);
+        return outEventView;
+    }
+
+    /**
+     * Open orders account an event is for: the maker of a fill event or the owner of an out event. These are the
+     * accounts consume_events needs to be passed.
+     *
+     * @param node node index
+     * @return open orders account of the event (allocates a {@link PublicKey})
+     */
+    public PublicKey getEventOwner(int node) {
+        final byte[] owner = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+        buffer.get(nodeOffset(node) + EVENT_OFFSET + EVENT_OWNER_OFFSET, owner);
+        return new PublicKey(owner);
+    }
+
+    /**
+     * Visits the pending events, oldest first.
+     *
+     * @param fillHandler called with the reused view for every fill event, which must not be kept
+     * @param outHandler  called with the reused view for every out event, which must not be kept
+     * @return number of events visited
+     */
+    public int forEachEvent(Consumer<OpenBookFillEventView> fillHandler, Consumer<OpenBookOutEventView> outHandler) {
+        final int count = getCount();
+        int node = getUsedHead();
+        int visited = 0;
+        while (visited < count && node < capacity) {
+            final byte eventType = getEventType(node);
+            if (eventType == FILL_EVENT_TYPE) {
+                fillHandler.accept(fillAt(node));
+            } else if (eventType == OUT_EVENT_TYPE) {
+                outHandler.accept(outAt(node));
+            }
+            visited++;
+            node = getNext(node);
+        }
+
+        return visited;
+    }
+
+    /**
+     * Visits the pending fill events, oldest first.
+     *
+     * @param handler called with the reused view for every fill event, which must not be kept
+     * @return number of events visited, fills or not
+     */
+    public int forEachFill(Consumer<OpenBookFillEventView> handler) {
+        return forEachEvent(handler, outEvent -> {
+        });
+    }
+
+    /**
+     * Visits the pending out events, oldest first.
+     *
+     * @param handler called with the reused view for every out event, which must not be kept
+     * @return number of events visited, outs or not
+     */
+    public int forEachOut(Consumer<OpenBookOutEventView> handler) {
+        return forEachEvent(fillEvent -> {
+        }, handler);
+    }
+
+    static boolean keyEquals(ByteBuffer buffer, int offset, PublicKey key) {
+        final byte[] keyBytes = key.toByteArray();
+        for (int i = 0; i < PublicKey.PUBLIC_KEY_LENGTH; i++) {
+            if (buffer.get(offset + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static boolean isDefaultKey(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < PublicKey.PUBLIC_KEY_LENGTH; i += 8) {
+            if (buffer.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int nodeOffset(int node) {
+        if (node < 0 || node >= capacity) {
+            throw new IndexOutOfBoundsException("event heap node index " + node + " out of bounds for " + capacity);
+        }
+
+        return base + NODES_OFFSET + (node * OpenBookEventNode.SIZE);
+    }
+}
@@ -0,0 +1,166 @@
+package com.mmorrell.openbook.model;
+
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable flyweight over a fill event in an OpenBook v2 event heap, see {@link OpenBookEventHeapView}.
+ * <p>
+ * All accessors read directly from the event heap account data; nothing is copied or allocated unless a method says
+ * so. The view is repositioned for every event handed out, so it is only valid until the next one.
+ * <p>
+ * event layout (144 bytes):
+ * [eventType u8][takerSide u8][makerOut u8][makerSlot u8][4 bytes][timestamp u64][marketSeqNum u64][maker 32 bytes]
+ * [makerTimestamp u64][taker 32 bytes][takerClientOrderId u64][price i64][pegLimit i64][quantity i64]
+ * [makerClientOrderId u64][8 bytes reserved]
+ */
+public class OpenBookFillEventView {
+
+    private static final int TAKER_SIDE_OFFSET = 1;
+    private static final int MAKER_OUT_OFFSET = 2;
+    private static final int MAKER_SLOT_OFFSET = 3;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int SEQ_NUM_OFFSET = 16;
+    private static final int MAKER_OFFSET = 24;
+    private static final int MAKER_TIMESTAMP_OFFSET = 56;
+    private static final int TAKER_OFFSET = 64;
+    private static final int TAKER_CLIENT_ORDER_ID_OFFSET = 96;
+    private static final int PRICE_OFFSET = 104;
+    private static final int PEG_LIMIT_OFFSET = 112;
+    private static final int QUANTITY_OFFSET = 120;
+    private static final int MAKER_CLIENT_ORDER_ID_OFFSET = 128;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int node;
+
+    void wrap(ByteBuffer buffer, int offset, int node) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.node = node;
+    }
+
+    /**
+     * @return index of the event heap node holding this event
+     */
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * @return 0 if the taker bought, 1 if the taker sold
+     */
+    public byte getTakerSide() {
+        return buffer.get(offset + TAKER_SIDE_OFFSET);
+    }
+
+    /**
+     * @return true if the maker order was completely filled and removed from the book
+     */
+    public boolean isMakerOut() {
+        return buffer.get(offset + MAKER_OUT_OFFSET) != 0;
+    }
+
+    public byte getMakerSlot() {
+        return buffer.get(offset + MAKER_SLOT_OFFSET);
+    }
+
+    public long getTimestamp() {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    public long getSeqNum() {
+        return buffer.getLong(offset + SEQ_NUM_OFFSET);
+    }
+
+    public long getMakerTimestamp() {
+        return buffer.getLong(offset + MAKER_TIMESTAMP_OFFSET);
+    }
+
+    public long getTakerClientOrderId() {
+        return buffer.getLong(offset + TAKER_CLIENT_ORDER_ID_OFFSET);
+    }
+
+    /**
+     * @return price in quote lots per base lot
+     */
+    public long getPrice() {
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    public long getPegLimit() {
+        return buffer.getLong(offset + PEG_LIMIT_OFFSET);
+    }
+
+    /**
+     * @return quantity in base lots
+     */
+    public long getQuantity() {
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+
+    public long getMakerClientOrderId() {
+        return buffer.getLong(offset + MAKER_CLIENT_ORDER_ID_OFFSET);
+    }
+
+    /**
+     * Builds the maker's open orders {@link PublicKey}. This allocates, prefer {@link #makerEquals(PublicKey)} or
+     * {@link #copyMaker(byte[], int)} on hot paths.
+     *
+     * @return maker open orders account
+     */
+    public PublicKey getMaker() {
+        return new PublicKey(toArray(MAKER_OFFSET));
+    }
+
+    public void copyMaker(byte[] dst, int dstOffset) {
+        buffer.get(offset + MAKER_OFFSET, dst, dstOffset, PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    public boolean makerEquals(PublicKey maker) {
+        return OpenBookEventHeapView.keyEquals(buffer, offset + MAKER_OFFSET, maker);
+    }
+
+    /**
+     * @return true if the maker is the default (all zero) key, as in events that were never written
+     */
+    public boolean isMakerDefault() {
+        return OpenBookEventHeapView.isDefaultKey(buffer, offset + MAKER_OFFSET);
+    }
+
+    /**
+     * Builds the taker's open orders {@link PublicKey}. This allocates, prefer {@link #takerEquals(PublicKey)} or
+     * {@link #copyTaker(byte[], int)} on hot paths.
+     *
+     * @return taker open orders account
+     */
+    public PublicKey getTaker() {
+        return new PublicKey(toArray(TAKER_OFFSET));
+    }
+
+    public void copyTaker(byte[] dst, int dstOffset) {
+        buffer.get(offset + TAKER_OFFSET, dst, dstOffset, PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    public boolean takerEquals(PublicKey taker) {
+        return OpenBookEventHeapView.keyEquals(buffer, offset + TAKER_OFFSET, taker);
+    }
+
+    /**
+     * Decodes this event into a standalone {@link OpenBookFillEvent}, e.g. to keep it past the handler call.
+     *
+     * @return decoded fill event
+     */
+    public OpenBookFillEvent toFillEvent() {
+        final byte[] event = new byte[OpenBookAnyEvent.SIZE];
+        buffer.get(offset, event);
+        return OpenBookFillEvent.readOpenBookFillEvent(event);
+    }
+
+    private byte[] toArray(int keyOffset) {
+        final byte[] key = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+        buffer.get(offset + keyOffset, key);
+        return key;
+    }
+}
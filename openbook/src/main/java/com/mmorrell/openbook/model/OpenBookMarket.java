@@ -17,7 +17,7 @@ import java.util.List;
  * It contains various properties and methods to manipulate and query the market data.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class OpenBookMarket {
 
     private PublicKey marketId;
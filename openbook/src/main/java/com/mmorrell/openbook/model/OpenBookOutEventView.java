@@ -0,0 +1,106 @@
+package com.mmorrell.openbook.model;
+
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable flyweight over an out event (an order leaving the book, e.g. cancelled or expired) in an OpenBook v2
+ * event heap, see {@link OpenBookEventHeapView}.
+ * <p>
+ * All accessors read directly from the event heap account data; nothing is copied or allocated unless a method says
+ * so. The view is repositioned for every event handed out, so it is only valid until the next one.
+ * <p>
+ * event layout (144 bytes):
+ * [eventType u8][side u8][ownerSlot u8][5 bytes][timestamp u64][seqNum u64][owner 32 bytes][quantity i64][80 bytes]
+ */
+public class OpenBookOutEventView {
+
+    private static final int SIDE_OFFSET = 1;
+    private static final int OWNER_SLOT_OFFSET = 2;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int SEQ_NUM_OFFSET = 16;
+    private static final int OWNER_OFFSET = 24;
+    private static final int QUANTITY_OFFSET = 56;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int node;
+
+    void wrap(ByteBuffer buffer, int offset, int node) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.node = node;
+    }
+
+    /**
+     * @return index of the event heap node holding this event
+     */
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * @return 0 for a bid, 1 for an ask
+     */
+    public byte getSide() {
+        return buffer.get(offset + SIDE_OFFSET);
+    }
+
+    public byte getOwnerSlot() {
+        return buffer.get(offset + OWNER_SLOT_OFFSET);
+    }
+
+    public long getTimestamp() {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    public long getSeqNum() {
+        return buffer.getLong(offset + SEQ_NUM_OFFSET);
+    }
+
+    /**
+     * @return remaining quantity of the order, in base lots
+     */
+    public long getQuantity() {
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+
+    /**
+     * Builds the owner's open orders {@link PublicKey}. This allocates, prefer {@link #ownerEquals(PublicKey)} or
+     * {@link #copyOwner(byte[], int)} on hot paths.
+     *
+     * @return owner open orders account
+     */
+    public PublicKey getOwner() {
+        final byte[] owner = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+        copyOwner(owner, 0);
+        return new PublicKey(owner);
+    }
+
+    public void copyOwner(byte[] dst, int dstOffset) {
+        buffer.get(offset + OWNER_OFFSET, dst, dstOffset, PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    public boolean ownerEquals(PublicKey owner) {
+        return OpenBookEventHeapView.keyEquals(buffer, offset + OWNER_OFFSET, owner);
+    }
+
+    /**
+     * @return true if the owner is the default (all zero) key, as in events that were never written
+     */
+    public boolean isOwnerDefault() {
+        return OpenBookEventHeapView.isDefaultKey(buffer, offset + OWNER_OFFSET);
+    }
+
+    /**
+     * Decodes this event into a standalone {@link OpenBookOutEvent}, e.g. to keep it past the handler call.
+     *
+     * @return decoded out event
+     */
+    public OpenBookOutEvent toOutEvent() {
+        final byte[] event = new byte[OpenBookAnyEvent.SIZE];
+        buffer.get(offset, event);
+        return OpenBookOutEvent.readOpenBookOutEvent(event);
+    }
+}
@@ -29,12 +29,12 @@ public class OrderTreeRoot {
     public static List<OrderTreeRoot> readOrderTreeRoots(byte[] data, int numRoots) {
         List<OrderTreeRoot> results = new ArrayList<>();
 
-        int offset = 0;
         for (int i = 0; i < numRoots; i++) {
+            int offset = i * SIZE;
             results.add(
                     OrderTreeRoot.builder()
-                            .maybeNode(OpenBookUtil.readInt32(data, offset += 4))
-                            .leafCount(OpenBookUtil.readInt32(data, offset += 4))
+                            .maybeNode(OpenBookUtil.readInt32(data, offset))
+                            .leafCount(OpenBookUtil.readInt32(data, offset + 4))
                             .build()
             );
         }
@@ -1,14 +1,27 @@
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
+import com.mmorrell.openbook.manager.OpenBookCrankScheduler;
 import com.mmorrell.openbook.manager.OpenBookManager;
 import com.mmorrell.openbook.model.BookSide;
+import com.mmorrell.openbook.model.BookSideView;
 import com.mmorrell.openbook.model.LeafNode;
 import com.mmorrell.openbook.model.NodeTag;
+import com.mmorrell.openbook.model.OpenBookBookSnapshot;
 import com.mmorrell.openbook.model.OpenBookEventHeap;
+import com.mmorrell.openbook.model.OpenBookEventHeapView;
 import com.mmorrell.openbook.model.OpenBookMarket;
 import com.mmorrell.openbook.model.OpenBookOpenOrdersAccount;
+import com.mmorrell.openbook.model.OrderTreeRoot;
 import com.mmorrell.openbook.program.OpenbookProgram;
+import com.mmorrell.serum.model.L2Book;
+import com.mmorrell.serum.util.RpcExecutor;
+import com.squareup.moshi.Moshi;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.Buffer;
 import org.bitcoinj.core.Base58;
 import org.junit.jupiter.api.*;
 import org.p2p.solanaj.core.Account;
@@ -21,11 +34,23 @@ import org.p2p.solanaj.rpc.types.ProgramAccount;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -375,4 +400,438 @@ public class OpenBookTest {
         Optional<String> result = openBookManager.consumeEvents(caller, marketId, 10, null);
         assertTrue(result.isPresent(), "Consume events should return a transaction ID");
     }
+
+    @Test
+    public void bookSideL2BookTest() {
+        final BookSide bids = BookSide.readBookSide(buildTestBookSide(true));
+        final L2Book l2Book = bids.getL2Book();
+
+        assertTrue(l2Book.isBids());
+        assertArrayEquals(new long[]{120L, 110L}, l2Book.getPrices());
+        assertArrayEquals(new long[]{4L, 3L}, l2Book.getSizes());
+        assertEquals(7L, l2Book.getCumulativeSize(1));
+        assertEquals(3, bids.getLeafNodes().size());
+
+        // Oracle pegged orders are keyed by a price offset and left out of the fixed price levels
+        final L2Book withPegged = BookSide.readBookSide(addTestPeggedLeaf(buildTestBookSide(true))).getL2Book();
+        assertArrayEquals(new long[]{120L, 110L}, withPegged.getPrices());
+        assertArrayEquals(new long[]{4L, 3L}, withPegged.getSizes());
+    }
+
+    @Test
+    public void refreshMarketsTest() throws InterruptedException {
+        final Map<String, byte[]> accounts = new ConcurrentHashMap<>();
+        for (int i = 0; i < 150; i++) {
+            accounts.put(testMarketKey(i).toBase58(), buildTestMarket(i, 1));
+        }
+
+        final List<String> methods = Collections.synchronizedList(new ArrayList<>());
+        final OpenBookManager manager = new OpenBookManager(testRpcClient(accounts, methods));
+        assertEquals(150, manager.getOpenBookMarkets().size());
+        assertEquals("TEST-42", manager.getMarket(testMarketKey(42), true, false).orElseThrow().getName());
+        // 1 key listing + 2 chunks of market data
+        assertEquals(List.of("getProgramAccounts", "getMultipleAccounts", "getMultipleAccounts"), methods);
+
+        final OpenBookMarket unchanged = manager.getMarket(testMarketKey(1), true, false).orElseThrow();
+        accounts.put(testMarketKey(7).toBase58(), buildTestMarket(7, 2));
+        accounts.remove(testMarketKey(8).toBase58());
+        accounts.put(testMarketKey(150).toBase58(), buildTestMarket(150, 1));
+
+        // Only cached markets are re-fetched, so the new market is not seen yet
+        assertEquals(Set.of(testMarketKey(7), testMarketKey(8)), manager.refreshMarkets(false));
+        assertEquals(2L, manager.getMarket(testMarketKey(7), true, false).orElseThrow().getSeqNum());
+        assertTrue(manager.getMarket(testMarketKey(8), true, false).isEmpty());
+        assertSame(unchanged, manager.getMarket(testMarketKey(1), true, false).orElseThrow());
+
+        assertEquals(Set.of(testMarketKey(150)), manager.refreshMarkets(true));
+        assertEquals(150, manager.getOpenBookMarkets().size());
+        assertEquals(Set.of(), manager.refreshMarkets(true));
+
+        // Closing shuts down the background refresh thread
+        manager.startMarketRefresh(Duration.ofMillis(10), false);
+        assertTrue(isRefreshThreadAlive());
+        manager.close();
+        for (int i = 0; i < 100 && isRefreshThreadAlive(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(isRefreshThreadAlive());
+    }
+
+    private static boolean isRefreshThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("openbook-market-refresh") && thread.isAlive());
+    }
+
+    @Test
+    public void getBooksTest() throws Exception {
+        final Map<String, byte[]> accounts = new ConcurrentHashMap<>();
+        for (int i = 0; i < 60; i++) {
+            accounts.put(testMarketKey(i).toBase58(), buildTestMarket(i, 1));
+            accounts.put(testBookSideKey(i, true).toBase58(), buildTestBookSide(true));
+            accounts.put(testBookSideKey(i, false).toBase58(), buildTestBookSide(false));
+        }
+        accounts.remove(testBookSideKey(3, false).toBase58());
+
+        final List<String> methods = Collections.synchronizedList(new ArrayList<>());
+        final OpenBookManager manager = new OpenBookManager(testRpcClient(accounts, methods));
+        methods.clear();
+
+        final List<PublicKey> marketIds = new ArrayList<>();
+        for (int i = 59; i >= 0; i--) {
+            marketIds.add(testMarketKey(i));
+        }
+        marketIds.add(testMarketKey(999));
+
+        final Map<PublicKey, OpenBookBookSnapshot> books = manager.getBooks(marketIds);
+        // 120 book sides -> 100 + 20
+        assertEquals(List.of("getMultipleAccounts", "getMultipleAccounts"), methods);
+        assertEquals(59, books.size());
+        assertEquals(testMarketKey(59), books.keySet().iterator().next());
+        assertFalse(books.containsKey(testMarketKey(3)));
+        assertFalse(books.containsKey(testMarketKey(999)));
+
+        final OpenBookBookSnapshot snapshot = books.get(testMarketKey(42));
+        assertEquals(TEST_SLOT, snapshot.getSlot());
+        assertEquals(3, snapshot.getBids().size());
+        assertEquals(0.12, snapshot.getBestBid().orElseThrow().getPrice(), 1e-9);
+        assertEquals(0.11, snapshot.getBestAsk().orElseThrow().getPrice(), 1e-9);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getBids().clear());
+
+        // The cached market is copied, not updated
+        final OpenBookMarket market = manager.getMarket(testMarketKey(42), false, true).orElseThrow();
+        assertEquals(3, market.getBidOrders().size());
+        assertNull(manager.getMarket(testMarketKey(42), true, false).orElseThrow().getBidOrders());
+
+        // With a single permit, the async lookup fetches its books on its own task rather than waiting for another
+        try (RpcExecutor rpcExecutor = RpcExecutor.platformThreads(1);
+             OpenBookManager singlePermitManager = new OpenBookManager(testRpcClient(accounts, methods), rpcExecutor)) {
+            final OpenBookMarket asyncMarket = singlePermitManager.getMarketAsync(testMarketKey(42), true)
+                    .get(5, TimeUnit.SECONDS)
+                    .orElseThrow();
+            assertEquals(3, asyncMarket.getAskOrders().size());
+        }
+    }
+
+    @Test
+    public void crankSchedulerTest() throws InterruptedException {
+        final Map<String, byte[]> accounts = new ConcurrentHashMap<>();
+        final int[] eventCounts = {0, 5, 30};
+        for (int i = 0; i < eventCounts.length; i++) {
+            accounts.put(testMarketKey(i).toBase58(), buildTestMarket(i, 1));
+            // 5 events of one owner; 30 events of 15 owners, two consecutive events each
+            accounts.put(testEventHeapKey(i).toBase58(), buildTestEventHeap(eventCounts[i], i == 1 ? 100 : 2));
+        }
+
+        final List<String> methods = Collections.synchronizedList(new ArrayList<>());
+        final OpenBookManager manager = new OpenBookManager(testRpcClient(accounts, methods));
+        final OpenBookCrankScheduler scheduler = manager.newCrankScheduler(new Account())
+                .setMaxOwnersPerTransaction(8);
+        for (int i = 0; i < eventCounts.length; i++) {
+            scheduler.addMarket(manager.getMarket(testMarketKey(i), true, false).orElseThrow());
+        }
+
+        assertEquals(2, scheduler.runOnce());
+        for (int i = 0; i < 100 && scheduler.getInFlightCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, scheduler.getSentCount());
+        assertEquals(0, scheduler.getFailedCount());
+        assertEquals(35, scheduler.getTotalBacklog());
+
+        final Map<PublicKey, OpenBookCrankScheduler.MarketBacklog> backlogs = scheduler.getBacklogs();
+        assertEquals(0, backlogs.get(testMarketKey(0)).getCranksSent());
+        assertEquals(5, backlogs.get(testMarketKey(1)).getEventsSubmitted());
+        // 20 events fit the compute budget, but only the first 16 have at most 8 owners
+        assertEquals(16, backlogs.get(testMarketKey(2)).getEventsSubmitted());
+        assertEquals(TEST_SLOT, backlogs.get(testMarketKey(2)).getSlot());
+
+        // One batched fetch and one blockhash per round, then one transaction per market
+        assertEquals(
+                List.of("getMultipleAccounts", "getLatestBlockhash", "sendTransaction", "sendTransaction"),
+                methods.subList(methods.size() - 4, methods.size())
+        );
+        scheduler.close();
+    }
+
+    @Test
+    public void eventHeapViewTest() {
+        final byte[] data = buildTestEventHeap(5, 1);
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 5; i++) {
+            buffer.putLong(24 + (i * 152) + 8 + 104, 1000L + i); // fill price
+        }
+        // Consumed fill left behind in a free node, which a walk of the used list must not see
+        buffer.put(24 + (10 * 152) + 8, (byte) 0);
+        buffer.put(24 + (10 * 152) + 8 + 24, testMarketKey(2000).toByteArray());
+
+        final OpenBookEventHeapView eventHeap = OpenBookEventHeapView.wrap(data);
+        assertEquals(5, eventHeap.getCount());
+        assertEquals(0, eventHeap.getUsedHead());
+
+        final List<Long> fillPrices = new ArrayList<>();
+        final List<Integer> outNodes = new ArrayList<>();
+        assertEquals(5, eventHeap.forEachEvent(
+                fill -> {
+                    assertFalse(fill.isMakerDefault());
+                    assertTrue(fill.makerEquals(testMarketKey(1000 + fill.getNode())));
+                    fillPrices.add(fill.getPrice());
+                },
+                out -> outNodes.add(out.getNode())
+        ));
+        assertEquals(List.of(1000L, 1002L, 1004L), fillPrices);
+        assertEquals(List.of(1, 3), outNodes);
+        assertEquals(testMarketKey(1003), eventHeap.outAt(3).getOwner());
+        assertEquals(1002L, eventHeap.fillAt(2).toFillEvent().getPrice());
+
+        // The full decode still reports every non-default event in the heap
+        assertEquals(4, OpenBookEventHeap.readOpenBookEventHeap(data).getFillEvents().size());
+        assertEquals(
+                List.of(testMarketKey(1000), testMarketKey(1001), testMarketKey(1002)),
+                OpenBookEventHeap.readEventOwners(data, 3)
+        );
+    }
+
+    private static PublicKey testEventHeapKey(int index) {
+        final byte[] key = testMarketKey(index).toByteArray();
+        key[31] = 4;
+        return new PublicKey(key);
+    }
+
+    /**
+     * Builds an event heap with the given number of events on the used list, where every eventsPerOwner consecutive
+     * events share an owner.
+     */
+    private static byte[] buildTestEventHeap(int count, int eventsPerOwner) {
+        final byte[] data = new byte[24 + (600 * 152) + 64];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort(8, (short) count); // freeHead
+        buffer.putShort(10, (short) 0); // usedHead
+        buffer.putShort(12, (short) count);
+        for (int i = 0; i < count; i++) {
+            final int offset = 24 + (i * 152);
+            buffer.putShort(offset, (short) (i + 1)); // next
+            buffer.putShort(offset + 2, (short) (i == 0 ? count - 1 : i - 1)); // prev
+            buffer.put(offset + 8, (byte) (i % 2)); // fill or out event
+            buffer.put(offset + 32, testMarketKey(1000 + (i / eventsPerOwner)).toByteArray());
+        }
+        return data;
+    }
+
+    private static final long TEST_SLOT = 250_000_000L;
+
+    /**
+     * RPC client serving getProgramAccounts (keys only) and getMultipleAccounts from the given accounts, recording
+     * the called methods.
+     */
+    private static RpcClient testRpcClient(Map<String, byte[]> accounts, List<String> methods) {
+        final Moshi moshi = new Moshi.Builder().build();
+        final OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    final Buffer buffer = new Buffer();
+                    chain.request().body().writeTo(buffer);
+                    final Map<?, ?> request = moshi.adapter(Map.class).fromJson(buffer.readUtf8());
+                    final String method = (String) request.get("method");
+                    methods.add(method);
+
+                    final Object result;
+                    if (method.equals("getProgramAccounts")) {
+                        // Keys only, as requested with a zero length data slice
+                        final List<Object> programAccounts = new ArrayList<>();
+                        for (Map.Entry<String, byte[]> account : accounts.entrySet()) {
+                            if (Arrays.equals(MARKET_DISCRIMINATOR, Arrays.copyOf(account.getValue(), 8))) {
+                                programAccounts.add(Map.of(
+                                        "pubkey", account.getKey(),
+                                        "account", testAccountValue(new byte[0])
+                                ));
+                            }
+                        }
+                        result = programAccounts;
+                    } else if (method.equals("getLatestBlockhash")) {
+                        result = Map.of(
+                                "context", Map.of("slot", TEST_SLOT),
+                                "value", Map.of("blockhash", "11111111111111111111111111111111",
+                                        "lastValidBlockHeight", TEST_SLOT + 150)
+                        );
+                    } else if (method.equals("sendTransaction")) {
+                        result = "signature" + methods.size();
+                    } else {
+                        final List<Object> values = new ArrayList<>();
+                        for (Object key : (List<?>) ((List<?>) request.get("params")).get(0)) {
+                            final byte[] data = accounts.get((String) key);
+                            values.add(data == null ? null : testAccountValue(data));
+                        }
+                        result = Map.of("context", Map.of("slot", TEST_SLOT), "value", values);
+                    }
+
+                    final Map<String, Object> response = new HashMap<>();
+                    response.put("jsonrpc", "2.0");
+                    response.put("id", request.get("id"));
+                    response.put("result", result);
+                    return new okhttp3.Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(moshi.adapter(Map.class).serializeNulls().toJson(response),
+                                    MediaType.get("application/json")))
+                            .build();
+                })
+                .build();
+
+        return new RpcClient("http://localhost", httpClient);
+    }
+
+    private static PublicKey testMarketKey(int index) {
+        final byte[] key = new byte[32];
+        ByteBuffer.wrap(key).putInt(index);
+        key[31] = 1;
+        return new PublicKey(key);
+    }
+
+    private static PublicKey testBookSideKey(int index, boolean bids) {
+        final byte[] key = testMarketKey(index).toByteArray();
+        key[31] = (byte) (bids ? 2 : 3);
+        return new PublicKey(key);
+    }
+
+    private static byte[] buildTestMarket(int index, long seqNum) {
+        final byte[] data = new byte[840];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(0, MARKET_DISCRIMINATOR);
+        buffer.put(9, (byte) 9); // baseDecimals
+        buffer.put(10, (byte) 6); // quoteDecimals
+        buffer.put(184, ("TEST-" + index).getBytes(StandardCharsets.UTF_8));
+        buffer.put(200, testBookSideKey(index, true).toByteArray());
+        buffer.put(232, testBookSideKey(index, false).toByteArray());
+        buffer.put(264, testEventHeapKey(index).toByteArray());
+        buffer.putLong(448, 1L); // quoteLotSize
+        buffer.putLong(456, 1_000_000L); // baseLotSize
+        buffer.putLong(464, seqNum);
+        return data;
+    }
+
+    private static Map<String, Object> testAccountValue(byte[] data) {
+        return Map.of(
+                "data", List.of(Base64.getEncoder().encodeToString(data), "base64"),
+                "executable", false,
+                "lamports", 1,
+                "owner", OpenbookProgram.OPENBOOK_V2_PROGRAM_ID.toBase58(),
+                "rentEpoch", 0
+        );
+    }
+
+    @Test
+    public void bookSideViewTest() {
+        final byte[] bidData = buildTestBookSide(true);
+        final BookSideView bids = BookSideView.wrap(bidData);
+
+        assertTrue(bids.isBids());
+        assertEquals(3, bids.getLeafCount(BookSideView.FIXED_TREE));
+        assertEquals(0, bids.getLeafCount(BookSideView.ORACLE_PEGGED_TREE));
+        assertEquals(5, bids.getNodeCount());
+
+        // Highest price first, then the higher (earlier, once un-inverted) sequence key within a price
+        final List<Integer> leaves = new ArrayList<>();
+        bids.leafIterator().forEachRemaining((int leaf) -> leaves.add(leaf));
+        assertEquals(List.of(4, 3, 2), leaves);
+        assertEquals(4, bids.bestLeaf());
+        assertEquals(120L, bids.getPrice(4));
+        assertEquals(4L, bids.getQuantity(4));
+        assertEquals(3L, bids.getKeyLow(4));
+        assertEquals(104L, bids.getClientOrderId(4));
+        assertTrue(bids.ownerEquals(4, new PublicKey(filledKey((byte) 4))));
+        assertFalse(bids.ownerEquals(4, new PublicKey(filledKey((byte) 3))));
+
+        final L2Book topLevel = bids.getL2Book(1);
+        assertArrayEquals(new long[]{120L}, topLevel.getPrices());
+        assertTrue(bids.getL2Book(0).isEmpty());
+        assertArrayEquals(BookSide.readBookSide(bidData).getL2Book().getPrices(), bids.getL2Book().getPrices());
+        assertArrayEquals(new long[]{4L, 3L}, bids.getL2Book().getSizes());
+
+        final BookSideView asks = BookSideView.wrap(buildTestBookSide(false));
+        final List<Integer> askLeaves = new ArrayList<>();
+        asks.leafIterator().forEachRemaining((int leaf) -> askLeaves.add(leaf));
+        assertEquals(List.of(2, 3, 4), askLeaves);
+
+        // Oracle pegged orders are only reachable through their own tree, not getOrders or the L2 book
+        final BookSideView withPegged = BookSideView.wrap(addTestPeggedLeaf(buildTestBookSide(true)));
+        final OpenBookMarket market = OpenBookMarket.builder()
+                .baseDecimals((byte) 0)
+                .quoteDecimals((byte) 0)
+                .baseLotSize(1L)
+                .quoteLotSize(1L)
+                .build();
+        assertEquals(3, withPegged.getOrders(market).size());
+        assertEquals(120.0, withPegged.getOrders(market, 1).get(0).getPrice());
+        assertTrue(withPegged.getOrders(market, 0).isEmpty());
+        assertArrayEquals(new long[]{4L, 3L}, withPegged.getL2Book().getSizes());
+        assertEquals(5, withPegged.bestLeaf(BookSideView.ORACLE_PEGGED_TREE));
+        assertEquals(-5L, withPegged.getPrice(5) ^ Long.MIN_VALUE);
+        assertEquals(9L, withPegged.getQuantity(5));
+
+        // Roots are read from the start of the account, not 4 bytes in
+        final List<OrderTreeRoot> roots = BookSide.readBookSide(bidData).getRoots();
+        assertEquals(0, roots.get(0).getMaybeNode());
+        assertEquals(3, roots.get(0).getLeafCount());
+    }
+
+    private static byte[] filledKey(byte value) {
+        final byte[] key = new byte[32];
+        Arrays.fill(key, value);
+        return key;
+    }
+
+    /**
+     * Builds a BookSide account with 3 leaves: 110 x 1, 120 x 4 and 110 x 2, under 2 inner nodes.
+     */
+    private static byte[] buildTestBookSide(boolean bids) {
+        final byte[] data = new byte[TEST_BOOK_SIDE_NODES_OFFSET + (1024 * 88)];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(8, 0); // roots[0].maybeNode
+        buffer.putInt(12, 3); // roots[0].leafCount
+        buffer.put(312, (byte) (bids ? 0 : 1)); // orderTreeType
+        buffer.putInt(316, 5); // bumpIndex
+
+        writeTestInnerNode(buffer, 0, 1, 4);
+        writeTestInnerNode(buffer, 1, 2, 3);
+        writeTestLeafNode(buffer, 2, 110L, 1L, 2L);
+        writeTestLeafNode(buffer, 3, 110L, 2L, 1L);
+        writeTestLeafNode(buffer, 4, 120L, 4L, 3L);
+        return data;
+    }
+
+    /**
+     * Adds an oracle pegged bid of 9 lots at 5 below the oracle price as node 5, the root of the pegged tree.
+     */
+    private static byte[] addTestPeggedLeaf(byte[] data) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(16, 5); // roots[1].maybeNode
+        buffer.putInt(20, 1); // roots[1].leafCount
+        buffer.putInt(316, 6); // bumpIndex
+        writeTestLeafNode(buffer, 5, Long.MIN_VALUE - 5, 9L, 4L); // offsets are stored with the sign bit flipped
+        return data;
+    }
+
+    private static final int TEST_BOOK_SIDE_NODES_OFFSET = 8 + (6 * 8) + 256 + 16 + 512;
+
+    private static void writeTestInnerNode(ByteBuffer buffer, int index, int child0, int child1) {
+        final int offset = TEST_BOOK_SIDE_NODES_OFFSET + (index * 88);
+        buffer.put(offset, NodeTag.InnerNode.getTag());
+        buffer.putInt(offset + 4, 64);
+        buffer.putInt(offset + 24, child0);
+        buffer.putInt(offset + 28, child1);
+    }
+
+    private static void writeTestLeafNode(ByteBuffer buffer, int index, long price, long quantity, long seqNum) {
+        final int offset = TEST_BOOK_SIDE_NODES_OFFSET + (index * 88);
+        buffer.put(offset, NodeTag.LeafNode.getTag());
+        buffer.put(offset + 1, (byte) index);
+        buffer.putLong(offset + 8, seqNum);
+        buffer.putLong(offset + 16, price);
+        final byte[] owner = new byte[32];
+        Arrays.fill(owner, (byte) index);
+        buffer.put(offset + 24, owner);
+        buffer.putLong(offset + 56, quantity);
+        buffer.putLong(offset + 80, 100L + index);
+    }
 }
@@ -2,31 +2,40 @@ package com.mmorrell.phoenix.manager;
 
 import com.mmorrell.phoenix.model.PhoenixMarket;
 import com.mmorrell.phoenix.program.PhoenixProgram;
-import com.mmorrell.phoenix.util.PhoenixUtil;
+import com.mmorrell.phoenix.util.PhoenixDiscriminators;
+import com.mmorrell.serum.util.RpcExecutor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.p2p.solanaj.core.Account;
 import org.p2p.solanaj.core.PublicKey;
 import org.p2p.solanaj.rpc.RpcClient;
 import org.p2p.solanaj.rpc.RpcException;
 import org.p2p.solanaj.rpc.types.ProgramAccount;
 import org.p2p.solanaj.rpc.types.config.Commitment;
+import org.p2p.solanaj.ws.SubscriptionWebSocketClient;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Data
 @Slf4j
 public class PhoenixManager {
 
     private final RpcClient rpcClient;
-    private final Map<PublicKey, PhoenixMarket> marketCache = new HashMap<>();
+    private final RpcExecutor rpcExecutor;
+    private final Map<PublicKey, PhoenixMarket> marketCache = new ConcurrentHashMap<>();
 
     public PhoenixManager(RpcClient rpcClient) {
+        this(rpcClient, RpcExecutor.getDefault());
+    }
+
+    public PhoenixManager(RpcClient rpcClient, RpcExecutor rpcExecutor) {
         this.rpcClient = rpcClient;
+        this.rpcExecutor = rpcExecutor;
         cacheMarkets();
     }
 
@@ -36,7 +45,7 @@ public class PhoenixManager {
             markets = rpcClient.getApi().getProgramAccountsBase64(
                     PhoenixProgram.PHOENIX_PROGRAM_ID,
                     0,
-                    PhoenixUtil.getDiscriminator("phoenix::program::accounts::MarketHeader")
+                    PhoenixDiscriminators.getBase58(PhoenixDiscriminators.MARKET_HEADER)
             );
         } catch (RpcException e) {
             log.error("Error caching phoenix market headers: {}", e.getMessage(), e);
@@ -44,14 +53,12 @@ public class PhoenixManager {
 
         markets.forEach(programAccount -> {
             try {
+                final PublicKey marketId = new PublicKey(programAccount.getPubkey());
                 final PhoenixMarket phoenixMarket = PhoenixMarket.readPhoenixMarket(
-                        Arrays.copyOfRange(
-                                programAccount.getAccount().getDecodedData(),
-                                0,
-                                programAccount.getAccount().getDecodedData().length
-                        )
+                        programAccount.getAccount().getDecodedData(),
+                        marketCache.get(marketId)
                 );
-                phoenixMarket.setMarketId(new PublicKey(programAccount.getPubkey()));
+                phoenixMarket.setMarketId(marketId);
                 marketCache.put(phoenixMarket.getMarketId(), phoenixMarket);
             } catch (Exception ex) {
                 log.error("Error reading PHX account: {}", ex.getMessage(), ex);
@@ -63,6 +70,14 @@ public class PhoenixManager {
         return marketCache.values().stream().toList();
     }
 
+    /**
+     * Returns a market from the cache, or fetches a fresh copy of it. A fresh copy replaces the cached one, and reuses
+     * its trader index where seats are unchanged.
+     *
+     * @param marketId market to return
+     * @param useCache true to return the cached copy, false to fetch a fresh one
+     * @return the market, or an empty Optional if it is not cached or could not be read
+     */
     public Optional<PhoenixMarket> getMarket(PublicKey marketId, boolean useCache) {
         if (useCache) {
             if (marketCache.containsKey(marketId)) {
@@ -75,9 +90,11 @@ public class PhoenixManager {
                 PhoenixMarket phoenixMarket = PhoenixMarket.readPhoenixMarket(
                         rpcClient.getApi()
                                 .getAccountInfo(marketId, Map.of("commitment", Commitment.PROCESSED))
-                                .getDecodedData()
+                                .getDecodedData(),
+                        marketCache.get(marketId)
                 );
                 phoenixMarket.setMarketId(marketId);
+                marketCache.put(marketId, phoenixMarket);
 
                 return Optional.of(phoenixMarket);
             } catch (Exception e) {
@@ -86,4 +103,37 @@ public class PhoenixManager {
             }
         }
     }
+
+    /**
+     * Creates a manager streaming markets over the given websocket, seeded through this manager's RPC client. Pass
+     * markets from {@link #getMarket(PublicKey, boolean)}'s cache to
+     * {@link PhoenixMarketStreamManager#addMarket(PublicKey, PhoenixMarket)} to reuse their trader indexes.
+     *
+     * @param webSocketClient connected (or connecting) websocket client
+     * @return new stream manager, with no markets added
+     */
+    public PhoenixMarketStreamManager newStreamManager(SubscriptionWebSocketClient webSocketClient) {
+        return new PhoenixMarketStreamManager(webSocketClient, rpcClient);
+    }
+
+    /**
+     * Creates a pipeline requoting markets for the given trader through this manager's RPC client and
+     * {@link RpcExecutor}.
+     *
+     * @param trader account signing and paying for the quote transactions
+     * @return new order pipeline, with no markets added
+     */
+    public PhoenixOrderPipeline newOrderPipeline(Account trader) {
+        return new PhoenixOrderPipeline(rpcClient, trader).setRpcExecutor(rpcExecutor);
+    }
+
+    /**
+     * Fetches a fresh copy of a market asynchronously on this manager's {@link RpcExecutor}.
+     *
+     * @param marketId market to fetch
+     * @return future of the market, or an empty Optional if it could not be read
+     */
+    public CompletableFuture<Optional<PhoenixMarket>> getMarketAsync(PublicKey marketId) {
+        return rpcExecutor.supplyAsync(() -> getMarket(marketId, false));
+    }
 }
@@ -0,0 +1,220 @@
+package com.mmorrell.phoenix.manager;
+
+import com.mmorrell.phoenix.model.PhoenixMarket;
+import com.mmorrell.phoenix.model.PhoenixMarketSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.RpcException;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+import org.p2p.solanaj.rpc.types.config.RpcSendTransactionConfig;
+import org.p2p.solanaj.ws.SubscriptionWebSocketClient;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps Phoenix markets up to date from websocket account subscriptions, instead of fetching the whole market
+ * account with {@link PhoenixManager#getMarket(PublicKey, boolean)} on every read.
+ * <p>
+ * Every market added is subscribed to. Each pushed update is decoded on the websocket thread with
+ * {@link PhoenixMarket#readPhoenixMarket(byte[], byte[], PhoenixMarket)}, which compares the bid, ask and trader
+ * trees against the previous update and only decodes those that changed. The result is published as a new
+ * {@link PhoenixMarketSnapshot} through an {@link AtomicReference}. Readers never block or trigger I/O: they get
+ * whatever snapshot was published last, whose market shares unchanged parts with other snapshots and must not be
+ * modified. {@link #removeMarket(PublicKey)} stops streaming a market.
+ */
+@Slf4j
+public class PhoenixMarketStreamManager {
+
+    private final SubscriptionWebSocketClient webSocketClient;
+    private final RpcClient client;
+    private final Commitment commitment;
+
+    private final Map<PublicKey, StreamedMarket> markets = new ConcurrentHashMap<>();
+    // Removed markets whose subscription was not confirmed yet when they were removed
+    private final Set<PublicKey> pendingUnsubscribes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param webSocketClient connected (or connecting) websocket client; subscriptions are re-sent on reconnect
+     * @param client          RPC client used to seed each market before the first push, or null to wait for pushes
+     * @param commitment      commitment for subscriptions and seeding
+     */
+    public PhoenixMarketStreamManager(SubscriptionWebSocketClient webSocketClient, RpcClient client,
+                                      Commitment commitment) {
+        this.webSocketClient = webSocketClient;
+        this.client = client;
+        this.commitment = commitment;
+    }
+
+    public PhoenixMarketStreamManager(SubscriptionWebSocketClient webSocketClient, RpcClient client) {
+        this(webSocketClient, client, Commitment.CONFIRMED);
+    }
+
+    /**
+     * Starts streaming a market.
+     *
+     * @param marketId market to stream
+     */
+    public void addMarket(PublicKey marketId) {
+        addMarket(marketId, null);
+    }
+
+    /**
+     * Starts streaming a market, reusing the trader index of an already decoded copy of it (e.g. from
+     * {@link PhoenixManager}'s cache) for the first update.
+     *
+     * @param marketId market to stream
+     * @param market   decoded copy of the market, or null
+     */
+    public void addMarket(PublicKey marketId, PhoenixMarket market) {
+        final StreamedMarket streamedMarket = new StreamedMarket(marketId, market);
+        if (markets.putIfAbsent(marketId, streamedMarket) != null) {
+            return;
+        }
+
+        // A subscription of an earlier add still waiting to be unsubscribed is left alone; it no longer publishes
+        pendingUnsubscribes.remove(marketId);
+
+        if (client != null) {
+            seed(streamedMarket);
+        }
+
+        webSocketClient.accountSubscribe(
+                marketId.toBase58(),
+                data -> {
+                    if (markets.get(marketId) != streamedMarket) {
+                        // Removed before this subscription was confirmed, which it is now that it has an update
+                        if (pendingUnsubscribes.remove(marketId)) {
+                            unsubscribe(marketId);
+                        }
+                        return;
+                    }
+
+                    if (data == null) {
+                        return;
+                    }
+
+                    try {
+                        final String base64 = (String) ((List<?>) ((Map<?, ?>) data).get("data")).get(0);
+                        streamedMarket.update(Base64.getDecoder().decode(base64));
+                    } catch (RuntimeException e) {
+                        log.error("Unable to decode update for {}", marketId, e);
+                    }
+                },
+                commitment,
+                RpcSendTransactionConfig.Encoding.base64.getEncoding()
+        );
+    }
+
+    /**
+     * Stops streaming a market: drops its snapshot and unsubscribes from its account. Updates still in flight for the
+     * market are ignored.
+     * <p>
+     * A subscription the RPC node has not confirmed yet has no id to unsubscribe with. It is unsubscribed from its
+     * listener instead, when its first update arrives (and is ignored), including after a reconnect re-sent it. If the
+     * market is added again before then, the old subscription stays open and its updates keep being ignored.
+     *
+     * @param marketId market address
+     * @return true if the market was added and is now removed
+     */
+    public boolean removeMarket(PublicKey marketId) {
+        if (markets.remove(marketId) == null) {
+            return false;
+        }
+
+        unsubscribe(marketId);
+        return true;
+    }
+
+    /**
+     * Latest published snapshot for a market. Lock-free; never performs I/O.
+     *
+     * @param marketId market address
+     * @return latest snapshot, empty if the market was not added
+     */
+    public Optional<PhoenixMarketSnapshot> getSnapshot(PublicKey marketId) {
+        final StreamedMarket streamedMarket = markets.get(marketId);
+        return streamedMarket == null ? Optional.empty() : Optional.of(streamedMarket.snapshot.get());
+    }
+
+    /**
+     * Latest decoded market, like {@link PhoenixManager#getMarket(PublicKey, boolean)} but without I/O. The market is
+     * shared with the snapshot it belongs to and must not be modified.
+     *
+     * @param marketId market address
+     * @return latest market, empty if the market was not added or no data has been received yet
+     */
+    public Optional<PhoenixMarket> getMarket(PublicKey marketId) {
+        return getSnapshot(marketId).map(PhoenixMarketSnapshot::getMarket);
+    }
+
+    private void unsubscribe(PublicKey marketId) {
+        final String subscriptionId = webSocketClient.getSubscriptionId(marketId.toBase58());
+        if (subscriptionId == null) {
+            log.warn("No subscription for {}", marketId);
+            return;
+        }
+
+        // Until the node confirms a subscription, the client knows it by its request id rather than a numeric id
+        if (!subscriptionId.chars().allMatch(Character::isDigit)) {
+            log.info("Subscription for {} not confirmed yet, unsubscribing on its first update", marketId);
+            pendingUnsubscribes.add(marketId);
+            return;
+        }
+
+        webSocketClient.unsubscribe(subscriptionId);
+    }
+
+    private void seed(StreamedMarket streamedMarket) {
+        try {
+            streamedMarket.update(Base64.getDecoder().decode(
+                    client.getApi().getAccountInfo(streamedMarket.marketId, Map.of("commitment", commitment))
+                            .getValue()
+                            .getData()
+                            .get(0)
+            ));
+        } catch (RpcException e) {
+            log.warn("Unable to seed {}, waiting for updates", streamedMarket.marketId, e);
+        }
+    }
+
+    /**
+     * Published snapshot of one market, plus the account data it was decoded from for diffing the next update.
+     */
+    private static class StreamedMarket {
+
+        private final PublicKey marketId;
+        private final AtomicReference<PhoenixMarketSnapshot> snapshot;
+        private byte[] data;
+        private PhoenixMarket market;
+
+        private StreamedMarket(PublicKey marketId, PhoenixMarket market) {
+            this.marketId = marketId;
+            this.market = market;
+            this.snapshot = new AtomicReference<>(PhoenixMarketSnapshot.builder()
+                    .marketId(marketId)
+                    .build());
+        }
+
+        // Seeding and pushes may race, so updates are applied one at a time
+        private synchronized void update(byte[] data) {
+            final PhoenixMarket updated = PhoenixMarket.readPhoenixMarket(data, this.data, market);
+            updated.setMarketId(marketId);
+            this.data = data;
+            this.market = updated;
+
+            final long now = System.currentTimeMillis();
+            snapshot.updateAndGet(previous -> previous.toBuilder()
+                    .market(updated)
+                    .version(previous.getVersion() + 1)
+                    .updatedAtMillis(now)
+                    .build());
+        }
+    }
+}
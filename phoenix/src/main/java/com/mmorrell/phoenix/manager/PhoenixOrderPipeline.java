@@ -0,0 +1,544 @@
+package com.mmorrell.phoenix.manager;
+
+import com.mmorrell.phoenix.model.CondensedPhoenixOrder;
+import com.mmorrell.phoenix.model.PhoenixMarket;
+import com.mmorrell.phoenix.program.PhoenixProgram;
+import com.mmorrell.serum.util.RpcExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.p2p.solanaj.core.Account;
+import org.p2p.solanaj.core.AccountMeta;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.core.Transaction;
+import org.p2p.solanaj.core.TransactionInstruction;
+import org.p2p.solanaj.programs.ComputeBudgetProgram;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.RpcException;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requotes many Phoenix markets in as few transactions as possible, as an alternative to sending one
+ * {@link PhoenixProgram#cancelAllOrders} and {@link PhoenixProgram#placeMultiplePostOnlyOrders} transaction per
+ * market.
+ * <p>
+ * Quotes are submitted with {@link #submitQuote(PublicKey, List, List)} and coalesced per market: only the latest
+ * quote of a market is kept until it is sent. Each flush ({@link #flush()}, or periodically after
+ * {@link #start(Duration)}):
+ * <ol>
+ * <li>takes the pending quotes of the markets without a transaction in flight</li>
+ * <li>packs them into transactions of at most maxTransactionSize bytes and {@link #MAX_COMPUTE_UNIT_LIMIT} compute
+ * units, each starting with compute unit limit and price instructions, followed by cancel all orders and place
+ * multiple post-only orders for every market in it</li>
+ * <li>sends the transactions asynchronously on the {@link RpcExecutor}, at most maxInFlight at a time, all signed
+ * with one recent blockhash per flush. Quotes that do not fit the window stay pending.</li>
+ * </ol>
+ * The quotes of a transaction that fails to send are pending again, unless a newer quote for their market was
+ * submitted in the meantime or the market was removed. A retried quote is sent in a transaction of its own, so that
+ * a market whose instructions fail does not hold back the markets it was packed with, and is dropped after
+ * maxSendAttempts failed sends.
+ * The seat address, account lists and cancel all instruction of a market are built once, when it is added, and
+ * shared by all of its transactions. A quote's place instruction data is encoded once, when it is submitted.
+ */
+@Slf4j
+public class PhoenixOrderPipeline implements AutoCloseable {
+
+    public static final int DEFAULT_COMPUTE_UNITS_PER_MARKET = 200_000;
+    public static final int MAX_COMPUTE_UNIT_LIMIT = 1_400_000;
+    public static final int DEFAULT_PRIORITY_FEE = 11;
+    // Maximum size of a serialized transaction (IPv6 MTU minus headers)
+    public static final int MAX_TRANSACTION_SIZE = 1232;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    public static final int DEFAULT_MAX_SEND_ATTEMPTS = 3;
+
+    private static final int SIGNATURE_SIZE = 64;
+    private static final int MESSAGE_HEADER_SIZE = 3;
+    private static final int RECENT_BLOCKHASH_SIZE = 32;
+
+    private final RpcClient client;
+    private final Account trader;
+    private final Map<PublicKey, QuotedMarket> markets = new ConcurrentHashMap<>();
+    private final Map<PublicKey, Quote> pendingQuotes = new ConcurrentHashMap<>();
+    private final Set<PublicKey> inFlightMarkets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlightTransactions = new AtomicInteger();
+
+    private RpcExecutor rpcExecutor = RpcExecutor.getDefault();
+    private int computeUnitsPerMarket = DEFAULT_COMPUTE_UNITS_PER_MARKET;
+    private int priorityFee = DEFAULT_PRIORITY_FEE;
+    private int maxTransactionSize = MAX_TRANSACTION_SIZE;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int maxSendAttempts = DEFAULT_MAX_SEND_ATTEMPTS;
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong quotesSentCount = new AtomicLong();
+    private final AtomicLong quotesDroppedCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    public PhoenixOrderPipeline(RpcClient client, Account trader) {
+        this.client = client;
+        this.trader = trader;
+    }
+
+    /**
+     * @param rpcExecutor executor the transactions are sent on
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline setRpcExecutor(RpcExecutor rpcExecutor) {
+        this.rpcExecutor = rpcExecutor;
+        return this;
+    }
+
+    /**
+     * @param computeUnitsPerMarket compute units budgeted per requoted market, which with
+     *                              {@link #MAX_COMPUTE_UNIT_LIMIT} bounds the number of markets per transaction
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline setComputeUnitsPerMarket(int computeUnitsPerMarket) {
+        if (computeUnitsPerMarket < 1 || computeUnitsPerMarket > MAX_COMPUTE_UNIT_LIMIT) {
+            throw new IllegalArgumentException("computeUnitsPerMarket must be between 1 and " + MAX_COMPUTE_UNIT_LIMIT);
+        }
+        this.computeUnitsPerMarket = computeUnitsPerMarket;
+        return this;
+    }
+
+    public PhoenixOrderPipeline setPriorityFee(int priorityFee) {
+        this.priorityFee = priorityFee;
+        return this;
+    }
+
+    /**
+     * @param maxTransactionSize maximum size of a serialized transaction, at most {@link #MAX_TRANSACTION_SIZE}
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline setMaxTransactionSize(int maxTransactionSize) {
+        if (maxTransactionSize < 1 || maxTransactionSize > MAX_TRANSACTION_SIZE) {
+            throw new IllegalArgumentException("maxTransactionSize must be between 1 and " + MAX_TRANSACTION_SIZE);
+        }
+        this.maxTransactionSize = maxTransactionSize;
+        return this;
+    }
+
+    /**
+     * @param maxInFlight maximum number of transactions being sent at the same time
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * @param maxSendAttempts number of failed sends after which a quote is dropped instead of retried
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline setMaxSendAttempts(int maxSendAttempts) {
+        if (maxSendAttempts < 1) {
+            throw new IllegalArgumentException("maxSendAttempts must be at least 1");
+        }
+        this.maxSendAttempts = maxSendAttempts;
+        return this;
+    }
+
+    /**
+     * Registers a market to quote, using the vaults from its header.
+     *
+     * @param market       market, e.g. from {@link PhoenixManager#getMarket(PublicKey, boolean)}
+     * @param baseAccount  trader's base token account
+     * @param quoteAccount trader's quote token account
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline addMarket(PhoenixMarket market, PublicKey baseAccount, PublicKey quoteAccount) {
+        return addMarket(market.getMarketId(), baseAccount, quoteAccount,
+                market.getPhoenixMarketHeader().getBaseVaultKey(), market.getPhoenixMarketHeader().getQuoteVaultKey());
+    }
+
+    /**
+     * Registers a market to quote. Derives the trader's seat address and builds the market's account lists and
+     * cancel all instruction, once.
+     *
+     * @param marketId     market id
+     * @param baseAccount  trader's base token account
+     * @param quoteAccount trader's quote token account
+     * @param baseVault    market's base vault
+     * @param quoteVault   market's quote vault
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline addMarket(PublicKey marketId, PublicKey baseAccount, PublicKey quoteAccount,
+                                          PublicKey baseVault, PublicKey quoteVault) {
+        final PublicKey seat = PhoenixProgram.findSeatAddress(marketId, trader.getPublicKey());
+        if (seat == null) {
+            throw new IllegalStateException("Unable to derive seat address for Phoenix market " + marketId);
+        }
+
+        final TransactionInstruction cancelAllOrders = PhoenixProgram.cancelAllOrders(marketId,
+                trader.getPublicKey(), baseAccount, quoteAccount, baseVault, quoteVault);
+        // Same accounts as cancel all, with the seat after the trader
+        final List<AccountMeta> placeAccounts = new ArrayList<>(cancelAllOrders.getKeys());
+        placeAccounts.add(4, new AccountMeta(seat, false, false));
+
+        markets.put(marketId, new QuotedMarket(marketId, cancelAllOrders, List.copyOf(placeAccounts)));
+        return this;
+    }
+
+    /**
+     * Stops quoting a market. Its pending quote is dropped; a transaction already in flight is still sent, but its
+     * quote for the market is not retried if it fails.
+     *
+     * @param marketId market id
+     * @return this pipeline
+     */
+    public PhoenixOrderPipeline removeMarket(PublicKey marketId) {
+        markets.remove(marketId);
+        pendingQuotes.remove(marketId);
+        return this;
+    }
+
+    /**
+     * Replaces a market's quote: on the next flush, all of the trader's orders on the market are cancelled and the
+     * given post-only orders placed, in one transaction. Replaces any quote of the market not sent yet.
+     *
+     * @param marketId market id, added with addMarket
+     * @param bids     bids to place, may be empty
+     * @param asks     asks to place, may be empty
+     * @throws IllegalArgumentException if the market was not added or the quote would not fit in a transaction
+     */
+    public void submitQuote(PublicKey marketId, List<CondensedPhoenixOrder> bids, List<CondensedPhoenixOrder> asks) {
+        final QuotedMarket market = markets.get(marketId);
+        if (market == null) {
+            throw new IllegalArgumentException("Phoenix market " + marketId + " was not added to the pipeline");
+        }
+
+        final TransactionInstruction placeOrders = bids.isEmpty() && asks.isEmpty()
+                ? null
+                : new TransactionInstruction(PhoenixProgram.PHOENIX_PROGRAM_ID, market.placeAccounts(),
+                PhoenixProgram.encodePlaceMultiplePostOnlyOrders(bids, asks));
+        final Quote quote = new Quote(market, placeOrders, 0);
+
+        final int size = new TransactionSize(trader.getPublicKey()).sizeWith(quote);
+        if (size > maxTransactionSize) {
+            throw new IllegalArgumentException("Quote of " + (bids.size() + asks.size()) + " orders for Phoenix market "
+                    + marketId + " needs a " + size + " byte transaction, limit is " + maxTransactionSize);
+        }
+
+        pendingQuotes.put(marketId, quote);
+    }
+
+    /**
+     * Pulls all of the trader's orders from a market on the next flush, replacing any quote not sent yet.
+     *
+     * @param marketId market id, added with addMarket
+     */
+    public void cancelAll(PublicKey marketId) {
+        submitQuote(marketId, List.of(), List.of());
+    }
+
+    /**
+     * @return number of markets with a quote waiting to be sent
+     */
+    public int getPendingCount() {
+        return pendingQuotes.size();
+    }
+
+    /**
+     * @return number of transactions being sent
+     */
+    public int getInFlightCount() {
+        return inFlightTransactions.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return number of market quotes in successfully sent transactions
+     */
+    public long getQuotesSentCount() {
+        return quotesSentCount.get();
+    }
+
+    /**
+     * @return number of quotes dropped after maxSendAttempts failed sends
+     */
+    public long getQuotesDroppedCount() {
+        return quotesDroppedCount.get();
+    }
+
+    /**
+     * Packs the pending quotes into transactions and submits as many as the in-flight window allows. Returns once
+     * the transactions are queued, without waiting for them to be sent.
+     *
+     * @return number of transactions submitted
+     */
+    public synchronized int flush() {
+        // New quotes first, packed together, then retried quotes, one per transaction
+        final List<Quote> quotes = new ArrayList<>(pendingQuotes.size());
+        final List<Quote> retriedQuotes = new ArrayList<>();
+        for (Quote quote : pendingQuotes.values()) {
+            if (!inFlightMarkets.contains(quote.market().marketId())) {
+                (quote.attempts() > 0 ? retriedQuotes : quotes).add(quote);
+            }
+        }
+        quotes.addAll(retriedQuotes);
+
+        if (quotes.isEmpty() || inFlightTransactions.get() >= maxInFlight) {
+            return 0;
+        }
+
+        final String recentBlockhash;
+        try {
+            recentBlockhash = client.getApi().getLatestBlockhash(Commitment.CONFIRMED).getValue().getBlockhash();
+        } catch (RpcException e) {
+            log.error("Error getting blockhash for Phoenix quotes: {}", e.getMessage(), e);
+            return 0;
+        }
+
+        int submitted = 0;
+        int next = 0;
+        while (next < quotes.size() && inFlightTransactions.get() < maxInFlight) {
+            final List<Quote> batch = new ArrayList<>();
+            final TransactionSize transactionSize = new TransactionSize(trader.getPublicKey());
+            while (next < quotes.size()) {
+                final Quote quote = quotes.get(next);
+                // A retried quote goes alone, so a failing market does not fail the others again
+                if (!batch.isEmpty() && (transactionSize.sizeWith(quote) > maxTransactionSize
+                        || (long) (batch.size() + 1) * computeUnitsPerMarket > MAX_COMPUTE_UNIT_LIMIT
+                        || quote.attempts() > 0)) {
+                    break;
+                }
+                transactionSize.add(quote);
+                batch.add(quote);
+                next++;
+            }
+
+            for (Quote quote : batch) {
+                inFlightMarkets.add(quote.market().marketId());
+                // A quote submitted in the meantime stays pending, and is sent once this one is done
+                pendingQuotes.remove(quote.market().marketId(), quote);
+            }
+            inFlightTransactions.incrementAndGet();
+
+            try {
+                final Transaction transaction = buildTransaction(batch);
+                rpcExecutor.execute(() -> send(batch, transaction, recentBlockhash));
+                submitted++;
+            } catch (RuntimeException e) {
+                // Not sent, e.g. the executor was closed: the quotes are still pending
+                requeue(batch, false);
+                release(batch);
+                throw e;
+            }
+        }
+
+        return submitted;
+    }
+
+    /**
+     * Runs {@link #flush()} periodically on a daemon thread, replacing any schedule started earlier.
+     *
+     * @param period time between the end of one flush and the start of the next
+     */
+    public synchronized void start(Duration period) {
+        stop();
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "phoenix-order-pipeline");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        task = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Error flushing Phoenix quotes: {}", e.getMessage(), e);
+            }
+        }, 0, period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        stop();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Accounts and instructions of a market that are the same for every quote.
+     */
+    private record QuotedMarket(PublicKey marketId, TransactionInstruction cancelAllOrders,
+                                List<AccountMeta> placeAccounts) {
+    }
+
+    /**
+     * @param placeOrders place multiple post-only orders instruction, null if the quote only cancels
+     * @param attempts    number of failed sends so far
+     */
+    private record Quote(QuotedMarket market, TransactionInstruction placeOrders, int attempts) {
+    }
+
+    /**
+     * Serialized size of a legacy transaction with a single signer, built up one quote at a time. Starts with the
+     * compute budget instructions, whose sizes do not depend on their values.
+     */
+    private static final class TransactionSize {
+
+        private final Set<PublicKey> accountKeys = new HashSet<>();
+        private int instructionCount;
+        private int instructionBytes;
+
+        private TransactionSize(PublicKey feePayer) {
+            accountKeys.add(feePayer);
+            add(ComputeBudgetProgram.setComputeUnitLimit(0));
+            add(ComputeBudgetProgram.setComputeUnitPrice(0));
+        }
+
+        int sizeWith(Quote quote) {
+            final Set<PublicKey> newKeys = new HashSet<>();
+            collectNewKeys(quote.market().cancelAllOrders(), newKeys);
+            int newInstructionBytes = instructionSize(quote.market().cancelAllOrders());
+            int newInstructions = 1;
+            if (quote.placeOrders() != null) {
+                collectNewKeys(quote.placeOrders(), newKeys);
+                newInstructionBytes += instructionSize(quote.placeOrders());
+                newInstructions++;
+            }
+
+            return transactionSize(accountKeys.size() + newKeys.size(), instructionCount + newInstructions,
+                    instructionBytes + newInstructionBytes);
+        }
+
+        void add(Quote quote) {
+            add(quote.market().cancelAllOrders());
+            if (quote.placeOrders() != null) {
+                add(quote.placeOrders());
+            }
+        }
+
+        private void add(TransactionInstruction instruction) {
+            accountKeys.add(instruction.getProgramId());
+            for (AccountMeta accountMeta : instruction.getKeys()) {
+                accountKeys.add(accountMeta.getPublicKey());
+            }
+            instructionCount++;
+            instructionBytes += instructionSize(instruction);
+        }
+
+        private void collectNewKeys(TransactionInstruction instruction, Set<PublicKey> newKeys) {
+            if (!accountKeys.contains(instruction.getProgramId())) {
+                newKeys.add(instruction.getProgramId());
+            }
+            for (AccountMeta accountMeta : instruction.getKeys()) {
+                if (!accountKeys.contains(accountMeta.getPublicKey())) {
+                    newKeys.add(accountMeta.getPublicKey());
+                }
+            }
+        }
+    }
+
+    private static int transactionSize(int accountKeyCount, int instructionCount, int instructionBytes) {
+        return compactLength(1) + SIGNATURE_SIZE
+                + MESSAGE_HEADER_SIZE
+                + compactLength(accountKeyCount) + (accountKeyCount * PublicKey.PUBLIC_KEY_LENGTH)
+                + RECENT_BLOCKHASH_SIZE
+                + compactLength(instructionCount) + instructionBytes;
+    }
+
+    private static int instructionSize(TransactionInstruction instruction) {
+        final int accountCount = instruction.getKeys().size();
+        final int dataLength = instruction.getData().length;
+        return 1 + compactLength(accountCount) + accountCount + compactLength(dataLength) + dataLength;
+    }
+
+    // Length of a compact-u16
+    private static int compactLength(int value) {
+        return value < 0x80 ? 1 : value < 0x4000 ? 2 : 3;
+    }
+
+    private Transaction buildTransaction(List<Quote> batch) {
+        final Transaction transaction = new Transaction();
+        transaction.addInstruction(ComputeBudgetProgram.setComputeUnitLimit(batch.size() * computeUnitsPerMarket));
+        transaction.addInstruction(ComputeBudgetProgram.setComputeUnitPrice(priorityFee));
+        for (Quote quote : batch) {
+            transaction.addInstruction(quote.market().cancelAllOrders());
+            if (quote.placeOrders() != null) {
+                transaction.addInstruction(quote.placeOrders());
+            }
+        }
+
+        return transaction;
+    }
+
+    private void send(List<Quote> batch, Transaction transaction, String recentBlockhash) {
+        try {
+            final String signature = client.getApi().sendTransaction(transaction, List.of(trader), recentBlockhash);
+            sentCount.incrementAndGet();
+            quotesSentCount.addAndGet(batch.size());
+            log.info("Requoted {} Phoenix markets: {}", batch.size(), signature);
+        } catch (RpcException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            log.error("Error requoting {} Phoenix markets: {}", batch.size(), e.getMessage(), e);
+            requeue(batch, true);
+        } finally {
+            release(batch);
+        }
+    }
+
+    // Puts quotes back for the next flush, unless their market was removed or has a newer quote
+    private void requeue(List<Quote> batch, boolean failedAttempt) {
+        for (Quote quote : batch) {
+            final PublicKey marketId = quote.market().marketId();
+            if (markets.get(marketId) != quote.market()) {
+                continue;
+            }
+
+            final int attempts = failedAttempt ? quote.attempts() + 1 : quote.attempts();
+            if (attempts >= maxSendAttempts) {
+                quotesDroppedCount.incrementAndGet();
+                log.warn("Dropping quote for Phoenix market {} after {} failed sends", marketId, attempts);
+                continue;
+            }
+
+            pendingQuotes.putIfAbsent(marketId, new Quote(quote.market(), quote.placeOrders(), attempts));
+        }
+    }
+
+    private void release(List<Quote> batch) {
+        for (Quote quote : batch) {
+            inFlightMarkets.remove(quote.market().marketId());
+        }
+        inFlightTransactions.decrementAndGet();
+    }
+}
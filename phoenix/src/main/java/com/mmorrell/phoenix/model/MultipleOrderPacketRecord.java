@@ -33,7 +33,7 @@ public class MultipleOrderPacketRecord {
             offset += 18;
         }
 
-        buffer.putInt(offset, (byte) asks.size());
+        buffer.putInt(offset, asks.size());
         offset += 4;
 
         // asks
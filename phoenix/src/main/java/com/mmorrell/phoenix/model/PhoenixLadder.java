@@ -0,0 +1,244 @@
+package com.mmorrell.phoenix.model;
+
+import com.mmorrell.serum.model.L2Book;
+import kotlin.Pair;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One side of a Phoenix order book, decoded into primitive arrays in price-time priority: highest bid or lowest ask
+ * first, earlier orders first within a price. Best bid/ask is index 0.
+ * <p>
+ * The decoder walks the side's sokoban red-black tree once, in order from its root, straight from the market account
+ * bytes. Freed nodes are never linked into the tree, so they are skipped without building a free set, and no per-order
+ * objects are created.
+ * <p>
+ * tree layout: [root u32][12 bytes][allocator size u64][bumpIndex u32][freeListHead u32]
+ * [nodes: (left u32, right u32, parent u32, color u32, priceInTicks u64, orderSequenceNumber u64, traderIndex u64,
+ * numBaseLots u64, 16 bytes) x allocator size]
+ * <p>
+ * Node addresses are 1-based, 0 being the sentinel. Bids are keyed with their sequence numbers inverted, so an in-order
+ * walk of the bid tree in reverse yields time priority within a price level. Sequence numbers are kept as stored.
+ */
+public class PhoenixLadder {
+
+    public static final int HEADER_SIZE = 32;
+    public static final int NODE_SIZE = 16 + FIFOOrderId.FIFO_ORDER_ID_SIZE + FIFORestingOrder.FIFO_RESTING_ORDER_SIZE;
+
+    private static final int BUMP_INDEX_OFFSET = 24;
+    private static final int FREE_LIST_HEAD_OFFSET = 28;
+
+    // Node-relative offsets
+    private static final int LEFT_OFFSET = 0;
+    private static final int RIGHT_OFFSET = 4;
+    private static final int PRICE_IN_TICKS_OFFSET = 16;
+    private static final int ORDER_SEQUENCE_NUMBER_OFFSET = 24;
+    private static final int TRADER_INDEX_OFFSET = 32;
+    private static final int NUM_BASE_LOTS_OFFSET = 40;
+
+    // A red-black tree over at most 2^32 nodes is at most 64 nodes deep
+    private static final int MAX_TREE_DEPTH = 65;
+
+    private final boolean bids;
+    private final long[] pricesInTicks;
+    private final long[] orderSequenceNumbers;
+    private final long[] traderIndexes;
+    private final long[] numBaseLots;
+
+    private PhoenixLadder(boolean bids, long[] pricesInTicks, long[] orderSequenceNumbers, long[] traderIndexes,
+                          long[] numBaseLots) {
+        this.bids = bids;
+        this.pricesInTicks = pricesInTicks;
+        this.orderSequenceNumbers = orderSequenceNumbers;
+        this.traderIndexes = traderIndexes;
+        this.numBaseLots = numBaseLots;
+    }
+
+    /**
+     * Size in bytes of a side's tree region holding the given number of nodes.
+     *
+     * @param capacity number of nodes, from the market header's bids or asks size
+     * @return region size
+     */
+    public static int regionSize(long capacity) {
+        return Math.toIntExact(HEADER_SIZE + (NODE_SIZE * capacity));
+    }
+
+    /**
+     * Decodes one side of the book from a market account.
+     *
+     * @param data     market account data
+     * @param offset   start of the side's tree region
+     * @param capacity number of nodes in the region, from the market header's bids or asks size
+     * @param bids     true for the bid tree
+     * @return orders in price-time priority, best first
+     */
+    public static PhoenixLadder readPhoenixLadder(byte[] data, int offset, long capacity, boolean bids) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        final int nodesOffset = offset + HEADER_SIZE;
+        final int addressableNodes = (int) Math.min(capacity, Math.max(0, (data.length - nodesOffset) / NODE_SIZE));
+
+        // bumpIndex is the next never-used address, so 1 .. bumpIndex - 1 have been allocated
+        final int allocated = Math.max(0, Math.min(buffer.getInt(offset + BUMP_INDEX_OFFSET) - 1, addressableNodes));
+        final int live = allocated - countFreeNodes(buffer, offset, nodesOffset, allocated);
+
+        final long[] pricesInTicks = new long[live];
+        final long[] orderSequenceNumbers = new long[live];
+        final long[] traderIndexes = new long[live];
+        final long[] numBaseLots = new long[live];
+
+        // Asks in order (left first), bids in reverse order (right first)
+        final int firstChildOffset = bids ? RIGHT_OFFSET : LEFT_OFFSET;
+        final int secondChildOffset = bids ? LEFT_OFFSET : RIGHT_OFFSET;
+        final int[] stack = new int[MAX_TREE_DEPTH];
+        int depth = 0;
+        int size = 0;
+        int node = buffer.getInt(offset);
+
+        while (size < live && (depth > 0 || isAllocated(node, allocated))) {
+            while (isAllocated(node, allocated) && depth < MAX_TREE_DEPTH) {
+                stack[depth++] = node;
+                node = buffer.getInt(nodeOffset(nodesOffset, node) + firstChildOffset);
+            }
+
+            node = stack[--depth];
+            final int nodeOffset = nodeOffset(nodesOffset, node);
+            pricesInTicks[size] = buffer.getLong(nodeOffset + PRICE_IN_TICKS_OFFSET);
+            orderSequenceNumbers[size] = buffer.getLong(nodeOffset + ORDER_SEQUENCE_NUMBER_OFFSET);
+            traderIndexes[size] = buffer.getLong(nodeOffset + TRADER_INDEX_OFFSET);
+            numBaseLots[size] = buffer.getLong(nodeOffset + NUM_BASE_LOTS_OFFSET);
+            size++;
+
+            node = buffer.getInt(nodeOffset + secondChildOffset);
+        }
+
+        if (size < live) {
+            return new PhoenixLadder(bids, Arrays.copyOf(pricesInTicks, size),
+                    Arrays.copyOf(orderSequenceNumbers, size), Arrays.copyOf(traderIndexes, size),
+                    Arrays.copyOf(numBaseLots, size));
+        }
+
+        return new PhoenixLadder(bids, pricesInTicks, orderSequenceNumbers, traderIndexes, numBaseLots);
+    }
+
+    private static int countFreeNodes(ByteBuffer buffer, int offset, int nodesOffset, int allocated) {
+        int freeNodes = 0;
+        int node = buffer.getInt(offset + FREE_LIST_HEAD_OFFSET);
+        // a free node's left register links to the next free node; the bound guards against cycles
+        while (isAllocated(node, allocated) && freeNodes < allocated) {
+            freeNodes++;
+            node = buffer.getInt(nodeOffset(nodesOffset, node) + LEFT_OFFSET);
+        }
+
+        return freeNodes;
+    }
+
+    private static boolean isAllocated(int node, int allocated) {
+        return node > 0 && node <= allocated;
+    }
+
+    private static int nodeOffset(int nodesOffset, int node) {
+        return nodesOffset + ((node - 1) * NODE_SIZE);
+    }
+
+    public boolean isBids() {
+        return bids;
+    }
+
+    public boolean isEmpty() {
+        return pricesInTicks.length == 0;
+    }
+
+    /**
+     * @return number of resting orders
+     */
+    public int size() {
+        return pricesInTicks.length;
+    }
+
+    public long getPriceInTicks(int index) {
+        return pricesInTicks[index];
+    }
+
+    /**
+     * @param index order index, 0 being the best
+     * @return sequence number as stored in the tree, inverted for bids
+     */
+    public long getOrderSequenceNumber(int index) {
+        return orderSequenceNumbers[index];
+    }
+
+    /**
+     * @param index order index, 0 being the best
+     * @return 1-based address of the order's trader in the market's trader tree
+     */
+    public long getTraderIndex(int index) {
+        return traderIndexes[index];
+    }
+
+    public long getNumBaseLots(int index) {
+        return numBaseLots[index];
+    }
+
+    /**
+     * @return best (highest bid or lowest ask) price in ticks, or 0 if the side is empty
+     */
+    public long getBestPriceInTicks() {
+        return isEmpty() ? 0 : pricesInTicks[0];
+    }
+
+    /**
+     * Builds the order at the given index as a {@link FIFOOrderId}/{@link FIFORestingOrder} pair.
+     *
+     * @param index order index, 0 being the best
+     * @return the order
+     */
+    public Pair<FIFOOrderId, FIFORestingOrder> getOrder(int index) {
+        return new Pair<>(
+                FIFOOrderId.builder()
+                        .priceInTicks(pricesInTicks[index])
+                        .orderSequenceNumber(orderSequenceNumbers[index])
+                        .build(),
+                FIFORestingOrder.builder()
+                        .traderIndex(traderIndexes[index])
+                        .numBaseLots(numBaseLots[index])
+                        .build()
+        );
+    }
+
+    public Optional<Pair<FIFOOrderId, FIFORestingOrder>> getBestOrder() {
+        return isEmpty() ? Optional.empty() : Optional.of(getOrder(0));
+    }
+
+    /**
+     * @return all orders as {@link FIFOOrderId}/{@link FIFORestingOrder} pairs, best first
+     */
+    public List<Pair<FIFOOrderId, FIFORestingOrder>> getOrders() {
+        final List<Pair<FIFOOrderId, FIFORestingOrder>> orders = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            orders.add(getOrder(i));
+        }
+
+        return orders;
+    }
+
+    /**
+     * Aggregates the ladder into price levels, in ticks and base lots. Orders are already in price order, so every
+     * level is merged in O(1).
+     *
+     * @return {@link L2Book} for this side
+     */
+    public L2Book toL2Book() {
+        final L2Book l2Book = new L2Book(bids, size());
+        for (int i = 0; i < size(); i++) {
+            l2Book.add(pricesInTicks[i], numBaseLots[i]);
+        }
+
+        return l2Book;
+    }
+}
@@ -1,6 +1,6 @@
 package com.mmorrell.phoenix.model;
 
-import com.mmorrell.phoenix.util.PhoenixUtil;
+import com.mmorrell.serum.model.L2Book;
 import kotlin.Pair;
 import lombok.Builder;
 import lombok.Data;
@@ -10,21 +10,18 @@ import org.p2p.solanaj.core.PublicKey;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 @Data
 @Builder
 @Slf4j
 public class PhoenixMarket {
 
-    // B trees start at offset 880
     private static final int START_OFFSET = 832;
+    // Red-black trees (bids, asks, then trader seats) start after the market parameters
+    private static final int TREES_OFFSET = 880;
     private long baseLotsPerBaseUnit;
     private long tickSizeInQuoteLotsPerBaseUnit;
     private long orderSequenceNumber;
@@ -32,44 +29,135 @@ public class PhoenixMarket {
     private long collectedQuoteLotFees;
     private long unclaimedQuoteLotFees;
 
-    private List<Pair<FIFOOrderId, FIFORestingOrder>> bidList;
-    private List<Pair<FIFOOrderId, FIFORestingOrder>> bidListSanitized;
-    private List<PhoenixOrder> bidListNormalized;
+    // Both sides of the book, best order first
+    private PhoenixLadder bidLadder;
+    private PhoenixLadder askLadder;
 
-    private List<Pair<FIFOOrderId, FIFORestingOrder>> askList;
-    private List<Pair<FIFOOrderId, FIFORestingOrder>> askListSanitized;
-    private List<PhoenixOrder> askListNormalized;
+    // Price levels in ticks and base lots, aggregated from the ladders
+    private L2Book bidL2Book;
+    private L2Book askL2Book;
 
-    private List<Pair<PublicKey, PhoenixTraderState>> traders;
-    private List<Pair<PublicKey, PhoenixTraderState>> tradersSanitized;
-    private Map<PublicKey, PhoenixTraderState> tradersNormalized;
+    // Seated traders by trader index and by public key
+    private PhoenixTraderIndex traderIndex;
 
     private PhoenixMarketHeader phoenixMarketHeader;
     private PublicKey marketId;
 
     public Optional<Pair<FIFOOrderId, FIFORestingOrder>> getBestBid() {
-        if (bidListSanitized.isEmpty()) {
-            return Optional.empty();
-        }
-
-        return Optional.of(bidListSanitized.stream()
-                .sorted((o1, o2) -> Math.toIntExact(o2.getFirst().getPriceInTicks() - o1.getFirst().getPriceInTicks()))
-                .toList()
-                .get(0));
+        return bidLadder.getBestOrder();
     }
 
     public Optional<Pair<FIFOOrderId, FIFORestingOrder>> getBestAsk() {
-        if (askListSanitized.isEmpty()) {
-            return Optional.empty();
-        }
+        return askLadder.getBestOrder();
+    }
 
-        return Optional.of(askListSanitized.stream()
-                .sorted((o1, o2) -> Math.toIntExact(o1.getFirst().getPriceInTicks() - o2.getFirst().getPriceInTicks()))
-                .toList()
-                .get(0));
+    /**
+     * @deprecated freed nodes are no longer decoded, use {@link #getBidListSanitized()} or {@link #getBidLadder()}
+     */
+    @Deprecated
+    public List<Pair<FIFOOrderId, FIFORestingOrder>> getBidList() {
+        return getBidListSanitized();
+    }
+
+    /**
+     * Builds the resting bids as pairs, built from {@link #getBidLadder()} on every call.
+     *
+     * @return bids, best first
+     */
+    public List<Pair<FIFOOrderId, FIFORestingOrder>> getBidListSanitized() {
+        return bidLadder.getOrders();
+    }
+
+    /**
+     * Builds the resting bids in UI units, built from {@link #getBidLadder()} on every call.
+     *
+     * @return bids with a known trader, by ascending price
+     */
+    public List<PhoenixOrder> getBidListNormalized() {
+        return normalizeOrders(bidLadder);
+    }
+
+    /**
+     * @deprecated freed nodes are no longer decoded, use {@link #getAskListSanitized()} or {@link #getAskLadder()}
+     */
+    @Deprecated
+    public List<Pair<FIFOOrderId, FIFORestingOrder>> getAskList() {
+        return getAskListSanitized();
+    }
+
+    /**
+     * Builds the resting asks as pairs, built from {@link #getAskLadder()} on every call.
+     *
+     * @return asks, best first
+     */
+    public List<Pair<FIFOOrderId, FIFORestingOrder>> getAskListSanitized() {
+        return askLadder.getOrders();
+    }
+
+    /**
+     * Builds the resting asks in UI units, built from {@link #getAskLadder()} on every call.
+     *
+     * @return asks with a known trader, by ascending price
+     */
+    public List<PhoenixOrder> getAskListNormalized() {
+        return normalizeOrders(askLadder);
+    }
+
+    /**
+     * @deprecated freed seats are no longer decoded, use {@link #getTradersSanitized()} or {@link #getTraderIndex()}
+     */
+    @Deprecated
+    public List<Pair<PublicKey, PhoenixTraderState>> getTraders() {
+        return getTradersSanitized();
+    }
+
+    /**
+     * Builds the seated traders as pairs, built from {@link #getTraderIndex()} on every call.
+     *
+     * @return seated traders, by trader index
+     */
+    public List<Pair<PublicKey, PhoenixTraderState>> getTradersSanitized() {
+        return traderIndex.getTraders();
+    }
+
+    /**
+     * Builds a map of the seated traders' states, built from {@link #getTraderIndex()} on every call. Prefer
+     * {@link PhoenixTraderIndex#getTraderState(PublicKey)} for single lookups.
+     *
+     * @return trader states by public key
+     */
+    public Map<PublicKey, PhoenixTraderState> getTradersNormalized() {
+        return traderIndex.toMap();
     }
 
     public static PhoenixMarket readPhoenixMarket(byte[] data) {
+        return readPhoenixMarket(data, null);
+    }
+
+    /**
+     * Decodes a market account, reusing the trader index of a previous decode of the same market where seats are
+     * unchanged.
+     *
+     * @param data     market account data
+     * @param previous previous decode of the same market, or null
+     * @return decoded market
+     */
+    public static PhoenixMarket readPhoenixMarket(byte[] data, PhoenixMarket previous) {
+        return readPhoenixMarket(data, null, previous);
+    }
+
+    /**
+     * Decodes an update of a market account. Order and trader trees whose bytes are identical to the previous
+     * account data are not decoded again: the previous decode's ladders, L2 books and trader index are shared, so they
+     * must not be modified. A changed trader tree reuses what it can, as in
+     * {@link #readPhoenixMarket(byte[], PhoenixMarket)}.
+     *
+     * @param data         market account data
+     * @param previousData account data {@code previous} was decoded from, or null
+     * @param previous     previous decode of the same market, or null
+     * @return decoded market
+     */
+    public static PhoenixMarket readPhoenixMarket(byte[] data, byte[] previousData, PhoenixMarket previous) {
         PhoenixMarket phoenixMarket = PhoenixMarket.builder()
                 .baseLotsPerBaseUnit(Utils.readInt64(data, START_OFFSET))
                 .tickSizeInQuoteLotsPerBaseUnit(Utils.readInt64(data, START_OFFSET + 8))
@@ -77,303 +165,86 @@ public class PhoenixMarket {
                 .takerFeeBps(Utils.readInt64(data, START_OFFSET + 24))
                 .collectedQuoteLotFees(Utils.readInt64(data, START_OFFSET + 32))
                 .unclaimedQuoteLotFees(Utils.readInt64(data, START_OFFSET + 40))
-                .bidList(new ArrayList<>())
-                .bidListSanitized(new ArrayList<>())
-                .bidListNormalized(new ArrayList<>())
-                .askList(new ArrayList<>())
-                .askListSanitized(new ArrayList<>())
-                .askListNormalized(new ArrayList<>())
-                .traders(new ArrayList<>())
-                .tradersSanitized(new ArrayList<>())
-                .tradersNormalized(new HashMap<>())
                 .phoenixMarketHeader(PhoenixMarketHeader.readPhoenixMarketHeader(data))
                 .build();
 
-        long bidsSize =
-                16 + 16 + (16 + FIFOOrderId.FIFO_ORDER_ID_SIZE + FIFORestingOrder.FIFO_RESTING_ORDER_SIZE) * phoenixMarket.getPhoenixMarketHeader().getBidsSize();
-        byte[] bidBuffer = Arrays.copyOfRange(data, 880, (int) bidsSize);
-
-        long asksSize =
-                16 + 16 + (16 + FIFOOrderId.FIFO_ORDER_ID_SIZE + FIFORestingOrder.FIFO_RESTING_ORDER_SIZE) * phoenixMarket.getPhoenixMarketHeader().getAsksSize();
-        byte[] askBuffer = Arrays.copyOfRange(data, 880 + (int) bidsSize, 880 + (int) bidsSize + (int) asksSize);
+        final PhoenixMarketHeader header = phoenixMarket.getPhoenixMarketHeader();
+        final int bidsOffset = TREES_OFFSET;
+        final int asksOffset = bidsOffset + PhoenixLadder.regionSize(header.getBidsSize());
+        final int tradersOffset = asksOffset + PhoenixLadder.regionSize(header.getAsksSize());
+        // Regions are only comparable if the previous account had the same layout
+        final boolean comparable = previous != null && previousData != null && previousData.length == data.length
+                && Arrays.equals(data, 16, 40, previousData, 16, 40);
+
+        if (comparable && regionEquals(data, previousData, bidsOffset, asksOffset)) {
+            phoenixMarket.setBidLadder(previous.getBidLadder());
+            phoenixMarket.setBidL2Book(previous.getBidL2Book());
+        } else {
+            phoenixMarket.setBidLadder(PhoenixLadder.readPhoenixLadder(data, bidsOffset, header.getBidsSize(), true));
+            phoenixMarket.setBidL2Book(phoenixMarket.getBidLadder().toL2Book());
+        }
 
-        long tradersSize =
-                16 + 16 + (16 + 32 + PhoenixTraderState.PHOENIX_TRADER_STATE_SIZE) * phoenixMarket.getPhoenixMarketHeader().getNumSeats();
-        byte[] traderBuffer = Arrays.copyOfRange(data, 880 + (int) bidsSize + (int) asksSize,
-                880 + (int) bidsSize + (int) asksSize + (int) tradersSize);
+        if (comparable && regionEquals(data, previousData, asksOffset, tradersOffset)) {
+            phoenixMarket.setAskLadder(previous.getAskLadder());
+            phoenixMarket.setAskL2Book(previous.getAskL2Book());
+        } else {
+            phoenixMarket.setAskLadder(PhoenixLadder.readPhoenixLadder(data, asksOffset, header.getAsksSize(), false));
+            phoenixMarket.setAskL2Book(phoenixMarket.getAskLadder().toL2Book());
+        }
 
-        readBidBuffer(bidBuffer, phoenixMarket);
-        readAskBuffer(askBuffer, phoenixMarket);
-        readTraderBuffer(traderBuffer, phoenixMarket);
-        normalizeOrders(phoenixMarket);
-        normalizeTraders(phoenixMarket);
+        final int tradersEnd = tradersOffset + PhoenixTraderIndex.regionSize(header.getNumSeats());
+        if (comparable && regionEquals(data, previousData, tradersOffset, tradersEnd)) {
+            phoenixMarket.setTraderIndex(previous.getTraderIndex());
+        } else {
+            phoenixMarket.setTraderIndex(PhoenixTraderIndex.readPhoenixTraderIndex(data, tradersOffset,
+                    header.getNumSeats(), previous == null ? null : previous.getTraderIndex()));
+        }
 
         return phoenixMarket;
     }
 
-    private static void normalizeTraders(PhoenixMarket market) {
-        Map<PublicKey, PhoenixTraderState> stateMap = market.getTradersNormalized();
-        market.getTradersSanitized().forEach(traderStatePair -> {
-            stateMap.put(traderStatePair.getFirst(), traderStatePair.getSecond());
-        });
+    private static boolean regionEquals(byte[] data, byte[] previousData, int from, int to) {
+        final int end = Math.min(to, data.length);
+        return from <= end && Arrays.equals(data, from, end, previousData, from, end);
     }
 
-    private static void normalizeOrders(PhoenixMarket market) {
-        market.setBidListNormalized(new ArrayList<>());
-        market.getBidListSanitized().forEach(order -> {
-            // Ensure the trader index is valid
-            int traderIndex = (int) (order.getSecond().getTraderIndex() - 1);
-            if (traderIndex >= 0 && traderIndex < market.getTraders().size()) {
-                double price = calculatePrice(order, market);
-                double size = calculateSize(order, market);
+    private List<PhoenixOrder> normalizeOrders(PhoenixLadder ladder) {
+        final List<PhoenixOrder> orders = new ArrayList<>(ladder.size());
+        // Ladders are best first, normalized orders are by ascending price
+        for (int n = 0; n < ladder.size(); n++) {
+            final int i = ladder.isBids() ? ladder.size() - 1 - n : n;
 
-                market.getBidListNormalized().add(
-                        PhoenixOrder.builder()
-                                .price(price)
-                                .size(size)
-                                .trader(market.getTraders().get(traderIndex).getFirst())
-                                .build()
-                );
-            } else {
-                log.error("Invalid trader index for bid order: " + traderIndex);
-            }
-        });
-        market.getBidListNormalized().sort(Comparator.comparingDouble(PhoenixOrder::getPrice));
-
-        market.setAskListNormalized(new ArrayList<>());
-        market.getAskListSanitized().forEach(order -> {
-            // Ensure the trader index is valid
-            int traderIndex = (int) (order.getSecond().getTraderIndex() - 1);
-            if (traderIndex >= 0 && traderIndex < market.getTraders().size()) {
-                double price = calculatePrice(order, market);
-                double size = calculateSize(order, market);
-
-                market.getAskListNormalized().add(
+            final PublicKey trader = traderIndex.getTrader(ladder.getTraderIndex(i));
+            if (trader != null) {
+                orders.add(
                         PhoenixOrder.builder()
-                                .price(price)
-                                .size(size)
-                                .trader(market.getTraders().get(traderIndex).getFirst())
+                                .price(calculatePrice(ladder.getPriceInTicks(i), this))
+                                .size(calculateSize(ladder.getNumBaseLots(i), this))
+                                .trader(trader)
                                 .build()
                 );
             } else {
-                log.error("Invalid trader index for ask order: " + traderIndex);
+                log.error("Invalid trader index for {} order: {}", ladder.isBids() ? "bid" : "ask",
+                        ladder.getTraderIndex(i));
             }
-        });
-        market.getAskListNormalized().sort(Comparator.comparingDouble(PhoenixOrder::getPrice));
+        }
+
+        return orders;
     }
 
-    private static double calculatePrice(Pair<FIFOOrderId, FIFORestingOrder> order, PhoenixMarket market) {
-        return ((double) order.getFirst().getPriceInTicks() *
+    private static double calculatePrice(long priceInTicks, PhoenixMarket market) {
+        return ((double) priceInTicks *
                 market.getTickSizeInQuoteLotsPerBaseUnit() *
                 market.getPhoenixMarketHeader().getQuoteLotSize()) /
                 (Math.pow(10, market.getPhoenixMarketHeader().getQuoteDecimals()) *
                         market.getPhoenixMarketHeader().getRawBaseUnitsPerBaseUnit());
     }
 
-    private static double calculateSize(Pair<FIFOOrderId, FIFORestingOrder> order, PhoenixMarket market) {
-        return ((double) order.getSecond().getNumBaseLots() * market.getPhoenixMarketHeader().getBaseLotSize()) /
+    private static double calculateSize(long numBaseLots, PhoenixMarket market) {
+        return ((double) numBaseLots * market.getPhoenixMarketHeader().getBaseLotSize()) /
                 Math.pow(10, market.getPhoenixMarketHeader().getBaseDecimals());
     }
 
-    private static void readTraderBuffer(byte[] traderBuffer, PhoenixMarket market) {
-        int offset = 0;
-        offset += 16; // skip rbtree header
-        offset += 8;  // Skip node allocator size
-
-        int bumpIndex = PhoenixUtil.readInt32(traderBuffer, offset);
-        offset += 4;
-
-        int freeListHead = PhoenixUtil.readInt32(traderBuffer, offset);
-        offset += 4;
-
-        List<Pair<Integer, Integer>> freeListPointersList = new ArrayList<>();
-
-        for (int index = 0; offset < traderBuffer.length && index < bumpIndex; index++) {
-            List<Integer> registers = new ArrayList<>();
-            for (int i = 0; i < 4; i++) {
-                registers.add(PhoenixUtil.readInt32(traderBuffer, offset));
-                offset += 4;
-            }
-
-            PublicKey traderPubkey = PublicKey.readPubkey(traderBuffer, offset);
-            offset += 32;
-
-            PhoenixTraderState phoenixTraderState = PhoenixTraderState.readPhoenixTraderState(
-                    Arrays.copyOfRange(traderBuffer, offset, offset + PhoenixTraderState.PHOENIX_TRADER_STATE_SIZE)
-            );
-            offset += PhoenixTraderState.PHOENIX_TRADER_STATE_SIZE;
-
-            market.getTraders().add(new Pair<>(traderPubkey, phoenixTraderState));
-            freeListPointersList.add(new Pair<>(index, registers.get(0)));
-        }
-
-        Set<Integer> freeNodes = new HashSet<>();
-        int indexToRemove = freeListHead - 1;
-        int counter = 0;
-
-        while (freeListHead != 0) {
-            // Ensure freeListHead is within bounds
-            if (freeListHead - 1 < freeListPointersList.size()) {
-                Pair<Integer, Integer> next = freeListPointersList.get(freeListHead - 1);
-                indexToRemove = next.component1();
-                freeListHead = next.component2();
-
-                freeNodes.add(indexToRemove);
-                counter += 1;
-
-                if (counter > bumpIndex) {
-                    log.error("Infinite Loop Detected");
-                }
-            } else {
-                log.error("freeListHead out of bounds: " + freeListHead);
-                break; // Exit the loop if out of bounds
-            }
-        }
-
-        List<Pair<PublicKey, PhoenixTraderState>> traderList = market.getTraders();
-        for (int i = 0; i < traderList.size(); i++) {
-            Pair<PublicKey, PhoenixTraderState> entry = traderList.get(i);
-            if (!freeNodes.contains(i)) {
-                // tree.set kv
-                market.tradersSanitized.add(entry);
-            }
-        }
-    }
-
-    private static void readBidBuffer(byte[] bidBuffer, PhoenixMarket market) {
-        int offset = 0;
-        offset += 16; // skip rbtree header
-        offset += 8;  // Skip node allocator size
-
-        int bumpIndex = PhoenixUtil.readInt32(bidBuffer, offset);
-        offset += 4;
-
-        int freeListHead = PhoenixUtil.readInt32(bidBuffer, offset);
-        offset += 4;
-
-        List<Pair<Integer, Integer>> freeListPointersList = new ArrayList<>();
-
-        for (int index = 0; offset < bidBuffer.length && index < bumpIndex; index++) {
-            List<Integer> registers = new ArrayList<>();
-            for (int i = 0; i < 4; i++) {
-                registers.add(PhoenixUtil.readInt32(bidBuffer, offset));
-                offset += 4;
-            }
-
-            FIFOOrderId fifoOrderId = FIFOOrderId.readFifoOrderId(
-                    Arrays.copyOfRange(bidBuffer, offset, offset + 16)
-            );
-            offset += FIFOOrderId.FIFO_ORDER_ID_SIZE;
-
-            FIFORestingOrder fifoRestingOrder = FIFORestingOrder.readFifoRestingOrder(
-                    Arrays.copyOfRange(bidBuffer, offset, offset + 32)
-            );
-            offset += FIFORestingOrder.FIFO_RESTING_ORDER_SIZE;
-
-            market.getBidList().add(new Pair<>(fifoOrderId, fifoRestingOrder));
-            freeListPointersList.add(new Pair<>(index, registers.get(0)));
-        }
-
-        Set<Integer> freeNodes = new HashSet<>();
-        int indexToRemove = freeListHead - 1;
-        int counter = 0;
-
-        while (freeListHead != 0) {
-            // Ensure freeListHead is within bounds
-            if (freeListHead - 1 < freeListPointersList.size()) {
-                Pair<Integer, Integer> next = freeListPointersList.get(freeListHead - 1);
-                indexToRemove = next.component1();
-                freeListHead = next.component2();
-
-                freeNodes.add(indexToRemove);
-                counter += 1;
-
-                if (counter > bumpIndex) {
-                    log.error("Infinite Loop Detected");
-                }
-            } else {
-                log.error("freeListHead out of bounds: " + freeListHead);
-                break; // Exit the loop if out of bounds
-            }
-        }
-
-        List<Pair<FIFOOrderId, FIFORestingOrder>> bidOrdersList = market.getBidList();
-        for (int i = 0; i < bidOrdersList.size(); i++) {
-            Pair<FIFOOrderId, FIFORestingOrder> entry = bidOrdersList.get(i);
-            if (!freeNodes.contains(i)) {
-                // tree.set kv
-                market.bidListSanitized.add(entry);
-            }
-        }
-    }
-
-    private static void readAskBuffer(byte[] bidBuffer, PhoenixMarket market) {
-        int offset = 0;
-        offset += 16; // skip rbtree header
-        offset += 8;  // Skip node allocator size
-
-        int bumpIndex = PhoenixUtil.readInt32(bidBuffer, offset);
-        offset += 4;
-
-        int freeListHead = PhoenixUtil.readInt32(bidBuffer, offset);
-        offset += 4;
-
-        List<Pair<Integer, Integer>> freeListPointersList = new ArrayList<>();
-
-        for (int index = 0; offset < bidBuffer.length && index < bumpIndex; index++) {
-            List<Integer> registers = new ArrayList<>();
-            for (int i = 0; i < 4; i++) {
-                registers.add(PhoenixUtil.readInt32(bidBuffer, offset));
-                offset += 4;
-            }
-
-            FIFOOrderId fifoOrderId = FIFOOrderId.readFifoOrderId(
-                    Arrays.copyOfRange(bidBuffer, offset, offset + 16)
-            );
-            offset += FIFOOrderId.FIFO_ORDER_ID_SIZE;
-
-            FIFORestingOrder fifoRestingOrder = FIFORestingOrder.readFifoRestingOrder(
-                    Arrays.copyOfRange(bidBuffer, offset, offset + 32)
-            );
-            offset += FIFORestingOrder.FIFO_RESTING_ORDER_SIZE;
-
-            market.askList.add(new Pair<>(fifoOrderId, fifoRestingOrder));
-            freeListPointersList.add(new Pair<>(index, registers.get(0)));
-        }
-
-        Set<Integer> freeNodes = new HashSet<>();
-        int indexToRemove = freeListHead - 1;
-        int counter = 0;
-
-        while (freeListHead != 0) {
-            // Ensure freeListHead is within bounds
-            if (freeListHead - 1 < freeListPointersList.size()) {
-                Pair<Integer, Integer> next = freeListPointersList.get(freeListHead - 1);
-                indexToRemove = next.component1();
-                freeListHead = next.component2();
-
-                freeNodes.add(indexToRemove);
-                counter += 1;
-
-                if (counter > bumpIndex) {
-                    log.error("Infinite Loop Detected");
-                }
-            } else {
-                log.error("freeListHead out of bounds: " + freeListHead);
-                break; // Exit the loop if out of bounds
-            }
-        }
-
-        List<Pair<FIFOOrderId, FIFORestingOrder>> askOrdersList = market.getAskList();
-        for (int i = 0; i < askOrdersList.size(); i++) {
-            Pair<FIFOOrderId, FIFORestingOrder> entry = askOrdersList.get(i);
-            if (!freeNodes.contains(i)) {
-                // tree.set kv
-                market.askListSanitized.add(entry);
-            }
-        }
-    }
-
     public long convertPriceToPriceInTicks(double price) {
         // Multiply by denominator
         double result = price * (Math.pow(10, phoenixMarketHeader.getQuoteDecimals()) *
@@ -0,0 +1,48 @@
+package com.mmorrell.phoenix.model;
+
+import kotlin.Pair;
+import lombok.Builder;
+import lombok.Getter;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.util.Optional;
+
+/**
+ * Point-in-time view of a streamed Phoenix market, as published by
+ * {@link com.mmorrell.phoenix.manager.PhoenixMarketStreamManager}. Each pushed account update produces a new
+ * snapshot and a new {@link PhoenixMarket}.
+ * <p>
+ * The market is not copied for readers: it is the mutable {@link PhoenixMarket} the stream manager decoded, and its
+ * unchanged ladders, {@link com.mmorrell.serum.model.L2Book}s and trader index are shared with the markets of
+ * earlier and later snapshots. The stream manager never modifies them once published; readers must not either
+ * (no setters, no {@code add} or {@code clear} on the books), or other snapshots change with them.
+ */
+@Builder(toBuilder = true)
+@Getter
+public class PhoenixMarketSnapshot {
+
+    private final PublicKey marketId;
+    // Null until the first update or seed
+    private final PhoenixMarket market;
+
+    // Incremented on every published update, for cheap change detection
+    private final long version;
+    private final long updatedAtMillis;
+
+    public Optional<Pair<FIFOOrderId, FIFORestingOrder>> getBestBid() {
+        return market == null ? Optional.empty() : market.getBestBid();
+    }
+
+    public Optional<Pair<FIFOOrderId, FIFORestingOrder>> getBestAsk() {
+        return market == null ? Optional.empty() : market.getBestAsk();
+    }
+
+    @Override
+    public String toString() {
+        return "PhoenixMarketSnapshot{" +
+                "marketId=" + marketId +
+                ", version=" + version +
+                ", updatedAtMillis=" + updatedAtMillis +
+                '}';
+    }
+}
@@ -0,0 +1,332 @@
+package com.mmorrell.phoenix.model;
+
+import kotlin.Pair;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Seated traders of a Phoenix market, indexed both ways: by trader index (the 1-based address of the trader's node in
+ * the market's trader tree, which is what resting orders refer to) and by trader public key.
+ * <p>
+ * Trader states are kept in primitive arrays by trader index, and the public key lookup is an open-addressing table
+ * of trader indexes over the raw key bytes, so neither direction boxes or allocates. When a market is reloaded with
+ * {@link #readPhoenixTraderIndex(byte[], int, long, PhoenixTraderIndex)}, seats whose trader did not change keep their
+ * {@link PublicKey}, and if no seat changed the previous keys and lookup table are shared outright; only the states are
+ * read again.
+ * <p>
+ * tree layout: [root u32][12 bytes][allocator size u64][bumpIndex u32][freeListHead u32]
+ * [nodes: (left u32, right u32, parent u32, color u32, trader 32 bytes, quoteLotsLocked u64, quoteLotsFree u64,
+ * baseLotsLocked u64, baseLotsFree u64, 64 bytes) x allocator size]
+ * <p>
+ * An index is immutable once read, and can be shared between threads.
+ */
+public class PhoenixTraderIndex {
+
+    public static final int HEADER_SIZE = 32;
+    public static final int NODE_SIZE = 16 + PublicKey.PUBLIC_KEY_LENGTH + PhoenixTraderState.PHOENIX_TRADER_STATE_SIZE;
+
+    private static final int BUMP_INDEX_OFFSET = 24;
+    private static final int FREE_LIST_HEAD_OFFSET = 28;
+
+    // Node-relative offsets
+    private static final int LEFT_OFFSET = 0;
+    private static final int TRADER_OFFSET = 16;
+    private static final int QUOTE_LOTS_LOCKED_OFFSET = 48;
+    private static final int QUOTE_LOTS_FREE_OFFSET = 56;
+    private static final int BASE_LOTS_LOCKED_OFFSET = 64;
+    private static final int BASE_LOTS_FREE_OFFSET = 72;
+
+    private static final PhoenixTraderIndex EMPTY = new PhoenixTraderIndex(0, 0, new byte[0], new PublicKey[0],
+            new int[1], new long[0], new long[0], new long[0], new long[0]);
+
+    private final int allocated;
+    private final int size;
+    // Trader key bytes and keys by trader index - 1, null keys for freed seats
+    private final byte[] keys;
+    private final PublicKey[] traders;
+    // Trader indexes by key hash, 0 for an empty slot
+    private final int[] table;
+    private final long[] quoteLotsLocked;
+    private final long[] quoteLotsFree;
+    private final long[] baseLotsLocked;
+    private final long[] baseLotsFree;
+
+    private PhoenixTraderIndex(int allocated, int size, byte[] keys, PublicKey[] traders, int[] table,
+                               long[] quoteLotsLocked, long[] quoteLotsFree, long[] baseLotsLocked,
+                               long[] baseLotsFree) {
+        this.allocated = allocated;
+        this.size = size;
+        this.keys = keys;
+        this.traders = traders;
+        this.table = table;
+        this.quoteLotsLocked = quoteLotsLocked;
+        this.quoteLotsFree = quoteLotsFree;
+        this.baseLotsLocked = baseLotsLocked;
+        this.baseLotsFree = baseLotsFree;
+    }
+
+    /**
+     * Size in bytes of the trader tree region holding the given number of seats.
+     *
+     * @param capacity number of seats, from the market header
+     * @return region size
+     */
+    public static int regionSize(long capacity) {
+        return Math.toIntExact(HEADER_SIZE + (NODE_SIZE * capacity));
+    }
+
+    /**
+     * Reads the trader tree of a market account.
+     *
+     * @param data     market account data
+     * @param offset   start of the trader tree region
+     * @param capacity number of seats in the region, from the market header
+     * @return index over the seated traders
+     */
+    public static PhoenixTraderIndex readPhoenixTraderIndex(byte[] data, int offset, long capacity) {
+        return readPhoenixTraderIndex(data, offset, capacity, null);
+    }
+
+    /**
+     * Reads the trader tree of a market account, reusing what is unchanged from the index of a previous read of the
+     * same market.
+     *
+     * @param data     market account data
+     * @param offset   start of the trader tree region
+     * @param capacity number of seats in the region, from the market header
+     * @param previous index from a previous read of the same market, or null
+     * @return index over the seated traders
+     */
+    public static PhoenixTraderIndex readPhoenixTraderIndex(byte[] data, int offset, long capacity,
+                                                            PhoenixTraderIndex previous) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        final int nodesOffset = offset + HEADER_SIZE;
+        final int addressableNodes = (int) Math.min(capacity, Math.max(0, (data.length - nodesOffset) / NODE_SIZE));
+
+        // bumpIndex is the next never-used address, so 1 .. bumpIndex - 1 have been allocated
+        final int allocated = Math.max(0, Math.min(buffer.getInt(offset + BUMP_INDEX_OFFSET) - 1, addressableNodes));
+        if (allocated == 0) {
+            return EMPTY;
+        }
+
+        final boolean[] free = new boolean[allocated];
+        int node = buffer.getInt(offset + FREE_LIST_HEAD_OFFSET);
+        int freeNodes = 0;
+        // a free node's left register links to the next free node; the bound guards against cycles
+        while (node > 0 && node <= allocated && freeNodes < allocated) {
+            free[node - 1] = true;
+            freeNodes++;
+            node = buffer.getInt(nodeOffset(nodesOffset, node) + LEFT_OFFSET);
+        }
+
+        final long[] quoteLotsLocked = new long[allocated];
+        final long[] quoteLotsFree = new long[allocated];
+        final long[] baseLotsLocked = new long[allocated];
+        final long[] baseLotsFree = new long[allocated];
+        for (int i = 0; i < allocated; i++) {
+            if (!free[i]) {
+                final int nodeOffset = nodesOffset + (i * NODE_SIZE);
+                quoteLotsLocked[i] = buffer.getLong(nodeOffset + QUOTE_LOTS_LOCKED_OFFSET);
+                quoteLotsFree[i] = buffer.getLong(nodeOffset + QUOTE_LOTS_FREE_OFFSET);
+                baseLotsLocked[i] = buffer.getLong(nodeOffset + BASE_LOTS_LOCKED_OFFSET);
+                baseLotsFree[i] = buffer.getLong(nodeOffset + BASE_LOTS_FREE_OFFSET);
+            }
+        }
+
+        if (previous != null && previous.hasSameSeats(data, nodesOffset, allocated, free)) {
+            return new PhoenixTraderIndex(allocated, previous.size, previous.keys, previous.traders, previous.table,
+                    quoteLotsLocked, quoteLotsFree, baseLotsLocked, baseLotsFree);
+        }
+
+        final int size = allocated - freeNodes;
+        final byte[] keys = new byte[allocated * PublicKey.PUBLIC_KEY_LENGTH];
+        final PublicKey[] traders = new PublicKey[allocated];
+        final int[] table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, size)) << 2)];
+        for (int i = 0; i < allocated; i++) {
+            if (free[i]) {
+                continue;
+            }
+
+            final int keyOffset = i * PublicKey.PUBLIC_KEY_LENGTH;
+            System.arraycopy(data, nodesOffset + (i * NODE_SIZE) + TRADER_OFFSET, keys, keyOffset,
+                    PublicKey.PUBLIC_KEY_LENGTH);
+
+            if (previous != null && previous.isSameTrader(i, keys, keyOffset)) {
+                traders[i] = previous.traders[i];
+            } else {
+                traders[i] = new PublicKey(
+                        Arrays.copyOfRange(keys, keyOffset, keyOffset + PublicKey.PUBLIC_KEY_LENGTH));
+            }
+
+            int slot = hash(keys, keyOffset) & (table.length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = i + 1;
+        }
+
+        return new PhoenixTraderIndex(allocated, size, keys, traders, table, quoteLotsLocked, quoteLotsFree,
+                baseLotsLocked, baseLotsFree);
+    }
+
+    private boolean hasSameSeats(byte[] data, int nodesOffset, int allocated, boolean[] free) {
+        if (allocated != this.allocated) {
+            return false;
+        }
+
+        for (int i = 0; i < allocated; i++) {
+            if (free[i] != (traders[i] == null)) {
+                return false;
+            }
+
+            final int keyOffset = i * PublicKey.PUBLIC_KEY_LENGTH;
+            final int traderOffset = nodesOffset + (i * NODE_SIZE) + TRADER_OFFSET;
+            if (!free[i] && !Arrays.equals(data, traderOffset, traderOffset + PublicKey.PUBLIC_KEY_LENGTH, keys,
+                    keyOffset, keyOffset + PublicKey.PUBLIC_KEY_LENGTH)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isSameTrader(int i, byte[] otherKeys, int otherKeyOffset) {
+        if (i >= allocated || traders[i] == null) {
+            return false;
+        }
+
+        final int keyOffset = i * PublicKey.PUBLIC_KEY_LENGTH;
+        return Arrays.equals(keys, keyOffset, keyOffset + PublicKey.PUBLIC_KEY_LENGTH, otherKeys, otherKeyOffset,
+                otherKeyOffset + PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    private static int hash(byte[] key, int offset) {
+        int hash = 1;
+        for (int i = offset; i < offset + PublicKey.PUBLIC_KEY_LENGTH; i++) {
+            hash = (31 * hash) + key[i];
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int nodeOffset(int nodesOffset, int node) {
+        return nodesOffset + ((node - 1) * NODE_SIZE);
+    }
+
+    /**
+     * @return number of seated traders
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param traderIndex trader index, as referenced by resting orders
+     * @return true if a trader holds the seat
+     */
+    public boolean isSeated(long traderIndex) {
+        return traderIndex > 0 && traderIndex <= allocated && traders[(int) traderIndex - 1] != null;
+    }
+
+    /**
+     * Looks up a trader's index without allocating.
+     *
+     * @param trader trader public key
+     * @return trader index, or 0 if the trader has no seat
+     */
+    public int getTraderIndex(PublicKey trader) {
+        final byte[] key = trader.toByteArray();
+        int slot = hash(key, 0) & (table.length - 1);
+        int traderIndex;
+        while ((traderIndex = table[slot]) != 0) {
+            final int keyOffset = (traderIndex - 1) * PublicKey.PUBLIC_KEY_LENGTH;
+            if (Arrays.equals(keys, keyOffset, keyOffset + PublicKey.PUBLIC_KEY_LENGTH, key, 0,
+                    PublicKey.PUBLIC_KEY_LENGTH)) {
+                return traderIndex;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param traderIndex trader index, as referenced by resting orders
+     * @return trader holding the seat, or null if there is none
+     */
+    public PublicKey getTrader(long traderIndex) {
+        return isSeated(traderIndex) ? traders[(int) traderIndex - 1] : null;
+    }
+
+    public long getQuoteLotsLocked(int traderIndex) {
+        return quoteLotsLocked[traderIndex - 1];
+    }
+
+    public long getQuoteLotsFree(int traderIndex) {
+        return quoteLotsFree[traderIndex - 1];
+    }
+
+    public long getBaseLotsLocked(int traderIndex) {
+        return baseLotsLocked[traderIndex - 1];
+    }
+
+    public long getBaseLotsFree(int traderIndex) {
+        return baseLotsFree[traderIndex - 1];
+    }
+
+    /**
+     * Builds the state of a seated trader.
+     *
+     * @param trader trader public key
+     * @return the trader's state, or empty if the trader has no seat
+     */
+    public Optional<PhoenixTraderState> getTraderState(PublicKey trader) {
+        final int traderIndex = getTraderIndex(trader);
+        return traderIndex == 0 ? Optional.empty() : Optional.of(getTraderState(traderIndex));
+    }
+
+    private PhoenixTraderState getTraderState(int traderIndex) {
+        return PhoenixTraderState.builder()
+                .quoteLotsLocked(getQuoteLotsLocked(traderIndex))
+                .quoteLotsFree(getQuoteLotsFree(traderIndex))
+                .baseLotsLocked(getBaseLotsLocked(traderIndex))
+                .baseLotsFree(getBaseLotsFree(traderIndex))
+                .build();
+    }
+
+    /**
+     * @return seated traders and their states, by trader index
+     */
+    public List<Pair<PublicKey, PhoenixTraderState>> getTraders() {
+        final List<Pair<PublicKey, PhoenixTraderState>> seated = new ArrayList<>(size);
+        for (int i = 0; i < allocated; i++) {
+            if (traders[i] != null) {
+                seated.add(new Pair<>(traders[i], getTraderState(i + 1)));
+            }
+        }
+
+        return seated;
+    }
+
+    /**
+     * @return states of the seated traders by public key
+     */
+    public Map<PublicKey, PhoenixTraderState> toMap() {
+        final Map<PublicKey, PhoenixTraderState> states = new HashMap<>(Math.max(16, size * 2));
+        for (int i = 0; i < allocated; i++) {
+            if (traders[i] != null) {
+                states.put(traders[i], getTraderState(i + 1));
+            }
+        }
+
+        return states;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mmorrell.phoenix.program;
 
+import com.mmorrell.phoenix.model.CondensedPhoenixOrder;
 import com.mmorrell.phoenix.model.ImmediateOrCancelOrderPacketRecord;
 import com.mmorrell.phoenix.model.LimitOrderPacketRecord;
 import com.mmorrell.phoenix.model.MultipleOrderPacketRecord;
@@ -29,19 +30,7 @@ public class PhoenixProgram extends Program {
                                                          PublicKey quoteVault, LimitOrderPacketRecord limitOrderPacketRecord) {
         List<AccountMeta> accountMetas = new ArrayList<>();
 
-        PublicKey seatPda = null;
-        try {
-            seatPda = PublicKey.findProgramAddress(
-                    List.of(
-                            "seat".getBytes(),
-                            market.toByteArray(),
-                            trader.toByteArray()
-                    ),
-                    PHOENIX_PROGRAM_ID
-            ).getAddress();
-        } catch (Exception e) {
-            log.error("Error claiming seat: {}", e.getMessage(), e);
-        }
+        PublicKey seatPda = findSeatAddress(market, trader);
 
         accountMetas.add(new AccountMeta(PHOENIX_PROGRAM_ID, false, false));
         accountMetas.add(new AccountMeta(PhoenixSeatManagerProgram.PHOENIX_LOG_AUTHORITY_ID, false, false));
@@ -171,19 +160,7 @@ public class PhoenixProgram extends Program {
                                                                      MultipleOrderPacketRecord multipleOrderPacketRecord) {
         List<AccountMeta> accountMetas = new ArrayList<>();
 
-        PublicKey seatPda = null;
-        try {
-            seatPda = PublicKey.findProgramAddress(
-                    List.of(
-                            "seat".getBytes(),
-                            market.toByteArray(),
-                            trader.toByteArray()
-                    ),
-                    PHOENIX_PROGRAM_ID
-            ).getAddress();
-        } catch (Exception e) {
-            log.error("Error claiming seat: {}", e.getMessage(), e);
-        }
+        PublicKey seatPda = findSeatAddress(market, trader);
 
         accountMetas.add(new AccountMeta(PHOENIX_PROGRAM_ID, false, false));
         accountMetas.add(new AccountMeta(PhoenixSeatManagerProgram.PHOENIX_LOG_AUTHORITY_ID, false, false));
@@ -206,14 +183,77 @@ public class PhoenixProgram extends Program {
     }
 
     private static byte[] encodePlaceMultiplePostOnlyOrdersInstruction(MultipleOrderPacketRecord multipleOrderPacketRecord) {
-        int bufferSize = multipleOrderPacketRecord.getBufferSize() + 1;
+        return encodePlaceMultiplePostOnlyOrders(multipleOrderPacketRecord.getBids(),
+                multipleOrderPacketRecord.getAsks());
+    }
 
-        ByteBuffer result = ByteBuffer.allocate(bufferSize);
+    /**
+     * Encodes place multiple post-only orders instruction data straight into one exactly sized array, without the
+     * intermediate per-order buffers of {@link MultipleOrderPacketRecord#toBytes()}.
+     * <p>
+     * layout: [16 u8][bids u32][bids: (priceInTicks u64, sizeInBaseLots u64, 2 bytes) x n][asks u32]
+     * [asks: (priceInTicks u64, sizeInBaseLots u64, 2 bytes) x n][clientOrderId None u8][2 u8]
+     *
+     * @param bids bids to place
+     * @param asks asks to place
+     * @return instruction data
+     */
+    public static byte[] encodePlaceMultiplePostOnlyOrders(List<CondensedPhoenixOrder> bids,
+                                                           List<CondensedPhoenixOrder> asks) {
+        final ByteBuffer result = ByteBuffer.allocate(placeMultiplePostOnlyOrdersDataSize(bids.size(), asks.size()));
         result.order(ByteOrder.LITTLE_ENDIAN);
 
-        result.put(0, (byte) 16);
-        result.put(1, multipleOrderPacketRecord.toBytes());
+        result.put((byte) 16);
+        result.putInt(bids.size());
+        for (CondensedPhoenixOrder bid : bids) {
+            result.putLong(bid.getPriceInTicks());
+            result.putLong(bid.getSizeInBaseLots());
+            result.position(result.position() + 2);
+        }
+
+        result.putInt(asks.size());
+        for (CondensedPhoenixOrder ask : asks) {
+            result.putLong(ask.getPriceInTicks());
+            result.putLong(ask.getSizeInBaseLots());
+            result.position(result.position() + 2);
+        }
+
+        result.put((byte) 0);
+        result.put((byte) 2);
 
         return result.array();
     }
+
+    /**
+     * @param numBids number of bids
+     * @param numAsks number of asks
+     * @return size of place multiple post-only orders instruction data, including the instruction tag
+     */
+    public static int placeMultiplePostOnlyOrdersDataSize(int numBids, int numAsks) {
+        return 1 + ((numBids + numAsks) * 18) + 1 + 1 + 8;
+    }
+
+    /**
+     * Derives a trader's seat address on a market, which is what placing orders costs a findProgramAddress for. Callers
+     * placing orders repeatedly should derive it once.
+     *
+     * @param market market id
+     * @param trader trader's public key
+     * @return seat PDA, or null if it cannot be derived
+     */
+    public static PublicKey findSeatAddress(PublicKey market, PublicKey trader) {
+        try {
+            return PublicKey.findProgramAddress(
+                    List.of(
+                            "seat".getBytes(),
+                            market.toByteArray(),
+                            trader.toByteArray()
+                    ),
+                    PHOENIX_PROGRAM_ID
+            ).getAddress();
+        } catch (Exception e) {
+            log.error("Error claiming seat: {}", e.getMessage(), e);
+            return null;
+        }
+    }
 }
\ No newline at end of file
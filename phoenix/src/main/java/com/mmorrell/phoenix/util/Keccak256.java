@@ -0,0 +1,264 @@
+package com.mmorrell.phoenix.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Keccak-256 (the original Keccak padding, as used by Solana and Ethereum, not SHA3-256), specialized for the one
+ * digest size Phoenix needs.
+ * <p>
+ * Unlike {@link Keccak}, the Keccak-f[1600] permutation is fully unrolled with the 25 lanes held in locals, input is
+ * absorbed a 64-bit word at a time straight from the caller's array, and {@link #digestInto(byte[], int, int)} writes
+ * the digest into the caller's array, so hashing allocates nothing. An instance is reusable (it resets itself after
+ * each digest) but not thread-safe; use {@link #threadLocal()} for a per-thread instance.
+ */
+public final class Keccak256 {
+
+    public static final int DIGEST_SIZE = 32;
+
+    // 1600 bit state minus twice the digest size
+    private static final int RATE = 136;
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final ThreadLocal<Keccak256> THREAD_LOCAL = ThreadLocal.withInitial(Keccak256::new);
+
+    private static final long[] RC = {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808AL, 0x8000000080008000L,
+            0x000000000000808BL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008AL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000AL,
+            0x000000008000808BL, 0x800000000000008BL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800AL, 0x800000008000000AL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+    };
+
+    private final long[] state = new long[25];
+    // Bytes absorbed into the current block
+    private int position;
+
+    /**
+     * Returns this thread's instance, reset.
+     *
+     * @return reset instance owned by the calling thread
+     */
+    public static Keccak256 threadLocal() {
+        return THREAD_LOCAL.get().reset();
+    }
+
+    /**
+     * Hashes the concatenation of the given inputs.
+     *
+     * @param inputs inputs to hash, in order
+     * @return 32 byte digest
+     */
+    public static byte[] digest(byte[]... inputs) {
+        final Keccak256 keccak = threadLocal();
+        for (byte[] input : inputs) {
+            keccak.update(input);
+        }
+
+        final byte[] digest = new byte[DIGEST_SIZE];
+        keccak.digestInto(digest);
+        return digest;
+    }
+
+    public Keccak256 reset() {
+        for (int i = 0; i < state.length; i++) {
+            state[i] = 0;
+        }
+        position = 0;
+        return this;
+    }
+
+    public Keccak256 update(byte[] input) {
+        return update(input, 0, input.length);
+    }
+
+    public Keccak256 update(byte[] input, int offset, int length) {
+        final int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if ((position & 7) == 0 && end - i >= 8) {
+                // whole words, up to the end of the block
+                final int words = Math.min((end - i) >>> 3, (RATE - position) >>> 3);
+                for (int w = 0; w < words; w++) {
+                    state[(position >>> 3) + w] ^= (long) LONG_LE.get(input, i + (w << 3));
+                }
+                i += words << 3;
+                position += words << 3;
+            } else {
+                state[position >>> 3] ^= (input[i++] & 0xffL) << ((position & 7) << 3);
+                position++;
+            }
+
+            if (position == RATE) {
+                permute(state);
+                position = 0;
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Finishes the hash, writes the 32 byte digest and resets this instance.
+     *
+     * @param out array to write the digest to, from index 0
+     */
+    public void digestInto(byte[] out) {
+        digestInto(out, 0, DIGEST_SIZE);
+    }
+
+    /**
+     * Finishes the hash, writes the first {@code length} bytes of the digest (e.g. 8 for a discriminator) and resets
+     * this instance.
+     *
+     * @param out    array to write the digest to
+     * @param offset index in {@code out} to start at
+     * @param length number of digest bytes to write, at most {@link #DIGEST_SIZE}
+     */
+    public void digestInto(byte[] out, int offset, int length) {
+        if (length < 0 || length > DIGEST_SIZE) {
+            throw new IllegalArgumentException("Invalid digest length: " + length);
+        }
+
+        state[position >>> 3] ^= 0x01L << ((position & 7) << 3);
+        state[(RATE - 1) >>> 3] ^= 0x80L << (((RATE - 1) & 7) << 3);
+        permute(state);
+
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            LONG_LE.set(out, offset + i, state[i >>> 3]);
+        }
+        for (; i < length; i++) {
+            out[offset + i] = (byte) (state[i >>> 3] >>> ((i & 7) << 3));
+        }
+
+        reset();
+    }
+
+    private static void permute(long[] state) {
+        long a00 = state[0];
+        long a01 = state[1];
+        long a02 = state[2];
+        long a03 = state[3];
+        long a04 = state[4];
+        long a05 = state[5];
+        long a06 = state[6];
+        long a07 = state[7];
+        long a08 = state[8];
+        long a09 = state[9];
+        long a10 = state[10];
+        long a11 = state[11];
+        long a12 = state[12];
+        long a13 = state[13];
+        long a14 = state[14];
+        long a15 = state[15];
+        long a16 = state[16];
+        long a17 = state[17];
+        long a18 = state[18];
+        long a19 = state[19];
+        long a20 = state[20];
+        long a21 = state[21];
+        long a22 = state[22];
+        long a23 = state[23];
+        long a24 = state[24];
+
+        for (int round = 0; round < 24; round++) {
+            // theta
+            final long c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+            final long c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+            final long c2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+            final long c3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+            final long c4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+            final long d0 = c4 ^ Long.rotateLeft(c1, 1);
+            final long d1 = c0 ^ Long.rotateLeft(c2, 1);
+            final long d2 = c1 ^ Long.rotateLeft(c3, 1);
+            final long d3 = c2 ^ Long.rotateLeft(c4, 1);
+            final long d4 = c3 ^ Long.rotateLeft(c0, 1);
+
+            // rho and pi
+            final long b00 = a00 ^ d0;
+            final long b01 = Long.rotateLeft(a06 ^ d1, 44);
+            final long b02 = Long.rotateLeft(a12 ^ d2, 43);
+            final long b03 = Long.rotateLeft(a18 ^ d3, 21);
+            final long b04 = Long.rotateLeft(a24 ^ d4, 14);
+            final long b05 = Long.rotateLeft(a03 ^ d3, 28);
+            final long b06 = Long.rotateLeft(a09 ^ d4, 20);
+            final long b07 = Long.rotateLeft(a10 ^ d0, 3);
+            final long b08 = Long.rotateLeft(a16 ^ d1, 45);
+            final long b09 = Long.rotateLeft(a22 ^ d2, 61);
+            final long b10 = Long.rotateLeft(a01 ^ d1, 1);
+            final long b11 = Long.rotateLeft(a07 ^ d2, 6);
+            final long b12 = Long.rotateLeft(a13 ^ d3, 25);
+            final long b13 = Long.rotateLeft(a19 ^ d4, 8);
+            final long b14 = Long.rotateLeft(a20 ^ d0, 18);
+            final long b15 = Long.rotateLeft(a04 ^ d4, 27);
+            final long b16 = Long.rotateLeft(a05 ^ d0, 36);
+            final long b17 = Long.rotateLeft(a11 ^ d1, 10);
+            final long b18 = Long.rotateLeft(a17 ^ d2, 15);
+            final long b19 = Long.rotateLeft(a23 ^ d3, 56);
+            final long b20 = Long.rotateLeft(a02 ^ d2, 62);
+            final long b21 = Long.rotateLeft(a08 ^ d3, 55);
+            final long b22 = Long.rotateLeft(a14 ^ d4, 39);
+            final long b23 = Long.rotateLeft(a15 ^ d0, 41);
+            final long b24 = Long.rotateLeft(a21 ^ d1, 2);
+
+            // chi
+            a00 = b00 ^ (~b01 & b02);
+            a01 = b01 ^ (~b02 & b03);
+            a02 = b02 ^ (~b03 & b04);
+            a03 = b03 ^ (~b04 & b00);
+            a04 = b04 ^ (~b00 & b01);
+            a05 = b05 ^ (~b06 & b07);
+            a06 = b06 ^ (~b07 & b08);
+            a07 = b07 ^ (~b08 & b09);
+            a08 = b08 ^ (~b09 & b05);
+            a09 = b09 ^ (~b05 & b06);
+            a10 = b10 ^ (~b11 & b12);
+            a11 = b11 ^ (~b12 & b13);
+            a12 = b12 ^ (~b13 & b14);
+            a13 = b13 ^ (~b14 & b10);
+            a14 = b14 ^ (~b10 & b11);
+            a15 = b15 ^ (~b16 & b17);
+            a16 = b16 ^ (~b17 & b18);
+            a17 = b17 ^ (~b18 & b19);
+            a18 = b18 ^ (~b19 & b15);
+            a19 = b19 ^ (~b15 & b16);
+            a20 = b20 ^ (~b21 & b22);
+            a21 = b21 ^ (~b22 & b23);
+            a22 = b22 ^ (~b23 & b24);
+            a23 = b23 ^ (~b24 & b20);
+            a24 = b24 ^ (~b20 & b21);
+
+            // iota
+            a00 ^= RC[round];
+        }
+
+        state[0] = a00;
+        state[1] = a01;
+        state[2] = a02;
+        state[3] = a03;
+        state[4] = a04;
+        state[5] = a05;
+        state[6] = a06;
+        state[7] = a07;
+        state[8] = a08;
+        state[9] = a09;
+        state[10] = a10;
+        state[11] = a11;
+        state[12] = a12;
+        state[13] = a13;
+        state[14] = a14;
+        state[15] = a15;
+        state[16] = a16;
+        state[17] = a17;
+        state[18] = a18;
+        state[19] = a19;
+        state[20] = a20;
+        state[21] = a21;
+        state[22] = a22;
+        state[23] = a23;
+        state[24] = a24;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mmorrell.phoenix.util;
+
+import com.mmorrell.phoenix.program.PhoenixProgram;
+import org.bitcoinj.core.Base58;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of Phoenix account discriminators: the first 8 bytes of keccak256(program id || type name), which Phoenix
+ * writes at the start of its accounts and which getProgramAccounts filters match on.
+ * <p>
+ * The known account types are hashed once, when the class loads, and other names are hashed on first use and cached,
+ * so looking a discriminator up never hashes twice. Phoenix instructions are tagged with a single u8 rather than a
+ * discriminator, so there are none to register for them.
+ */
+public final class PhoenixDiscriminators {
+
+    public static final int DISCRIMINATOR_SIZE = 8;
+
+    public static final String MARKET_HEADER = "phoenix::program::accounts::MarketHeader";
+    public static final String SEAT = "phoenix::program::accounts::Seat";
+
+    private static final Map<String, Discriminator> REGISTRY = new ConcurrentHashMap<>();
+
+    static {
+        for (String name : new String[]{MARKET_HEADER, SEAT}) {
+            REGISTRY.put(name, Discriminator.compute(PhoenixProgram.PHOENIX_PROGRAM_ID, name));
+        }
+    }
+
+    private PhoenixDiscriminators() {
+    }
+
+    /**
+     * @param name fully qualified type name, e.g. {@link #MARKET_HEADER}
+     * @return 8 byte discriminator (a copy)
+     */
+    public static byte[] get(String name) {
+        return lookup(name).bytes.clone();
+    }
+
+    /**
+     * @param name fully qualified type name, e.g. {@link #MARKET_HEADER}
+     * @return discriminator as base58, for getProgramAccounts memcmp filters
+     */
+    public static String getBase58(String name) {
+        return lookup(name).base58;
+    }
+
+    /**
+     * @param name fully qualified type name, e.g. {@link #MARKET_HEADER}
+     * @return discriminator as a little-endian u64, to compare against the first 8 bytes of an account
+     */
+    public static long getLong(String name) {
+        return lookup(name).value;
+    }
+
+    /**
+     * Computes the discriminator of a type owned by another program, e.g. the seat manager. Not cached.
+     *
+     * @param programId program the type belongs to
+     * @param name      fully qualified type name
+     * @return 8 byte discriminator
+     */
+    public static byte[] compute(PublicKey programId, String name) {
+        return Discriminator.compute(programId, name).bytes;
+    }
+
+    private static Discriminator lookup(String name) {
+        return REGISTRY.computeIfAbsent(name,
+                unknown -> Discriminator.compute(PhoenixProgram.PHOENIX_PROGRAM_ID, unknown));
+    }
+
+    private static final class Discriminator {
+
+        private final byte[] bytes;
+        private final String base58;
+        private final long value;
+
+        private Discriminator(byte[] bytes) {
+            this.bytes = bytes;
+            this.base58 = Base58.encode(bytes);
+            long value = 0;
+            for (int i = DISCRIMINATOR_SIZE - 1; i >= 0; i--) {
+                value = (value << 8) | (bytes[i] & 0xffL);
+            }
+            this.value = value;
+        }
+
+        private static Discriminator compute(PublicKey programId, String name) {
+            final byte[] bytes = new byte[DISCRIMINATOR_SIZE];
+            Keccak256.threadLocal()
+                    .update(programId.toByteArray())
+                    .update(name.getBytes(StandardCharsets.UTF_8))
+                    .digestInto(bytes, 0, DISCRIMINATOR_SIZE);
+            return new Discriminator(bytes);
+        }
+    }
+}
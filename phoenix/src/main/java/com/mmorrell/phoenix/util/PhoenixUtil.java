@@ -1,8 +1,5 @@
 package com.mmorrell.phoenix.util;
 
-import com.mmorrell.phoenix.program.PhoenixProgram;
-import org.bitcoinj.core.Base58;
-
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
@@ -30,15 +27,11 @@ public class PhoenixUtil {
         return bb.getInt(0);
     }
 
+    /**
+     * @param input fully qualified Phoenix account type name
+     * @return the type's discriminator as base58, from {@link PhoenixDiscriminators}
+     */
     public static String getDiscriminator(String input) {
-        Keccak keccak = new Keccak(256);
-        keccak.update(PhoenixProgram.PHOENIX_PROGRAM_ID.toByteArray());
-        keccak.update(input.getBytes());
-
-        ByteBuffer keccakBuffer = keccak.digest();
-        keccakBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        byte[] keccakBytes = keccakBuffer.array();
-
-        return Base58.encode(Arrays.copyOfRange(keccakBytes, 0, 8));
+        return PhoenixDiscriminators.getBase58(input);
     }
 }
\ No newline at end of file
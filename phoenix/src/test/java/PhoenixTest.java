@@ -2,18 +2,38 @@ import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import com.mmorrell.metaplex.manager.MetaplexManager;
 import com.mmorrell.phoenix.manager.PhoenixManager;
+import com.mmorrell.phoenix.manager.PhoenixMarketStreamManager;
+import com.mmorrell.phoenix.manager.PhoenixOrderPipeline;
 import com.mmorrell.phoenix.model.CondensedPhoenixOrder;
 import com.mmorrell.phoenix.model.ImmediateOrCancelOrderPacketRecord;
 import com.mmorrell.phoenix.model.LimitOrderPacketRecord;
 import com.mmorrell.phoenix.model.MultipleOrderPacketRecord;
 import com.mmorrell.phoenix.model.PhoenixMarket;
+import com.mmorrell.phoenix.model.PhoenixLadder;
 import com.mmorrell.phoenix.model.PhoenixMarketHeader;
+import com.mmorrell.phoenix.model.PhoenixMarketSnapshot;
+import com.mmorrell.phoenix.model.PhoenixOrder;
+import com.mmorrell.phoenix.model.PhoenixTraderIndex;
+import com.mmorrell.phoenix.model.PhoenixTraderState;
 import com.mmorrell.phoenix.program.PhoenixProgram;
 import com.mmorrell.phoenix.program.PhoenixSeatManagerProgram;
 import com.mmorrell.phoenix.util.Keccak;
+import com.mmorrell.phoenix.util.Keccak256;
+import com.mmorrell.phoenix.util.PhoenixDiscriminators;
+import com.mmorrell.phoenix.util.PhoenixUtil;
+import com.mmorrell.serum.util.RpcExecutor;
+import com.squareup.moshi.Moshi;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.Buffer;
 import org.bitcoinj.core.Base58;
 import org.bitcoinj.core.Utils;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
 import org.junit.jupiter.api.*;
 import org.p2p.solanaj.core.Account;
 import org.p2p.solanaj.core.PublicKey;
@@ -29,17 +49,40 @@ import org.p2p.solanaj.ws.SubscriptionWebSocketClient;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
 public class PhoenixTest {
@@ -693,6 +736,388 @@ public class PhoenixTest {
         log.info("OB: {}", market.getBidListSanitized());
     }
 
+    @Test
+    public void phoenixLadderTest() {
+        // priceInTicks, sequence number, trader index, base lots, in insertion order
+        final long[][] bids = {{100, 5, 1, 10}, {102, 7, 2, 20}, {100, 3, 2, 30}, {101, 9, 1, 40}, {102, 8, 1, 50}};
+        final long[][] asks = {{105, 4, 2, 11}, {104, 6, 1, 12}, {106, 1, 1, 13}, {104, 2, 2, 14}};
+        final PhoenixMarket market = PhoenixMarket.readPhoenixMarket(buildTestMarket(bids, asks, 2));
+
+        // Highest bid first, earlier orders first within a price; the freed node is skipped
+        final PhoenixLadder bidLadder = market.getBidLadder();
+        assertEquals(5, bidLadder.size());
+        assertArrayEquals(new long[]{102, 102, 101, 100, 100}, ladderColumn(bidLadder, 0));
+        assertArrayEquals(new long[]{7, 8, 9, 3, 5}, ladderColumn(bidLadder, 1));
+        assertArrayEquals(new long[]{20, 50, 40, 30, 10}, ladderColumn(bidLadder, 3));
+
+        final PhoenixLadder askLadder = market.getAskLadder();
+        assertEquals(4, askLadder.size());
+        assertArrayEquals(new long[]{104, 104, 105, 106}, ladderColumn(askLadder, 0));
+        assertArrayEquals(new long[]{2, 6, 4, 1}, ladderColumn(askLadder, 1));
+        assertArrayEquals(new long[]{2, 1, 2, 1}, ladderColumn(askLadder, 2));
+
+        assertEquals(102, market.getBestBid().orElseThrow().getFirst().getPriceInTicks());
+        assertEquals(~7L, market.getBestBid().orElseThrow().getFirst().getOrderSequenceNumber());
+        assertEquals(104, market.getBestAsk().orElseThrow().getFirst().getPriceInTicks());
+        assertEquals(14, market.getBestAsk().orElseThrow().getSecond().getNumBaseLots());
+
+        assertArrayEquals(new long[]{102, 101, 100}, market.getBidL2Book().getPrices());
+        assertArrayEquals(new long[]{70, 40, 40}, market.getBidL2Book().getSizes());
+        assertArrayEquals(new long[]{104, 105, 106}, market.getAskL2Book().getPrices());
+        assertArrayEquals(new long[]{26, 11, 13}, market.getAskL2Book().getSizes());
+
+        assertEquals(5, market.getBidListSanitized().size());
+        final List<PhoenixOrder> bidsNormalized = market.getBidListNormalized();
+        assertEquals(5, bidsNormalized.size());
+        assertEquals(0.1, bidsNormalized.get(0).getPrice(), 1e-9);
+        assertEquals(0.102, bidsNormalized.get(4).getPrice(), 1e-9);
+        assertEquals(testTraderKey(2), bidsNormalized.get(4).getTrader());
+
+        final PhoenixMarket emptyMarket = PhoenixMarket.readPhoenixMarket(buildTestMarket(new long[0][], asks, 2));
+        assertTrue(emptyMarket.getBestBid().isEmpty());
+        assertEquals(0, emptyMarket.getBidL2Book().getLevels());
+        assertEquals(104, emptyMarket.getBestAsk().orElseThrow().getFirst().getPriceInTicks());
+    }
+
+    @Test
+    public void phoenixTraderIndexTest() {
+        final long[][] bids = {{100, 1, 1, 10}, {99, 2, 2, 20}, {98, 3, 3, 30}};
+        final byte[] data = buildTestMarket(bids, new long[0][], 3);
+        final PhoenixMarket market = PhoenixMarket.readPhoenixMarket(data);
+
+        final PhoenixTraderIndex traderIndex = market.getTraderIndex();
+        assertEquals(3, traderIndex.size());
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, traderIndex.getTraderIndex(testTraderKey(i)));
+            assertEquals(testTraderKey(i), traderIndex.getTrader(i));
+            assertEquals(1_000L * i, traderIndex.getQuoteLotsLocked(i));
+            assertEquals(i, traderIndex.getBaseLotsFree(i));
+        }
+        assertEquals(0, traderIndex.getTraderIndex(new PublicKey(new byte[32])));
+        assertNull(traderIndex.getTrader(4));
+        assertEquals(2_000L, traderIndex.getTraderState(testTraderKey(2)).orElseThrow().getQuoteLotsLocked());
+        assertEquals(3, market.getTradersNormalized().size());
+        assertEquals(testTraderKey(1), market.getBidListNormalized().get(2).getTrader());
+
+        // Reloading with new balances shares the unchanged seats, and leaves the previous decode untouched
+        final int seatsOffset = 880 + (2 * PhoenixLadder.regionSize(8));
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(seatsOffset + 32 + 48, 5L);
+        final PhoenixMarket reloaded = PhoenixMarket.readPhoenixMarket(data, market);
+        assertSame(traderIndex.getTrader(1), reloaded.getTraderIndex().getTrader(1));
+        assertEquals(5, reloaded.getTraderIndex().getQuoteLotsLocked(1));
+        assertEquals(1_000, traderIndex.getQuoteLotsLocked(1));
+
+        // Freeing seat 2 drops the trader and its order
+        buffer.putInt(seatsOffset + 28, 2);
+        final PhoenixMarket freed = PhoenixMarket.readPhoenixMarket(data, reloaded);
+        assertEquals(2, freed.getTraderIndex().size());
+        assertFalse(freed.getTraderIndex().isSeated(2));
+        assertEquals(0, freed.getTraderIndex().getTraderIndex(testTraderKey(2)));
+        assertEquals(3, freed.getTraderIndex().getTraderIndex(testTraderKey(3)));
+        assertSame(traderIndex.getTrader(3), freed.getTraderIndex().getTrader(3));
+        assertEquals(2, freed.getTradersSanitized().size());
+        assertEquals(2, freed.getBidListNormalized().size());
+    }
+
+    /**
+     * Streams two updates of a market from a local stand-in websocket server through
+     * {@link PhoenixMarketStreamManager}, where the second update only changes the asks.
+     */
+    @Test
+    public void phoenixMarketStreamManagerTest() throws Exception {
+        final long[][] bids = {{100, 5, 1, 10}, {102, 7, 2, 20}};
+        final long[][] asks = {{105, 4, 2, 11}, {104, 6, 1, 12}};
+        final byte[] first = buildTestMarket(bids, asks, 2);
+        final byte[] second = first.clone();
+        // best ask (the second node of the ask tree) down to 99 lots
+        final int asksOffset = 880 + PhoenixLadder.regionSize(8);
+        ByteBuffer.wrap(second).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(asksOffset + 32 + PhoenixLadder.NODE_SIZE + 40, 99);
+
+        // Unchanged trees are shared with the previous decode
+        final PhoenixMarket firstMarket = PhoenixMarket.readPhoenixMarket(first);
+        final PhoenixMarket secondMarket = PhoenixMarket.readPhoenixMarket(second, first, firstMarket);
+        assertSame(firstMarket.getBidLadder(), secondMarket.getBidLadder());
+        assertSame(firstMarket.getBidL2Book(), secondMarket.getBidL2Book());
+        assertSame(firstMarket.getTraderIndex(), secondMarket.getTraderIndex());
+        assertNotSame(firstMarket.getAskLadder(), secondMarket.getAskLadder());
+        assertEquals(12, firstMarket.getBestAsk().orElseThrow().getSecond().getNumBaseLots());
+        assertEquals(99, secondMarket.getBestAsk().orElseThrow().getSecond().getNumBaseLots());
+
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        final StandInAccountServer server = new StandInAccountServer(new InetSocketAddress("localhost", port),
+                Map.of(SOL_USDC_MARKET.toBase58(), List.of(first, second)));
+        server.start();
+        final SubscriptionWebSocketClient webSocketClient = new SubscriptionWebSocketClient(
+                new URI("ws://localhost:" + port)
+        );
+
+        try {
+            assertTrue(webSocketClient.connectBlocking(5, TimeUnit.SECONDS));
+            final PhoenixMarketStreamManager streamManager = new PhoenixMarketStreamManager(webSocketClient, null);
+            streamManager.addMarket(SOL_USDC_MARKET);
+            assertTrue(streamManager.getMarket(SOL_USDC_MARKET).isEmpty());
+
+            PhoenixMarketSnapshot snapshot = streamManager.getSnapshot(SOL_USDC_MARKET).orElseThrow();
+            for (int i = 0; i < 100 && snapshot.getVersion() < 2; i++) {
+                Thread.sleep(50);
+                snapshot = streamManager.getSnapshot(SOL_USDC_MARKET).orElseThrow();
+            }
+
+            assertEquals(2, snapshot.getVersion());
+            assertEquals(SOL_USDC_MARKET, snapshot.getMarket().getMarketId());
+            assertEquals(102, snapshot.getBestBid().orElseThrow().getFirst().getPriceInTicks());
+            assertEquals(99, snapshot.getBestAsk().orElseThrow().getSecond().getNumBaseLots());
+            assertSame(snapshot.getMarket(), streamManager.getMarket(SOL_USDC_MARKET).orElseThrow());
+            assertFalse(streamManager.getSnapshot(SOL_USDC_SEAT_MANAGER).isPresent());
+
+            assertTrue(streamManager.removeMarket(SOL_USDC_MARKET));
+            assertTrue(streamManager.getSnapshot(SOL_USDC_MARKET).isEmpty());
+            assertNull(webSocketClient.getSubscriptionId(SOL_USDC_MARKET.toBase58()));
+            assertFalse(streamManager.removeMarket(SOL_USDC_MARKET));
+            for (int i = 0; i < 100 && server.unsubscribes.get() < 1; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, server.unsubscribes.get());
+
+            // Removed before the node confirms the subscription: unsubscribed once its first update arrives
+            server.confirmations = new CountDownLatch(1);
+            streamManager.addMarket(SOL_USDC_MARKET);
+            assertTrue(streamManager.removeMarket(SOL_USDC_MARKET));
+            server.confirmations.countDown();
+            for (int i = 0; i < 100 && server.unsubscribes.get() < 2; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, server.unsubscribes.get());
+            assertTrue(streamManager.getSnapshot(SOL_USDC_MARKET).isEmpty());
+        } finally {
+            webSocketClient.closeBlocking();
+            server.stop();
+        }
+    }
+
+    /**
+     * Minimal JSON-RPC websocket server answering accountSubscribe with an id, then one accountNotification per
+     * payload of the account, and counting accountUnsubscribe requests. Subscriptions are confirmed once
+     * confirmations is counted down.
+     */
+    private static class StandInAccountServer extends WebSocketServer {
+
+        private static final Pattern REQUEST_ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+        private static final Pattern ACCOUNT = Pattern.compile("\"params\":\\[\"([^\"]+)\"");
+
+        private final Map<String, List<byte[]>> accounts;
+        private final AtomicLong subscriptionIds = new AtomicLong();
+        private final AtomicInteger unsubscribes = new AtomicInteger();
+        private volatile CountDownLatch confirmations = new CountDownLatch(0);
+
+        private StandInAccountServer(InetSocketAddress address, Map<String, List<byte[]>> accounts) {
+            super(address);
+            this.accounts = accounts;
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            final Matcher requestId = REQUEST_ID.matcher(message);
+            final Matcher account = ACCOUNT.matcher(message);
+            if (message.contains("accountUnsubscribe")) {
+                unsubscribes.incrementAndGet();
+                return;
+            }
+
+            if (!message.contains("accountSubscribe") || !requestId.find() || !account.find()) {
+                return;
+            }
+
+            try {
+                confirmations.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final long subscriptionId = subscriptionIds.incrementAndGet();
+            conn.send("{\"jsonrpc\":\"2.0\",\"id\":\"" + requestId.group(1) + "\",\"result\":" + subscriptionId + "}");
+            for (byte[] data : accounts.get(account.group(1))) {
+                conn.send("{\"jsonrpc\":\"2.0\",\"method\":\"accountNotification\",\"params\":{\"result\":"
+                        + "{\"context\":{\"slot\":1},\"value\":{\"data\":[\""
+                        + Base64.getEncoder().encodeToString(data)
+                        + "\",\"base64\"],\"executable\":false,\"lamports\":1,"
+                        + "\"owner\":\"11111111111111111111111111111111\",\"rentEpoch\":0}},"
+                        + "\"subscription\":" + subscriptionId + "}}");
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            log.error("Stand-in server error", ex);
+        }
+
+        @Override
+        public void onStart() {
+        }
+    }
+
+    private static PublicKey testTraderKey(int traderIndex) {
+        final byte[] key = new byte[32];
+        Arrays.fill(key, (byte) traderIndex);
+        return new PublicKey(key);
+    }
+
+    private static long[] ladderColumn(PhoenixLadder ladder, int column) {
+        final long[] values = new long[ladder.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = switch (column) {
+                case 0 -> ladder.getPriceInTicks(i);
+                case 1 -> ladder.isBids() ? ~ladder.getOrderSequenceNumber(i) : ladder.getOrderSequenceNumber(i);
+                case 2 -> ladder.getTraderIndex(i);
+                default -> ladder.getNumBaseLots(i);
+            };
+        }
+
+        return values;
+    }
+
+    /**
+     * Builds a market account with 8 nodes per side: the orders inserted into an (unbalanced) search tree in the
+     * given order, then one freed node holding a stale order. Trader seats are stored in address order.
+     */
+    private static byte[] buildTestMarket(long[][] bids, long[][] asks, int numTraders) {
+        final int capacity = 8;
+        final int seats = 4;
+        final int traderNodeSize = 16 + 32 + PhoenixTraderState.PHOENIX_TRADER_STATE_SIZE;
+        final int bookSize = PhoenixLadder.regionSize(capacity);
+        final ByteBuffer buffer = ByteBuffer.allocate(880 + (2 * bookSize) + 32 + (traderNodeSize * seats))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putLong(16, capacity); // bids size
+        buffer.putLong(24, capacity); // asks size
+        buffer.putLong(32, seats);
+        buffer.putInt(40, 9); // base decimals
+        buffer.putLong(112, 1_000_000L); // base lot size
+        buffer.putInt(120, 6); // quote decimals
+        buffer.putLong(192, 1L); // quote lot size
+        buffer.putInt(312, 1); // raw base units per base unit
+        buffer.putLong(832, 1_000L); // base lots per base unit
+        buffer.putLong(840, 1_000L); // tick size in quote lots per base unit
+
+        writeTestBookTree(buffer, 880, bids, true);
+        writeTestBookTree(buffer, 880 + bookSize, asks, false);
+
+        final int seatsOffset = 880 + (2 * bookSize);
+        buffer.putInt(seatsOffset, numTraders > 0 ? 1 : 0);
+        buffer.putLong(seatsOffset + 16, seats);
+        buffer.putInt(seatsOffset + 24, numTraders + 1);
+        for (int i = 0; i < numTraders; i++) {
+            final int nodeOffset = seatsOffset + 32 + (i * traderNodeSize);
+            buffer.putInt(nodeOffset + 4, i + 1 < numTraders ? i + 2 : 0);
+            buffer.putInt(nodeOffset + 8, i);
+            Arrays.fill(buffer.array(), nodeOffset + 16, nodeOffset + 48, (byte) (i + 1));
+            buffer.putLong(nodeOffset + 48, 1_000L * (i + 1)); // quote lots locked
+            buffer.putLong(nodeOffset + 72, i + 1); // base lots free
+        }
+
+        return buffer.array();
+    }
+
+    private static void writeTestBookTree(ByteBuffer buffer, int treeOffset, long[][] orders, boolean bids) {
+        final int nodesOffset = treeOffset + 32;
+        for (int i = 0; i < orders.length; i++) {
+            final int address = i + 1;
+            final int nodeOffset = nodesOffset + (i * PhoenixLadder.NODE_SIZE);
+            final long price = orders[i][0];
+            final long seqNum = bids ? ~orders[i][1] : orders[i][1];
+            buffer.putLong(nodeOffset + 16, price);
+            buffer.putLong(nodeOffset + 24, seqNum);
+            buffer.putLong(nodeOffset + 32, orders[i][2]);
+            buffer.putLong(nodeOffset + 40, orders[i][3]);
+
+            if (i == 0) {
+                buffer.putInt(treeOffset, address);
+                continue;
+            }
+
+            int parent = buffer.getInt(treeOffset);
+            while (true) {
+                final int parentOffset = nodesOffset + ((parent - 1) * PhoenixLadder.NODE_SIZE);
+                int compare = Long.compare(price, buffer.getLong(parentOffset + 16));
+                if (compare == 0) {
+                    compare = Long.compareUnsigned(seqNum, buffer.getLong(parentOffset + 24));
+                }
+
+                final int childOffset = parentOffset + (compare < 0 ? 0 : 4);
+                if (buffer.getInt(childOffset) == 0) {
+                    buffer.putInt(childOffset, address);
+                    buffer.putInt(nodeOffset + 8, parent);
+                    break;
+                }
+                parent = buffer.getInt(childOffset);
+            }
+        }
+
+        // A freed node after the live ones, holding a better price than any live order
+        final int freed = orders.length + 1;
+        final int freedOffset = nodesOffset + (orders.length * PhoenixLadder.NODE_SIZE);
+        buffer.putLong(freedOffset + 16, bids ? 999 : 1);
+        buffer.putLong(freedOffset + 40, 1_000);
+        buffer.putLong(treeOffset + 16, 8); // allocator size
+        buffer.putInt(treeOffset + 24, freed + 1); // bumpIndex
+        buffer.putInt(treeOffset + 28, freed); // freeListHead
+    }
+
+    @Test
+    public void keccak256Test() {
+        final byte[] empty = Keccak256.digest();
+        assertEquals("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470",
+                new BigInteger(1, empty).toString(16));
+
+        // Every length around the 136 byte block size, absorbed whole and split at an odd offset
+        final Random random = new Random(19);
+        final Keccak256 keccak256 = new Keccak256();
+        for (int length = 0; length < 420; length++) {
+            final byte[] input = new byte[length];
+            random.nextBytes(input);
+
+            final Keccak keccak = new Keccak(256);
+            keccak.update(input);
+            final byte[] expected = keccak.digestArray();
+
+            final byte[] digest = new byte[Keccak256.DIGEST_SIZE];
+            keccak256.update(input).digestInto(digest);
+            assertArrayEquals(expected, digest);
+
+            final int split = length / 3;
+            keccak256.update(input, 0, split).update(input, split, length - split).digestInto(digest);
+            assertArrayEquals(expected, digest);
+
+            final byte[] prefix = new byte[12];
+            keccak256.update(input).digestInto(prefix, 3, 9);
+            assertArrayEquals(Arrays.copyOf(expected, 9), Arrays.copyOfRange(prefix, 3, 12));
+        }
+
+        assertEquals(getDiscriminator(PhoenixDiscriminators.MARKET_HEADER),
+                PhoenixDiscriminators.getBase58(PhoenixDiscriminators.MARKET_HEADER));
+        assertEquals(getDiscriminator(PhoenixDiscriminators.SEAT),
+                PhoenixUtil.getDiscriminator(PhoenixDiscriminators.SEAT));
+        assertEquals(getDiscriminator("phoenix::program::accounts::Unknown"),
+                PhoenixDiscriminators.getBase58("phoenix::program::accounts::Unknown"));
+        assertEquals(Utils.readInt64(PhoenixDiscriminators.get(PhoenixDiscriminators.MARKET_HEADER), 0),
+                PhoenixDiscriminators.getLong(PhoenixDiscriminators.MARKET_HEADER));
+    }
+
     private String getDiscriminator(String input) {
         Keccak keccak = new Keccak(256);
         keccak.update(PhoenixProgram.PHOENIX_PROGRAM_ID.toByteArray());
@@ -704,4 +1129,229 @@ public class PhoenixTest {
 
         return Base58.encode(Arrays.copyOfRange(keccakBytes, 0, 8));
     }
+
+    @Test
+    public void phoenixOrderPipelineTest() throws Exception {
+        final List<CondensedPhoenixOrder> bids = List.of(
+                CondensedPhoenixOrder.builder().priceInTicks(73_000).sizeInBaseLots(1_000).build(),
+                CondensedPhoenixOrder.builder().priceInTicks(72_990).sizeInBaseLots(2_000).build(),
+                CondensedPhoenixOrder.builder().priceInTicks(72_980).sizeInBaseLots(3_000).build()
+        );
+        final List<CondensedPhoenixOrder> asks = List.of(
+                CondensedPhoenixOrder.builder().priceInTicks(73_010).sizeInBaseLots(1_500).build(),
+                CondensedPhoenixOrder.builder().priceInTicks(73_020).sizeInBaseLots(2_500).build()
+        );
+
+        // Same bytes as the record based encoding
+        final MultipleOrderPacketRecord record = MultipleOrderPacketRecord.builder().bids(bids).asks(asks).build();
+        final byte[] expected = new byte[record.getBufferSize() + 1];
+        expected[0] = 16;
+        System.arraycopy(record.toBytes(), 0, expected, 1, record.getBufferSize());
+        assertArrayEquals(expected, PhoenixProgram.encodePlaceMultiplePostOnlyOrders(bids, asks));
+
+        final List<String> methods = Collections.synchronizedList(new ArrayList<>());
+        final List<byte[]> transactions = Collections.synchronizedList(new ArrayList<>());
+        final AtomicReference<CountDownLatch> sendGate = new AtomicReference<>();
+        final AtomicBoolean failSends = new AtomicBoolean();
+        final Account trader = new Account();
+        final PublicKey baseAccount = new Account().getPublicKey();
+        final PublicKey quoteAccount = new Account().getPublicKey();
+        final List<PublicKey> marketIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            marketIds.add(new Account().getPublicKey());
+        }
+
+        final RpcClient rpcClient = testRpcClient(methods, transactions, sendGate, failSends);
+        try (RpcExecutor rpcExecutor = RpcExecutor.platformThreads(2);
+             PhoenixOrderPipeline pipeline = new PhoenixOrderPipeline(rpcClient, trader).setRpcExecutor(rpcExecutor)) {
+            for (PublicKey marketId : marketIds) {
+                pipeline.addMarket(marketId, baseAccount, quoteAccount, new Account().getPublicKey(),
+                        new Account().getPublicKey());
+            }
+
+            // Quotes are coalesced per market, and must fit in a transaction on their own
+            pipeline.submitQuote(marketIds.get(0), asks, bids);
+            for (PublicKey marketId : marketIds) {
+                pipeline.submitQuote(marketId, bids, asks);
+            }
+            assertEquals(4, pipeline.getPendingCount());
+            final List<CondensedPhoenixOrder> ladder = Collections.nCopies(40, bids.get(0));
+            assertThrows(IllegalArgumentException.class, () -> pipeline.submitQuote(marketIds.get(0), ladder, ladder));
+            assertThrows(IllegalArgumentException.class,
+                    () -> pipeline.submitQuote(new Account().getPublicKey(), bids, asks));
+
+            // 3 markets fit in 1232 bytes, one blockhash for both transactions
+            assertEquals(2, pipeline.flush());
+            awaitPipeline(pipeline);
+            assertEquals(List.of("getLatestBlockhash", "sendTransaction", "sendTransaction"), methods);
+            assertEquals(2, pipeline.getSentCount());
+            assertEquals(4, pipeline.getQuotesSentCount());
+            assertEquals(0, pipeline.getPendingCount());
+            assertEquals(List.of(4, 8), instructionCounts(transactions));
+            final int fullSize = transactions.stream().mapToInt(transaction -> transaction.length).max().orElseThrow();
+            assertTrue(fullSize <= PhoenixOrderPipeline.MAX_TRANSACTION_SIZE);
+
+            // Size estimates are exact: one byte less and only 2 markets fit per transaction
+            transactions.clear();
+            pipeline.setMaxTransactionSize(fullSize);
+            marketIds.forEach(marketId -> pipeline.submitQuote(marketId, bids, asks));
+            assertEquals(2, pipeline.flush());
+            awaitPipeline(pipeline);
+            assertEquals(List.of(4, 8), instructionCounts(transactions));
+
+            transactions.clear();
+            pipeline.setMaxTransactionSize(fullSize - 1);
+            marketIds.forEach(marketId -> pipeline.submitQuote(marketId, bids, asks));
+            assertEquals(2, pipeline.flush());
+            awaitPipeline(pipeline);
+            assertEquals(List.of(6, 6), instructionCounts(transactions));
+
+            // A full in-flight window leaves the remaining quotes pending; cancel all only sends one instruction.
+            // The send is held until then, so it cannot free the window during the flush.
+            transactions.clear();
+            pipeline.setMaxTransactionSize(PhoenixOrderPipeline.MAX_TRANSACTION_SIZE).setMaxInFlight(1);
+            marketIds.forEach(pipeline::cancelAll);
+            pipeline.setComputeUnitsPerMarket(PhoenixOrderPipeline.MAX_COMPUTE_UNIT_LIMIT / 2);
+            sendGate.set(new CountDownLatch(1));
+            assertEquals(1, pipeline.flush());
+            assertEquals(2, pipeline.getPendingCount());
+            assertEquals(1, pipeline.getInFlightCount());
+            sendGate.getAndSet(null).countDown();
+            awaitPipeline(pipeline);
+            assertEquals(1, pipeline.flush());
+            awaitPipeline(pipeline);
+            assertEquals(0, pipeline.getPendingCount());
+            assertEquals(List.of(4, 4), instructionCounts(transactions));
+            assertEquals(8, pipeline.getSentCount());
+            assertEquals(0, pipeline.getFailedCount());
+
+            // A failed send puts its quotes back, unless a newer quote was submitted or the market removed meanwhile
+            failSends.set(true);
+            pipeline.submitQuote(marketIds.get(0), bids, asks);
+            pipeline.submitQuote(marketIds.get(1), bids, asks);
+            sendGate.set(new CountDownLatch(1));
+            assertEquals(1, pipeline.flush());
+            pipeline.cancelAll(marketIds.get(1));
+            sendGate.getAndSet(null).countDown();
+            awaitPipeline(pipeline);
+            assertEquals(1, pipeline.getFailedCount());
+            assertEquals(2, pipeline.getPendingCount());
+
+            pipeline.submitQuote(marketIds.get(2), bids, asks);
+            sendGate.set(new CountDownLatch(1));
+            pipeline.setMaxInFlight(3);
+            // The retried quote goes alone, the other two markets share a transaction
+            assertEquals(2, pipeline.flush());
+            pipeline.removeMarket(marketIds.get(2));
+            sendGate.getAndSet(null).countDown();
+            awaitPipeline(pipeline);
+            assertEquals(3, pipeline.getFailedCount());
+            assertEquals(2, pipeline.getPendingCount());
+
+            // Both retried quotes go alone; the first one fails a third time and is dropped
+            assertEquals(2, pipeline.flush());
+            awaitPipeline(pipeline);
+            assertEquals(5, pipeline.getFailedCount());
+            assertEquals(1, pipeline.getQuotesDroppedCount());
+            assertEquals(1, pipeline.getPendingCount());
+
+            // Quotes that could not be handed to the executor stay pending
+            failSends.set(false);
+            transactions.clear();
+            pipeline.submitQuote(marketIds.get(0), bids, asks);
+            final RpcExecutor closedExecutor = RpcExecutor.platformThreads(1);
+            closedExecutor.close();
+            pipeline.setRpcExecutor(closedExecutor);
+            assertThrows(RejectedExecutionException.class, pipeline::flush);
+            assertEquals(2, pipeline.getPendingCount());
+            assertEquals(0, pipeline.getInFlightCount());
+
+            pipeline.setRpcExecutor(rpcExecutor);
+            assertEquals(2, pipeline.flush());
+            awaitPipeline(pipeline);
+            assertEquals(0, pipeline.getPendingCount());
+            assertEquals(10, pipeline.getSentCount());
+            // The new quote, then the cancel all retried alone
+            assertEquals(List.of(3, 4), instructionCounts(transactions));
+        }
+    }
+
+    private static void awaitPipeline(PhoenixOrderPipeline pipeline) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (pipeline.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pipeline.getInFlightCount());
+    }
+
+    // Instruction count of each legacy transaction, sorted
+    private static List<Integer> instructionCounts(List<byte[]> transactions) {
+        final List<Integer> instructionCounts = new ArrayList<>();
+        synchronized (transactions) {
+            for (byte[] transaction : transactions) {
+                int offset = 1 + (transaction[0] * 64) + 3;
+                offset += 1 + (transaction[offset] * PublicKey.PUBLIC_KEY_LENGTH) + 32;
+                instructionCounts.add((int) transaction[offset]);
+            }
+        }
+        instructionCounts.sort(Integer::compare);
+        return instructionCounts;
+    }
+
+    /**
+     * RPC stub answering getLatestBlockhash and recording sent transactions. While sendGate holds a latch, sends wait
+     * for it; while failSends is set, they are answered with an error.
+     */
+    private static RpcClient testRpcClient(List<String> methods, List<byte[]> transactions,
+                                           AtomicReference<CountDownLatch> sendGate, AtomicBoolean failSends) {
+        final Moshi moshi = new Moshi.Builder().build();
+        final OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    final Buffer buffer = new Buffer();
+                    chain.request().body().writeTo(buffer);
+                    final Map<?, ?> request = moshi.adapter(Map.class).fromJson(buffer.readUtf8());
+                    final String method = (String) request.get("method");
+                    methods.add(method);
+
+                    final Map<String, Object> response = new HashMap<>();
+                    response.put("jsonrpc", "2.0");
+                    response.put("id", request.get("id"));
+                    if (method.equals("getLatestBlockhash")) {
+                        response.put("result", Map.of(
+                                "context", Map.of("slot", 1),
+                                "value", Map.of("blockhash", "11111111111111111111111111111111",
+                                        "lastValidBlockHeight", 151)
+                        ));
+                    } else {
+                        final CountDownLatch gate = sendGate.get();
+                        if (gate != null) {
+                            try {
+                                gate.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+
+                        if (failSends.get()) {
+                            response.put("error", Map.of("code", -32002, "message", "Transaction simulation failed"));
+                        } else {
+                            final String transaction = (String) ((List<?>) request.get("params")).get(0);
+                            transactions.add(Base64.getDecoder().decode(transaction));
+                            response.put("result", "signature" + methods.size());
+                        }
+                    }
+
+                    return new okhttp3.Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(moshi.adapter(Map.class).toJson(response),
+                                    MediaType.get("application/json")))
+                            .build();
+                })
+                .build();
+
+        return new RpcClient("http://localhost", httpClient);
+    }
 }
\ No newline at end of file
@@ -1,20 +1,33 @@
 package com.mmorrell.pyth.listener;
 
-import com.mmorrell.pyth.model.PriceDataAccount;
-import lombok.AllArgsConstructor;
+import com.mmorrell.pyth.model.PythPriceSlot;
 import org.p2p.solanaj.ws.listeners.NotificationEventListener;
 
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-@AllArgsConstructor
+/**
+ * Writes the aggregate price of one feed into a shared map on every push.
+ *
+ * @deprecated use {@link com.mmorrell.pyth.manager.PythPriceFeedCache}, which keeps every field of the aggregate
+ * price per feed and reads it without a map of boxed floats
+ */
+@Deprecated
 public class PriceDataAccountListener implements NotificationEventListener {
 
     private static final Logger LOGGER = Logger.getLogger(PriceDataAccountListener.class.getName());
     private final Map<String, Float> currentPriceMap;
     private final String productName;
+    // Decodes only the aggregate price, not the whole account
+    private final PythPriceSlot slot;
+
+    public PriceDataAccountListener(Map<String, Float> currentPriceMap, String productName) {
+        this.currentPriceMap = currentPriceMap;
+        this.productName = productName;
+        this.slot = new PythPriceSlot(productName, null);
+    }
 
     @Override
     public void onNotificationEvent(Object data) {
@@ -22,12 +35,12 @@ public class PriceDataAccountListener implements NotificationEventListener {
             final Map<String, Object> objectMap = (Map<String, Object>) data;
             final String base64 = (String)((List) objectMap.get("data")).get(0);
 
-            final PriceDataAccount streamedPriceDataAccount = PriceDataAccount.readPriceDataAccount(
-                    Base64.getDecoder().decode(base64)
-            );
-
-            currentPriceMap.put(productName, streamedPriceDataAccount.getAggregatePriceInfo().getPrice());
-            LOGGER.info(currentPriceMap.toString());
+            if (slot.update(base64)) {
+                currentPriceMap.put(productName, (float) slot.getPrice());
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(productName + " = " + currentPriceMap.get(productName));
+                }
+            }
         }
     }
 }
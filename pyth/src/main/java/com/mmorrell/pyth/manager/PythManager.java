@@ -3,6 +3,7 @@ package com.mmorrell.pyth.manager;
 import com.mmorrell.pyth.model.MappingAccount;
 import com.mmorrell.pyth.model.PriceDataAccount;
 import com.mmorrell.pyth.model.ProductAccount;
+import com.mmorrell.pyth.model.PythUniverse;
 import lombok.RequiredArgsConstructor;
 import org.p2p.solanaj.core.PublicKey;
 import org.p2p.solanaj.rpc.RpcClient;
@@ -33,6 +34,16 @@ public class PythManager {
         return PriceDataAccount.readPriceDataAccount(data);
     }
 
+    /**
+     * Loads every feed of a mapping chain with batched account fetches, see {@link PythUniverseLoader}.
+     *
+     * @param mappingAccount first mapping account
+     * @return feeds by symbol and price account
+     */
+    public PythUniverse getUniverse(final PublicKey mappingAccount) {
+        return new PythUniverseLoader(client).load(mappingAccount);
+    }
+
     // TODO Deduplicate this with MangoManager
     private byte[] getAccountData(final PublicKey publicKey) {
         AccountInfo accountInfo = null;
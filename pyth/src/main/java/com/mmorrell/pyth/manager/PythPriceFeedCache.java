@@ -0,0 +1,198 @@
+package com.mmorrell.pyth.manager;
+
+import com.mmorrell.pyth.model.PriceInfo;
+import com.mmorrell.pyth.model.PythFeed;
+import com.mmorrell.pyth.model.PythPriceHistory;
+import com.mmorrell.pyth.model.PythPriceSlot;
+import com.mmorrell.pyth.model.PythPriceSnapshot;
+import com.mmorrell.pyth.model.PythUniverse;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+import org.p2p.solanaj.rpc.types.config.RpcSendTransactionConfig;
+import org.p2p.solanaj.ws.SubscriptionWebSocketClient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the latest price of many Pyth feeds up to date from websocket account subscriptions, as an alternative to
+ * one {@link com.mmorrell.pyth.listener.PriceDataAccountListener} per feed writing into a shared map.
+ * <p>
+ * Every feed added gets a {@link PythPriceSlot} and a subscription to its price account. Each pushed update is
+ * written to the slot on the websocket thread, decoding only the aggregate price from the first bytes of the
+ * account. Readers never block or trigger I/O: they read whatever update was written last, consistently.
+ */
+public class PythPriceFeedCache {
+
+    private static final Logger LOGGER = Logger.getLogger(PythPriceFeedCache.class.getName());
+
+    private final SubscriptionWebSocketClient webSocketClient;
+    private final Commitment commitment;
+
+    private final Map<String, PythPriceSlot> slots = new ConcurrentHashMap<>();
+    private final Map<PublicKey, PythPriceSlot> slotsByPriceAccount = new ConcurrentHashMap<>();
+
+    /**
+     * @param webSocketClient connected (or connecting) websocket client; subscriptions are re-sent on reconnect. Null
+     *                        to only feed the cache through {@link #update(PublicKey, byte[])}, e.g. from polling.
+     * @param commitment      commitment for subscriptions
+     */
+    public PythPriceFeedCache(SubscriptionWebSocketClient webSocketClient, Commitment commitment) {
+        this.webSocketClient = webSocketClient;
+        this.commitment = commitment;
+    }
+
+    public PythPriceFeedCache(SubscriptionWebSocketClient webSocketClient) {
+        this(webSocketClient, Commitment.CONFIRMED);
+    }
+
+    /**
+     * Starts streaming a feed.
+     *
+     * @param symbol          product symbol, e.g. Crypto.SOL/USD
+     * @param priceAccountKey the product's price account
+     * @return the feed's slot, already streaming if the symbol was added before
+     */
+    public PythPriceSlot addFeed(String symbol, PublicKey priceAccountKey) {
+        final PythPriceSlot slot = new PythPriceSlot(symbol, priceAccountKey);
+        final PythPriceSlot existing = slots.putIfAbsent(symbol, slot);
+        if (existing != null) {
+            return existing;
+        }
+
+        slotsByPriceAccount.put(priceAccountKey, slot);
+        if (webSocketClient != null) {
+            webSocketClient.accountSubscribe(
+                    priceAccountKey.toBase58(),
+                    data -> {
+                        if (data == null) {
+                            return;
+                        }
+
+                        try {
+                            slot.update((String) ((List<?>) ((Map<?, ?>) data).get("data")).get(0));
+                        } catch (RuntimeException e) {
+                            LOGGER.log(Level.WARNING, "Unable to decode Pyth price update for " + symbol, e);
+                        }
+                    },
+                    commitment,
+                    RpcSendTransactionConfig.Encoding.base64.getEncoding()
+            );
+        }
+
+        return slot;
+    }
+
+    /**
+     * Starts streaming every feed of a universe, seeding each slot with the price it was loaded with so that readers
+     * have a price before the first push.
+     *
+     * @param universe feeds from {@link PythUniverseLoader}
+     */
+    public void addFeeds(PythUniverse universe) {
+        for (PythFeed feed : universe.getFeeds().values()) {
+            final PythPriceSlot slot = addFeed(feed.getSymbol(), feed.getPriceAccountKey());
+            final PriceInfo aggregate = feed.getPriceDataAccount().getAggregatePriceInfo();
+            slot.update(aggregate.getPriceComponent(), aggregate.getConfidenceComponent(),
+                    feed.getPriceDataAccount().getExponent(), aggregate.getStatus(), aggregate.getPublishSlot());
+        }
+    }
+
+    /**
+     * Writes price account data fetched some other way, e.g. by polling.
+     *
+     * @param priceAccountKey price account the data belongs to
+     * @param data            price account data
+     * @return false if the account is not cached, the data is not a price account or it is older than the cached
+     */
+    public boolean update(PublicKey priceAccountKey, byte[] data) {
+        final PythPriceSlot slot = slotsByPriceAccount.get(priceAccountKey);
+        return slot != null && slot.update(data);
+    }
+
+    /**
+     * @param symbol product symbol
+     * @return the feed's slot, to read it repeatedly without a map lookup
+     */
+    public Optional<PythPriceSlot> getSlot(String symbol) {
+        return Optional.ofNullable(slots.get(symbol));
+    }
+
+    /**
+     * Starts recording the updates of a feed into a {@link PythPriceHistory}, replacing any history it had.
+     *
+     * @param symbol      product symbol of a feed added before
+     * @param windowSizes number of samples of each rolling window
+     * @return the history, empty if the feed was not added
+     */
+    public Optional<PythPriceHistory> addHistory(String symbol, int... windowSizes) {
+        final PythPriceSlot slot = slots.get(symbol);
+        if (slot == null) {
+            return Optional.empty();
+        }
+
+        final PythPriceHistory history = new PythPriceHistory(windowSizes);
+        slot.setHistory(history);
+        return Optional.of(history);
+    }
+
+    /**
+     * @param symbol product symbol
+     * @return the feed's history, empty if the feed was not added or is not recorded
+     */
+    public Optional<PythPriceHistory> getHistory(String symbol) {
+        return getSlot(symbol).map(PythPriceSlot::getHistory);
+    }
+
+    /**
+     * Latest price of a feed. Lock-free; never performs I/O.
+     *
+     * @param symbol product symbol
+     * @return latest price, NaN if the feed was not added or has no price yet
+     */
+    public double getPrice(String symbol) {
+        final PythPriceSlot slot = slots.get(symbol);
+        return slot == null ? Double.NaN : slot.getPrice();
+    }
+
+    /**
+     * Latest update of a feed. Lock-free; never performs I/O.
+     *
+     * @param symbol product symbol
+     * @return latest update, empty if the feed was not added or has no price yet
+     */
+    public Optional<PythPriceSnapshot> getSnapshot(String symbol) {
+        final PythPriceSlot slot = slots.get(symbol);
+        if (slot == null) {
+            return Optional.empty();
+        }
+
+        final PythPriceSnapshot snapshot = slot.getSnapshot();
+        return snapshot.getVersion() == 0 ? Optional.empty() : Optional.of(snapshot);
+    }
+
+    /**
+     * @return latest update of every feed with a price, by symbol. Each update is consistent on its own, they are not
+     * taken at the same instant.
+     */
+    public Map<String, PythPriceSnapshot> getSnapshots() {
+        final Map<String, PythPriceSnapshot> snapshots = new LinkedHashMap<>();
+        for (PythPriceSlot slot : slots.values()) {
+            final PythPriceSnapshot snapshot = slot.getSnapshot();
+            if (snapshot.getVersion() > 0) {
+                snapshots.put(slot.getSymbol(), snapshot);
+            }
+        }
+
+        return snapshots;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+}
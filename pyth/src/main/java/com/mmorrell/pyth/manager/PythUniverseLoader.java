@@ -0,0 +1,172 @@
+package com.mmorrell.pyth.manager;
+
+import com.mmorrell.pyth.model.MappingAccount;
+import com.mmorrell.pyth.model.PriceDataAccount;
+import com.mmorrell.pyth.model.ProductAccount;
+import com.mmorrell.pyth.model.PythFeed;
+import com.mmorrell.pyth.model.PythUniverse;
+import com.mmorrell.pyth.utils.PythUtils;
+import com.mmorrell.serum.util.MultipleAccountsFetcher;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Loads every Pyth feed reachable from a mapping account in a few round trips, as an alternative to walking the
+ * mapping chain with {@link PythManager} and fetching each product and price account with its own getAccountInfo.
+ * <ol>
+ * <li>the mapping accounts, following nextMappingAccount one account at a time (the only sequential step, a handful
+ * of accounts on mainnet)</li>
+ * <li>all product accounts listed in them</li>
+ * <li>all price accounts referenced by those products</li>
+ * </ol>
+ * Steps 2 and 3 go through {@link MultipleAccountsFetcher#getMultipleAccounts(List)}, in concurrent chunks of
+ * {@link MultipleAccountsFetcher#MAX_ACCOUNTS_PER_REQUEST} keys on the configured {@link Executor} (the shared
+ * {@link com.mmorrell.serum.util.RpcExecutor} unless set), and their accounts are decoded in parallel. Products
+ * without a symbol or a readable price account are left out. Only the first price account of each product is loaded.
+ */
+public class PythUniverseLoader {
+
+    private static final Logger LOGGER = Logger.getLogger(PythUniverseLoader.class.getName());
+
+    // Guards against a mapping chain that loops back on itself
+    public static final int MAX_MAPPING_ACCOUNTS = 64;
+
+    private final MultipleAccountsFetcher accountsFetcher;
+
+    public PythUniverseLoader(RpcClient client) {
+        this.accountsFetcher = new MultipleAccountsFetcher(client);
+    }
+
+    public PythUniverseLoader setCommitment(Commitment commitment) {
+        accountsFetcher.setCommitment(commitment);
+        return this;
+    }
+
+    /**
+     * @param executor executor the getMultipleAccounts chunks are requested on, which bounds their concurrency
+     * @return this loader
+     */
+    public PythUniverseLoader setExecutor(Executor executor) {
+        accountsFetcher.setExecutor(executor);
+        return this;
+    }
+
+    /**
+     * Loads all feeds of the mapping chain starting at the given mapping account.
+     *
+     * @param mappingAccountKey first mapping account
+     * @return feeds by symbol and price account
+     */
+    public PythUniverse load(PublicKey mappingAccountKey) {
+        final List<MappingAccount> mappingAccounts = loadMappingChain(mappingAccountKey);
+        final Set<PublicKey> productAccountKeys = new LinkedHashSet<>();
+        for (MappingAccount mappingAccount : mappingAccounts) {
+            productAccountKeys.addAll(mappingAccount.getProductAccountKeys());
+        }
+
+        final Map<PublicKey, ProductAccount> productAccounts = loadAccounts(productAccountKeys,
+                ProductAccount::readProductAccount);
+
+        final Set<PublicKey> priceAccountKeys = new LinkedHashSet<>();
+        for (ProductAccount productAccount : productAccounts.values()) {
+            if (hasPriceAccount(productAccount)) {
+                priceAccountKeys.add(productAccount.getPriceAccountKey());
+            }
+        }
+
+        final Map<PublicKey, PriceDataAccount> priceDataAccounts = loadAccounts(priceAccountKeys,
+                PriceDataAccount::readPriceDataAccount);
+
+        final List<PythFeed> feeds = new ArrayList<>(priceDataAccounts.size());
+        for (PublicKey productAccountKey : productAccountKeys) {
+            final ProductAccount productAccount = productAccounts.get(productAccountKey);
+            if (productAccount == null || !hasPriceAccount(productAccount)) {
+                continue;
+            }
+
+            final String symbol = productAccount.getProductAttributes().get("symbol");
+            final PriceDataAccount priceDataAccount = priceDataAccounts.get(productAccount.getPriceAccountKey());
+            if (symbol == null || priceDataAccount == null) {
+                continue;
+            }
+
+            feeds.add(PythFeed.builder()
+                    .symbol(symbol)
+                    .productAccountKey(productAccountKey)
+                    .productAccount(productAccount)
+                    .priceAccountKey(productAccount.getPriceAccountKey())
+                    .priceDataAccount(priceDataAccount)
+                    .build());
+        }
+
+        final PythUniverse universe = new PythUniverse(mappingAccounts, feeds);
+        LOGGER.info(String.format("Loaded %d Pyth feeds from %d products in %d mapping accounts",
+                universe.size(), productAccountKeys.size(), mappingAccounts.size()));
+        return universe;
+    }
+
+    /**
+     * Follows a mapping chain, one getMultipleAccounts call per mapping account.
+     *
+     * @param mappingAccountKey first mapping account
+     * @return mapping accounts in chain order, up to the first one that cannot be read
+     */
+    public List<MappingAccount> loadMappingChain(PublicKey mappingAccountKey) {
+        final List<MappingAccount> mappingAccounts = new ArrayList<>();
+        final Set<PublicKey> visited = new LinkedHashSet<>();
+        PublicKey next = mappingAccountKey;
+        while (next != null && visited.add(next) && visited.size() <= MAX_MAPPING_ACCOUNTS) {
+            final byte[] data = accountsFetcher.getMultipleAccounts(List.of(next)).get(next);
+            if (!isPythAccount(data)) {
+                LOGGER.warning("Pyth mapping account not found: " + next.toBase58());
+                break;
+            }
+
+            final MappingAccount mappingAccount = MappingAccount.readMappingAccount(data);
+            mappingAccounts.add(mappingAccount);
+            next = mappingAccount.getNextMappingAccount();
+        }
+
+        return mappingAccounts;
+    }
+
+    private <T> Map<PublicKey, T> loadAccounts(Set<PublicKey> accountKeys, Function<byte[], T> decoder) {
+        final Map<PublicKey, byte[]> accountData = accountsFetcher.getMultipleAccounts(new ArrayList<>(accountKeys));
+
+        final Map<PublicKey, T> accounts = new ConcurrentHashMap<>(accountData.size() * 2);
+        accountData.entrySet().parallelStream().forEach(entry -> {
+            if (!isPythAccount(entry.getValue())) {
+                LOGGER.warning("Not a Pyth account: " + entry.getKey().toBase58());
+                return;
+            }
+
+            try {
+                accounts.put(entry.getKey(), decoder.apply(entry.getValue()));
+            } catch (RuntimeException e) {
+                LOGGER.warning("Unable to decode Pyth account " + entry.getKey().toBase58() + ": " + e.getMessage());
+            }
+        });
+
+        return accounts;
+    }
+
+    private static boolean isPythAccount(byte[] data) {
+        return data != null && data.length >= PythUtils.INT32_SIZE
+                && PythUtils.readInt32(data, 0) == PythUtils.MAGIC_NUMBER;
+    }
+
+    private static boolean hasPriceAccount(ProductAccount productAccount) {
+        return !productAccount.getPriceAccountKey().toBase58().equals(PythUtils.EMPTY_PUBKEY);
+    }
+}
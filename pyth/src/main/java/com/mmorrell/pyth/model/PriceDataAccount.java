@@ -9,7 +9,6 @@ import org.bitcoinj.core.Utils;
 import org.p2p.solanaj.core.PublicKey;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 @Builder
@@ -40,6 +39,8 @@ public class PriceDataAccount {
     private static final int DRV_3_COMPONENT_OFFSET = PREVIOUS_CONFIDENCE_COMPONENT + PythUtils.INT64_SIZE;
     private static final int AGGREGATE_PRICE_INFO_OFFSET = DRV_3_COMPONENT_OFFSET + PythUtils.INT64_SIZE;
     private static final int PRICE_COMPONENTS_OFFSET = AGGREGATE_PRICE_INFO_OFFSET + PythUtils.PRICE_INFO_SIZE;
+    // [publisher][aggregate PriceInfo][latest PriceInfo]
+    private static final int PRICE_COMPONENT_SIZE = PublicKey.PUBLIC_KEY_LENGTH + (2 * PythUtils.PRICE_INFO_SIZE);
 
     // Variables
     private int magicNumber;
@@ -77,127 +78,99 @@ public class PriceDataAccount {
     private List<PriceComponent> priceComponents; // Up to 32 elements
 
     public static PriceDataAccount readPriceDataAccount(byte[] data) {
+        return readPriceDataAccount(data, PythDecodeMask.FULL);
+    }
+
+    /**
+     * Decodes the parts of a price account selected by mask. Fields left out keep their defaults (0 or null), and
+     * priceComponents is empty unless the mask includes components.
+     *
+     * @param data price account data
+     * @param mask parts to decode; {@link PythDecodeMask#AGGREGATE_ONLY} for the aggregate price, confidence, status
+     *             and publish slot only
+     * @return decoded price account
+     */
+    public static PriceDataAccount readPriceDataAccount(byte[] data, PythDecodeMask mask) {
+        final int exponent = PythUtils.readInt32(data, EXPONENT_OFFSET);
+        final float multiplier = (float) Math.pow(10, exponent);
+
         final PriceDataAccount priceDataAccount = PriceDataAccount.builder()
                 .magicNumber(PythUtils.readInt32(data, MAGIC_NUMBER_OFFSET))
                 .version(PythUtils.readInt32(data, VERSION_OFFSET))
                 .type(PythUtils.readInt32(data, TYPE_OFFSET))
                 .size(PythUtils.readInt32(data, SIZE_OFFSET))
                 .priceType(PythUtils.readInt32(data, PRICE_TYPE_OFFSET))
-                .exponent(PythUtils.readInt32(data, EXPONENT_OFFSET))
+                .exponent(exponent)
                 .numComponentPrices(PythUtils.readInt32(data, NUM_COMPONENT_PRICES_OFFSET))
                 .lastSlot(Utils.readInt64(data, LAST_SLOT_OFFSET))
                 .validSlot(Utils.readInt64(data, VALID_SLOT_OFFSET))
+                .aggregatePriceInfo(PriceInfo.readPriceInfo(data, AGGREGATE_PRICE_INFO_OFFSET, multiplier))
+                .priceComponents(List.of())
                 .build();
 
-        priceDataAccount.setEmaPrice(
-                PriceEma.readPriceEma(
-                        Arrays.copyOfRange(data, TWAP_OFFSET, TWAP_OFFSET + PriceEma.SIZE),
-                        priceDataAccount.getExponent()
-                )
-        );
+        if (mask.includesEma()) {
+            priceDataAccount.setEmaPrice(PriceEma.readPriceEma(data, TWAP_OFFSET, multiplier));
+            priceDataAccount.setEmaConfidence(PriceEma.readPriceEma(data, TWAC_OFFSET, multiplier));
+        }
+
+        if (mask.includesComponents()) {
+            readFullFields(data, multiplier, priceDataAccount);
+        }
 
-        priceDataAccount.setEmaConfidence(
-                PriceEma.readPriceEma(
-                        Arrays.copyOfRange(data, TWAC_OFFSET, TWAC_OFFSET + PriceEma.SIZE),
-                        priceDataAccount.getExponent()
-                )
-        );
+        return priceDataAccount;
+    }
 
+    private static void readFullFields(byte[] data, float multiplier, PriceDataAccount priceDataAccount) {
         long drv1Component = Utils.readInt64(data, DRV_1_COMPONENT_OFFSET);
-        float drv1 = (float) drv1Component * (float) Math.pow(10, priceDataAccount.getExponent());
         priceDataAccount.setDrv1Component(drv1Component);
-        priceDataAccount.setDrv1(drv1);
+        priceDataAccount.setDrv1((float) drv1Component * multiplier);
 
         // minimum number of publishers for status to be TRADING
-        byte minPublishers = Arrays.copyOfRange(data, DRV_2_COMPONENT_OFFSET, DRV_2_COMPONENT_OFFSET + 1)[0];
-        priceDataAccount.setMinPublishers(minPublishers);
+        priceDataAccount.setMinPublishers(data[DRV_2_COMPONENT_OFFSET]);
 
         final int DRV_2_BYTE_OFFSET = DRV_2_COMPONENT_OFFSET + 1;
-        byte drv2 = Arrays.copyOfRange(data, DRV_2_BYTE_OFFSET, DRV_2_BYTE_OFFSET + 1)[0];
-        priceDataAccount.setDrv2(drv2);
+        priceDataAccount.setDrv2(data[DRV_2_BYTE_OFFSET]);
 
         final int DRV_3_SHORT_OFFSET = DRV_2_BYTE_OFFSET + 1;
-        short drv3 = PythUtils.readInt16(data, DRV_3_SHORT_OFFSET);
-        priceDataAccount.setDrv3(drv3);
+        priceDataAccount.setDrv3(PythUtils.readInt16(data, DRV_3_SHORT_OFFSET));
 
         final int DRV_4_INT_OFFSET = DRV_3_SHORT_OFFSET + 2;
-        int drv4 = PythUtils.readInt32(data, DRV_4_INT_OFFSET);
-        priceDataAccount.setDrv4(drv4);
+        priceDataAccount.setDrv4(PythUtils.readInt32(data, DRV_4_INT_OFFSET));
 
         long drv5Component = Utils.readInt64(data, DRV_3_COMPONENT_OFFSET);
-        float drv5 = (float) drv5Component * (float) Math.pow(10, priceDataAccount.getExponent());
         priceDataAccount.setDrv5Component(drv5Component);
-        priceDataAccount.setDrv5(drv5);
+        priceDataAccount.setDrv5((float) drv5Component * multiplier);
 
         priceDataAccount.setProductAccountKey(PublicKey.readPubkey(data, PRODUCT_ACCOUNT_KEY_OFFSET));
-        final PublicKey nextPriceAccountKey = PublicKey.readPubkey(data, NEXT_PRICE_ACCOUNT_KEY_OFFSET);
-        if (!nextPriceAccountKey.toBase58().equalsIgnoreCase(PythUtils.EMPTY_PUBKEY)){
-            priceDataAccount.setNextPriceAccountKey(nextPriceAccountKey);
+        if (!PythUtils.isZero(data, NEXT_PRICE_ACCOUNT_KEY_OFFSET, PublicKey.PUBLIC_KEY_LENGTH)) {
+            priceDataAccount.setNextPriceAccountKey(PublicKey.readPubkey(data, NEXT_PRICE_ACCOUNT_KEY_OFFSET));
         }
 
-        long previousSlot = Utils.readInt64(data, PREVIOUS_SLOT_OFFSET);
-        priceDataAccount.setPreviousSlot(previousSlot);
+        priceDataAccount.setPreviousSlot(Utils.readInt64(data, PREVIOUS_SLOT_OFFSET));
 
         long previousPriceComponent = Utils.readInt64(data, PREVIOUS_PRICE_COMPONENT_OFFSET);
-        float previousPrice = (float) previousPriceComponent * (float) Math.pow(10, priceDataAccount.getExponent());
         priceDataAccount.setPreviousPriceComponent(previousPriceComponent);
-        priceDataAccount.setPreviousPrice(previousPrice);
+        priceDataAccount.setPreviousPrice((float) previousPriceComponent * multiplier);
 
         long previousConfidenceComponent = Utils.readInt64(data, PREVIOUS_CONFIDENCE_COMPONENT);
-        float previousConfidence = (float) previousConfidenceComponent * (float) Math.pow(10, priceDataAccount.getExponent());
         priceDataAccount.setPreviousConfidenceComponent(previousConfidenceComponent);
-        priceDataAccount.setPreviousConfidence(previousConfidence);
-
-        final PriceInfo aggregatePriceInfo = PriceInfo.readPriceInfo(
-                Arrays.copyOfRange(
-                        data,
-                        AGGREGATE_PRICE_INFO_OFFSET,
-                        AGGREGATE_PRICE_INFO_OFFSET + PythUtils.PRICE_INFO_SIZE
-                ),
-                priceDataAccount.getExponent()
-        );
-        priceDataAccount.setAggregatePriceInfo(aggregatePriceInfo);
-
-        priceDataAccount.setPriceComponents(new ArrayList<>());
-        int offset = PRICE_COMPONENTS_OFFSET;
-        boolean shouldContinue = true;
-        while (offset < data.length && shouldContinue) {
-            final PublicKey publisher = PublicKey.readPubkey(data, offset);
-            offset += 32;
-
-            if (!publisher.toBase58().equalsIgnoreCase(PythUtils.EMPTY_PUBKEY)) {
-                final PriceInfo aggregate = PriceInfo.readPriceInfo(
-                        Arrays.copyOfRange(
-                                data,
-                                offset,
-                                offset + PublicKey.PUBLIC_KEY_LENGTH
-                        ),
-                        priceDataAccount.getExponent()
-                );
-                offset += 32;
-
-                final PriceInfo latest = PriceInfo.readPriceInfo(
-                        Arrays.copyOfRange(
-                                data,
-                                offset,
-                                offset + PublicKey.PUBLIC_KEY_LENGTH
-                        ),
-                        priceDataAccount.getExponent()
-                );
-                offset += 32;
-                priceDataAccount.getPriceComponents().add(
-                        PriceComponent.builder()
-                                .publisher(publisher)
-                                .aggregate(aggregate)
-                                .latest(latest)
-                                .build()
-                );
-            } else {
-                shouldContinue = false;
-            }
+        priceDataAccount.setPreviousConfidence((float) previousConfidenceComponent * multiplier);
 
+        // Publishers are listed first to last, an all-zero publisher key ends the list
+        final List<PriceComponent> priceComponents = new ArrayList<>();
+        int offset = PRICE_COMPONENTS_OFFSET;
+        while (offset + PRICE_COMPONENT_SIZE <= data.length
+                && !PythUtils.isZero(data, offset, PublicKey.PUBLIC_KEY_LENGTH)) {
+            priceComponents.add(
+                    PriceComponent.builder()
+                            .publisher(PublicKey.readPubkey(data, offset))
+                            .aggregate(PriceInfo.readPriceInfo(data, offset + PublicKey.PUBLIC_KEY_LENGTH, multiplier))
+                            .latest(PriceInfo.readPriceInfo(data, offset + PublicKey.PUBLIC_KEY_LENGTH
+                                    + PythUtils.PRICE_INFO_SIZE, multiplier))
+                            .build()
+            );
+            offset += PRICE_COMPONENT_SIZE;
         }
-
-        return priceDataAccount;
+        priceDataAccount.setPriceComponents(priceComponents);
     }
 }
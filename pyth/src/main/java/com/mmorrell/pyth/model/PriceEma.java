@@ -25,13 +25,30 @@ public class PriceEma {
     private long denominator;
 
     public static PriceEma readPriceEma(byte[] data, int exponent) {
-        final PriceEma priceEma = PriceEma.builder()
-                .valueComponent(Utils.readInt64(data, VALUE_COMPONENT_OFFSET))
-                .numerator(Utils.readInt64(data, NUMERATOR_OFFSET))
-                .denominator(Utils.readInt64(data, DENOMINATOR_OFFSET))
-                .build();
+        return readPriceEma(data, 0, exponent);
+    }
+
+    /**
+     * Reads an EMA in place, without copying it out of the account data.
+     *
+     * @param data     account data
+     * @param offset   offset of the EMA in data
+     * @param exponent price account exponent
+     * @return decoded EMA
+     */
+    public static PriceEma readPriceEma(byte[] data, int offset, int exponent) {
+        return readPriceEma(data, offset, (float) Math.pow(10, exponent));
+    }
+
+    // multiplier is (float) 10^exponent, computed once per price account by callers
+    static PriceEma readPriceEma(byte[] data, int offset, float multiplier) {
+        final long valueComponent = Utils.readInt64(data, offset + VALUE_COMPONENT_OFFSET);
 
-        priceEma.setValue((float) priceEma.getValueComponent() * (float) Math.pow(10, exponent));
-        return priceEma;
+        return PriceEma.builder()
+                .valueComponent(valueComponent)
+                .value((float) valueComponent * multiplier)
+                .numerator(Utils.readInt64(data, offset + NUMERATOR_OFFSET))
+                .denominator(Utils.readInt64(data, offset + DENOMINATOR_OFFSET))
+                .build();
     }
 }
@@ -28,19 +28,35 @@ public class PriceInfo {
     private long publishSlot;
 
     public static PriceInfo readPriceInfo(byte[] data, int exponent) {
-        final PriceInfo priceInfo = PriceInfo.builder()
-                .priceComponent(Utils.readInt64(data, PRICE_COMPONENT_OFFSET))
-                .confidenceComponent(Utils.readInt64(data, CONFIDENCE_COMPONENT_OFFSET))
-                .status(PythUtils.readInt32(data, STATUS_OFFSET))
-                .corporateAction(PythUtils.readInt32(data, CORPORATE_ACTION_OFFSET))
-                .publishSlot(Utils.readInt64(data, PUBLISH_SLOT_OFFSET))
-                .build();
+        return readPriceInfo(data, 0, exponent);
+    }
 
-        // Calculate necessary values for setters
-        priceInfo.setPrice(((float) priceInfo.getPriceComponent()) * (float) Math.pow(10, exponent));
-        priceInfo.setConfidence(((float) priceInfo.getConfidenceComponent()) * (float) Math.pow(10, exponent));
+    /**
+     * Reads a price info in place, without copying it out of the account data.
+     *
+     * @param data     account data
+     * @param offset   offset of the price info in data
+     * @param exponent price account exponent
+     * @return decoded price info
+     */
+    public static PriceInfo readPriceInfo(byte[] data, int offset, int exponent) {
+        return readPriceInfo(data, offset, (float) Math.pow(10, exponent));
+    }
 
-        return priceInfo;
+    // multiplier is (float) 10^exponent, computed once per price account by callers decoding many price infos
+    static PriceInfo readPriceInfo(byte[] data, int offset, float multiplier) {
+        final long priceComponent = Utils.readInt64(data, offset + PRICE_COMPONENT_OFFSET);
+        final long confidenceComponent = Utils.readInt64(data, offset + CONFIDENCE_COMPONENT_OFFSET);
+
+        return PriceInfo.builder()
+                .priceComponent(priceComponent)
+                .price((float) priceComponent * multiplier)
+                .confidenceComponent(confidenceComponent)
+                .confidence((float) confidenceComponent * multiplier)
+                .status(PythUtils.readInt32(data, offset + STATUS_OFFSET))
+                .corporateAction(PythUtils.readInt32(data, offset + CORPORATE_ACTION_OFFSET))
+                .publishSlot(Utils.readInt64(data, offset + PUBLISH_SLOT_OFFSET))
+                .build();
     }
 
 }
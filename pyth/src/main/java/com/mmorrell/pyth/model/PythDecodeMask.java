@@ -0,0 +1,32 @@
+package com.mmorrell.pyth.model;
+
+/**
+ * Which parts of a price account {@link PriceDataAccount#readPriceDataAccount(byte[], PythDecodeMask)} and
+ * {@link PythPriceTick#readPythPriceTick(byte[], PythDecodeMask)} decode. Parts left out keep their default values.
+ */
+public enum PythDecodeMask {
+
+    /**
+     * Header (magic number through valid slot) and the aggregate price, confidence, status and publish slot.
+     */
+    AGGREGATE_ONLY,
+
+    /**
+     * {@link #AGGREGATE_ONLY} plus the EMA price and confidence.
+     */
+    WITH_EMA,
+
+    /**
+     * Everything, including the drv fields, previous price, product and next price account keys and up to 32
+     * publisher components.
+     */
+    FULL;
+
+    public boolean includesEma() {
+        return this != AGGREGATE_ONLY;
+    }
+
+    public boolean includesComponents() {
+        return this == FULL;
+    }
+}
@@ -0,0 +1,29 @@
+package com.mmorrell.pyth.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.p2p.solanaj.core.PublicKey;
+
+/**
+ * A Pyth product together with its price account, as loaded by
+ * {@link com.mmorrell.pyth.manager.PythUniverseLoader}.
+ */
+@Builder
+@Getter
+@ToString
+public class PythFeed {
+
+    private final String symbol;
+    private final PublicKey productAccountKey;
+    private final ProductAccount productAccount;
+    private final PublicKey priceAccountKey;
+    private final PriceDataAccount priceDataAccount;
+
+    /**
+     * @return aggregate price, as of when the price account was loaded
+     */
+    public float getPrice() {
+        return priceDataAccount.getAggregatePriceInfo().getPrice();
+    }
+}
@@ -0,0 +1,179 @@
+package com.mmorrell.pyth.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Recent aggregate prices of one Pyth feed, kept in primitive ring buffers sized to the largest configured window,
+ * with rolling statistics per window.
+ * <p>
+ * Samples are added in publish slot order, either from a {@link PythPriceSlot} it is attached to (see
+ * {@link com.mmorrell.pyth.manager.PythPriceFeedCache#addHistory(String, int...)}) or directly, e.g. when polling.
+ * Each {@link PythRollingWindow} updates its statistics in O(1) per sample and answers queries in O(1), without
+ * walking the buffer or allocating.
+ * <p>
+ * Methods are synchronized on the history, which is uncontended with one update source.
+ */
+public class PythPriceHistory {
+
+    private final int capacity;
+    private final long[] publishSlots;
+    private final double[] prices;
+    private final double[] confidences;
+    private final List<PythRollingWindow> windows;
+
+    // Samples added so far; the latest sample is at (count - 1) % capacity
+    private long count;
+
+    /**
+     * @param windowSizes number of samples of each rolling window, e.g. 30 and 300; the buffers hold the largest
+     */
+    public PythPriceHistory(int... windowSizes) {
+        if (windowSizes.length == 0) {
+            throw new IllegalArgumentException("At least one window size is required");
+        }
+
+        final List<PythRollingWindow> windows = new ArrayList<>(windowSizes.length);
+        int capacity = 0;
+        for (int windowSize : windowSizes) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+            }
+
+            windows.add(new PythRollingWindow(this, windowSize));
+            capacity = Math.max(capacity, windowSize);
+        }
+
+        this.capacity = capacity;
+        this.publishSlots = new long[capacity];
+        this.prices = new double[capacity];
+        this.confidences = new double[capacity];
+        this.windows = Collections.unmodifiableList(windows);
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param publishSlot slot the aggregate price was published in
+     * @param price       aggregate price
+     * @param confidence  aggregate confidence
+     * @return false if the sample was not published after the latest one, e.g. the same aggregate pushed again
+     */
+    public synchronized boolean add(long publishSlot, double price, double confidence) {
+        final long previousSlot = count == 0 ? publishSlot : publishSlots[index(count - 1)];
+        if (count > 0 && publishSlot <= previousSlot) {
+            return false;
+        }
+
+        // Windows read the sample they drop before the buffers overwrite it
+        for (PythRollingWindow window : windows) {
+            window.add(count, price, publishSlot - previousSlot);
+        }
+
+        final int index = index(count);
+        publishSlots[index] = publishSlot;
+        prices[index] = price;
+        confidences[index] = confidence;
+        count++;
+
+        for (PythRollingWindow window : windows) {
+            window.recomputeIfDue(count);
+        }
+
+        return true;
+    }
+
+    /**
+     * @param windowSize number of samples of a window passed to the constructor
+     * @return the window, empty if no window of that size was configured
+     */
+    public Optional<PythRollingWindow> getWindow(int windowSize) {
+        for (PythRollingWindow window : windows) {
+            if (window.getSize() == windowSize) {
+                return Optional.of(window);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    public List<PythRollingWindow> getWindows() {
+        return windows;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of samples held, at most {@link #getCapacity()}
+     */
+    public synchronized int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    /**
+     * @return number of samples added so far
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @param samplesAgo 0 for the latest sample, up to {@link #size()} - 1
+     * @return price of the sample
+     */
+    public synchronized double getPrice(int samplesAgo) {
+        return prices[indexAgo(samplesAgo)];
+    }
+
+    /**
+     * @param samplesAgo 0 for the latest sample, up to {@link #size()} - 1
+     * @return confidence of the sample
+     */
+    public synchronized double getConfidence(int samplesAgo) {
+        return confidences[indexAgo(samplesAgo)];
+    }
+
+    /**
+     * @param samplesAgo 0 for the latest sample, up to {@link #size()} - 1
+     * @return publish slot of the sample
+     */
+    public synchronized long getPublishSlot(int samplesAgo) {
+        return publishSlots[indexAgo(samplesAgo)];
+    }
+
+    /**
+     * @return latest price, NaN if no sample was added yet
+     */
+    public synchronized double getLatestPrice() {
+        return count == 0 ? Double.NaN : prices[index(count - 1)];
+    }
+
+    /**
+     * @param currentSlot current cluster slot
+     * @return slots since the latest sample was published, -1 if no sample was added yet
+     */
+    public synchronized long getSlotsSinceUpdate(long currentSlot) {
+        return count == 0 ? -1 : currentSlot - publishSlots[index(count - 1)];
+    }
+
+    // Price of a sample still in the buffers, by number of samples added before it
+    double priceAt(long sample) {
+        return prices[index(sample)];
+    }
+
+    private int indexAgo(int samplesAgo) {
+        if (samplesAgo < 0 || samplesAgo >= Math.min(count, capacity)) {
+            throw new IndexOutOfBoundsException("Sample " + samplesAgo + " ago is not held, size " + size());
+        }
+
+        return index(count - 1 - samplesAgo);
+    }
+
+    private int index(long sample) {
+        return (int) (sample % capacity);
+    }
+}
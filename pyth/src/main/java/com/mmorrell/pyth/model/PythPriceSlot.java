@@ -0,0 +1,223 @@
+package com.mmorrell.pyth.model;
+
+import com.mmorrell.pyth.utils.PythUtils;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Base64;
+
+/**
+ * Latest aggregate price of one Pyth feed, written by one update source (e.g. its account subscription) and read by
+ * any number of threads.
+ * <p>
+ * The values are kept in primitive fields behind a sequence number, which a writer makes odd while it updates them.
+ * Readers copy the fields and retry if the sequence number was odd or changed in between, so they always see the
+ * values of a single update, never block and never allocate unless a method says so. Writers are serialized on the
+ * slot, which is uncontended with one update source.
+ * <p>
+ * Updates decode only the exponent and the aggregate {@link PriceInfo} from the price account; from base64 account
+ * data, only the first {@link #DECODED_SIZE} bytes are decoded, into buffers owned by the slot.
+ */
+public class PythPriceSlot {
+
+    // Bytes read from a price account, which is a multiple of 3 so its base64 prefix decodes without padding
+    public static final int DECODED_SIZE = PythPriceTick.SIZE;
+    private static final int BASE64_PREFIX_LENGTH = (DECODED_SIZE / 3) * 4;
+
+    private static final VarHandle SEQUENCE;
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(PythPriceSlot.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String symbol;
+    private final PublicKey priceAccountKey;
+
+    // Even when stable, odd while an update is being written; twice the number of updates
+    @SuppressWarnings("unused")
+    private volatile long sequence;
+    private long priceComponent;
+    private long confidenceComponent;
+    private int exponent;
+    private int status;
+    private long publishSlot;
+
+    // Receives every update published after the previous one, if set
+    private volatile PythPriceHistory history;
+
+    // Writer-owned decode buffers
+    private final byte[] base64Prefix = new byte[BASE64_PREFIX_LENGTH];
+    private final byte[] decoded = new byte[DECODED_SIZE];
+
+    public PythPriceSlot(String symbol, PublicKey priceAccountKey) {
+        this.symbol = symbol;
+        this.priceAccountKey = priceAccountKey;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public PublicKey getPriceAccountKey() {
+        return priceAccountKey;
+    }
+
+    /**
+     * @return number of updates written so far
+     */
+    public long getVersion() {
+        return ((long) SEQUENCE.getAcquire(this)) >>> 1;
+    }
+
+    public boolean isInitialized() {
+        return getVersion() > 0;
+    }
+
+    public PythPriceHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * @param history history to add every later update to, null to stop recording
+     */
+    public void setHistory(PythPriceHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Writes the aggregate price from raw price account data.
+     *
+     * @param data price account data, at least {@link #DECODED_SIZE} bytes
+     * @return false if the data is not a price account or is older than the current update
+     */
+    public boolean update(byte[] data) {
+        if (data.length < DECODED_SIZE || (int) INT_LE.get(data, 0) != PythUtils.MAGIC_NUMBER) {
+            return false;
+        }
+
+        return update(
+                (long) LONG_LE.get(data, PythPriceTick.AGGREGATE_PRICE_OFFSET),
+                (long) LONG_LE.get(data, PythPriceTick.AGGREGATE_CONFIDENCE_OFFSET),
+                (int) INT_LE.get(data, PythPriceTick.EXPONENT_OFFSET),
+                (int) INT_LE.get(data, PythPriceTick.AGGREGATE_STATUS_OFFSET),
+                (long) LONG_LE.get(data, PythPriceTick.AGGREGATE_PUBLISH_SLOT_OFFSET)
+        );
+    }
+
+    /**
+     * Writes the aggregate price from base64 price account data, as pushed by an account subscription, decoding only
+     * its first {@link #DECODED_SIZE} bytes.
+     *
+     * @param base64 base64 encoded price account data
+     * @return false if the data is not a price account or is older than the current update
+     */
+    public synchronized boolean update(String base64) {
+        if (base64.length() < BASE64_PREFIX_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < BASE64_PREFIX_LENGTH; i++) {
+            base64Prefix[i] = (byte) base64.charAt(i);
+        }
+        Base64.getDecoder().decode(base64Prefix, decoded);
+        return update(decoded);
+    }
+
+    /**
+     * Writes an update, unless it was published before the current one.
+     *
+     * @return false if the update is older than the current one
+     */
+    public synchronized boolean update(long priceComponent, long confidenceComponent, int exponent, int status,
+                                       long publishSlot) {
+        final long current = sequence;
+        if (current > 0 && publishSlot < this.publishSlot) {
+            return false;
+        }
+
+        SEQUENCE.setOpaque(this, current + 1);
+        VarHandle.storeStoreFence();
+        this.priceComponent = priceComponent;
+        this.confidenceComponent = confidenceComponent;
+        this.exponent = exponent;
+        this.status = status;
+        this.publishSlot = publishSlot;
+        SEQUENCE.setRelease(this, current + 2);
+
+        final PythPriceHistory history = this.history;
+        if (history != null) {
+            history.add(publishSlot, PythUtils.scale(priceComponent, exponent),
+                    PythUtils.scale(confidenceComponent, exponent));
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the latest price without allocating.
+     *
+     * @return latest aggregate price, NaN if none was written yet
+     */
+    public double getPrice() {
+        while (true) {
+            final long before = beginRead();
+            final long priceComponent = this.priceComponent;
+            final int exponent = this.exponent;
+            if (endRead(before)) {
+                return before == 0 ? Double.NaN : PythUtils.scale(priceComponent, exponent);
+            }
+        }
+    }
+
+    /**
+     * Reads all values of the latest update at once.
+     *
+     * @return latest update, with version 0 if none was written yet
+     */
+    public PythPriceSnapshot getSnapshot() {
+        while (true) {
+            final long before = beginRead();
+            final long priceComponent = this.priceComponent;
+            final long confidenceComponent = this.confidenceComponent;
+            final int exponent = this.exponent;
+            final int status = this.status;
+            final long publishSlot = this.publishSlot;
+            if (endRead(before)) {
+                return PythPriceSnapshot.builder()
+                        .symbol(symbol)
+                        .priceAccountKey(priceAccountKey)
+                        .priceComponent(priceComponent)
+                        .confidenceComponent(confidenceComponent)
+                        .exponent(exponent)
+                        .status(status)
+                        .publishSlot(publishSlot)
+                        .version(before >>> 1)
+                        .build();
+            }
+        }
+    }
+
+    private long beginRead() {
+        long sequence = (long) SEQUENCE.getAcquire(this);
+        while ((sequence & 1) != 0) {
+            Thread.onSpinWait();
+            sequence = (long) SEQUENCE.getAcquire(this);
+        }
+
+        return sequence;
+    }
+
+    private boolean endRead(long before) {
+        VarHandle.loadLoadFence();
+        return (long) SEQUENCE.getOpaque(this) == before;
+    }
+}
@@ -0,0 +1,41 @@
+package com.mmorrell.pyth.model;
+
+import com.mmorrell.pyth.utils.PythUtils;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.p2p.solanaj.core.PublicKey;
+
+/**
+ * Aggregate price of one Pyth feed as of one update, read from a {@link PythPriceSlot}.
+ */
+@Builder
+@Getter
+@ToString
+public class PythPriceSnapshot {
+
+    // PriceInfo status of a feed with enough publishers
+    public static final int STATUS_TRADING = 1;
+
+    private final String symbol;
+    private final PublicKey priceAccountKey;
+    private final long priceComponent;
+    private final long confidenceComponent;
+    private final int exponent;
+    private final int status;
+    private final long publishSlot;
+    // Number of updates written to the slot, 0 if none yet
+    private final long version;
+
+    public double getPrice() {
+        return PythUtils.scale(priceComponent, exponent);
+    }
+
+    public double getConfidence() {
+        return PythUtils.scale(confidenceComponent, exponent);
+    }
+
+    public boolean isTrading() {
+        return status == STATUS_TRADING;
+    }
+}
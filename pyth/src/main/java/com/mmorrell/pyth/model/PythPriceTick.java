@@ -0,0 +1,87 @@
+package com.mmorrell.pyth.model;
+
+import com.mmorrell.pyth.utils.PythUtils;
+import org.bitcoinj.core.Utils;
+
+/**
+ * Price account fields most consumers need, decoded straight from the account bytes into primitives: no
+ * {@link PriceInfo}, {@link PriceEma} or {@link org.p2p.solanaj.core.PublicKey} objects, no copies and no Base58.
+ * <p>
+ * price account layout: [magic u32][version u32][type u32][size u32][priceType u32][exponent i32]
+ * [numComponentPrices u32][4 bytes][lastSlot u64][validSlot u64][emaPrice: (value i64, numerator i64, denominator
+ * i64)][emaConfidence: (value i64, numerator i64, denominator i64)] ... [aggregate @ 208: (price i64, confidence u64,
+ * status u32, corporateAction u32, publishSlot u64)][components @ 240]
+ *
+ * @param exponent               power of ten the components are scaled by
+ * @param priceComponent         aggregate price
+ * @param confidenceComponent    aggregate confidence
+ * @param status                 aggregate status, {@link PythPriceSnapshot#STATUS_TRADING} when trading
+ * @param publishSlot            slot the aggregate was published in
+ * @param validSlot              slot of the last valid aggregate
+ * @param emaPriceComponent      EMA price, 0 unless decoded with EMA
+ * @param emaConfidenceComponent EMA confidence, 0 unless decoded with EMA
+ */
+public record PythPriceTick(int exponent, long priceComponent, long confidenceComponent, int status, long publishSlot,
+                            long validSlot, long emaPriceComponent, long emaConfidenceComponent) {
+
+    public static final int EXPONENT_OFFSET = 20;
+    public static final int VALID_SLOT_OFFSET = 40;
+    public static final int EMA_PRICE_OFFSET = 48;
+    public static final int EMA_CONFIDENCE_OFFSET = EMA_PRICE_OFFSET + PriceEma.SIZE;
+    public static final int AGGREGATE_PRICE_OFFSET = 208;
+    public static final int AGGREGATE_CONFIDENCE_OFFSET = AGGREGATE_PRICE_OFFSET + PythUtils.INT64_SIZE;
+    public static final int AGGREGATE_STATUS_OFFSET = AGGREGATE_CONFIDENCE_OFFSET + PythUtils.INT64_SIZE;
+    public static final int AGGREGATE_PUBLISH_SLOT_OFFSET = AGGREGATE_STATUS_OFFSET + (2 * PythUtils.INT32_SIZE);
+    // Bytes a tick is read from, the components are not needed
+    public static final int SIZE = AGGREGATE_PUBLISH_SLOT_OFFSET + PythUtils.INT64_SIZE;
+
+    /**
+     * Decodes the aggregate price and the EMA.
+     *
+     * @param data price account data, at least {@link #SIZE} bytes
+     * @return decoded tick
+     */
+    public static PythPriceTick readPythPriceTick(byte[] data) {
+        return readPythPriceTick(data, PythDecodeMask.WITH_EMA);
+    }
+
+    /**
+     * @param data price account data, at least {@link #SIZE} bytes
+     * @param mask {@link PythDecodeMask#AGGREGATE_ONLY} to skip the EMA; {@link PythDecodeMask#FULL} decodes the same
+     *             as {@link PythDecodeMask#WITH_EMA}, as a tick has no room for the rest
+     * @return decoded tick
+     */
+    public static PythPriceTick readPythPriceTick(byte[] data, PythDecodeMask mask) {
+        final boolean ema = mask.includesEma();
+        return new PythPriceTick(
+                PythUtils.readInt32(data, EXPONENT_OFFSET),
+                Utils.readInt64(data, AGGREGATE_PRICE_OFFSET),
+                Utils.readInt64(data, AGGREGATE_CONFIDENCE_OFFSET),
+                PythUtils.readInt32(data, AGGREGATE_STATUS_OFFSET),
+                Utils.readInt64(data, AGGREGATE_PUBLISH_SLOT_OFFSET),
+                Utils.readInt64(data, VALID_SLOT_OFFSET),
+                ema ? Utils.readInt64(data, EMA_PRICE_OFFSET) : 0,
+                ema ? Utils.readInt64(data, EMA_CONFIDENCE_OFFSET) : 0
+        );
+    }
+
+    public double price() {
+        return PythUtils.scale(priceComponent, exponent);
+    }
+
+    public double confidence() {
+        return PythUtils.scale(confidenceComponent, exponent);
+    }
+
+    public double emaPrice() {
+        return PythUtils.scale(emaPriceComponent, exponent);
+    }
+
+    public double emaConfidence() {
+        return PythUtils.scale(emaConfidenceComponent, exponent);
+    }
+
+    public boolean isTrading() {
+        return status == PythPriceSnapshot.STATUS_TRADING;
+    }
+}
@@ -0,0 +1,153 @@
+package com.mmorrell.pyth.model;
+
+/**
+ * Rolling statistics over the latest samples of a {@link PythPriceHistory}, updated in O(1) per sample.
+ * <p>
+ * Mean and variance use Welford's algorithm, removing the sample that leaves the window as one is added, and are
+ * recomputed exactly from the buffer once every window size samples so rounding errors do not accumulate. The
+ * maximum slot gap is kept in a monotonic queue of gaps. The EMA uses a smoothing factor of 2 / (size + 1) over all
+ * samples added.
+ */
+public class PythRollingWindow {
+
+    private final PythPriceHistory history;
+    private final int size;
+    private final double emaAlpha;
+
+    private int count;
+    private double mean;
+    // Sum of squared differences from the mean
+    private double m2;
+    private double ema = Double.NaN;
+
+    // Gaps in decreasing order, front is the largest gap of the window; ring buffers indexed by head and tail
+    private final long[] gapSamples;
+    private final long[] gaps;
+    private long head;
+    private long tail;
+
+    PythRollingWindow(PythPriceHistory history, int size) {
+        this.history = history;
+        this.size = size;
+        this.emaAlpha = 2.0 / (size + 1);
+        this.gapSamples = new long[size];
+        this.gaps = new long[size];
+    }
+
+    // Called with the history locked, before the sample is written to its buffers
+    void add(long sample, double price, long slotGap) {
+        if (count < size) {
+            count++;
+            final double delta = price - mean;
+            mean += delta / count;
+            m2 += delta * (price - mean);
+        } else {
+            final double removed = history.priceAt(sample - size);
+            final double previousMean = mean;
+            mean += (price - removed) / size;
+            m2 = Math.max(0, m2 + (price - removed) * (price - mean + removed - previousMean));
+        }
+
+        ema = sample == 0 ? price : ema + emaAlpha * (price - ema);
+
+        while (tail > head && gaps[gapIndex(tail - 1)] <= slotGap) {
+            tail--;
+        }
+        gapSamples[gapIndex(tail)] = sample;
+        gaps[gapIndex(tail)] = slotGap;
+        tail++;
+
+        // The oldest sample of the window has no gap inside it
+        while (tail > head && gapSamples[gapIndex(head)] < sample - size + 2) {
+            head++;
+        }
+    }
+
+    // Called with the history locked, after the sample is written to its buffers
+    void recomputeIfDue(long historyCount) {
+        if (count < size || historyCount % size != 0) {
+            return;
+        }
+
+        double sum = 0;
+        for (long sample = historyCount - size; sample < historyCount; sample++) {
+            sum += history.priceAt(sample);
+        }
+        mean = sum / size;
+
+        double squares = 0;
+        for (long sample = historyCount - size; sample < historyCount; sample++) {
+            final double delta = history.priceAt(sample) - mean;
+            squares += delta * delta;
+        }
+        m2 = squares;
+    }
+
+    /**
+     * @return maximum number of samples in the window
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of samples in the window, less than {@link #getSize()} until enough were added
+     */
+    public int getCount() {
+        synchronized (history) {
+            return count;
+        }
+    }
+
+    public boolean isFull() {
+        return getCount() == size;
+    }
+
+    /**
+     * @return mean price of the window, NaN if it is empty
+     */
+    public double getMean() {
+        synchronized (history) {
+            return count == 0 ? Double.NaN : mean;
+        }
+    }
+
+    /**
+     * @return sample variance of the window's prices, NaN with less than 2 samples
+     */
+    public double getVariance() {
+        synchronized (history) {
+            return count < 2 ? Double.NaN : m2 / (count - 1);
+        }
+    }
+
+    /**
+     * @return sample standard deviation of the window's prices, NaN with less than 2 samples
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return exponential moving average of the price, NaN if no sample was added yet
+     */
+    public double getEma() {
+        synchronized (history) {
+            return ema;
+        }
+    }
+
+    /**
+     * @return largest number of slots between the publish slots of consecutive samples in the window, 0 with less
+     * than 2 samples
+     */
+    public long getMaxSlotGap() {
+        synchronized (history) {
+            return tail > head ? gaps[gapIndex(head)] : 0;
+        }
+    }
+
+    private int gapIndex(long position) {
+        return (int) (position % size);
+    }
+}
@@ -0,0 +1,58 @@
+package com.mmorrell.pyth.model;
+
+import lombok.Getter;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Every Pyth feed reachable from a mapping account, by symbol and by price account, see
+ * {@link com.mmorrell.pyth.manager.PythUniverseLoader}. Feeds are kept in mapping account order.
+ */
+@Getter
+public class PythUniverse {
+
+    private final List<MappingAccount> mappingAccounts;
+    private final Map<String, PythFeed> feeds;
+    private final Map<PublicKey, PythFeed> feedsByPriceAccount;
+
+    public PythUniverse(List<MappingAccount> mappingAccounts, Collection<PythFeed> feeds) {
+        final Map<String, PythFeed> feedsBySymbol = new LinkedHashMap<>();
+        final Map<PublicKey, PythFeed> feedsByPriceAccount = new HashMap<>(feeds.size() * 2);
+        for (PythFeed feed : feeds) {
+            feedsBySymbol.putIfAbsent(feed.getSymbol(), feed);
+            feedsByPriceAccount.putIfAbsent(feed.getPriceAccountKey(), feed);
+        }
+
+        this.mappingAccounts = List.copyOf(mappingAccounts);
+        this.feeds = Collections.unmodifiableMap(feedsBySymbol);
+        this.feedsByPriceAccount = Collections.unmodifiableMap(feedsByPriceAccount);
+    }
+
+    /**
+     * @param symbol product symbol attribute, e.g. Crypto.SOL/USD
+     * @return the symbol's feed, if loaded
+     */
+    public Optional<PythFeed> getFeed(String symbol) {
+        return Optional.ofNullable(feeds.get(symbol));
+    }
+
+    public Optional<PythFeed> getFeedByPriceAccount(PublicKey priceAccountKey) {
+        return Optional.ofNullable(feedsByPriceAccount.get(priceAccountKey));
+    }
+
+    public Set<String> getSymbols() {
+        return feeds.keySet();
+    }
+
+    public int size() {
+        return feeds.size();
+    }
+}
@@ -1,48 +1,63 @@
 package com.mmorrell.pyth.utils;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
-
 public class PythUtils {
 
     public static final int INT32_SIZE = 4;
     public static final int INT64_SIZE = 8;
     public static final int PRICE_INFO_SIZE = 32;
     public static final String EMPTY_PUBKEY = "11111111111111111111111111111111";
+    // First 4 bytes of every Pyth account
+    public static final int MAGIC_NUMBER = 0xa1b2c3d4;
+
+    // Exact powers of ten for the exponents Pyth uses, scale() falls back to Math.pow outside of them
+    private static final int MAX_EXACT_EXPONENT = 18;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int exponent = 1; exponent <= MAX_EXACT_EXPONENT; exponent++) {
+            POWERS_OF_TEN[exponent] = POWERS_OF_TEN[exponent - 1] * 10;
+        }
+    }
 
     // TODO - Deduplicate this from Slab
     public static int readInt32(byte[] data, int offset) {
-        // convert 4 bytes into an int.
-        // create a byte buffer and wrap the array
-        ByteBuffer bb = ByteBuffer.wrap(
-                Arrays.copyOfRange(
-                        data,
-                        offset,
-                        offset + 4
-                )
-        );
-
-        // if the file uses little endian as apposed to network
-        // (big endian, Java's native) format,
-        // then set the byte order of the ByteBuffer
-        bb.order(ByteOrder.LITTLE_ENDIAN);
-
-        // read your integers using ByteBuffer's getInt().
-        // four bytes converted into an integer!
-        return bb.getInt(0);
+        return (data[offset] & 0xff)
+                | ((data[offset + 1] & 0xff) << 8)
+                | ((data[offset + 2] & 0xff) << 16)
+                | ((data[offset + 3] & 0xff) << 24);
     }
 
     public static short readInt16(byte[] data, int offset) {
-        ByteBuffer bb = ByteBuffer.wrap(
-                Arrays.copyOfRange(
-                        data,
-                        offset,
-                        offset + 2
-                )
-        );
-
-        bb.order(ByteOrder.LITTLE_ENDIAN);
-        return bb.getShort(0);
+        return (short) ((data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8));
+    }
+
+    /**
+     * @return true if the given bytes are all zero, e.g. an empty ({@link #EMPTY_PUBKEY}) public key
+     */
+    public static boolean isZero(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Scales a fixed-point price component by its account's exponent, dividing for negative exponents so that e.g.
+     * 6500000000000 * 10^-8 is exactly 65000.
+     *
+     * @param component price, confidence or EMA component
+     * @param exponent  price account exponent
+     * @return component * 10^exponent
+     */
+    public static double scale(long component, int exponent) {
+        if (exponent < -MAX_EXACT_EXPONENT || exponent > MAX_EXACT_EXPONENT) {
+            return component * Math.pow(10, exponent);
+        }
+
+        return exponent < 0 ? component / POWERS_OF_TEN[-exponent] : component * POWERS_OF_TEN[exponent];
     }
 }
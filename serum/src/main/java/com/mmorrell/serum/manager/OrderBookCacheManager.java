@@ -31,7 +31,7 @@ public class OrderBookCacheManager {
                         @Override
                         public OrderBook load(String marketId) throws RpcException {
                             // LOGGER.info("Cache Load Orderbook: " + marketId);
-                            return OrderBook.readOrderBook(
+                            return OrderBook.readOrderBookView(
                                     Base64.getDecoder().decode(
                                             client.getApi().getAccountInfo(
                                                     PublicKey.valueOf(marketId),
@@ -0,0 +1,277 @@
+package com.mmorrell.serum.manager;
+
+import com.mmorrell.serum.model.EventQueue;
+import com.mmorrell.serum.model.Market;
+import com.mmorrell.serum.model.OrderBook;
+import com.mmorrell.serum.model.OrderBookSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.RpcException;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+import org.p2p.solanaj.rpc.types.config.RpcSendTransactionConfig;
+import org.p2p.solanaj.ws.SubscriptionWebSocketClient;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps Serum order books up to date from websocket account subscriptions, instead of polling like
+ * {@link OrderBookCacheManager}.
+ * <p>
+ * For every market added, the bids, asks and event queue accounts are subscribed to. Each pushed update is decoded
+ * (with a zero-copy {@link com.mmorrell.serum.model.SlabView} for the books) on the websocket thread and published
+ * as a new immutable {@link OrderBookSnapshot} through an {@link AtomicReference}. Readers never block or trigger
+ * I/O: they get whatever snapshot was published last. {@link #removeMarket(PublicKey)} stops streaming a market.
+ */
+public class OrderBookStreamManager {
+
+    private static final Logger LOGGER = LogManager.getLogger(OrderBookStreamManager.class);
+
+    private final SubscriptionWebSocketClient webSocketClient;
+    private final RpcClient client;
+    private final Commitment commitment;
+
+    private final Map<PublicKey, AtomicReference<OrderBookSnapshot>> snapshots = new ConcurrentHashMap<>();
+    private final Map<PublicKey, Market> markets = new ConcurrentHashMap<>();
+    // bids/asks account -> market, for drop-in getOrderBook() lookups
+    private final Map<PublicKey, PublicKey> bidsMarkets = new ConcurrentHashMap<>();
+    private final Map<PublicKey, PublicKey> asksMarkets = new ConcurrentHashMap<>();
+    // Accounts of removed markets whose subscription was not confirmed yet when they were removed
+    private final Set<PublicKey> pendingUnsubscribes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param webSocketClient connected (or connecting) websocket client; subscriptions are re-sent on reconnect
+     * @param client          RPC client used to seed each market before the first push, or null to wait for pushes
+     * @param commitment      commitment for subscriptions and seeding
+     */
+    public OrderBookStreamManager(SubscriptionWebSocketClient webSocketClient, RpcClient client,
+                                  Commitment commitment) {
+        this.webSocketClient = webSocketClient;
+        this.client = client;
+        this.commitment = commitment;
+    }
+
+    public OrderBookStreamManager(SubscriptionWebSocketClient webSocketClient, RpcClient client) {
+        this(webSocketClient, client, Commitment.CONFIRMED);
+    }
+
+    /**
+     * Starts streaming a market's bids, asks and event queue. The market's decimals and lot sizes are applied to the
+     * decoded books and events, so it should be built with decimals (e.g. {@link
+     * com.mmorrell.serum.model.MarketBuilder#setRetrieveDecimalsOnly(boolean)}).
+     *
+     * @param market market to stream
+     */
+    public void addMarket(Market market) {
+        final PublicKey marketId = market.getOwnAddress();
+        final AtomicReference<OrderBookSnapshot> snapshot = new AtomicReference<>(OrderBookSnapshot.builder()
+                .marketId(marketId)
+                .build());
+        if (snapshots.putIfAbsent(marketId, snapshot) != null) {
+            return;
+        }
+
+        // A subscription of an earlier add still waiting to be unsubscribed is left alone; it no longer publishes
+        pendingUnsubscribes.remove(market.getBids());
+        pendingUnsubscribes.remove(market.getAsks());
+        pendingUnsubscribes.remove(market.getEventQueueKey());
+
+        markets.put(marketId, market);
+        bidsMarkets.put(market.getBids(), marketId);
+        asksMarkets.put(market.getAsks(), marketId);
+
+        if (client != null) {
+            seed(market);
+        }
+
+        subscribe(market.getBids(), data -> {
+            final OrderBook bids = readOrderBook(data, market);
+            return latest -> latest.toBuilder().bidOrderBook(bids).build();
+        }, marketId, snapshot);
+        subscribe(market.getAsks(), data -> {
+            final OrderBook asks = readOrderBook(data, market);
+            return latest -> latest.toBuilder().askOrderBook(asks).build();
+        }, marketId, snapshot);
+        subscribe(market.getEventQueueKey(), data -> {
+            final EventQueue eventQueue = readEventQueue(data, market);
+            return latest -> latest.toBuilder().eventQueue(eventQueue).build();
+        }, marketId, snapshot);
+    }
+
+    /**
+     * Stops streaming a market: drops its snapshot and unsubscribes from its bids, asks and event queue accounts.
+     * Updates still in flight for the market are ignored.
+     * <p>
+     * A subscription the RPC node has not confirmed yet has no id to unsubscribe with. It is unsubscribed from its
+     * listener instead, when its first update arrives (and is ignored), including after a reconnect re-sent it. If the
+     * market is added again before then, the old subscription stays open and its updates keep being ignored.
+     *
+     * @param marketId market address
+     * @return true if the market was added and is now removed
+     */
+    public boolean removeMarket(PublicKey marketId) {
+        final Market market = markets.remove(marketId);
+        if (market == null) {
+            return false;
+        }
+
+        bidsMarkets.remove(market.getBids());
+        asksMarkets.remove(market.getAsks());
+        snapshots.remove(marketId);
+
+        unsubscribe(market.getBids());
+        unsubscribe(market.getAsks());
+        unsubscribe(market.getEventQueueKey());
+        return true;
+    }
+
+    /**
+     * Latest published snapshot for a market. Lock-free; never performs I/O.
+     *
+     * @param marketId market address
+     * @return latest snapshot, empty if the market was not added
+     */
+    public Optional<OrderBookSnapshot> getSnapshot(PublicKey marketId) {
+        final AtomicReference<OrderBookSnapshot> snapshot = snapshots.get(marketId);
+        return snapshot == null ? Optional.empty() : Optional.of(snapshot.get());
+    }
+
+    /**
+     * Latest bids or asks, looked up by book account like {@link OrderBookCacheManager#getOrderBook(PublicKey)}.
+     *
+     * @param bookId bids or asks account of an added market
+     * @return latest order book, or null if it is unknown or no data has been received yet
+     */
+    public OrderBook getOrderBook(PublicKey bookId) {
+        final PublicKey bidsMarketId = bidsMarkets.get(bookId);
+        if (bidsMarketId != null) {
+            return getSnapshot(bidsMarketId).map(OrderBookSnapshot::getBidOrderBook).orElse(null);
+        }
+
+        final PublicKey asksMarketId = asksMarkets.get(bookId);
+        if (asksMarketId != null) {
+            return getSnapshot(asksMarketId).map(OrderBookSnapshot::getAskOrderBook).orElse(null);
+        }
+
+        return null;
+    }
+
+    private void subscribe(PublicKey account, AccountDecoder decoder, PublicKey marketId,
+                           AtomicReference<OrderBookSnapshot> snapshot) {
+        webSocketClient.accountSubscribe(
+                account.toBase58(),
+                data -> {
+                    if (snapshots.get(marketId) != snapshot) {
+                        // Removed before this subscription was confirmed, which it is now that it has an update
+                        if (pendingUnsubscribes.remove(account)) {
+                            unsubscribe(account);
+                        }
+                        return;
+                    }
+
+                    if (data == null) {
+                        return;
+                    }
+
+                    try {
+                        final String base64 = (String) ((List<?>) ((Map<?, ?>) data).get("data")).get(0);
+                        publish(marketId, decoder.decode(Base64.getDecoder().decode(base64)));
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Unable to decode update for " + account.toBase58(), e);
+                    }
+                },
+                commitment,
+                RpcSendTransactionConfig.Encoding.base64.getEncoding()
+        );
+    }
+
+    private void unsubscribe(PublicKey account) {
+        final String subscriptionId = webSocketClient.getSubscriptionId(account.toBase58());
+        if (subscriptionId == null) {
+            LOGGER.warn("No subscription for " + account.toBase58());
+            return;
+        }
+
+        // Until the node confirms a subscription, the client knows it by its request id rather than a numeric id
+        if (!subscriptionId.chars().allMatch(Character::isDigit)) {
+            LOGGER.info("Subscription for " + account.toBase58() + " not confirmed yet, unsubscribing on its first "
+                    + "update");
+            pendingUnsubscribes.add(account);
+            return;
+        }
+
+        webSocketClient.unsubscribe(subscriptionId);
+    }
+
+    private void seed(Market market) {
+        try {
+            final OrderBook bids = readOrderBook(getAccountData(market.getBids()), market);
+            final OrderBook asks = readOrderBook(getAccountData(market.getAsks()), market);
+            final EventQueue eventQueue = readEventQueue(getAccountData(market.getEventQueueKey()), market);
+            publish(market.getOwnAddress(), snapshot -> snapshot.toBuilder()
+                    .bidOrderBook(bids)
+                    .askOrderBook(asks)
+                    .eventQueue(eventQueue)
+                    .build());
+        } catch (RpcException e) {
+            LOGGER.warn("Unable to seed " + market.getOwnAddress().toBase58() + ", waiting for updates", e);
+        }
+    }
+
+    private void publish(PublicKey marketId, UnaryOperator<OrderBookSnapshot> update) {
+        final AtomicReference<OrderBookSnapshot> latest = snapshots.get(marketId);
+        if (latest == null) {
+            // Removed
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        latest.updateAndGet(snapshot -> update.apply(snapshot).toBuilder()
+                .version(snapshot.getVersion() + 1)
+                .updatedAtMillis(now)
+                .build());
+    }
+
+    private byte[] getAccountData(PublicKey account) throws RpcException {
+        return Base64.getDecoder().decode(
+                client.getApi().getAccountInfo(account, Map.of("commitment", commitment))
+                        .getValue()
+                        .getData()
+                        .get(0)
+        );
+    }
+
+    private static OrderBook readOrderBook(byte[] data, Market market) {
+        final OrderBook orderBook = OrderBook.readOrderBookView(data);
+        orderBook.setBaseDecimals(market.getBaseDecimals());
+        orderBook.setQuoteDecimals(market.getQuoteDecimals());
+        orderBook.setBaseLotSize(market.getBaseLotSize());
+        orderBook.setQuoteLotSize(market.getQuoteLotSize());
+        return orderBook;
+    }
+
+    private static EventQueue readEventQueue(byte[] data, Market market) {
+        return EventQueue.readEventQueue(
+                data,
+                market.getBaseDecimals(),
+                market.getQuoteDecimals(),
+                market.getBaseLotSize(),
+                market.getQuoteLotSize()
+        );
+    }
+
+    /**
+     * Decodes pushed account data, off the snapshot's CAS loop, into an update of the snapshot.
+     */
+    private interface AccountDecoder {
+        UnaryOperator<OrderBookSnapshot> decode(byte[] data);
+    }
+}
@@ -0,0 +1,128 @@
+package com.mmorrell.serum.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+
+/**
+ * Incremental, allocation-free reader of a Serum event queue, for trade tapes that poll the same queue repeatedly.
+ * <p>
+ * The queue is a ring buffer: the header's seqNum counts every event ever pushed, and the newest event sits at
+ * slot (head + count - 1) % allocLen. Consumed events stay in their slots until overwritten, so any of the last
+ * allocLen events can be located from its sequence number. The cursor remembers the last sequence number it handed
+ * out, and each {@link #poll(byte[], Consumer)} visits only the slots pushed since, oldest first, through a single
+ * reused {@link EventQueueEventView}. If more than allocLen events were pushed between two polls, the overwritten
+ * ones are counted in {@link #getMissedEvents()} and skipped.
+ * <p>
+ * Unlike {@link EventQueue#readEventQueue(byte[], byte, byte, long, long)}, nothing is copied and no objects are
+ * created per event. A cursor is not thread-safe.
+ */
+public class EventQueueCursor {
+
+    private static final int HEADER_LAYOUT_SPAN = 37;
+    private static final int NODE_LAYOUT_SPAN = 88;
+
+    private static final int HEAD_OFFSET = 13;
+    private static final int COUNT_OFFSET = 21;
+    private static final int SEQ_NUM_OFFSET = 29;
+
+    private final EventQueueEventView view = new EventQueueEventView();
+    private long lastSeqNum;
+    private long missedEvents;
+
+    private byte[] wrappedData;
+    private ByteBuffer buffer;
+
+    /**
+     * @param lastSeqNum sequence number of the last event already processed; -1 to start from the oldest event
+     *                   still in the queue
+     */
+    public EventQueueCursor(long lastSeqNum) {
+        this.lastSeqNum = lastSeqNum;
+    }
+
+    /**
+     * Creates a cursor positioned after the newest event in the given queue data, i.e. one that only reports events
+     * pushed from now on.
+     *
+     * @param eventQueueData event queue account data
+     * @return cursor at the current end of the queue
+     */
+    public static EventQueueCursor atEnd(byte[] eventQueueData) {
+        SerumUtils.validateSerumData(eventQueueData);
+        return new EventQueueCursor(readSeqNum(eventQueueData) - 1);
+    }
+
+    /**
+     * Visits every event pushed since the last poll, oldest first, and advances the cursor past them.
+     *
+     * @param eventQueueData event queue account data
+     * @param handler        called once per event with the reused flyweight, which must not be kept
+     * @return number of events visited
+     */
+    public int poll(byte[] eventQueueData, Consumer<EventQueueEventView> handler) {
+        if (eventQueueData != wrappedData) {
+            SerumUtils.validateSerumData(eventQueueData);
+            wrappedData = eventQueueData;
+            buffer = ByteBuffer.wrap(eventQueueData).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        final int allocLen = (eventQueueData.length - HEADER_LAYOUT_SPAN) / NODE_LAYOUT_SPAN;
+        final long head = buffer.getLong(HEAD_OFFSET);
+        final long count = buffer.getLong(COUNT_OFFSET);
+        final long seqNum = buffer.getLong(SEQ_NUM_OFFSET);
+        if (allocLen == 0) {
+            return 0;
+        }
+
+        // Oldest sequence number that can still be read
+        final long oldestSeqNum = Math.max(0, seqNum - allocLen);
+        long nextSeqNum = lastSeqNum + 1;
+        if (nextSeqNum < oldestSeqNum) {
+            if (lastSeqNum >= 0) {
+                missedEvents += oldestSeqNum - nextSeqNum;
+            }
+            nextSeqNum = oldestSeqNum;
+        }
+
+        // Slot of the newest event; older events are at decreasing slots, wrapping around
+        final long newestSlot = head + count - 1;
+        int visited = 0;
+        for (long eventSeqNum = nextSeqNum; eventSeqNum < seqNum; eventSeqNum++) {
+            final int slot = (int) Math.floorMod(newestSlot - (seqNum - 1 - eventSeqNum), (long) allocLen);
+            view.wrap(buffer, HEADER_LAYOUT_SPAN + (slot * NODE_LAYOUT_SPAN), eventSeqNum);
+            handler.accept(view);
+            lastSeqNum = eventSeqNum;
+            visited++;
+        }
+
+        return visited;
+    }
+
+    /**
+     * @return sequence number of the last event visited, or the one given at construction
+     */
+    public long getLastSeqNum() {
+        return lastSeqNum;
+    }
+
+    /**
+     * Moves the cursor, e.g. to resume from a persisted position.
+     *
+     * @param lastSeqNum sequence number of the last event already processed
+     */
+    public void setLastSeqNum(long lastSeqNum) {
+        this.lastSeqNum = lastSeqNum;
+    }
+
+    /**
+     * @return number of events overwritten in the ring buffer before they could be polled
+     */
+    public long getMissedEvents() {
+        return missedEvents;
+    }
+
+    private static long readSeqNum(byte[] eventQueueData) {
+        return ByteBuffer.wrap(eventQueueData).order(ByteOrder.LITTLE_ENDIAN).getLong(SEQ_NUM_OFFSET);
+    }
+}
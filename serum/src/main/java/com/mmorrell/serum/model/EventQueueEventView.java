@@ -0,0 +1,188 @@
+package com.mmorrell.serum.model;
+
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable flyweight over a single 88 byte event in a Serum event queue, see {@link EventQueueCursor}.
+ * <p>
+ * All accessors read directly from the event queue account data; nothing is copied or allocated. The view is
+ * repositioned for every event handed out by the cursor, so it (and anything read lazily from it) is only valid
+ * inside the handler call.
+ * <p>
+ * event layout:
+ * [eventFlags u8][openOrdersSlot u8][feeTier u8][5 bytes padding][nativeQuantityReleased u64]
+ * [nativeQuantityPaid u64][nativeFeeOrRebate u64][orderId u128][openOrders 32 bytes][clientOrderId u64]
+ */
+public class EventQueueEventView {
+
+    private static final int FLAGS_OFFSET = 0;
+    private static final int OPEN_ORDERS_SLOT_OFFSET = 1;
+    private static final int FEE_TIER_OFFSET = 2;
+    private static final int NATIVE_QUANTITY_RELEASED_OFFSET = 8;
+    private static final int NATIVE_QUANTITY_PAID_OFFSET = 16;
+    private static final int NATIVE_FEE_OR_REBATE_OFFSET = 24;
+    private static final int ORDER_ID_OFFSET = 32;
+    private static final int OPEN_ORDERS_OFFSET = 48;
+    private static final int CLIENT_ORDER_ID_OFFSET = 80;
+
+    private static final int FILL_FLAG = 1;
+    private static final int OUT_FLAG = 2;
+    private static final int BID_FLAG = 4;
+    private static final int MAKER_FLAG = 8;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private long seqNum;
+
+    void wrap(ByteBuffer buffer, int offset, long seqNum) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.seqNum = seqNum;
+    }
+
+    /**
+     * @return sequence number of this event within its event queue
+     */
+    public long getSeqNum() {
+        return seqNum;
+    }
+
+    public boolean isFill() {
+        return (buffer.get(offset + FLAGS_OFFSET) & FILL_FLAG) != 0;
+    }
+
+    public boolean isOut() {
+        return (buffer.get(offset + FLAGS_OFFSET) & OUT_FLAG) != 0;
+    }
+
+    public boolean isBid() {
+        return (buffer.get(offset + FLAGS_OFFSET) & BID_FLAG) != 0;
+    }
+
+    public boolean isMaker() {
+        return (buffer.get(offset + FLAGS_OFFSET) & MAKER_FLAG) != 0;
+    }
+
+    public byte getOpenOrdersSlot() {
+        return buffer.get(offset + OPEN_ORDERS_SLOT_OFFSET);
+    }
+
+    public byte getFeeTier() {
+        return buffer.get(offset + FEE_TIER_OFFSET);
+    }
+
+    /**
+     * @return amount the user received, in native units
+     */
+    public long getNativeQuantityReleased() {
+        return buffer.getLong(offset + NATIVE_QUANTITY_RELEASED_OFFSET);
+    }
+
+    /**
+     * @return amount the user paid, in native units
+     */
+    public long getNativeQuantityPaid() {
+        return buffer.getLong(offset + NATIVE_QUANTITY_PAID_OFFSET);
+    }
+
+    public long getNativeFeeOrRebate() {
+        return buffer.getLong(offset + NATIVE_FEE_OR_REBATE_OFFSET);
+    }
+
+    /**
+     * @return low 64 bits of the u128 order id (the order's sequence number)
+     */
+    public long getOrderIdLow() {
+        return buffer.getLong(offset + ORDER_ID_OFFSET);
+    }
+
+    /**
+     * @return high 64 bits of the u128 order id (the order's price in lots)
+     */
+    public long getOrderIdHigh() {
+        return buffer.getLong(offset + ORDER_ID_OFFSET + 8);
+    }
+
+    public long getClientOrderId() {
+        return buffer.getLong(offset + CLIENT_ORDER_ID_OFFSET);
+    }
+
+    /**
+     * Copies the 32 byte open orders key into the destination array.
+     *
+     * @param dst       destination array
+     * @param dstOffset offset into the destination array
+     */
+    public void copyOpenOrders(byte[] dst, int dstOffset) {
+        buffer.get(offset + OPEN_ORDERS_OFFSET, dst, dstOffset, PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    /**
+     * Compares the open orders key with the given key, without allocating.
+     *
+     * @param openOrders key to compare against
+     * @return true if this event belongs to the given open orders account
+     */
+    public boolean openOrdersEquals(PublicKey openOrders) {
+        final byte[] openOrdersBytes = openOrders.toByteArray();
+        for (int i = 0; i < PublicKey.PUBLIC_KEY_LENGTH; i++) {
+            if (buffer.get(offset + OPEN_ORDERS_OFFSET + i) != openOrdersBytes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Builds the open orders {@link PublicKey}. This allocates, prefer {@link #openOrdersEquals(PublicKey)} or
+     * {@link #copyOpenOrders(byte[], int)} on hot paths.
+     *
+     * @return open orders account of this event
+     */
+    public PublicKey getOpenOrders() {
+        final byte[] openOrders = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+        copyOpenOrders(openOrders, 0);
+        return new PublicKey(openOrders);
+    }
+
+    /**
+     * Price of a fill before fees, computed the same way as {@link TradeEvent#getFloatPrice()}.
+     *
+     * @param baseDecimals  base mint decimals
+     * @param quoteDecimals quote mint decimals
+     * @return price in quote units per base unit
+     */
+    public double getPrice(byte baseDecimals, byte quoteDecimals) {
+        final long released = getNativeQuantityReleased();
+        final long paid = getNativeQuantityPaid();
+        final long feeOrRebate = getNativeFeeOrRebate();
+        final boolean maker = isMaker();
+
+        final double priceBeforeFees;
+        final double baseQuantity;
+        if (isBid()) {
+            priceBeforeFees = maker ? paid + feeOrRebate : paid - feeOrRebate;
+            baseQuantity = released;
+        } else {
+            priceBeforeFees = maker ? released - feeOrRebate : released + feeOrRebate;
+            baseQuantity = paid;
+        }
+
+        return (priceBeforeFees * SerumUtils.getBaseSplTokenMultiplier(baseDecimals))
+                / (SerumUtils.getQuoteSplTokenMultiplier(quoteDecimals) * baseQuantity);
+    }
+
+    /**
+     * Size of a fill, computed the same way as {@link TradeEvent#getFloatQuantity()}.
+     *
+     * @param baseDecimals base mint decimals
+     * @return quantity in base units
+     */
+    public double getQuantity(byte baseDecimals) {
+        return (isBid() ? getNativeQuantityReleased() : getNativeQuantityPaid())
+                / SerumUtils.getBaseSplTokenMultiplier(baseDecimals);
+    }
+}
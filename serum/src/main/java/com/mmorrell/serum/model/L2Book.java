@@ -0,0 +1,253 @@
+package com.mmorrell.serum.model;
+
+import java.util.Arrays;
+
+/**
+ * Price-level aggregated (L2) view of one side of an order book, shared by the Serum, OpenBook and Phoenix
+ * decoders.
+ * <p>
+ * Prices and sizes are kept in the venue's native integer units (price in lots or ticks, size in base lots) in
+ * primitive arrays, best level first: descending prices for bids, ascending for asks. Decoders call
+ * {@link #add(long, long)} as they walk their order trees; orders arriving in price priority order are merged into
+ * levels in O(1). Out-of-order input is accepted and regrouped once, on first read.
+ */
+public class L2Book {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final boolean bids;
+    private long[] prices;
+    private long[] sizes;
+    private long[] cumulativeSizes;
+    private int levels;
+    private boolean sorted = true;
+
+    public L2Book(boolean bids) {
+        this(bids, DEFAULT_CAPACITY);
+    }
+
+    public L2Book(boolean bids, int initialCapacity) {
+        this.bids = bids;
+        int capacity = Math.max(1, initialCapacity);
+        this.prices = new long[capacity];
+        this.sizes = new long[capacity];
+        this.cumulativeSizes = new long[capacity];
+    }
+
+    /**
+     * Adds an order (or an already aggregated level) to the book.
+     *
+     * @param price price in native units
+     * @param size  size in native units
+     */
+    public void add(long price, long size) {
+        if (levels > 0 && sorted) {
+            long last = prices[levels - 1];
+            if (price == last) {
+                sizes[levels - 1] += size;
+                cumulativeSizes[levels - 1] += size;
+                return;
+            }
+            if (bids ? price > last : price < last) {
+                sorted = false;
+            }
+        } else if (levels > 0 && prices[levels - 1] == price) {
+            sizes[levels - 1] += size;
+            return;
+        }
+
+        if (levels == prices.length) {
+            int capacity = levels * 2;
+            prices = Arrays.copyOf(prices, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            cumulativeSizes = Arrays.copyOf(cumulativeSizes, capacity);
+        }
+
+        prices[levels] = price;
+        sizes[levels] = size;
+        if (sorted) {
+            cumulativeSizes[levels] = (levels == 0 ? 0 : cumulativeSizes[levels - 1]) + size;
+        }
+        levels++;
+    }
+
+    /**
+     * Removes all levels, keeping the allocated arrays for reuse.
+     */
+    public void clear() {
+        levels = 0;
+        sorted = true;
+    }
+
+    public boolean isBids() {
+        return bids;
+    }
+
+    public boolean isEmpty() {
+        return getLevels() == 0;
+    }
+
+    public int getLevels() {
+        ensureSorted();
+        return levels;
+    }
+
+    public long getPrice(int level) {
+        ensureSorted();
+        checkLevel(level);
+        return prices[level];
+    }
+
+    public long getSize(int level) {
+        ensureSorted();
+        checkLevel(level);
+        return sizes[level];
+    }
+
+    /**
+     * Total size available from the best level down to and including the given level.
+     *
+     * @param level price level, 0 being the best
+     * @return cumulative size
+     */
+    public long getCumulativeSize(int level) {
+        ensureSorted();
+        checkLevel(level);
+        return cumulativeSizes[level];
+    }
+
+    public long getTotalSize() {
+        ensureSorted();
+        return levels == 0 ? 0 : cumulativeSizes[levels - 1];
+    }
+
+    /**
+     * @return copy of the level prices, best first
+     */
+    public long[] getPrices() {
+        ensureSorted();
+        return Arrays.copyOf(prices, levels);
+    }
+
+    /**
+     * @return copy of the level sizes, best first
+     */
+    public long[] getSizes() {
+        ensureSorted();
+        return Arrays.copyOf(sizes, levels);
+    }
+
+    /**
+     * @return copy of the cumulative level sizes, best first
+     */
+    public long[] getCumulativeSizes() {
+        ensureSorted();
+        return Arrays.copyOf(cumulativeSizes, levels);
+    }
+
+    /**
+     * Best price on this side.
+     *
+     * @return best price, or {@link Double#NaN} if the book is empty
+     */
+    public double getBestPrice() {
+        return isEmpty() ? Double.NaN : prices[0];
+    }
+
+    /**
+     * Volume-weighted average price to fill the given size by sweeping this side from the best level.
+     *
+     * @param size size to fill, in native units
+     * @return VWAP in native price units, or {@link Double#NaN} if there is not enough depth
+     */
+    public double getVwap(long size) {
+        ensureSorted();
+        if (size <= 0 || getTotalSize() < size) {
+            return Double.NaN;
+        }
+
+        double notional = 0;
+        long remaining = size;
+        for (int i = 0; i < levels && remaining > 0; i++) {
+            long fill = Math.min(remaining, sizes[i]);
+            notional += (double) prices[i] * fill;
+            remaining -= fill;
+        }
+
+        return notional / size;
+    }
+
+    /**
+     * Mid price between the best bid and best ask.
+     *
+     * @param bids bid side
+     * @param asks ask side
+     * @return mid price, or {@link Double#NaN} if either side is empty
+     */
+    public static double getMidPrice(L2Book bids, L2Book asks) {
+        return (bids.getBestPrice() + asks.getBestPrice()) / 2.0;
+    }
+
+    /**
+     * Difference between the best ask and best bid.
+     *
+     * @param bids bid side
+     * @param asks ask side
+     * @return spread, or {@link Double#NaN} if either side is empty
+     */
+    public static double getSpread(L2Book bids, L2Book asks) {
+        return asks.getBestPrice() - bids.getBestPrice();
+    }
+
+    /**
+     * Regroups out-of-order input into sorted, merged levels with primitive sorts only.
+     */
+    private void ensureSorted() {
+        if (sorted) {
+            return;
+        }
+
+        long[] uniquePrices = Arrays.copyOf(prices, levels);
+        Arrays.sort(uniquePrices);
+        int unique = 0;
+        for (int i = 0; i < uniquePrices.length; i++) {
+            if (unique == 0 || uniquePrices[unique - 1] != uniquePrices[i]) {
+                uniquePrices[unique++] = uniquePrices[i];
+            }
+        }
+
+        long[] mergedSizes = new long[unique];
+        for (int i = 0; i < levels; i++) {
+            mergedSizes[Arrays.binarySearch(uniquePrices, 0, unique, prices[i])] += sizes[i];
+        }
+
+        for (int i = 0; i < unique; i++) {
+            int source = bids ? unique - 1 - i : i;
+            prices[i] = uniquePrices[source];
+            sizes[i] = mergedSizes[source];
+            cumulativeSizes[i] = (i == 0 ? 0 : cumulativeSizes[i - 1]) + sizes[i];
+        }
+
+        levels = unique;
+        sorted = true;
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= levels) {
+            throw new IndexOutOfBoundsException("level " + level + " out of bounds for " + levels);
+        }
+    }
+
+    @Override
+    public String toString() {
+        ensureSorted();
+        StringBuilder builder = new StringBuilder("L2Book{bids=").append(bids).append(", levels=[");
+        for (int i = 0; i < levels; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(prices[i]).append(" x ").append(sizes[i]);
+        }
+        return builder.append("]}").toString();
+    }
+}
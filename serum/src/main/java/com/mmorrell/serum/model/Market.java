@@ -34,6 +34,8 @@ public class Market {
     private long referrerRebatesAccrued;
     private OrderBook bidOrderBook;
     private OrderBook askOrderBook;
+    private SlabDiff bidOrderBookDiff;
+    private SlabDiff askOrderBookDiff;
     private EventQueue eventQueue;
 
     // Data from token mints
@@ -64,6 +66,32 @@ public class Market {
         this.eventQueue = eventQueue;
     }
 
+    /**
+     * Changes to the bids since the previous build of this market, if diffing is enabled on the {@link MarketBuilder}.
+     *
+     * @return bid {@link SlabDiff}, or null if not computed
+     */
+    public SlabDiff getBidOrderBookDiff() {
+        return bidOrderBookDiff;
+    }
+
+    public void setBidOrderBookDiff(SlabDiff bidOrderBookDiff) {
+        this.bidOrderBookDiff = bidOrderBookDiff;
+    }
+
+    /**
+     * Changes to the asks since the previous build of this market, if diffing is enabled on the {@link MarketBuilder}.
+     *
+     * @return ask {@link SlabDiff}, or null if not computed
+     */
+    public SlabDiff getAskOrderBookDiff() {
+        return askOrderBookDiff;
+    }
+
+    public void setAskOrderBookDiff(SlabDiff askOrderBookDiff) {
+        this.askOrderBookDiff = askOrderBookDiff;
+    }
+
     public Order getBestBid() {
         return getBidOrderBook().getBestBid();
     }
@@ -320,6 +348,8 @@ public class Market {
         Market market = builder.reload();
         this.bidOrderBook = market.getBidOrderBook();
         this.askOrderBook = market.getAskOrderBook();
+        this.bidOrderBookDiff = market.getBidOrderBookDiff();
+        this.askOrderBookDiff = market.getAskOrderBookDiff();
         this.eventQueue = market.getEventQueue();
     }
 
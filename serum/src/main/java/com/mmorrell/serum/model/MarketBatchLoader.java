@@ -0,0 +1,195 @@
+package com.mmorrell.serum.model;
+
+import com.mmorrell.serum.util.MultipleAccountsFetcher;
+import com.mmorrell.serum.util.RpcExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads many {@link Market}s at once, as an alternative to one {@link MarketBuilder} per market.
+ * <p>
+ * Where {@link MarketBuilder#build()} issues one getAccountInfo per account (market, bids, asks, event queue and
+ * each mint, with a sleep before every mint lookup), this loader needs two rounds of getMultipleAccounts calls:
+ * <ol>
+ * <li>all market accounts, to learn their bids/asks/event queue keys and mints</li>
+ * <li>all of those related accounts, de-duplicated (mints are shared between markets)</li>
+ * </ol>
+ * Each round goes through a {@link MultipleAccountsFetcher}, in chunks of at most {@link #MAX_ACCOUNTS_PER_REQUEST}
+ * keys requested concurrently on the configured {@link Executor}, {@link RpcExecutor#getDefault()} unless set.
+ */
+public class MarketBatchLoader {
+
+    private static final Logger LOGGER = LogManager.getLogger(MarketBatchLoader.class);
+
+    public static final int MAX_ACCOUNTS_PER_REQUEST = MultipleAccountsFetcher.MAX_ACCOUNTS_PER_REQUEST;
+
+    private final MultipleAccountsFetcher fetcher;
+    private boolean retrieveOrderBooks = false;
+    private boolean retrieveEventQueue = false;
+
+    private final Map<PublicKey, Byte> decimalsCache = new ConcurrentHashMap<>();
+
+    public MarketBatchLoader(RpcClient client) {
+        this.fetcher = new MultipleAccountsFetcher(client);
+    }
+
+    public MarketBatchLoader setRetrieveOrderBooks(boolean retrieveOrderBooks) {
+        this.retrieveOrderBooks = retrieveOrderBooks;
+        return this;
+    }
+
+    public MarketBatchLoader setRetrieveEventQueue(boolean retrieveEventQueue) {
+        this.retrieveEventQueue = retrieveEventQueue;
+        return this;
+    }
+
+    public MarketBatchLoader setCommitment(Commitment commitment) {
+        fetcher.setCommitment(commitment);
+        return this;
+    }
+
+    /**
+     * @param executor executor the getMultipleAccounts chunks are requested on, which bounds their concurrency
+     * @return this loader
+     */
+    public MarketBatchLoader setExecutor(Executor executor) {
+        fetcher.setExecutor(executor);
+        return this;
+    }
+
+    public boolean isRetrieveOrderBooks() {
+        return retrieveOrderBooks;
+    }
+
+    public boolean isRetrieveEventQueue() {
+        return retrieveEventQueue;
+    }
+
+    /**
+     * Loads the given markets with their decimals and, if enabled, order books and event queues.
+     *
+     * @param marketIds market addresses
+     * @return markets by address, in the given order. Markets whose account does not exist are left out.
+     */
+    public Map<PublicKey, Market> load(Collection<PublicKey> marketIds) {
+        final List<PublicKey> uniqueMarketIds = new ArrayList<>(new LinkedHashSet<>(marketIds));
+        final Map<PublicKey, byte[]> marketData = getMultipleAccounts(uniqueMarketIds);
+
+        final Map<PublicKey, Market> markets = new LinkedHashMap<>();
+        final Set<PublicKey> relatedAccounts = new LinkedHashSet<>();
+        for (PublicKey marketId : uniqueMarketIds) {
+            final byte[] data = marketData.get(marketId);
+            if (data == null) {
+                LOGGER.warn("Market account not found: " + marketId.toBase58());
+                continue;
+            }
+
+            final Market market = Market.readMarket(data);
+            markets.put(marketId, market);
+
+            addMintIfUnknown(relatedAccounts, market.getBaseMint());
+            addMintIfUnknown(relatedAccounts, market.getQuoteMint());
+            if (retrieveOrderBooks) {
+                relatedAccounts.add(market.getBids());
+                relatedAccounts.add(market.getAsks());
+            }
+            if (retrieveEventQueue) {
+                relatedAccounts.add(market.getEventQueueKey());
+            }
+        }
+
+        final Map<PublicKey, byte[]> relatedData = getMultipleAccounts(new ArrayList<>(relatedAccounts));
+
+        for (Market market : markets.values()) {
+            final byte baseDecimals = getDecimals(market.getBaseMint(), relatedData);
+            final byte quoteDecimals = getDecimals(market.getQuoteMint(), relatedData);
+            market.setBaseDecimals(baseDecimals);
+            market.setQuoteDecimals(quoteDecimals);
+
+            if (retrieveOrderBooks) {
+                market.setBidOrderBook(readOrderBook(relatedData.get(market.getBids()), market));
+                market.setAskOrderBook(readOrderBook(relatedData.get(market.getAsks()), market));
+            }
+
+            if (retrieveEventQueue) {
+                final byte[] eventQueueData = relatedData.get(market.getEventQueueKey());
+                if (eventQueueData != null) {
+                    market.setEventQueue(EventQueue.readEventQueue(eventQueueData, baseDecimals, quoteDecimals,
+                            market.getBaseLotSize(), market.getQuoteLotSize()));
+                }
+            }
+        }
+
+        return markets;
+    }
+
+    /**
+     * Fetches account data for any number of accounts, see {@link MultipleAccountsFetcher#getMultipleAccounts(List)}.
+     *
+     * @param accounts accounts to fetch
+     * @return decoded account data by key; accounts that do not exist are absent
+     */
+    public Map<PublicKey, byte[]> getMultipleAccounts(List<PublicKey> accounts) {
+        return fetcher.getMultipleAccounts(accounts);
+    }
+
+    private void addMintIfUnknown(Set<PublicKey> accounts, PublicKey mint) {
+        if (getKnownDecimals(mint) == null) {
+            accounts.add(mint);
+        }
+    }
+
+    private byte getDecimals(PublicKey mint, Map<PublicKey, byte[]> accountData) {
+        final Byte knownDecimals = getKnownDecimals(mint);
+        if (knownDecimals != null) {
+            return knownDecimals;
+        }
+
+        final byte[] mintData = accountData.get(mint);
+        if (mintData == null) {
+            throw new RuntimeException("Unable to read mint account " + mint.toBase58());
+        }
+
+        final byte decimals = SerumUtils.readDecimalsFromTokenMintData(mintData);
+        decimalsCache.put(mint, decimals);
+        return decimals;
+    }
+
+    private Byte getKnownDecimals(PublicKey mint) {
+        if (mint.equals(SerumUtils.WRAPPED_SOL_MINT)) {
+            return 9;
+        }
+
+        if (mint.equals(SerumUtils.USDC_MINT) || mint.equals(SerumUtils.USDT_MINT)) {
+            return 6;
+        }
+
+        return decimalsCache.get(mint);
+    }
+
+    private static OrderBook readOrderBook(byte[] data, Market market) {
+        if (data == null) {
+            return null;
+        }
+
+        final OrderBook orderBook = OrderBook.readOrderBookView(data);
+        orderBook.setBaseDecimals(market.getBaseDecimals());
+        orderBook.setQuoteDecimals(market.getQuoteDecimals());
+        orderBook.setBaseLotSize(market.getBaseLotSize());
+        orderBook.setQuoteLotSize(market.getQuoteLotSize());
+        return orderBook;
+    }
+}
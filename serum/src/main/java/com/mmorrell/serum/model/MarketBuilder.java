@@ -1,6 +1,7 @@
 package com.mmorrell.serum.model;
 
 import com.mmorrell.serum.manager.OrderBookCacheManager;
+import com.mmorrell.serum.util.RpcExecutor;
 import org.p2p.solanaj.core.PublicKey;
 import org.p2p.solanaj.rpc.RpcClient;
 import org.p2p.solanaj.rpc.RpcException;
@@ -26,10 +27,16 @@ public class MarketBuilder {
     private boolean retrieveEventQueue = false;
     private boolean retrieveDecimalsOnly = false;
     private boolean orderBookCacheEnabled = false;
+    private boolean orderBookDiffEnabled = false;
     private long minContextSlot = 0L;
     private boolean built = false;
     private byte[] base64AccountInfo;
     private OrderBookCacheManager orderBookCacheManager;
+    private RpcExecutor rpcExecutor = RpcExecutor.getDefault();
+
+    // Previous snapshots, kept to diff against on reload()
+    private OrderBook previousBidOrderBook;
+    private OrderBook previousAskOrderBook;
 
     private Map<PublicKey, Byte> decimalsCache = new ConcurrentHashMap<>();
 
@@ -44,6 +51,39 @@ public class MarketBuilder {
         return this;
     }
 
+    /**
+     * When enabled (along with order books), each build()/reload() compares the new bids/asks with the previous
+     * snapshot and exposes the changes via {@link Market#getBidOrderBookDiff()} and
+     * {@link Market#getAskOrderBookDiff()}. The first build diffs against an empty book.
+     *
+     * @param orderBookDiffEnabled true to compute {@link SlabDiff}s
+     * @return this builder
+     */
+    public MarketBuilder setOrderBookDiffEnabled(boolean orderBookDiffEnabled) {
+        this.orderBookDiffEnabled = orderBookDiffEnabled;
+        if (!orderBookDiffEnabled) {
+            previousBidOrderBook = null;
+            previousAskOrderBook = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the executor used for the concurrent bids/asks requests. Defaults to {@link RpcExecutor#getDefault()}.
+     * When build() itself runs on this executor, the two requests are made one after the other on its thread.
+     *
+     * @param rpcExecutor executor for blocking RPC calls
+     * @return this builder
+     */
+    public MarketBuilder setRpcExecutor(RpcExecutor rpcExecutor) {
+        this.rpcExecutor = rpcExecutor;
+        return this;
+    }
+
+    public RpcExecutor getRpcExecutor() {
+        return rpcExecutor;
+    }
+
     public MarketBuilder setClient(RpcClient client) {
         this.client = client;
         return this;
@@ -72,6 +112,10 @@ public class MarketBuilder {
         return orderBookCacheEnabled;
     }
 
+    public boolean isOrderBookDiffEnabled() {
+        return orderBookDiffEnabled;
+    }
+
     public MarketBuilder setRetrieveEventQueue(boolean retrieveEventQueue) {
         this.retrieveEventQueue = retrieveEventQueue;
         return this;
@@ -125,17 +169,25 @@ public class MarketBuilder {
             market.setQuoteDecimals(quoteDecimals);
 
             // Data from the order books (multithreaded)
-            final CompletableFuture<OrderBook> bidThread = CompletableFuture.supplyAsync(() -> retrieveOrderBook(market.getBids()));
-            final CompletableFuture<OrderBook> askThread = CompletableFuture.supplyAsync(() -> retrieveOrderBook(market.getAsks()));
-            final CompletableFuture<Void> combinedFutures = CompletableFuture.allOf(bidThread, askThread);
-
             OrderBook bidOrderBook, askOrderBook;
-            try {
-                combinedFutures.get();
-                bidOrderBook = bidThread.get();
-                askOrderBook = askThread.get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
+            if (rpcExecutor.isExecutorThread()) {
+                // Already running on the executor: waiting for requests queued behind it could deadlock
+                bidOrderBook = retrieveOrderBook(market.getBids());
+                askOrderBook = retrieveOrderBook(market.getAsks());
+            } else {
+                final CompletableFuture<OrderBook> bidThread =
+                        rpcExecutor.supplyAsync(() -> retrieveOrderBook(market.getBids()));
+                final CompletableFuture<OrderBook> askThread =
+                        rpcExecutor.supplyAsync(() -> retrieveOrderBook(market.getAsks()));
+                final CompletableFuture<Void> combinedFutures = CompletableFuture.allOf(bidThread, askThread);
+
+                try {
+                    combinedFutures.get();
+                    bidOrderBook = bidThread.get();
+                    askOrderBook = askThread.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
             }
 
             // TODO - Investigate this hideous pattern
@@ -151,6 +203,13 @@ public class MarketBuilder {
 
             market.setBidOrderBook(bidOrderBook);
             market.setAskOrderBook(askOrderBook);
+
+            if (orderBookDiffEnabled) {
+                market.setBidOrderBookDiff(SlabDiff.diff(previousBidOrderBook, bidOrderBook));
+                market.setAskOrderBookDiff(SlabDiff.diff(previousAskOrderBook, askOrderBook));
+                previousBidOrderBook = bidOrderBook;
+                previousAskOrderBook = askOrderBook;
+            }
         }
 
         if (retrieveEventQueue) {
@@ -317,7 +376,7 @@ public class MarketBuilder {
         } else {
             // Fresh hit
             try {
-                return OrderBook.readOrderBook(
+                return OrderBook.readOrderBookView(
                         Base64.getDecoder().decode(
                                 client.getApi().getAccountInfo(
                                                 publicKey,
@@ -1,8 +1,13 @@
 package com.mmorrell.serum.model;
 
+import org.bitcoinj.core.Utils;
+
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 /**
  * This class represents a Serum orderbook, that get deserialized from bytes.
@@ -17,8 +22,14 @@ import java.util.List;
  */
 public class OrderBook {
 
+    // Critbit key order of slab leaves: price, then sequence number
+    private static final Comparator<SlabLeafNode> SLAB_KEY_ORDER = Comparator.comparingLong(SlabLeafNode::getPrice)
+            .thenComparing((a, b) -> Long.compareUnsigned(Utils.readInt64(a.getKey(), 0),
+                    Utils.readInt64(b.getKey(), 0)));
+
     private AccountFlags accountFlags;
     private Slab slab;
+    private SlabView slabView;
     private byte baseDecimals;
     private byte quoteDecimals;
     private long baseLotSize;
@@ -32,9 +43,37 @@ public class OrderBook {
 
         final Slab slab = Slab.readOrderBookSlab(data);
         orderBook.setSlab(slab);
+        orderBook.setSlabView(SlabView.wrap(data));
+
+        return orderBook;
 
+    }
+
+    /**
+     * Reads an {@link OrderBook} backed only by a zero-copy {@link SlabView}. No {@link SlabNode}s are built; the
+     * {@link Slab} is materialized lazily if {@link #getSlab()} is called.
+     *
+     * @param data bids/asks account data, which must not be modified while the order book is in use
+     * @return {@link OrderBook} reading directly from the given data
+     */
+    public static OrderBook readOrderBookView(byte[] data) {
+        final OrderBook orderBook = new OrderBook();
+        orderBook.setAccountFlags(AccountFlags.readAccountFlags(data));
+        orderBook.setSlabView(SlabView.wrap(data));
         return orderBook;
+    }
 
+    /**
+     * Reads an {@link OrderBook} backed only by a zero-copy {@link SlabView} over the remaining bytes of a buffer.
+     *
+     * @param data buffer positioned at the start of the bids/asks account data
+     * @return {@link OrderBook} reading directly from the given buffer
+     */
+    public static OrderBook readOrderBookView(ByteBuffer data) {
+        final OrderBook orderBook = new OrderBook();
+        orderBook.setAccountFlags(new AccountFlags(data.get(data.position() + 5)));
+        orderBook.setSlabView(SlabView.wrap(data));
+        return orderBook;
     }
 
     /**
@@ -43,6 +82,16 @@ public class OrderBook {
      * @return {@link List} containing {@link Order}s built from existing the {@link OrderBook} {@link Slab}.
      */
     public ArrayList<Order> getOrders() {
+        if (slabView != null) {
+            final ArrayList<Order> orders = new ArrayList<>(slabView.getLeafCount());
+            for (int i = 0; i < slabView.getNodeCount(); i++) {
+                if (slabView.isLeaf(i)) {
+                    orders.add(buildOrder(i));
+                }
+            }
+            return orders;
+        }
+
         if (slab == null) {
             return null;
         }
@@ -51,16 +100,7 @@ public class OrderBook {
 
         slab.getSlabNodes().forEach(slabNode -> {
             if (slabNode instanceof SlabLeafNode) {
-                SlabLeafNode slabLeafNode = (SlabLeafNode) slabNode;
-                orders.add(Order.builder()
-                        .price(slabLeafNode.getPrice())
-                        .quantity(slabLeafNode.getQuantity())
-                        .clientOrderId(slabLeafNode.getClientOrderId())
-                        .floatPrice(SerumUtils.priceLotsToNumber(slabLeafNode.getPrice(), baseDecimals, quoteDecimals, baseLotSize, quoteLotSize))
-                        .floatQuantity((float) ((slabLeafNode.getQuantity() * baseLotSize) / SerumUtils.getBaseSplTokenMultiplier(baseDecimals)))
-                        .owner(slabLeafNode.getOwner())
-                        .build()
-                );
+                orders.add(buildOrder((SlabLeafNode) slabNode));
             }
         });
 
@@ -70,22 +110,263 @@ public class OrderBook {
     }
 
     /**
-     * Retrieves the top {@link Order} for bids (sorted by price descending).
-     * @return
+     * Retrieves the top {@link Order} for bids (highest price). Follows the slab's critbit tree from the root, so
+     * only O(depth) nodes are read; order books without a {@link SlabView} scan the leaves of their {@link Slab}.
+     * Always the highest price, whichever side the account flags say the book is.
+     *
+     * @return highest priced {@link Order}, or null if the book is empty
      */
     public Order getBestBid() {
-        final ArrayList<Order> orders = getOrders();
-        orders.sort(Comparator.comparingLong(Order::getPrice).reversed());
-        return orders.get(0);
+        if (slabView != null) {
+            final int index = slabView.maxLeaf();
+            return index == -1 ? null : buildOrder(index);
+        }
+
+        return bestSlabOrder(SLAB_KEY_ORDER);
     }
 
+    /**
+     * Retrieves the top {@link Order} for asks (lowest price). Follows the slab's critbit tree from the root, so
+     * only O(depth) nodes are read; order books without a {@link SlabView} scan the leaves of their {@link Slab}.
+     * Always the lowest price, whichever side the account flags say the book is.
+     *
+     * @return lowest priced {@link Order}, or null if the book is empty
+     */
     public Order getBestAsk() {
-        final ArrayList<Order> orders = getOrders();
-        orders.sort(Comparator.comparingLong(Order::getPrice));
-        return orders.get(0);
+        if (slabView != null) {
+            final int index = slabView.minLeaf();
+            return index == -1 ? null : buildOrder(index);
+        }
+
+        return bestSlabOrder(SLAB_KEY_ORDER.reversed());
+    }
+
+    /**
+     * Retrieves the best n {@link Order}s of this book, best price first (descending for bids, ascending for asks).
+     * Orders are streamed in price order from the critbit tree; no global sort is performed.
+     *
+     * @param n maximum number of orders to return
+     * @return up to n {@link Order}s sorted by price priority
+     */
+    public List<Order> getTopN(int n) {
+        final List<Order> orders = new ArrayList<>(Math.min(n, Math.max(0, getLeafCount())));
+        final OrderedLeaves leaves = new OrderedLeaves();
+
+        while (orders.size() < n && leaves.next()) {
+            orders.add(leaves.order());
+        }
+
+        return orders;
+    }
+
+    /**
+     * Retrieves all {@link Order}s on the best price levels of this book, best price first.
+     *
+     * @param levels number of distinct price levels to include
+     * @return {@link Order}s on the top price levels, sorted by price priority
+     */
+    public List<Order> getDepth(int levels) {
+        final List<Order> orders = new ArrayList<>();
+        final OrderedLeaves leaves = new OrderedLeaves();
+
+        int levelCount = 0;
+        long lastPrice = 0;
+        while (leaves.next()) {
+            final long price = leaves.price();
+            if (levelCount == 0 || price != lastPrice) {
+                if (levelCount == levels) {
+                    break;
+                }
+                levelCount++;
+                lastPrice = price;
+            }
+            orders.add(leaves.order());
+        }
+
+        return orders;
+    }
+
+    /**
+     * Aggregates this book into an {@link L2Book} of price levels (price in lots, size in base lots), filled while
+     * walking the critbit tree in price priority order.
+     *
+     * @return {@link L2Book} with every price level of this book
+     */
+    public L2Book getL2Book() {
+        return getL2Book(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Aggregates the best price levels of this book into an {@link L2Book}.
+     *
+     * @param maxLevels maximum number of price levels to include
+     * @return {@link L2Book} with up to maxLevels price levels
+     */
+    public L2Book getL2Book(int maxLevels) {
+        final L2Book l2Book = new L2Book(isBids());
+        final OrderedLeaves leaves = new OrderedLeaves();
+
+        int levelCount = 0;
+        long lastPrice = 0;
+        while (leaves.next()) {
+            final long price = leaves.price();
+            if (levelCount == 0 || price != lastPrice) {
+                if (levelCount == maxLevels) {
+                    break;
+                }
+                levelCount++;
+                lastPrice = price;
+            }
+            l2Book.add(price, leaves.quantity());
+        }
+
+        return l2Book;
+    }
+
+    private boolean isBids() {
+        return accountFlags != null && accountFlags.isBids();
     }
 
+    /**
+     * Leaves in price priority order: descending for bids, ascending otherwise. Walks the critbit tree of the
+     * {@link SlabView}, or sorts the leaves of the {@link Slab} for order books built without a view.
+     */
+    private class OrderedLeaves {
+
+        private final PrimitiveIterator.OfInt viewLeaves;
+        private final Iterator<SlabLeafNode> slabLeaves;
+        private int index;
+        private SlabLeafNode leaf;
+
+        OrderedLeaves() {
+            if (slabView != null) {
+                viewLeaves = slabView.leafIterator(isBids());
+                slabLeaves = null;
+            } else {
+                viewLeaves = null;
+                slabLeaves = sortedSlabLeaves().iterator();
+            }
+        }
+
+        boolean next() {
+            if (viewLeaves != null) {
+                if (!viewLeaves.hasNext()) {
+                    return false;
+                }
+                index = viewLeaves.nextInt();
+                return true;
+            }
+
+            if (!slabLeaves.hasNext()) {
+                return false;
+            }
+            leaf = slabLeaves.next();
+            return true;
+        }
+
+        long price() {
+            return viewLeaves != null ? slabView.getPrice(index) : leaf.getPrice();
+        }
+
+        long quantity() {
+            return viewLeaves != null ? slabView.getQuantity(index) : leaf.getQuantity();
+        }
+
+        Order order() {
+            return viewLeaves != null ? buildOrder(index) : buildOrder(leaf);
+        }
+    }
+
+    /**
+     * Leaves of the {@link Slab} sorted by their (price, sequence number) key, as the critbit tree orders them.
+     */
+    private List<SlabLeafNode> sortedSlabLeaves() {
+        final List<SlabLeafNode> leaves = new ArrayList<>();
+        if (slab == null) {
+            return leaves;
+        }
+
+        for (SlabNode slabNode : slab.getSlabNodes()) {
+            if (slabNode instanceof SlabLeafNode) {
+                leaves.add((SlabLeafNode) slabNode);
+            }
+        }
+
+        leaves.sort(isBids() ? SLAB_KEY_ORDER.reversed() : SLAB_KEY_ORDER);
+        return leaves;
+    }
+
+    // Greatest leaf of the Slab in the given order, like SlabView's maxLeaf or minLeaf
+    private Order bestSlabOrder(Comparator<SlabLeafNode> order) {
+        if (slab == null) {
+            return null;
+        }
+
+        SlabLeafNode best = null;
+        for (SlabNode slabNode : slab.getSlabNodes()) {
+            if (slabNode instanceof SlabLeafNode leaf && (best == null || order.compare(leaf, best) > 0)) {
+                best = leaf;
+            }
+        }
+
+        return best == null ? null : buildOrder(best);
+    }
+
+    private int getLeafCount() {
+        if (slabView != null) {
+            return slabView.getLeafCount();
+        }
+
+        return slab != null ? slab.getLeafCount() : 0;
+    }
+
+    /**
+     * Builds an {@link Order} from the leaf at the given {@link SlabView} index.
+     *
+     * @param index leaf node index
+     * @return {@link Order} for that leaf
+     */
+    private Order buildOrder(int index) {
+        final long price = slabView.getPrice(index);
+        final long quantity = slabView.getQuantity(index);
+
+        return Order.builder()
+                .price(price)
+                .quantity(quantity)
+                .clientOrderId(slabView.getClientOrderId(index))
+                .floatPrice(SerumUtils.priceLotsToNumber(price, baseDecimals, quoteDecimals, baseLotSize, quoteLotSize))
+                .floatQuantity((float) ((quantity * baseLotSize) / SerumUtils.getBaseSplTokenMultiplier(baseDecimals)))
+                .owner(slabView.getOwner(index))
+                .build();
+    }
+
+    /**
+     * Builds an {@link Order} from a decoded {@link SlabLeafNode}.
+     *
+     * @param slabLeafNode leaf node
+     * @return {@link Order} for that leaf
+     */
+    private Order buildOrder(SlabLeafNode slabLeafNode) {
+        return Order.builder()
+                .price(slabLeafNode.getPrice())
+                .quantity(slabLeafNode.getQuantity())
+                .clientOrderId(slabLeafNode.getClientOrderId())
+                .floatPrice(SerumUtils.priceLotsToNumber(slabLeafNode.getPrice(), baseDecimals, quoteDecimals, baseLotSize, quoteLotSize))
+                .floatQuantity((float) ((slabLeafNode.getQuantity() * baseLotSize) / SerumUtils.getBaseSplTokenMultiplier(baseDecimals)))
+                .owner(slabLeafNode.getOwner())
+                .build();
+    }
+
+    /**
+     * Returns the decoded {@link Slab}. For order books read with {@link #readOrderBookView(byte[])} the slab is
+     * decoded on first access.
+     *
+     * @return {@link Slab} of this order book
+     */
     public Slab getSlab() {
+        if (slab == null && slabView != null) {
+            slab = Slab.readOrderBookSlab(slabView.toByteArray());
+        }
         return slab;
     }
 
@@ -93,6 +374,14 @@ public class OrderBook {
         this.slab = slab;
     }
 
+    public SlabView getSlabView() {
+        return slabView;
+    }
+
+    public void setSlabView(SlabView slabView) {
+        this.slabView = slabView;
+    }
+
     public AccountFlags getAccountFlags() {
         return accountFlags;
     }
@@ -0,0 +1,41 @@
+package com.mmorrell.serum.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.p2p.solanaj.core.PublicKey;
+
+/**
+ * Immutable, point-in-time view of a Serum market's bids, asks and event queue, as published by
+ * {@link com.mmorrell.serum.manager.OrderBookStreamManager}. Each pushed account update produces a new snapshot;
+ * a snapshot (and the {@link OrderBook}s it references) is never modified after it is published.
+ */
+@Builder(toBuilder = true)
+@Getter
+public class OrderBookSnapshot {
+
+    private final PublicKey marketId;
+    private final OrderBook bidOrderBook;
+    private final OrderBook askOrderBook;
+    private final EventQueue eventQueue;
+
+    // Incremented on every published update, for cheap change detection
+    private final long version;
+    private final long updatedAtMillis;
+
+    public Order getBestBid() {
+        return bidOrderBook == null ? null : bidOrderBook.getBestBid();
+    }
+
+    public Order getBestAsk() {
+        return askOrderBook == null ? null : askOrderBook.getBestAsk();
+    }
+
+    @Override
+    public String toString() {
+        return "OrderBookSnapshot{" +
+                "marketId=" + marketId +
+                ", version=" + version +
+                ", updatedAtMillis=" + updatedAtMillis +
+                '}';
+    }
+}
@@ -0,0 +1,145 @@
+package com.mmorrell.serum.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set of order changes between two successive snapshots of the same Serum bids/asks account.
+ * <p>
+ * Orders are matched by their leaf key (sequence number and price), not by node index: Serum's critbit tree moves
+ * leaves between slots, copying the leaf at the split point into a new slot on insert and the removed leaf's
+ * sibling into its parent's slot on remove. The snapshots are compared node by node, up to the larger of the two
+ * bumpIndexes, and nodes whose 72 bytes are unchanged are skipped with nine long compares. A key is unique within a
+ * snapshot, so an order sitting in an unchanged node is unchanged. Only the leaves of changed nodes are decoded:
+ * <ul>
+ * <li>key in both snapshots, different quantity: {@link SlabDiffEvent.Type#MODIFY}</li>
+ * <li>key only in the previous snapshot: {@link SlabDiffEvent.Type#REMOVE}</li>
+ * <li>key only in the current snapshot: {@link SlabDiffEvent.Type#ADD}</li>
+ * </ul>
+ * An order that only moved to another slot produces no event. Inner and free nodes are tree bookkeeping and never
+ * produce events.
+ */
+public class SlabDiff {
+
+    private static final SlabDiff EMPTY = new SlabDiff(Collections.emptyList());
+
+    private final List<SlabDiffEvent> events;
+
+    private SlabDiff(List<SlabDiffEvent> events) {
+        this.events = events;
+    }
+
+    /**
+     * Computes the changes from the previous to the current snapshot.
+     *
+     * @param previous previous snapshot, or null if there is none (every current order is then an ADD)
+     * @param current  current snapshot
+     * @return diff: removals, then modifications, then additions, each in node index order
+     */
+    public static SlabDiff diff(SlabView previous, SlabView current) {
+        if (previous == current) {
+            return EMPTY;
+        }
+
+        final int previousCount = previous == null ? 0 : previous.getNodeCount();
+        final int currentCount = current.getNodeCount();
+        final int nodeCount = Math.max(previousCount, currentCount);
+
+        // Leaves of the changed nodes: previous ones by key, current ones by node index
+        final Map<LeafKey, Integer> previousLeaves = new LinkedHashMap<>();
+        final List<Integer> currentLeaves = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            final boolean inPrevious = i < previousCount;
+            final boolean inCurrent = i < currentCount;
+
+            if (inPrevious && inCurrent && current.nodeEquals(i, previous)) {
+                continue;
+            }
+
+            if (inPrevious && previous.isLeaf(i)) {
+                previousLeaves.put(new LeafKey(previous.getSeqNum(i), previous.getPrice(i)), i);
+            }
+
+            if (inCurrent && current.isLeaf(i)) {
+                currentLeaves.add(i);
+            }
+        }
+
+        final List<SlabDiffEvent> modified = new ArrayList<>();
+        final List<SlabDiffEvent> added = new ArrayList<>();
+        for (int i : currentLeaves) {
+            final Integer previousIndex = previousLeaves.remove(new LeafKey(current.getSeqNum(i), current.getPrice(i)));
+            if (previousIndex == null) {
+                added.add(buildEvent(SlabDiffEvent.Type.ADD, i, current, 0L));
+            } else if (previous.getQuantity(previousIndex) != current.getQuantity(i)) {
+                modified.add(buildEvent(SlabDiffEvent.Type.MODIFY, i, current, previous.getQuantity(previousIndex)));
+            }
+        }
+
+        if (previousLeaves.isEmpty() && modified.isEmpty() && added.isEmpty()) {
+            return EMPTY;
+        }
+
+        final List<SlabDiffEvent> events = new ArrayList<>(previousLeaves.size() + modified.size() + added.size());
+        for (int i : previousLeaves.values()) {
+            events.add(buildEvent(SlabDiffEvent.Type.REMOVE, i, previous, previous.getQuantity(i)));
+        }
+        events.addAll(modified);
+        events.addAll(added);
+        return new SlabDiff(Collections.unmodifiableList(events));
+    }
+
+    /**
+     * Computes the changes between two order books of the same account, see {@link #diff(SlabView, SlabView)}.
+     *
+     * @param previous previous order book, or null if there is none
+     * @param current  current order book, read with a {@link SlabView}
+     * @return diff: removals, then modifications, then additions
+     */
+    public static SlabDiff diff(OrderBook previous, OrderBook current) {
+        if (current.getSlabView() == null) {
+            throw new IllegalArgumentException("order book was not read with a SlabView");
+        }
+
+        return diff(previous == null ? null : previous.getSlabView(), current.getSlabView());
+    }
+
+    public List<SlabDiffEvent> getEvents() {
+        return events;
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    private static SlabDiffEvent buildEvent(SlabDiffEvent.Type type, int index, SlabView view, long previousQuantity) {
+        final boolean removed = type == SlabDiffEvent.Type.REMOVE;
+
+        return SlabDiffEvent.builder()
+                .type(type)
+                .nodeIndex(index)
+                .seqNum(view.getSeqNum(index))
+                .price(view.getPrice(index))
+                .previousQuantity(previousQuantity)
+                .quantity(removed ? 0L : view.getQuantity(index))
+                .clientOrderId(view.getClientOrderId(index))
+                .build();
+    }
+
+    private record LeafKey(long seqNum, long price) {
+    }
+
+    @Override
+    public String toString() {
+        return "SlabDiff{" +
+                "events=" + events +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package com.mmorrell.serum.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A single order level change between two successive snapshots of a Serum bids/asks slab, see {@link SlabDiff}.
+ */
+@Builder
+@Getter
+public class SlabDiffEvent {
+
+    public enum Type {
+        // Order that was not in the previous snapshot
+        ADD,
+        // Order that is no longer in the current snapshot (filled or cancelled)
+        REMOVE,
+        // Order whose quantity changed, i.e. a partial fill
+        MODIFY
+    }
+
+    private Type type;
+    // Slot of the order in the previous snapshot for REMOVE, in the current snapshot otherwise
+    private int nodeIndex;
+    private long seqNum;
+    private long price;
+    private long previousQuantity;
+    private long quantity;
+    private long clientOrderId;
+
+    @Override
+    public String toString() {
+        return "SlabDiffEvent{" +
+                "type=" + type +
+                ", nodeIndex=" + nodeIndex +
+                ", seqNum=" + seqNum +
+                ", price=" + price +
+                ", previousQuantity=" + previousQuantity +
+                ", quantity=" + quantity +
+                ", clientOrderId=" + clientOrderId +
+                '}';
+    }
+}
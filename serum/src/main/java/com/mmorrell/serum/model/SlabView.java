@@ -0,0 +1,393 @@
+package com.mmorrell.serum.model;
+
+import org.p2p.solanaj.core.PublicKey;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Zero-copy, read-only view over the slab of a Serum bids/asks account.
+ * <p>
+ * Unlike {@link Slab#readOrderBookSlab(byte[])}, nothing is copied or allocated per node: every accessor reads
+ * straight from the wrapped account bytes by node index. Offsets are relative to the start of the account data
+ * (i.e. including the 5 byte "serum" padding and the 8 byte {@link AccountFlags}).
+ * <p>
+ * node layout (72 bytes):
+ * [tag u32]
+ * inner node: [prefixLen u32][key u128][children u32 x 2]
+ * leaf node:  [ownerSlot u8][feeTier u8][2 bytes padding][key u128 (seqNum u64, price u64)][owner 32 bytes]
+ * [quantity u64][clientOrderId u64]
+ * <p>
+ * A view is only valid for as long as the underlying bytes are not modified.
+ */
+public class SlabView {
+
+    public static final int NODE_SIZE = 72;
+
+    public static final int TAG_UNINITIALIZED = 0;
+    public static final int TAG_INNER_NODE = 1;
+    public static final int TAG_LEAF_NODE = 2;
+    public static final int TAG_FREE_NODE = 3;
+    public static final int TAG_LAST_FREE_NODE = 4;
+
+    // Slab header, starts at 13 (after the "serum" padding and account flags)
+    private static final int BUMP_INDEX_OFFSET = 13;
+    private static final int FREE_LIST_LEN_OFFSET = 21;
+    private static final int FREE_LIST_HEAD_OFFSET = 29;
+    private static final int ROOT_OFFSET = 33;
+    private static final int LEAF_COUNT_OFFSET = 37;
+    private static final int SLAB_NODE_OFFSET = 45;
+
+    // Node-relative offsets
+    private static final int TAG_OFFSET = 0;
+    private static final int INNER_PREFIX_LEN_OFFSET = 4;
+    private static final int INNER_KEY_OFFSET = 8;
+    private static final int INNER_CHILDREN_OFFSET = 24;
+    private static final int LEAF_OWNER_SLOT_OFFSET = 4;
+    private static final int LEAF_FEE_TIER_OFFSET = 5;
+    private static final int LEAF_SEQ_NUM_OFFSET = 8;
+    private static final int LEAF_PRICE_OFFSET = 16;
+    private static final int LEAF_OWNER_OFFSET = 24;
+    private static final int LEAF_QUANTITY_OFFSET = 56;
+    private static final int LEAF_CLIENT_ORDER_ID_OFFSET = 64;
+
+    // Keys are u128, so a well-formed critbit tree has at most 128 inner nodes on any path
+    private static final int MAX_TREE_DEPTH = 129;
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int nodeCount;
+
+    private SlabView(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+
+        int capacity = (buffer.limit() - base - SLAB_NODE_OFFSET) / NODE_SIZE;
+        this.nodeCount = Math.max(0, Math.min(getBumpIndex(), capacity));
+    }
+
+    /**
+     * Wraps raw bids/asks account data without copying it.
+     *
+     * @param data account data, starting with the "serum" padding
+     * @return view over the slab
+     */
+    public static SlabView wrap(byte[] data) {
+        return new SlabView(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), 0);
+    }
+
+    /**
+     * Wraps a buffer holding bids/asks account data, starting at its current position. The buffer's position and
+     * limit are left untouched; only a little-endian duplicate is retained.
+     *
+     * @param data buffer whose remaining bytes are the account data
+     * @return view over the slab
+     */
+    public static SlabView wrap(ByteBuffer data) {
+        return new SlabView(data.duplicate().order(ByteOrder.LITTLE_ENDIAN), data.position());
+    }
+
+    public int getBumpIndex() {
+        return buffer.getInt(base + BUMP_INDEX_OFFSET);
+    }
+
+    public int getFreeListLen() {
+        return buffer.getInt(base + FREE_LIST_LEN_OFFSET);
+    }
+
+    public int getFreeListHead() {
+        return buffer.getInt(base + FREE_LIST_HEAD_OFFSET);
+    }
+
+    public int getRoot() {
+        return buffer.getInt(base + ROOT_OFFSET);
+    }
+
+    public int getLeafCount() {
+        return buffer.getInt(base + LEAF_COUNT_OFFSET);
+    }
+
+    /**
+     * Number of addressable nodes, i.e. bumpIndex bounded by the size of the underlying data.
+     *
+     * @return number of nodes that can be read from this view
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the variant of the node at the given index, one of the TAG_ constants.
+     *
+     * @param index node index
+     * @return node tag
+     */
+    public int getTag(int index) {
+        return buffer.getInt(nodeOffset(index) + TAG_OFFSET);
+    }
+
+    public boolean isLeaf(int index) {
+        return getTag(index) == TAG_LEAF_NODE;
+    }
+
+    public boolean isInner(int index) {
+        return getTag(index) == TAG_INNER_NODE;
+    }
+
+    // Inner node accessors
+
+    public int getPrefixLen(int index) {
+        return buffer.getInt(nodeOffset(index) + INNER_PREFIX_LEN_OFFSET);
+    }
+
+    /**
+     * Returns one of the two children of an inner node.
+     *
+     * @param index inner node index
+     * @param side  0 for the lower half of the key space, 1 for the upper half
+     * @return index of the child node
+     */
+    public int getChild(int index, int side) {
+        return buffer.getInt(nodeOffset(index) + INNER_CHILDREN_OFFSET + (side * 4));
+    }
+
+    // Leaf node accessors
+
+    public byte getOwnerSlot(int index) {
+        return buffer.get(nodeOffset(index) + LEAF_OWNER_SLOT_OFFSET);
+    }
+
+    public byte getFeeTier(int index) {
+        return buffer.get(nodeOffset(index) + LEAF_FEE_TIER_OFFSET);
+    }
+
+    /**
+     * Low 64 bits of the u128 key. For leaves this is the order sequence number, for inner nodes the low bits
+     * of the critbit prefix.
+     *
+     * @param index node index
+     * @return low half of the key
+     */
+    public long getKeyLow(int index) {
+        return buffer.getLong(nodeOffset(index) + (isLeaf(index) ? LEAF_SEQ_NUM_OFFSET : INNER_KEY_OFFSET));
+    }
+
+    /**
+     * High 64 bits of the u128 key. For leaves this is the price in lots.
+     *
+     * @param index node index
+     * @return high half of the key
+     */
+    public long getKeyHigh(int index) {
+        return buffer.getLong(nodeOffset(index) + (isLeaf(index) ? LEAF_PRICE_OFFSET : INNER_KEY_OFFSET + 8));
+    }
+
+    public long getSeqNum(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_SEQ_NUM_OFFSET);
+    }
+
+    public long getPrice(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_PRICE_OFFSET);
+    }
+
+    public long getQuantity(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_QUANTITY_OFFSET);
+    }
+
+    public long getClientOrderId(int index) {
+        return buffer.getLong(nodeOffset(index) + LEAF_CLIENT_ORDER_ID_OFFSET);
+    }
+
+    /**
+     * Builds the open orders {@link PublicKey} of a leaf. This allocates, prefer {@link #ownerEquals(int, PublicKey)}
+     * or {@link #copyOwner(int, byte[], int)} on hot paths.
+     *
+     * @param index leaf node index
+     * @return owner of the order
+     */
+    public PublicKey getOwner(int index) {
+        byte[] owner = new byte[PublicKey.PUBLIC_KEY_LENGTH];
+        copyOwner(index, owner, 0);
+        return new PublicKey(owner);
+    }
+
+    /**
+     * Copies the 32 byte open orders key of a leaf into the destination array.
+     *
+     * @param index  leaf node index
+     * @param dst    destination array
+     * @param offset offset into the destination array
+     */
+    public void copyOwner(int index, byte[] dst, int offset) {
+        buffer.get(nodeOffset(index) + LEAF_OWNER_OFFSET, dst, offset, PublicKey.PUBLIC_KEY_LENGTH);
+    }
+
+    /**
+     * Compares the open orders key of a leaf with the given key, without allocating.
+     *
+     * @param index leaf node index
+     * @param owner key to compare against
+     * @return true if the leaf is owned by the given open orders account
+     */
+    public boolean ownerEquals(int index, PublicKey owner) {
+        byte[] ownerBytes = owner.toByteArray();
+        int ownerOffset = nodeOffset(index) + LEAF_OWNER_OFFSET;
+
+        for (int i = 0; i < PublicKey.PUBLIC_KEY_LENGTH; i++) {
+            if (buffer.get(ownerOffset + i) != ownerBytes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Walks from the root down the lower children to the leaf with the smallest key (lowest price).
+     *
+     * @return index of the minimum leaf, or -1 if the slab is empty
+     */
+    public int minLeaf() {
+        return walkToLeaf(0);
+    }
+
+    /**
+     * Walks from the root down the upper children to the leaf with the largest key (highest price).
+     *
+     * @return index of the maximum leaf, or -1 if the slab is empty
+     */
+    public int maxLeaf() {
+        return walkToLeaf(1);
+    }
+
+    /**
+     * Iterates leaf indices in key order, i.e. sorted by price and then sequence number, by an in-order walk of
+     * the critbit tree. Only the nodes needed to reach the next leaf are visited, so stopping early is cheap.
+     *
+     * @param descending true to iterate from the highest price (bids), false from the lowest (asks)
+     * @return iterator over leaf node indices
+     */
+    public PrimitiveIterator.OfInt leafIterator(boolean descending) {
+        return new LeafIterator(descending);
+    }
+
+    private int walkToLeaf(int side) {
+        if (getLeafCount() == 0) {
+            return -1;
+        }
+
+        int node = getRoot();
+        for (int depth = 0; depth < MAX_TREE_DEPTH; depth++) {
+            int tag = getTag(node);
+            if (tag == TAG_LEAF_NODE) {
+                return node;
+            } else if (tag != TAG_INNER_NODE) {
+                throw new IllegalStateException("unexpected slab node tag " + tag + " at index " + node);
+            }
+            node = getChild(node, side);
+        }
+
+        throw new IllegalStateException("slab tree deeper than " + MAX_TREE_DEPTH + " nodes");
+    }
+
+    /**
+     * Depth-first, in-order leaf iterator backed by a fixed int stack of pending subtrees.
+     */
+    private class LeafIterator implements PrimitiveIterator.OfInt {
+
+        private final int[] stack = new int[MAX_TREE_DEPTH + 1];
+        private final int first;
+        private final int second;
+        private int size;
+        private int next = -1;
+
+        private LeafIterator(boolean descending) {
+            this.first = descending ? 1 : 0;
+            this.second = descending ? 0 : 1;
+
+            if (getLeafCount() > 0) {
+                stack[size++] = getRoot();
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = -1;
+            while (size > 0) {
+                int node = stack[--size];
+                int tag = getTag(node);
+                if (tag == TAG_LEAF_NODE) {
+                    next = node;
+                    return;
+                } else if (tag != TAG_INNER_NODE) {
+                    throw new IllegalStateException("unexpected slab node tag " + tag + " at index " + node);
+                }
+
+                if (size + 2 > stack.length) {
+                    throw new IllegalStateException("slab tree deeper than " + MAX_TREE_DEPTH + " nodes");
+                }
+
+                // Push the subtree visited last first
+                stack[size++] = getChild(node, second);
+                stack[size++] = getChild(node, first);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public int nextInt() {
+            if (next == -1) {
+                throw new NoSuchElementException();
+            }
+
+            int result = next;
+            advance();
+            return result;
+        }
+    }
+
+    /**
+     * Compares the raw bytes of a node with the node at the same index in another view, without allocating.
+     *
+     * @param index node index, which must be addressable in both views
+     * @param other view to compare against
+     * @return true if both nodes are byte for byte identical
+     */
+    boolean nodeEquals(int index, SlabView other) {
+        int offset = nodeOffset(index);
+        int otherOffset = other.nodeOffset(index);
+
+        for (int i = 0; i < NODE_SIZE; i += Long.BYTES) {
+            if (buffer.getLong(offset + i) != other.buffer.getLong(otherOffset + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies the viewed account data into a new array, e.g. to materialize a {@link Slab}.
+     *
+     * @return copy of the account data
+     */
+    byte[] toByteArray() {
+        byte[] data = new byte[buffer.limit() - base];
+        buffer.get(base, data);
+        return data;
+    }
+
+    private int nodeOffset(int index) {
+        if (index < 0 || index >= nodeCount) {
+            throw new IndexOutOfBoundsException("slab node index " + index + " out of bounds for " + nodeCount);
+        }
+
+        return base + SLAB_NODE_OFFSET + (index * NODE_SIZE);
+    }
+}
@@ -0,0 +1,165 @@
+package com.mmorrell.serum.util;
+
+import com.google.common.collect.Lists;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.rpc.RpcClient;
+import org.p2p.solanaj.rpc.RpcException;
+import org.p2p.solanaj.rpc.types.config.Commitment;
+import org.p2p.solanaj.rpc.types.config.RpcSendTransactionConfig;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Fetches account data for any number of accounts with getMultipleAccounts, for loaders that would otherwise issue
+ * one getAccountInfo per account.
+ * <p>
+ * The accounts are split into chunks of at most {@link #MAX_ACCOUNTS_PER_REQUEST} keys, which are requested
+ * concurrently on the configured {@link Executor}, {@link RpcExecutor#getDefault()} unless set. Called from a task of
+ * the {@link RpcExecutor} it uses, the chunks are fetched one after the other on the calling thread instead, since
+ * waiting for chunks queued behind that task could deadlock.
+ */
+public class MultipleAccountsFetcher {
+
+    // RPC limit for getMultipleAccounts
+    public static final int MAX_ACCOUNTS_PER_REQUEST = 100;
+
+    private final RpcClient client;
+    private Commitment commitment = Commitment.CONFIRMED;
+    private Executor executor = RpcExecutor.getDefault();
+
+    public MultipleAccountsFetcher(RpcClient client) {
+        this.client = client;
+    }
+
+    public MultipleAccountsFetcher setCommitment(Commitment commitment) {
+        this.commitment = commitment;
+        return this;
+    }
+
+    /**
+     * @param executor executor the getMultipleAccounts chunks are requested on, which bounds their concurrency
+     * @return this fetcher
+     */
+    public MultipleAccountsFetcher setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Account data together with the slot of the getMultipleAccounts response it was read from.
+     *
+     * @param slot context slot of the response
+     * @param data decoded account data
+     */
+    public record SlotAccount(long slot, byte[] data) {
+    }
+
+    /**
+     * Fetches account data for any number of accounts.
+     *
+     * @param accounts accounts to fetch
+     * @return decoded account data by key; accounts that do not exist are absent
+     */
+    public Map<PublicKey, byte[]> getMultipleAccounts(List<PublicKey> accounts) {
+        final Map<PublicKey, byte[]> results = new HashMap<>(accounts.size() * 2);
+        for (AccountChunk chunk : getAccountChunks(accounts)) {
+            results.putAll(chunk.accounts());
+        }
+
+        return results;
+    }
+
+    /**
+     * Fetches account data for any number of accounts like {@link #getMultipleAccounts(List)}, tagging each account
+     * with the context slot of the response it came in. Accounts in the same chunk of
+     * {@link #MAX_ACCOUNTS_PER_REQUEST} keys share a slot, so keep accounts that must be read at the same slot next
+     * to each other in the list, without straddling a chunk boundary.
+     *
+     * @param accounts accounts to fetch
+     * @return decoded account data and slot by key; accounts that do not exist are absent
+     */
+    public Map<PublicKey, SlotAccount> getMultipleAccountsWithSlot(List<PublicKey> accounts) {
+        final Map<PublicKey, SlotAccount> results = new HashMap<>(accounts.size() * 2);
+        for (AccountChunk chunk : getAccountChunks(accounts)) {
+            chunk.accounts().forEach((publicKey, data) -> results.put(publicKey, new SlotAccount(chunk.slot(), data)));
+        }
+
+        return results;
+    }
+
+    private record AccountChunk(long slot, Map<PublicKey, byte[]> accounts) {
+    }
+
+    private List<AccountChunk> getAccountChunks(List<PublicKey> accounts) {
+        final List<List<PublicKey>> partitions = Lists.partition(accounts, MAX_ACCOUNTS_PER_REQUEST);
+        if (executor instanceof RpcExecutor rpcExecutor && rpcExecutor.isExecutorThread()) {
+            final List<AccountChunk> results = new ArrayList<>(partitions.size());
+            for (List<PublicKey> chunk : partitions) {
+                results.add(getAccountChunk(chunk));
+            }
+            return results;
+        }
+
+        final List<CompletableFuture<AccountChunk>> chunks = new ArrayList<>();
+        for (List<PublicKey> chunk : partitions) {
+            chunks.add(CompletableFuture.supplyAsync(() -> getAccountChunk(chunk), executor));
+        }
+
+        final List<AccountChunk> results = new ArrayList<>(chunks.size());
+        try {
+            for (CompletableFuture<AccountChunk> chunk : chunks) {
+                results.add(chunk.join());
+            }
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        return results;
+    }
+
+    /**
+     * Calls getMultipleAccounts directly rather than through {@link org.p2p.solanaj.rpc.RpcApi}, which drops missing
+     * accounts from its result list and with them the positional mapping back to the requested keys.
+     */
+    @SuppressWarnings("unchecked")
+    private AccountChunk getAccountChunk(List<PublicKey> chunk) {
+        final List<String> keys = new ArrayList<>(chunk.size());
+        for (PublicKey publicKey : chunk) {
+            keys.add(publicKey.toBase58());
+        }
+
+        final Map<String, Object> config = Map.of(
+                "encoding", RpcSendTransactionConfig.Encoding.base64.getEncoding(),
+                "commitment", commitment.getValue()
+        );
+
+        final Map<String, Object> response;
+        try {
+            response = client.call("getMultipleAccounts", List.of(keys, config), Map.class);
+        } catch (RpcException e) {
+            throw new RuntimeException(e);
+        }
+
+        final Map<String, Object> context = (Map<String, Object>) response.get("context");
+        final long slot = context == null ? 0 : ((Number) context.get("slot")).longValue();
+
+        final List<Object> values = (List<Object>) response.get("value");
+        final Map<PublicKey, byte[]> results = new HashMap<>(chunk.size() * 2);
+        for (int i = 0; i < chunk.size() && i < values.size(); i++) {
+            final Map<String, Object> value = (Map<String, Object>) values.get(i);
+            if (value != null) {
+                final List<String> data = (List<String>) value.get("data");
+                results.put(chunk.get(i), Base64.getDecoder().decode(data.get(0)));
+            }
+        }
+
+        return new AccountChunk(slot, results);
+    }
+}
@@ -0,0 +1,278 @@
+package com.mmorrell.serum.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Executor for blocking RPC calls, shared by MarketBuilder, MarketBatchLoader and the OpenBook, Phoenix and Jupiter
+ * managers so that their I/O does not run on (and starve) the common ForkJoinPool.
+ * <p>
+ * Tasks run on either a fixed pool of daemon platform threads or, on JDK 21+, one virtual thread per task. In both
+ * cases at most maxInFlight tasks run at the same time; the rest wait their turn, which keeps bursts of requests
+ * under an RPC provider's rate limit. Queue depth, in-flight and completion counters are exposed for monitoring.
+ */
+public class RpcExecutor implements Executor, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(RpcExecutor.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private static volatile RpcExecutor defaultExecutor;
+
+    // Executor whose task the current thread is running, if any
+    private static final ThreadLocal<RpcExecutor> CURRENT = new ThreadLocal<>();
+
+    private final ExecutorService executorService;
+    private final boolean virtualThreads;
+    private final int maxInFlight;
+    private final Semaphore permits;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxObservedQueueDepth = new AtomicInteger();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private RpcExecutor(ExecutorService executorService, boolean virtualThreads, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+
+        this.executorService = executorService;
+        this.virtualThreads = virtualThreads;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight, true);
+    }
+
+    /**
+     * Executor backed by a fixed pool of daemon platform threads, one per allowed in-flight request.
+     *
+     * @param maxInFlight maximum number of concurrently running requests
+     * @return new executor
+     */
+    public static RpcExecutor platformThreads(int maxInFlight) {
+        return new RpcExecutor(Executors.newFixedThreadPool(maxInFlight, daemonThreadFactory()), false, maxInFlight);
+    }
+
+    /**
+     * Executor running each request on its own virtual thread, if the JVM supports them (JDK 21+). Falls back to
+     * {@link #platformThreads(int)} otherwise.
+     *
+     * @param maxInFlight maximum number of concurrently running requests
+     * @return new executor
+     */
+    public static RpcExecutor virtualThreads(int maxInFlight) {
+        try {
+            // Looked up reflectively so this still compiles and runs on JDK 17
+            final Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new RpcExecutor((ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null), true, maxInFlight);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("Virtual threads unavailable on Java " + Runtime.version() + ", using platform threads");
+            return platformThreads(maxInFlight);
+        }
+    }
+
+    /**
+     * Wraps an existing executor service with the in-flight cap and metrics. Closing the returned executor shuts the
+     * service down.
+     *
+     * @param executorService executor service to run requests on
+     * @param maxInFlight     maximum number of concurrently running requests
+     * @return new executor
+     */
+    public static RpcExecutor of(ExecutorService executorService, int maxInFlight) {
+        return new RpcExecutor(executorService, false, maxInFlight);
+    }
+
+    /**
+     * Lazily created executor shared by every component that was not given one explicitly: virtual threads where
+     * available, capped at {@link #DEFAULT_MAX_IN_FLIGHT} in-flight requests.
+     *
+     * @return shared executor
+     */
+    public static RpcExecutor getDefault() {
+        RpcExecutor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (RpcExecutor.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = virtualThreads(DEFAULT_MAX_IN_FLIGHT);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Replaces the shared default executor, e.g. to size it for a given RPC provider. The previous default is not
+     * shut down, since tasks may still be running on it.
+     *
+     * @param executor new default executor
+     */
+    public static void setDefault(RpcExecutor executor) {
+        synchronized (RpcExecutor.class) {
+            defaultExecutor = executor;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failedCount.incrementAndGet();
+                throw e;
+            }
+            completedCount.incrementAndGet();
+        }, e -> {
+        });
+    }
+
+    /**
+     * Runs a blocking call on this executor. The call is counted as completed, or failed if it throws, before the
+     * returned future completes.
+     *
+     * @param supplier blocking call
+     * @param <T>      result type
+     * @return future completed with the call's result
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        submit(() -> {
+            final T result;
+            try {
+                result = supplier.get();
+            } catch (RuntimeException | Error e) {
+                failedCount.incrementAndGet();
+                future.completeExceptionally(e);
+                return;
+            }
+            completedCount.incrementAndGet();
+            future.complete(result);
+        }, future::completeExceptionally);
+        return future;
+    }
+
+    // Runs the task once a permit is free; the task counts its own completion or failure
+    private void submit(Runnable task, Consumer<InterruptedException> onInterrupted) {
+        submittedCount.incrementAndGet();
+        maxObservedQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+
+        executorService.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                queueDepth.decrementAndGet();
+                failedCount.incrementAndGet();
+                Thread.currentThread().interrupt();
+                onInterrupted.accept(e);
+                return;
+            }
+
+            queueDepth.decrementAndGet();
+            inFlight.incrementAndGet();
+            CURRENT.set(this);
+            try {
+                task.run();
+            } finally {
+                CURRENT.remove();
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Whether the calling thread is running a task of this executor, and so holds one of its in-flight permits.
+     * Such a task must not block on other tasks of the same executor: once every permit is held by a waiting task,
+     * none of them can make progress.
+     *
+     * @return true if called from a task of this executor
+     */
+    public boolean isExecutorThread() {
+        return CURRENT.get() == this;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return number of tasks submitted but not yet running
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return highest queue depth seen since creation
+     */
+    public int getMaxObservedQueueDepth() {
+        return maxObservedQueueDepth.get();
+    }
+
+    /**
+     * @return number of tasks currently running
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "RpcExecutor{" +
+                "virtualThreads=" + virtualThreads +
+                ", maxInFlight=" + maxInFlight +
+                ", queueDepth=" + getQueueDepth() +
+                ", inFlight=" + getInFlight() +
+                ", submitted=" + getSubmittedCount() +
+                ", completed=" + getCompletedCount() +
+                ", failed=" + getFailedCount() +
+                '}';
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "rpc-io-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,220 @@
+package com.mmorrell.serum.util;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import okhttp3.OkHttpClient;
+import org.p2p.solanaj.rpc.RpcClient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Recorded JSON-RPC responses, for running {@link RpcClient} based code (MarketBuilder, MarketBatchLoader, the
+ * OpenBook, Phoenix and other managers) without a network.
+ * <p>
+ * Responses are keyed by method and parameters, ignoring the request id and the order of config object fields, and
+ * stored with the latency observed while recording. A store is filled through {@link #recordingClient(String)} (or
+ * a {@link RpcRecordingInterceptor}), saved to a single gzip file and later served back by
+ * {@link #replayingClient()} (or a {@link RpcReplayInterceptor}).
+ */
+public class RpcFixtureStore {
+
+    private static final int FILE_MAGIC = 0x52504346; // "RPCF"
+    private static final int FILE_VERSION = 1;
+    private static final String REPLAY_ENDPOINT = "http://replay.invalid";
+
+    // Config fields that do not select what is returned, only how fresh it must be
+    private static final Set<String> IGNORED_CONFIG_FIELDS = Set.of("minContextSlot");
+
+    private static final JsonAdapter<Object> JSON_ADAPTER = new Moshi.Builder().build().adapter(Object.class);
+
+    private final Map<String, Fixture> fixtures = new ConcurrentHashMap<>();
+
+    /**
+     * A recorded response.
+     *
+     * @param latencyNanos time from sending the request to receiving the full response, while recording
+     * @param body         raw JSON-RPC response body
+     */
+    public record Fixture(long latencyNanos, byte[] body) {
+    }
+
+    /**
+     * Reads a store written by {@link #save(Path)}.
+     *
+     * @param path fixture file
+     * @return loaded store
+     * @throws IOException if the file can not be read or is not a fixture file
+     */
+    public static RpcFixtureStore load(Path path) throws IOException {
+        final RpcFixtureStore store = new RpcFixtureStore();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (input.readInt() != FILE_MAGIC) {
+                throw new IOException("Not an RPC fixture file: " + path);
+            }
+            final int version = input.readInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Unsupported RPC fixture file version " + version + ": " + path);
+            }
+
+            final int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                final String key = new String(readBytes(input), StandardCharsets.UTF_8);
+                final long latencyNanos = input.readLong();
+                store.fixtures.put(key, new Fixture(latencyNanos, readBytes(input)));
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Writes all recorded responses to a gzip compressed file, replacing it if it exists.
+     *
+     * @param path fixture file
+     * @throws IOException if the file can not be written
+     */
+    public void save(Path path) throws IOException {
+        final List<Map.Entry<String, Fixture>> entries = new ArrayList<>(new TreeMap<>(fixtures).entrySet());
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(path))))) {
+            output.writeInt(FILE_MAGIC);
+            output.writeInt(FILE_VERSION);
+            output.writeInt(entries.size());
+            for (Map.Entry<String, Fixture> entry : entries) {
+                writeBytes(output, entry.getKey().getBytes(StandardCharsets.UTF_8));
+                output.writeLong(entry.getValue().latencyNanos());
+                writeBytes(output, entry.getValue().body());
+            }
+        }
+    }
+
+    /**
+     * @param requestBody JSON-RPC request body
+     * @param fixture     response to store for it, replacing any earlier one
+     */
+    public void put(String requestBody, Fixture fixture) {
+        fixtures.put(requestKey(requestBody), fixture);
+    }
+
+    /**
+     * @param requestBody JSON-RPC request body
+     * @return recorded response, or null if none
+     */
+    public Fixture get(String requestBody) {
+        return fixtures.get(requestKey(requestBody));
+    }
+
+    public int size() {
+        return fixtures.size();
+    }
+
+    /**
+     * {@link RpcClient} for the given endpoint that records every successful response into this store.
+     *
+     * @param endpoint RPC endpoint
+     * @return recording client
+     */
+    public RpcClient recordingClient(String endpoint) {
+        return new RpcClient(
+                endpoint,
+                new OkHttpClient.Builder()
+                        .addInterceptor(new RpcRecordingInterceptor(this))
+                        .readTimeout(20, TimeUnit.SECONDS)
+                        .build()
+        );
+    }
+
+    /**
+     * {@link RpcClient} answering from this store only, with the recorded latencies.
+     *
+     * @return replaying client
+     */
+    public RpcClient replayingClient() {
+        return replayingClient(new RpcReplayInterceptor(this));
+    }
+
+    /**
+     * {@link RpcClient} answering through the given replay interceptor, e.g. one with a changed speed or latency.
+     *
+     * @param replayInterceptor interceptor serving the responses
+     * @return replaying client
+     */
+    public static RpcClient replayingClient(RpcReplayInterceptor replayInterceptor) {
+        return new RpcClient(
+                REPLAY_ENDPOINT,
+                new OkHttpClient.Builder()
+                        .addInterceptor(replayInterceptor)
+                        .build()
+        );
+    }
+
+    /**
+     * Method and canonicalized params of a JSON-RPC request: the id is dropped and object fields sorted, since the
+     * client sends a random id and builds config objects with {@code Map.of}, whose iteration order varies.
+     * minContextSlot is dropped too, as it follows the slots of earlier responses and does not change the result.
+     */
+    static String requestKey(String requestBody) {
+        final Object request;
+        try {
+            request = JSON_ADAPTER.fromJson(requestBody);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid JSON-RPC request: " + requestBody, e);
+        }
+
+        if (!(request instanceof Map<?, ?> requestMap)) {
+            throw new IllegalArgumentException("Invalid JSON-RPC request: " + requestBody);
+        }
+
+        return requestMap.get("method") + " " + JSON_ADAPTER.toJson(canonicalize(requestMap.get("params")));
+    }
+
+    private static Object canonicalize(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            final Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, entry) -> {
+                if (!IGNORED_CONFIG_FIELDS.contains(String.valueOf(key))) {
+                    sorted.put(String.valueOf(key), canonicalize(entry));
+                }
+            });
+            return sorted;
+        }
+
+        if (value instanceof List<?> list) {
+            final List<Object> canonical = new ArrayList<>(list.size());
+            for (Object entry : list) {
+                canonical.add(canonicalize(entry));
+            }
+            return canonical;
+        }
+
+        return value;
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mmorrell.serum.util;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * OkHttp interceptor that stores every successful JSON-RPC response passing through it, e.g. getAccountInfo,
+ * getMultipleAccounts and getProgramAccounts, in a {@link RpcFixtureStore}.
+ */
+public class RpcRecordingInterceptor implements Interceptor {
+
+    private final RpcFixtureStore store;
+
+    public RpcRecordingInterceptor(RpcFixtureStore store) {
+        this.store = store;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        final long start = System.nanoTime();
+        final Response response = chain.proceed(request);
+        if (!response.isSuccessful() || request.body() == null || response.body() == null) {
+            return response;
+        }
+
+        // Read the whole body here, so that the latency covers the transfer as well
+        final ResponseBody responseBody = response.body();
+        final byte[] body = responseBody.bytes();
+        final long latencyNanos = System.nanoTime() - start;
+
+        final Buffer requestBody = new Buffer();
+        request.body().writeTo(requestBody);
+        store.put(requestBody.readUtf8(), new RpcFixtureStore.Fixture(latencyNanos, body));
+
+        return response.newBuilder()
+                .body(ResponseBody.create(body, responseBody.contentType()))
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.mmorrell.serum.util;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OkHttp interceptor answering JSON-RPC requests from a {@link RpcFixtureStore} instead of the network.
+ * <p>
+ * Each response is delayed by its recorded latency divided by the replay speed (1 by default, 0 meaning no delay),
+ * or by a fixed latency if one is set. Requests without a recorded response fail with an {@link IOException}, which
+ * {@link org.p2p.solanaj.rpc.RpcClient} reports as an RpcException.
+ */
+public class RpcReplayInterceptor implements Interceptor {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final RpcFixtureStore store;
+    private double speed = 1.0;
+    private Duration fixedLatency;
+
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicLong missedCount = new AtomicLong();
+
+    public RpcReplayInterceptor(RpcFixtureStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param speed replay speed: 2 halves the recorded latencies, 0 serves responses without delay
+     * @return this interceptor
+     */
+    public RpcReplayInterceptor setSpeed(double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative");
+        }
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * @param fixedLatency latency applied to every response instead of the recorded ones, or null to use those
+     * @return this interceptor
+     */
+    public RpcReplayInterceptor setFixedLatency(Duration fixedLatency) {
+        this.fixedLatency = fixedLatency;
+        return this;
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    public long getMissedCount() {
+        return missedCount.get();
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (request.body() == null) {
+            missedCount.incrementAndGet();
+            throw new IOException("No recorded response for " + request.method() + " " + request.url());
+        }
+
+        final Buffer requestBody = new Buffer();
+        request.body().writeTo(requestBody);
+        final String requestJson = requestBody.readUtf8();
+
+        final RpcFixtureStore.Fixture fixture = store.get(requestJson);
+        if (fixture == null) {
+            missedCount.incrementAndGet();
+            throw new IOException("No recorded response for " + RpcFixtureStore.requestKey(requestJson));
+        }
+
+        delay(fixture);
+        replayedCount.incrementAndGet();
+
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(fixture.body(), JSON))
+                .build();
+    }
+
+    private void delay(RpcFixtureStore.Fixture fixture) throws InterruptedIOException {
+        final long delayNanos;
+        if (fixedLatency != null) {
+            delayNanos = fixedLatency.toNanos();
+        } else if (speed == 0) {
+            delayNanos = 0;
+        } else {
+            delayNanos = (long) (fixture.latencyNanos() / speed);
+        }
+
+        if (delayNanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying response");
+        }
+    }
+}
@@ -1,22 +1,57 @@
+import com.mmorrell.serum.manager.OrderBookStreamManager;
 import com.mmorrell.serum.model.*;
+import com.mmorrell.serum.util.RpcExecutor;
+import com.mmorrell.serum.util.RpcFixtureStore;
+import com.mmorrell.serum.util.RpcRecordingInterceptor;
+import com.mmorrell.serum.util.RpcReplayInterceptor;
 import com.mmorrell.serum.model.Order;
+import com.squareup.moshi.Moshi;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+import okio.Buffer;
 import org.bitcoinj.core.Utils;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
 import org.junit.jupiter.api.*;
 import org.p2p.solanaj.core.PublicKey;
 import org.p2p.solanaj.rpc.RpcClient;
 import org.p2p.solanaj.rpc.RpcException;
 import org.p2p.solanaj.rpc.types.AccountInfo;
 import org.p2p.solanaj.utils.ByteUtils;
+import org.p2p.solanaj.ws.SubscriptionWebSocketClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -271,4 +306,790 @@ public class MarketTest {
 
     }
 
+
+    /**
+     * Verifies that {@link SlabView} reads the same orders as the eagerly decoded {@link Slab}, without copying.
+     */
+    @Test
+    public void slabViewTest() {
+        final byte[] data = buildTestSlab(false);
+
+        final OrderBook eager = OrderBook.readOrderBook(data);
+        final OrderBook view = OrderBook.readOrderBookView(data);
+        final SlabView slabView = view.getSlabView();
+
+        assertEquals(6, slabView.getBumpIndex());
+        assertEquals(0, slabView.getRoot());
+        assertEquals(3, slabView.getLeafCount());
+        assertTrue(slabView.isInner(0));
+        assertEquals(1, slabView.getChild(0, 0));
+        assertEquals(2, slabView.getChild(0, 1));
+        assertEquals(SlabView.TAG_FREE_NODE, slabView.getTag(5));
+
+        assertTrue(slabView.isLeaf(3));
+        assertEquals(105L, slabView.getPrice(3));
+        assertEquals(7L, slabView.getQuantity(3));
+        assertEquals(1003L, slabView.getClientOrderId(3));
+        assertEquals(testOwner(3), slabView.getOwner(3));
+        assertTrue(slabView.ownerEquals(3, testOwner(3)));
+        assertFalse(slabView.ownerEquals(3, testOwner(4)));
+
+        final List<Order> eagerOrders = eager.getSlab().getSlabNodes().stream()
+                .filter(slabNode -> slabNode instanceof SlabLeafNode)
+                .map(slabNode -> (SlabLeafNode) slabNode)
+                .map(leaf -> Order.builder().price(leaf.getPrice()).quantity(leaf.getQuantity()).owner(leaf.getOwner()).build())
+                .toList();
+        final List<Order> viewOrders = view.getOrders();
+
+        assertEquals(eagerOrders.size(), viewOrders.size());
+        for (int i = 0; i < eagerOrders.size(); i++) {
+            assertEquals(eagerOrders.get(i).getPrice(), viewOrders.get(i).getPrice());
+            assertEquals(eagerOrders.get(i).getQuantity(), viewOrders.get(i).getQuantity());
+            assertEquals(eagerOrders.get(i).getOwner(), viewOrders.get(i).getOwner());
+        }
+
+        // ByteBuffer-backed view, offset inside a larger buffer
+        final ByteBuffer buffer = ByteBuffer.allocate(data.length + 16);
+        buffer.position(16);
+        buffer.put(data);
+        buffer.position(16);
+        final SlabView bufferView = OrderBook.readOrderBookView(buffer).getSlabView();
+        assertEquals(110L, bufferView.getPrice(4));
+        assertEquals(16, buffer.position());
+
+        // Lazily materialized slab
+        assertEquals(3, view.getSlab().getLeafCount());
+    }
+
+    /**
+     * Verifies best bid/ask and top-of-book reads follow the critbit tree in price order.
+     */
+    @Test
+    public void slabTraversalTest() {
+        final OrderBook asks = OrderBook.readOrderBookView(buildTestSlab(false));
+        final OrderBook bids = OrderBook.readOrderBookView(buildTestSlab(true));
+
+        assertEquals(1, asks.getSlabView().minLeaf());
+        assertEquals(4, asks.getSlabView().maxLeaf());
+        assertEquals(100L, asks.getBestAsk().getPrice());
+        assertEquals(110L, bids.getBestBid().getPrice());
+
+        final PrimitiveIterator.OfInt ascending = asks.getSlabView().leafIterator(false);
+        assertEquals(1, ascending.nextInt());
+        assertEquals(3, ascending.nextInt());
+        assertEquals(4, ascending.nextInt());
+        assertFalse(ascending.hasNext());
+
+        final List<Order> topAsks = asks.getTopN(2);
+        assertEquals(2, topAsks.size());
+        assertEquals(100L, topAsks.get(0).getPrice());
+        assertEquals(105L, topAsks.get(1).getPrice());
+
+        final List<Order> topBids = bids.getTopN(10);
+        assertEquals(List.of(110L, 105L, 100L), topBids.stream().map(Order::getPrice).toList());
+
+        final List<Order> bidDepth = bids.getDepth(2);
+        assertEquals(List.of(110L, 105L), bidDepth.stream().map(Order::getPrice).toList());
+
+        // Eager and view-backed order books agree on best prices
+        assertEquals(
+                OrderBook.readOrderBook(buildTestSlab(true)).getBestBid().getPrice(),
+                bids.getBestBid().getPrice()
+        );
+
+        // Empty book
+        final byte[] empty = buildTestSlab(false);
+        ByteBuffer.wrap(empty).order(ByteOrder.LITTLE_ENDIAN).putInt(37, 0);
+        final OrderBook emptyBook = OrderBook.readOrderBookView(empty);
+        assertNull(emptyBook.getBestAsk());
+        assertTrue(emptyBook.getTopN(5).isEmpty());
+    }
+
+    /**
+     * Verifies order books built from a decoded {@link Slab} without a view read the same as view-backed ones, and
+     * that empty books return null best prices instead of throwing.
+     */
+    @Test
+    public void slabOnlyOrderBookTest() {
+        for (boolean bidSide : new boolean[]{true, false}) {
+            final byte[] data = buildTestSlab(bidSide);
+            final OrderBook view = OrderBook.readOrderBookView(data);
+            final OrderBook slabOnly = new OrderBook();
+            slabOnly.setAccountFlags(view.getAccountFlags());
+            slabOnly.setSlab(Slab.readOrderBookSlab(data));
+
+            assertEquals(
+                    view.getTopN(10).stream().map(Order::getPrice).toList(),
+                    slabOnly.getTopN(10).stream().map(Order::getPrice).toList()
+            );
+            assertEquals(
+                    view.getDepth(2).stream().map(Order::getPrice).toList(),
+                    slabOnly.getDepth(2).stream().map(Order::getPrice).toList()
+            );
+            assertArrayEquals(view.getL2Book().getPrices(), slabOnly.getL2Book().getPrices());
+            assertArrayEquals(view.getL2Book().getSizes(), slabOnly.getL2Book().getSizes());
+        }
+
+        final OrderBook slabBids = new OrderBook();
+        slabBids.setAccountFlags(OrderBook.readOrderBookView(buildTestSlab(true)).getAccountFlags());
+        slabBids.setSlab(Slab.readOrderBookSlab(buildTestSlab(true)));
+        assertEquals(110L, slabBids.getBestBid().getPrice());
+        assertEquals(100L, slabBids.getBestAsk().getPrice());
+
+        // Without account flags: still the highest price for the best bid and the lowest for the best ask
+        for (boolean bidSide : new boolean[]{true, false}) {
+            final OrderBook noFlags = new OrderBook();
+            noFlags.setSlab(Slab.readOrderBookSlab(buildTestSlab(bidSide)));
+            assertEquals(110L, noFlags.getBestBid().getPrice());
+            assertEquals(100L, noFlags.getBestAsk().getPrice());
+        }
+
+        final OrderBook emptySlab = new OrderBook();
+        final Slab slab = new Slab();
+        slab.setSlabNodes(new ArrayList<>());
+        emptySlab.setSlab(slab);
+        assertNull(emptySlab.getBestBid());
+        assertNull(emptySlab.getBestAsk());
+        assertTrue(emptySlab.getL2Book().isEmpty());
+        assertNull(new OrderBook().getBestAsk());
+    }
+
+    /**
+     * Verifies {@link L2Book} level aggregation, cumulative depth, VWAP and mid/spread helpers.
+     */
+    @Test
+    public void l2BookTest() {
+        final L2Book asks = OrderBook.readOrderBookView(buildTestSlab(false)).getL2Book();
+        assertEquals(3, asks.getLevels());
+        assertArrayEquals(new long[]{100L, 105L, 110L}, asks.getPrices());
+        assertArrayEquals(new long[]{5L, 12L, 13L}, asks.getCumulativeSizes());
+        assertEquals((100.0 * 5 + 105.0 * 2) / 7, asks.getVwap(7), 1e-9);
+        assertTrue(Double.isNaN(asks.getVwap(14)));
+
+        final L2Book topBid = OrderBook.readOrderBookView(buildTestSlab(true)).getL2Book(1);
+        assertEquals(1, topBid.getLevels());
+        assertEquals(110L, topBid.getPrice(0));
+
+        // Same-price orders merge into one level; out-of-order input is regrouped on read
+        final L2Book bids = new L2Book(true);
+        bids.add(99L, 1L);
+        bids.add(101L, 2L);
+        bids.add(99L, 3L);
+        bids.add(100L, 4L);
+        bids.add(100L, 5L);
+        assertArrayEquals(new long[]{101L, 100L, 99L}, bids.getPrices());
+        assertArrayEquals(new long[]{2L, 9L, 4L}, bids.getSizes());
+        assertEquals(15L, bids.getTotalSize());
+
+        final L2Book bestAsk = new L2Book(false);
+        bestAsk.add(103L, 1L);
+        assertEquals(102.0, L2Book.getMidPrice(bids, bestAsk), 1e-9);
+        assertEquals(2.0, L2Book.getSpread(bids, bestAsk), 1e-9);
+        assertTrue(Double.isNaN(L2Book.getMidPrice(bids, new L2Book(false))));
+    }
+
+    /**
+     * Verifies {@link SlabDiff} emits MODIFY for partial fills, REMOVE for freed leaves and ADD for new leaves.
+     */
+    @Test
+    public void slabDiffTest() {
+        final byte[] previousData = buildTestSlab(false);
+        final byte[] currentData = buildTestSlab(false);
+        final ByteBuffer current = ByteBuffer.wrap(currentData).order(ByteOrder.LITTLE_ENDIAN);
+
+        // node 3 partially filled, node 4 cancelled, free node 5 reused by a new order
+        current.putLong(45 + (3 * SlabView.NODE_SIZE) + 56, 4L);
+        current.putInt(45 + (4 * SlabView.NODE_SIZE), SlabView.TAG_FREE_NODE);
+        writeTestLeafNode(current, 5, 108L, 9L);
+
+        final OrderBook previousBook = OrderBook.readOrderBookView(previousData);
+        final SlabDiff diff = SlabDiff.diff(previousBook, OrderBook.readOrderBookView(currentData));
+        assertEquals(3, diff.size());
+
+        final SlabDiffEvent remove = diff.getEvents().get(0);
+        assertEquals(SlabDiffEvent.Type.REMOVE, remove.getType());
+        assertEquals(110L, remove.getPrice());
+        assertEquals(0L, remove.getQuantity());
+
+        final SlabDiffEvent modify = diff.getEvents().get(1);
+        assertEquals(SlabDiffEvent.Type.MODIFY, modify.getType());
+        assertEquals(3, modify.getSeqNum());
+        assertEquals(7L, modify.getPreviousQuantity());
+        assertEquals(4L, modify.getQuantity());
+
+        final SlabDiffEvent add = diff.getEvents().get(2);
+        assertEquals(SlabDiffEvent.Type.ADD, add.getType());
+        assertEquals(108L, add.getPrice());
+        assertEquals(9L, add.getQuantity());
+        assertEquals(1005L, add.getClientOrderId());
+
+        // No previous snapshot: every order is new. Identical snapshot: nothing changed.
+        assertEquals(3, SlabDiff.diff(null, previousBook).size());
+        assertTrue(SlabDiff.diff(previousBook, OrderBook.readOrderBookView(buildTestSlab(false))).isEmpty());
+
+        // Cancelling 110 copies its sibling 105 into the parent's slot 2: only the cancelled order is removed
+        final byte[] removedData = buildTestSlab(false);
+        final ByteBuffer removed = ByteBuffer.wrap(removedData).order(ByteOrder.LITTLE_ENDIAN);
+        writeTestLeafNode(removed, 2, 3, 105L, 7L);
+        removed.putInt(45 + (3 * SlabView.NODE_SIZE), SlabView.TAG_FREE_NODE);
+        removed.putInt(45 + (4 * SlabView.NODE_SIZE), SlabView.TAG_FREE_NODE);
+        final SlabDiff removeDiff = SlabDiff.diff(previousBook, OrderBook.readOrderBookView(removedData));
+        assertEquals(1, removeDiff.size());
+        assertEquals(SlabDiffEvent.Type.REMOVE, removeDiff.getEvents().get(0).getType());
+        assertEquals(4, removeDiff.getEvents().get(0).getSeqNum());
+        assertEquals(110L, removeDiff.getEvents().get(0).getPrice());
+
+        // Inserting 108 turns 110's slot 4 into an inner node and copies 110 to slot 5: only the new order is added
+        final byte[] insertedData = Arrays.copyOf(buildTestSlab(false), 45 + (7 * SlabView.NODE_SIZE) + 7);
+        final ByteBuffer inserted = ByteBuffer.wrap(insertedData).order(ByteOrder.LITTLE_ENDIAN);
+        inserted.putInt(13, 7); // bumpIndex
+        inserted.putInt(21, 0); // freeListLen
+        inserted.putInt(37, 4); // leafCount
+        writeTestInnerNode(inserted, 4, 6, 5);
+        writeTestLeafNode(inserted, 5, 4, 110L, 1L);
+        writeTestLeafNode(inserted, 6, 6, 108L, 9L);
+        final SlabDiff insertDiff = SlabDiff.diff(previousBook, OrderBook.readOrderBookView(insertedData));
+        assertEquals(1, insertDiff.size());
+        assertEquals(SlabDiffEvent.Type.ADD, insertDiff.getEvents().get(0).getType());
+        assertEquals(6, insertDiff.getEvents().get(0).getSeqNum());
+        assertEquals(6, insertDiff.getEvents().get(0).getNodeIndex());
+    }
+
+    /**
+     * Streams bids, asks and an event queue from a local stand-in websocket server through
+     * {@link OrderBookStreamManager} and verifies each push is published as a new snapshot.
+     */
+    @Test
+    public void orderBookStreamManagerTest() throws Exception {
+        final PublicKey marketId = new PublicKey("8BnEgHoWFysVcuFFX7QztDmzuH8r5ZFvyP3sYwn1XTh6");
+        final Market market = new Market();
+        market.setOwnAddress(marketId);
+        market.setBids(new PublicKey("Dd3bnbbEVVtfqaRCfMMxYWZKvy4YGZZQPxKv1hMPmt7W"));
+        market.setAsks(new PublicKey("7ECRrHWaFnB3UHzzVBU4fUXh2DxxfC5P9VAmTnE9Gfmt"));
+        market.setEventQueueKey(new PublicKey("8bALWCvEeAxb6yqELiFz4ZAXNEwq7B4WZMVJ5tpiFkfj"));
+        market.setBaseLotSize(100L);
+        market.setQuoteLotSize(10L);
+
+        final Map<String, byte[]> accounts = Map.of(
+                market.getBids().toBase58(), buildTestSlab(true),
+                market.getAsks().toBase58(), buildTestSlab(false),
+                market.getEventQueueKey().toBase58(), buildTestEventQueue()
+        );
+
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        final StandInAccountServer server = new StandInAccountServer(new InetSocketAddress("localhost", port), accounts);
+        server.start();
+        final SubscriptionWebSocketClient webSocketClient = new SubscriptionWebSocketClient(
+                new URI("ws://localhost:" + port)
+        );
+
+        try {
+            assertTrue(webSocketClient.connectBlocking(5, TimeUnit.SECONDS));
+            final OrderBookStreamManager streamManager = new OrderBookStreamManager(webSocketClient, null);
+            streamManager.addMarket(market);
+
+            OrderBookSnapshot snapshot = streamManager.getSnapshot(marketId).orElseThrow();
+            for (int i = 0; i < 100 && snapshot.getVersion() < 3; i++) {
+                Thread.sleep(50);
+                snapshot = streamManager.getSnapshot(marketId).orElseThrow();
+            }
+
+            assertEquals(3, snapshot.getVersion());
+            assertEquals(110L, snapshot.getBestBid().getPrice());
+            assertEquals(100L, snapshot.getBestAsk().getPrice());
+            assertEquals(100L, snapshot.getBidOrderBook().getBaseLotSize());
+            assertEquals(0, snapshot.getEventQueue().getCount());
+            assertSame(snapshot.getAskOrderBook(), streamManager.getOrderBook(market.getAsks()));
+            assertFalse(streamManager.getSnapshot(market.getBids()).isPresent());
+
+            assertTrue(streamManager.removeMarket(marketId));
+            assertFalse(streamManager.getSnapshot(marketId).isPresent());
+            assertNull(streamManager.getOrderBook(market.getAsks()));
+            assertNull(webSocketClient.getSubscriptionId(market.getBids().toBase58()));
+            assertFalse(streamManager.removeMarket(marketId));
+            for (int i = 0; i < 100 && server.unsubscribes.get() < 3; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(3, server.unsubscribes.get());
+
+            // Removed before the node confirms the subscriptions: unsubscribed once their first updates arrive
+            server.confirmations = new CountDownLatch(1);
+            streamManager.addMarket(market);
+            assertTrue(streamManager.removeMarket(marketId));
+            server.confirmations.countDown();
+            for (int i = 0; i < 100 && server.unsubscribes.get() < 6; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(6, server.unsubscribes.get());
+            assertFalse(streamManager.getSnapshot(marketId).isPresent());
+        } finally {
+            webSocketClient.closeBlocking();
+            server.stop();
+        }
+    }
+
+    /**
+     * Minimal JSON-RPC websocket server answering accountSubscribe with an id, then one accountNotification, and
+     * counting accountUnsubscribe requests. Subscriptions are confirmed once confirmations is counted down.
+     */
+    private static class StandInAccountServer extends WebSocketServer {
+
+        private static final Pattern REQUEST_ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+        private static final Pattern ACCOUNT = Pattern.compile("\"params\":\\[\"([^\"]+)\"");
+
+        private final Map<String, byte[]> accounts;
+        private final AtomicLong subscriptionIds = new AtomicLong();
+        private final AtomicInteger unsubscribes = new AtomicInteger();
+        private volatile CountDownLatch confirmations = new CountDownLatch(0);
+
+        private StandInAccountServer(InetSocketAddress address, Map<String, byte[]> accounts) {
+            super(address);
+            this.accounts = accounts;
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            final Matcher requestId = REQUEST_ID.matcher(message);
+            final Matcher account = ACCOUNT.matcher(message);
+            if (message.contains("accountUnsubscribe")) {
+                unsubscribes.incrementAndGet();
+                return;
+            }
+
+            if (!message.contains("accountSubscribe") || !requestId.find() || !account.find()) {
+                return;
+            }
+
+            try {
+                confirmations.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final long subscriptionId = subscriptionIds.incrementAndGet();
+            conn.send("{\"jsonrpc\":\"2.0\",\"id\":\"" + requestId.group(1) + "\",\"result\":" + subscriptionId + "}");
+            conn.send("{\"jsonrpc\":\"2.0\",\"method\":\"accountNotification\",\"params\":{\"result\":"
+                    + "{\"context\":{\"slot\":1},\"value\":{\"data\":[\""
+                    + Base64.getEncoder().encodeToString(accounts.get(account.group(1)))
+                    + "\",\"base64\"],\"executable\":false,\"lamports\":1,"
+                    + "\"owner\":\"11111111111111111111111111111111\",\"rentEpoch\":0}},"
+                    + "\"subscription\":" + subscriptionId + "}}");
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            LOGGER.error("Stand-in server error", ex);
+        }
+
+        @Override
+        public void onStart() {
+        }
+    }
+
+    private static byte[] buildTestEventQueue() {
+        final byte[] data = new byte[37 + (2 * 88) + 7];
+        System.arraycopy("serum".getBytes(), 0, data, 0, 5);
+        data[5] = 16; // eventQueue flag
+        return data;
+    }
+
+    /**
+     * Loads 150 synthetic markets through {@link MarketBatchLoader} against a canned getMultipleAccounts endpoint,
+     * verifying chunking to 100 keys, shared mint lookups and skipped missing markets.
+     */
+    @Test
+    public void marketBatchLoaderTest() {
+        final PublicKey baseMint = testKey(1_000_000, 1);
+        final Map<String, byte[]> accounts = new HashMap<>();
+        final byte[] mintData = new byte[82];
+        mintData[SerumUtils.TOKEN_MINT_DECIMALS_OFFSET] = 8;
+        accounts.put(baseMint.toBase58(), mintData);
+
+        final List<PublicKey> marketIds = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            final PublicKey marketId = testKey(i, 2);
+            final PublicKey bids = testKey(i, 3);
+            final PublicKey asks = testKey(i, 4);
+            marketIds.add(marketId);
+            accounts.put(marketId.toBase58(), buildTestMarket(marketId, baseMint, bids, asks));
+            accounts.put(bids.toBase58(), buildTestSlab(true));
+            accounts.put(asks.toBase58(), buildTestSlab(false));
+        }
+        // not served, should be left out
+        marketIds.add(testKey(999, 2));
+
+        final List<Integer> requestSizes = Collections.synchronizedList(new ArrayList<>());
+        final Moshi moshi = new Moshi.Builder().build();
+        final OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    final Buffer buffer = new Buffer();
+                    chain.request().body().writeTo(buffer);
+                    final Map<?, ?> request = moshi.adapter(Map.class).fromJson(buffer.readUtf8());
+                    final List<?> keys = (List<?>) ((List<?>) request.get("params")).get(0);
+                    requestSizes.add(keys.size());
+
+                    final List<Object> values = new ArrayList<>();
+                    for (Object key : keys) {
+                        final byte[] data = accounts.get((String) key);
+                        values.add(data == null ? null : Map.of(
+                                "data", List.of(Base64.getEncoder().encodeToString(data), "base64"),
+                                "executable", false,
+                                "lamports", 1,
+                                "owner", "11111111111111111111111111111111",
+                                "rentEpoch", 0
+                        ));
+                    }
+
+                    final Map<String, Object> response = new HashMap<>();
+                    response.put("jsonrpc", "2.0");
+                    response.put("id", request.get("id"));
+                    response.put("result", Map.of("context", Map.of("slot", 1), "value", values));
+                    return new okhttp3.Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(moshi.adapter(Map.class).serializeNulls().toJson(response),
+                                    MediaType.get("application/json")))
+                            .build();
+                })
+                .build();
+
+        final Map<PublicKey, Market> markets = new MarketBatchLoader(new RpcClient("http://localhost", httpClient))
+                .setRetrieveOrderBooks(true)
+                .load(marketIds);
+
+        assertEquals(150, markets.size());
+        assertFalse(markets.containsKey(testKey(999, 2)));
+        // 151 markets -> 100 + 51; then 300 books + 1 mint (USDC is known) -> 100 + 100 + 100 + 1
+        assertEquals(6, requestSizes.size());
+        assertTrue(requestSizes.stream().allMatch(size -> size <= MarketBatchLoader.MAX_ACCOUNTS_PER_REQUEST));
+
+        final Market market = markets.get(marketIds.get(42));
+        assertEquals(8, market.getBaseDecimals());
+        assertEquals(6, market.getQuoteDecimals());
+        assertEquals(110L, market.getBestBid().getPrice());
+        assertEquals(100L, market.getBestAsk().getPrice());
+        assertEquals(market.getBaseLotSize(), market.getAskOrderBook().getBaseLotSize());
+    }
+
+    private static byte[] buildTestMarket(PublicKey marketId, PublicKey baseMint, PublicKey bids, PublicKey asks) {
+        final byte[] data = new byte[388];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(0, "serum".getBytes());
+        buffer.put(5, (byte) 3); // initialized, market
+        buffer.put(SerumUtils.OWN_ADDRESS_OFFSET, marketId.toByteArray());
+        buffer.put(SerumUtils.BASE_MINT_OFFSET, baseMint.toByteArray());
+        buffer.put(SerumUtils.QUOTE_MINT_OFFSET, SerumUtils.USDC_MINT.toByteArray());
+        buffer.put(SerumUtils.BIDS_OFFSET, bids.toByteArray());
+        buffer.put(SerumUtils.ASKS_OFFSET, asks.toByteArray());
+        buffer.putLong(SerumUtils.BASE_LOT_SIZE_OFFSET, 100L);
+        buffer.putLong(SerumUtils.QUOTE_LOT_SIZE_OFFSET, 10L);
+        return data;
+    }
+
+    private static PublicKey testKey(int index, int kind) {
+        final byte[] key = new byte[32];
+        ByteBuffer.wrap(key).putInt(index);
+        key[31] = (byte) kind;
+        return new PublicKey(key);
+    }
+
+    /**
+     * Verifies {@link RpcExecutor} caps in-flight tasks and reports queue depth while the rest wait, and counts each
+     * call as completed or failed before its future completes.
+     */
+    @Test
+    public void rpcExecutorTest() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger peakInFlight = new AtomicInteger();
+
+        try (RpcExecutor rpcExecutor = RpcExecutor.virtualThreads(2)) {
+            assertEquals(Runtime.version().feature() >= 21, rpcExecutor.isVirtualThreads());
+
+            final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                final int result = i;
+                futures.add(rpcExecutor.supplyAsync(() -> {
+                    peakInFlight.accumulateAndGet(rpcExecutor.getInFlight(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return result;
+                }));
+            }
+
+            for (int i = 0; i < 100 && rpcExecutor.getInFlight() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, rpcExecutor.getInFlight());
+            assertEquals(4, rpcExecutor.getQueueDepth());
+
+            release.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+
+            assertEquals(6, rpcExecutor.getCompletedCount());
+            assertEquals(0, rpcExecutor.getQueueDepth());
+            assertTrue(peakInFlight.get() <= 2);
+
+            // A throwing call fails its future and is counted as failed, not completed
+            final CompletableFuture<Integer> failed = rpcExecutor.supplyAsync(() -> {
+                throw new IllegalStateException("rpc error");
+            });
+            final ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> failed.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+            assertEquals(1, rpcExecutor.getFailedCount());
+            assertEquals(6, rpcExecutor.getCompletedCount());
+        }
+    }
+
+    /**
+     * Verifies {@link EventQueueCursor} visits only events after the last seen sequence number, across ring buffer
+     * wrap-around, and counts events overwritten before they were polled.
+     */
+    @Test
+    public void eventQueueCursorTest() {
+        // 4 slots, events 2..5 in the buffer: seq 3 at slot 0, 4 at 1, 5 at 2, 2 at 3
+        final byte[] data = buildTestEventQueue(4, 1, 2, 6);
+        writeTestEvent(data, 0, 3);
+        writeTestEvent(data, 1, 4);
+        writeTestEvent(data, 2, 5);
+        writeTestEvent(data, 3, 2);
+
+        final List<Long> seen = new ArrayList<>();
+        final EventQueueCursor cursor = new EventQueueCursor(3);
+        assertEquals(2, cursor.poll(data, event -> {
+            assertEquals(event.getSeqNum(), event.getClientOrderId());
+            seen.add(event.getSeqNum());
+        }));
+        assertEquals(List.of(4L, 5L), seen);
+        assertEquals(0, cursor.poll(data, event -> fail("no new events")));
+
+        // Push 6 and 7, wrapping around to slots 3 and 0
+        final ByteBuffer header = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(21, 4L);
+        header.putLong(29, 8L);
+        writeTestEvent(data, 3, 6);
+        writeTestEvent(data, 0, 7);
+
+        seen.clear();
+        cursor.poll(data, event -> seen.add(event.getSeqNum()));
+        assertEquals(List.of(6L, 7L), seen);
+        assertEquals(7L, cursor.getLastSeqNum());
+
+        // Events 1..3 were overwritten before this cursor polled
+        final EventQueueCursor lagging = new EventQueueCursor(0);
+        seen.clear();
+        lagging.poll(data, event -> seen.add(event.getSeqNum()));
+        assertEquals(List.of(4L, 5L, 6L, 7L), seen);
+        assertEquals(3, lagging.getMissedEvents());
+
+        assertEquals(0, EventQueueCursor.atEnd(data).poll(data, event -> fail("cursor should start at the end")));
+
+        final EventQueueEventView[] last = new EventQueueEventView[1];
+        new EventQueueCursor(6).poll(data, event -> last[0] = event);
+        assertTrue(last[0].isFill());
+        assertTrue(last[0].isBid());
+        assertFalse(last[0].isMaker());
+        assertEquals(2_000L, last[0].getNativeQuantityPaid());
+        assertTrue(last[0].openOrdersEquals(testOwner(7)));
+        assertEquals(2.0, last[0].getPrice((byte) 0, (byte) 0), 1e-9);
+    }
+
+    private static byte[] buildTestEventQueue(int allocLen, long head, long count, long seqNum) {
+        final byte[] data = new byte[37 + (allocLen * 88) + 7];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(0, "serum".getBytes());
+        buffer.put(5, (byte) 17); // initialized, eventQueue
+        buffer.putLong(13, head);
+        buffer.putLong(21, count);
+        buffer.putLong(29, seqNum);
+        return data;
+    }
+
+    private static void writeTestEvent(byte[] data, int slot, long seqNum) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        final int offset = 37 + (slot * 88);
+        buffer.put(offset, (byte) 5); // fill, bid
+        buffer.putLong(offset + 8, 1_000L); // released (base)
+        buffer.putLong(offset + 16, 2_000L); // paid (quote)
+        buffer.put(offset + 48, testOwner((int) seqNum).toByteArray());
+        buffer.putLong(offset + 80, seqNum);
+    }
+
+    /**
+     * Builds a small bids or asks account: 3 leaves (prices 100, 105, 110) under 2 inner nodes, plus a free node.
+     */
+    private static byte[] buildTestSlab(boolean bids) {
+        final byte[] data = new byte[45 + (6 * SlabView.NODE_SIZE) + 7];
+        final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(0, "serum".getBytes());
+        buffer.put(5, (byte) (bids ? 33 : 65));
+        buffer.putInt(13, 6); // bumpIndex
+        buffer.putInt(21, 1); // freeListLen
+        buffer.putInt(29, 5); // freeListHead
+        buffer.putInt(33, 0); // root
+        buffer.putInt(37, 3); // leafCount
+
+        writeTestInnerNode(buffer, 0, 1, 2);
+        writeTestLeafNode(buffer, 1, 100L, 5L);
+        writeTestInnerNode(buffer, 2, 3, 4);
+        writeTestLeafNode(buffer, 3, 105L, 7L);
+        writeTestLeafNode(buffer, 4, 110L, 1L);
+        buffer.putInt(45 + (5 * SlabView.NODE_SIZE), SlabView.TAG_FREE_NODE);
+
+        return data;
+    }
+
+    private static void writeTestInnerNode(ByteBuffer buffer, int index, int child0, int child1) {
+        final int offset = 45 + (index * SlabView.NODE_SIZE);
+        buffer.putInt(offset, SlabView.TAG_INNER_NODE);
+        buffer.putInt(offset + 4, 64);
+        buffer.putInt(offset + 24, child0);
+        buffer.putInt(offset + 28, child1);
+    }
+
+    private static void writeTestLeafNode(ByteBuffer buffer, int index, long price, long quantity) {
+        writeTestLeafNode(buffer, index, index, price, quantity);
+    }
+
+    // Sequence number, owner and client order id follow the order, so a leaf can be written to another slot
+    private static void writeTestLeafNode(ByteBuffer buffer, int index, int seqNum, long price, long quantity) {
+        final int offset = 45 + (index * SlabView.NODE_SIZE);
+        buffer.putInt(offset, SlabView.TAG_LEAF_NODE);
+        buffer.putLong(offset + 8, seqNum);
+        buffer.putLong(offset + 16, price);
+        buffer.put(offset + 24, testOwner(seqNum).toByteArray());
+        buffer.putLong(offset + 56, quantity);
+        buffer.putLong(offset + 64, 1000L + seqNum);
+    }
+
+    private static PublicKey testOwner(int index) {
+        final byte[] owner = new byte[32];
+        Arrays.fill(owner, (byte) index);
+        return new PublicKey(owner);
+    }
+
+    /**
+     * Records a {@link MarketBuilder} run against a canned endpoint into a {@link RpcFixtureStore}, saves and reloads
+     * it, then rebuilds the market from the replayed responses alone.
+     */
+    @Test
+    public void rpcFixtureRecordReplayTest() throws Exception {
+        final PublicKey marketId = testKey(1, 2);
+        final PublicKey bids = testKey(1, 3);
+        final PublicKey asks = testKey(1, 4);
+        final Map<String, byte[]> accounts = Map.of(
+                marketId.toBase58(), buildTestMarket(marketId, SerumUtils.WRAPPED_SOL_MINT, bids, asks),
+                bids.toBase58(), buildTestSlab(true),
+                asks.toBase58(), buildTestSlab(false)
+        );
+
+        final AtomicInteger upstreamRequests = new AtomicInteger();
+        final Moshi moshi = new Moshi.Builder().build();
+        final RpcFixtureStore store = new RpcFixtureStore();
+        final OkHttpClient recordingHttpClient = new OkHttpClient.Builder()
+                .addInterceptor(new RpcRecordingInterceptor(store))
+                .addInterceptor(chain -> {
+                    upstreamRequests.incrementAndGet();
+                    final Buffer buffer = new Buffer();
+                    chain.request().body().writeTo(buffer);
+                    final Map<?, ?> request = moshi.adapter(Map.class).fromJson(buffer.readUtf8());
+                    final String key = (String) ((List<?>) request.get("params")).get(0);
+
+                    final Map<String, Object> response = Map.of(
+                            "jsonrpc", "2.0",
+                            "id", request.get("id"),
+                            "result", Map.of(
+                                    "context", Map.of("slot", 1),
+                                    "value", Map.of(
+                                            "data", List.of(Base64.getEncoder().encodeToString(accounts.get(key)),
+                                                    "base64"),
+                                            "executable", false,
+                                            "lamports", 1,
+                                            "owner", "11111111111111111111111111111111",
+                                            "rentEpoch", 0
+                                    )
+                            )
+                    );
+                    return new okhttp3.Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(moshi.adapter(Map.class).toJson(response),
+                                    MediaType.get("application/json")))
+                            .build();
+                })
+                .build();
+
+        final Market recorded = new MarketBuilder()
+                .setClient(new RpcClient("http://localhost", recordingHttpClient))
+                .setPublicKey(marketId)
+                .setRetrieveOrderBooks(true)
+                .build();
+        assertEquals(3, store.size());
+
+        final Path fixtureFile = Files.createTempFile("rpc-fixtures", ".bin");
+        try {
+            store.save(fixtureFile);
+
+            final RpcReplayInterceptor replayInterceptor = new RpcReplayInterceptor(RpcFixtureStore.load(fixtureFile))
+                    .setFixedLatency(Duration.ofMillis(25));
+            final long start = System.nanoTime();
+            final Market replayed = new MarketBuilder()
+                    .setClient(RpcFixtureStore.replayingClient(replayInterceptor))
+                    .setPublicKey(marketId)
+                    .setRetrieveOrderBooks(true)
+                    .build();
+
+            // market first, then bids and asks concurrently
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(3, upstreamRequests.get());
+            assertEquals(3, replayInterceptor.getReplayedCount());
+            assertEquals(recorded.getBaseDecimals(), replayed.getBaseDecimals());
+            assertEquals(recorded.getBestBid().getPrice(), replayed.getBestBid().getPrice());
+            assertEquals(recorded.getBestAsk().getPrice(), replayed.getBestAsk().getPrice());
+
+            // Building from a task on a single-thread executor fetches both books inline instead of deadlocking
+            try (RpcExecutor singleThread = RpcExecutor.platformThreads(1)) {
+                final Market nested = singleThread.supplyAsync(() -> new MarketBuilder()
+                        .setClient(RpcFixtureStore.replayingClient(replayInterceptor))
+                        .setRpcExecutor(singleThread)
+                        .setPublicKey(marketId)
+                        .setRetrieveOrderBooks(true)
+                        .build()).get(10, TimeUnit.SECONDS);
+                assertEquals(recorded.getBestBid().getPrice(), nested.getBestBid().getPrice());
+                assertEquals(recorded.getBestAsk().getPrice(), nested.getBestAsk().getPrice());
+            }
+
+            // Requests that were never recorded fail instead of reaching the network
+            assertThrows(
+                    RpcException.class,
+                    () -> RpcFixtureStore.replayingClient(replayInterceptor).getApi().getAccountInfo(testKey(2, 2))
+            );
+            assertEquals(1, replayInterceptor.getMissedCount());
+        } finally {
+            Files.deleteIfExists(fixtureFile);
+        }
+    }
+
 }